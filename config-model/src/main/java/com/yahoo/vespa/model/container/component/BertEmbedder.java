@@ -33,6 +33,7 @@ public class BertEmbedder extends TypedComponent implements BertBaseEmbedderConf
     private final Integer transformerStartSequenceToken;
     private final Integer transformerEndSequenceToken;
     private final String poolingStrategy;
+    private final Integer batchingMaxSize;
 
     public BertEmbedder(ApplicationContainerCluster cluster, Element xml, DeployState state) {
         super("ai.vespa.embedding.BertBaseEmbedder", INTEGRATION_BUNDLE_NAME, xml);
@@ -52,6 +53,7 @@ public class BertEmbedder extends TypedComponent implements BertBaseEmbedderConf
         transformerStartSequenceToken = getChildValue(xml, "transformer-start-sequence-token").map(Integer::parseInt).orElse(null);
         transformerEndSequenceToken = getChildValue(xml, "transformer-end-sequence-token").map(Integer::parseInt).orElse(null);
         poolingStrategy = getChildValue(xml, "pooling-strategy").orElse(null);
+        batchingMaxSize = getChildValue(xml, "batching-max-size").map(Integer::parseInt).orElse(null);
         model.registerOnnxModelCost(cluster, onnxModelOptions);
     }
 
@@ -66,6 +68,7 @@ public class BertEmbedder extends TypedComponent implements BertBaseEmbedderConf
         if (transformerStartSequenceToken != null) b.transformerStartSequenceToken(transformerStartSequenceToken);
         if (transformerEndSequenceToken != null) b.transformerEndSequenceToken(transformerEndSequenceToken);
         if (poolingStrategy != null) b.poolingStrategy(PoolingStrategy.Enum.valueOf(poolingStrategy));
+        if (batchingMaxSize != null) b.batchingMaxSize(batchingMaxSize);
         onnxModelOptions.executionMode().ifPresent(value -> b.onnxExecutionMode(OnnxExecutionMode.Enum.valueOf(value)));
         onnxModelOptions.interOpThreads().ifPresent(b::onnxInterOpThreads);
         onnxModelOptions.intraOpThreads().ifPresent(b::onnxIntraOpThreads);
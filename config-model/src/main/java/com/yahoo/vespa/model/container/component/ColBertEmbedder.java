@@ -44,6 +44,7 @@ public class ColBertEmbedder extends TypedComponent implements ColBertEmbedderCo
     private final Integer documentTokenId;
 
     private final String transformerOutput;
+    private final Integer batchingMaxSize;
 
     public ColBertEmbedder(ApplicationContainerCluster cluster, Element xml, DeployState state) {
         super("ai.vespa.embedding.ColBertEmbedder", INTEGRATION_BUNDLE_NAME, xml);
@@ -67,6 +68,7 @@ public class ColBertEmbedder extends TypedComponent implements ColBertEmbedderCo
         transformerInputIds = getChildValue(xml, "transformer-input-ids").orElse(null);
         transformerAttentionMask = getChildValue(xml, "transformer-attention-mask").orElse(null);
         transformerOutput = getChildValue(xml, "transformer-output").orElse(null);
+        batchingMaxSize = getChildValue(xml, "batching-max-size").map(Integer::parseInt).orElse(null);
         model.registerOnnxModelCost(cluster, onnxModelOptions);
     }
 
@@ -85,6 +87,7 @@ public class ColBertEmbedder extends TypedComponent implements ColBertEmbedderCo
         if (transformerPadToken != null) b.transformerPadToken(transformerPadToken);
         if (queryTokenId != null) b.queryTokenId(queryTokenId);
         if (documentTokenId != null) b.documentTokenId(documentTokenId);
+        if (batchingMaxSize != null) b.batchingMaxSize(batchingMaxSize);
         onnxModelOptions.executionMode().ifPresent(value -> b.transformerExecutionMode(TransformerExecutionMode.Enum.valueOf(value)));
         onnxModelOptions.interOpThreads().ifPresent(b::transformerInterOpThreads);
         onnxModelOptions.intraOpThreads().ifPresent(b::transformerIntraOpThreads);
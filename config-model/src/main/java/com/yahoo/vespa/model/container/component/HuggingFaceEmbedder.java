@@ -33,6 +33,8 @@ public class HuggingFaceEmbedder extends TypedComponent implements HuggingFaceEm
     private final String transformerOutput;
     private final Boolean normalize;
     private final String poolingStrategy;
+    private final Integer batchingMaxSize;
+    private final Integer batchingMaxDelayMillis;
 
     public HuggingFaceEmbedder(ApplicationContainerCluster cluster, Element xml, DeployState state) {
         super("ai.vespa.embedding.huggingface.HuggingFaceEmbedder", INTEGRATION_BUNDLE_NAME, xml);
@@ -51,6 +53,8 @@ public class HuggingFaceEmbedder extends TypedComponent implements HuggingFaceEm
         transformerOutput = getChildValue(xml, "transformer-output").orElse(null);
         normalize = getChildValue(xml, "normalize").map(Boolean::parseBoolean).orElse(null);
         poolingStrategy = getChildValue(xml, "pooling-strategy").orElse(null);
+        batchingMaxSize = getChildValue(xml, "batching-max-size").map(Integer::parseInt).orElse(null);
+        batchingMaxDelayMillis = getChildValue(xml, "batching-max-delay-millis").map(Integer::parseInt).orElse(null);
         model.registerOnnxModelCost(cluster, onnxModelOptions);
     }
 
@@ -64,6 +68,8 @@ public class HuggingFaceEmbedder extends TypedComponent implements HuggingFaceEm
         if (transformerOutput != null) b.transformerOutput(transformerOutput);
         if (normalize != null) b.normalize(normalize);
         if (poolingStrategy != null) b.poolingStrategy(PoolingStrategy.Enum.valueOf(poolingStrategy));
+        if (batchingMaxSize != null) b.batchingMaxSize(batchingMaxSize);
+        if (batchingMaxDelayMillis != null) b.batchingMaxDelayMillis(batchingMaxDelayMillis);
         onnxModelOptions.executionMode().ifPresent(value -> b.transformerExecutionMode(TransformerExecutionMode.Enum.valueOf(value)));
         onnxModelOptions.interOpThreads().ifPresent(b::transformerInterOpThreads);
         onnxModelOptions.intraOpThreads().ifPresent(b::transformerIntraOpThreads);
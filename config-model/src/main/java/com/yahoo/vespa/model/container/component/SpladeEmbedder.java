@@ -26,6 +26,7 @@ public class SpladeEmbedder extends TypedComponent implements SpladeEmbedderConf
     private final String transformerTokenTypeIds;
     private final String transformerOutput;
     private final Double termScoreThreshold;
+    private final Integer batchingMaxSize;
 
     public SpladeEmbedder(ApplicationContainerCluster cluster, Element xml, DeployState state) {
         super("ai.vespa.embedding.SpladeEmbedder", INTEGRATION_BUNDLE_NAME, xml);
@@ -43,6 +44,7 @@ public class SpladeEmbedder extends TypedComponent implements SpladeEmbedderConf
         transformerTokenTypeIds = getChildValue(xml, "transformer-token-type-ids").orElse(null);
         transformerOutput = getChildValue(xml, "transformer-output").orElse(null);
         termScoreThreshold = getChildValue(xml, "term-score-threshold").map(Double::parseDouble).orElse(null);
+        batchingMaxSize = getChildValue(xml, "batching-max-size").map(Integer::parseInt).orElse(null);
         model.registerOnnxModelCost(cluster, onnxModelOptions);
     }
 
@@ -55,6 +57,7 @@ public class SpladeEmbedder extends TypedComponent implements SpladeEmbedderConf
         if (transformerTokenTypeIds != null) b.transformerTokenTypeIds(transformerTokenTypeIds);
         if (transformerOutput != null) b.transformerOutput(transformerOutput);
         if (termScoreThreshold != null) b.termScoreThreshold(termScoreThreshold);
+        if (batchingMaxSize != null) b.batchingMaxSize(batchingMaxSize);
 
         onnxModelOptions.executionMode().ifPresent(value -> b.transformerExecutionMode(SpladeEmbedderConfig.TransformerExecutionMode.Enum.valueOf(value)));
         onnxModelOptions.interOpThreads().ifPresent(b::transformerInterOpThreads);
@@ -85,6 +85,8 @@ public class EmbedderTestCase {
         assertEquals("my_input_ids", embedderCfg.transformerInputIds());
         assertEquals("https://my/url/model.onnx", modelReference(embedderCfg, "transformerModel").url().orElseThrow().value());
         assertEquals(1024, embedderCfg.transformerMaxTokens());
+        assertEquals(16, embedderCfg.batchingMaxSize());
+        assertEquals(5, embedderCfg.batchingMaxDelayMillis());
         var tokenizerCfg = assertHuggingfaceTokenizerComponentPresent(cluster);
         assertEquals("https://my/url/tokenizer.json", modelReference(tokenizerCfg.model().get(0), "path").url().orElseThrow().value());
         assertEquals(-1, tokenizerCfg.maxLength());
@@ -112,6 +114,7 @@ public class EmbedderTestCase {
         assertEquals("my_input_ids", embedderCfg.transformerInputIds());
         assertEquals("https://my/url/model.onnx", modelReference(embedderCfg, "transformerModel").url().orElseThrow().value());
         assertEquals(0.2, embedderCfg.termScoreThreshold());
+        assertEquals(2, embedderCfg.batchingMaxSize());
         assertEquals(1024, embedderCfg.transformerMaxTokens());
 
         var tokenizerCfg = assertHuggingfaceTokenizerComponentPresent(cluster);
@@ -134,6 +137,7 @@ public class EmbedderTestCase {
         assertEquals(2, embedderCfg.documentTokenId());
         assertEquals(0, embedderCfg.transformerPadToken());
         assertEquals(103, embedderCfg.transformerMaskToken());
+        assertEquals(32, embedderCfg.batchingMaxSize());
     }
 
     @Test
@@ -161,6 +165,7 @@ public class EmbedderTestCase {
         assertEquals("https://my/url/model.onnx", modelReference(embedderCfg, "transformerModel").url().orElseThrow().value());
         assertEquals("files/vocab.txt", modelReference(embedderCfg, "tokenizerVocab").path().orElseThrow().value());
         assertEquals("", embedderCfg.transformerTokenTypeIds());
+        assertEquals(8, embedderCfg.batchingMaxSize());
     }
 
     @Test
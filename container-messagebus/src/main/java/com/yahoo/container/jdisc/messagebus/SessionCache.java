@@ -74,7 +74,7 @@ public final class SessionCache extends AbstractComponent {
         this(net,
              containerMbusConfig,
              messagebusConfig,
-             new DocumentProtocol(documentTypeManager));
+             new DocumentProtocol(documentTypeManager).setLazyFieldDecoding(containerMbusConfig.lazyFieldDecoding()));
     }
 
     public SessionCache(Supplier<NetworkMultiplexer> net, ContainerMbusConfig containerMbusConfig,
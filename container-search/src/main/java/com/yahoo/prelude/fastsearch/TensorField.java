@@ -31,7 +31,7 @@ public class TensorField extends DocsumField {
     public Object convert(Inspector value) {
         byte[] content = value.asData(Value.empty().asData());
         if (content.length == 0) return null;
-        return TypedBinaryFormat.decode(Optional.empty(), GrowableByteBuffer.wrap(content));
+        return TypedBinaryFormat.decodeLazily(Optional.empty(), GrowableByteBuffer.wrap(content));
     }
 
 }
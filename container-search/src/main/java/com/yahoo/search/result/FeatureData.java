@@ -134,7 +134,7 @@ public class FeatureData implements Inspectable, JsonProducer {
 
         switch (featureValue.type()) {
             case DOUBLE: return Tensor.from(featureValue.asDouble());
-            case DATA: return TypedBinaryFormat.decode(Optional.empty(), GrowableByteBuffer.wrap(featureValue.asData()));
+            case DATA: return TypedBinaryFormat.decodeLazily(Optional.empty(), GrowableByteBuffer.wrap(featureValue.asData()));
             default: throw new IllegalStateException("Unexpected feature value type " + featureValue.type());
         }
     }
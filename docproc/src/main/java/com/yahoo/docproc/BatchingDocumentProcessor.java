@@ -0,0 +1,194 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.docproc;
+
+import com.yahoo.document.DocumentOperation;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>A document processor which processes the document operations of many processings together, in batches.
+ * This is useful for processors whose cost is dominated by per-call overhead, such as running a model over
+ * the documents, or looking up data in an external service.</p>
+ *
+ * <p>Processings passed to this are collected in a batch, and this returns {@link Progress#later(long)} for them until
+ * their batch has been processed. A batch is processed by the thread which fills it to the maximum batch size, or by
+ * the first thread which sees it after the batching window has passed since the batch was started. Batches are
+ * processed in the order they were started, for each document: an operation on a document which is in a batch being
+ * processed is held back until that batch is done, and then added to the next batch in the order it arrived.</p>
+ *
+ * <p>If {@link #process(List)} throws, that exception is thrown for all processings in the batch.</p>
+ */
+public abstract class BatchingDocumentProcessor extends DocumentProcessor {
+
+    private final String variable = BatchingDocumentProcessor.class.getName() + "@" + Integer.toHexString(System.identityHashCode(this));
+    private final Object monitor = new Object();
+    private final int maxBatchSize;
+    private final long windowNanos;
+
+    private final Deque<Entry> held = new ArrayDeque<>(); // Entries with documents in batches being processed, in arrival order.
+    private final Map<String, Integer> processingIds = new HashMap<>(); // Ids of documents in batches being processed.
+    private final Map<String, Integer> heldIds = new HashMap<>();
+    private Batch open = null;
+    private long lastBatchNanos = 0;
+
+    /**
+     * Creates a new batching document processor.
+     *
+     * @param maxBatchSize the number of document operations at which a batch is processed immediately
+     * @param window the longest time a batch is waiting for more document operations before it is processed
+     */
+    protected BatchingDocumentProcessor(int maxBatchSize, Duration window) {
+        if (maxBatchSize < 1) throw new IllegalArgumentException("Max batch size must be positive, but was " + maxBatchSize);
+        if (window.isNegative()) throw new IllegalArgumentException("Batching window cannot be negative, but was " + window);
+        this.maxBatchSize = maxBatchSize;
+        this.windowNanos = window.toNanos();
+    }
+
+    /**
+     * Processes the given document operations, in the order they arrived, which is also the order of operations
+     * on the same document. The operations may be modified, but not replaced or removed. If processing of any
+     * operation fails, the implementation must throw a {@link RuntimeException}, which fails the whole batch.
+     *
+     * @param operations the document operations of all processings in a batch
+     */
+    protected abstract void process(List<DocumentOperation> operations);
+
+    @Override
+    public final Progress process(Processing processing) {
+        Entry entry = (Entry) processing.getVariable(variable);
+        if (entry == null) {
+            if (processing.getDocumentOperations().isEmpty()) return Progress.DONE;
+            entry = new Entry(processing.getDocumentOperations());
+            processing.setVariable(variable, entry);
+            synchronized (monitor) {
+                admit(entry);
+            }
+        }
+
+        Batch batch = null;
+        long delayNanos;
+        synchronized (monitor) {
+            if ( ! entry.done) {
+                long now = System.nanoTime();
+                if (entry.batch != null && entry.batch == open && (open.size >= maxBatchSize || now - open.startNanos >= windowNanos)) {
+                    batch = open;
+                    open = null;
+                    for (Entry member : batch.entries)
+                        member.ids.forEach(id -> processingIds.merge(id, 1, Integer::sum));
+                }
+                delayNanos = entry.batch != null && entry.batch == open ? open.startNanos + windowNanos - now : lastBatchNanos;
+            }
+            else delayNanos = 0;
+        }
+        if (batch != null) {
+            run(batch);
+        }
+        if ( ! entry.done) { // Volatile read, so the operations of the entry are also up-to-date when it is done.
+            return Progress.later(Math.max(1, (delayNanos + 999_999) / 1_000_000));
+        }
+
+        processing.removeVariable(variable);
+        if (entry.failure != null) throw entry.failure;
+        return Progress.DONE;
+    }
+
+    private void run(Batch batch) {
+        List<DocumentOperation> operations = new ArrayList<>(batch.size);
+        for (Entry entry : batch.entries)
+            operations.addAll(entry.operations);
+
+        long startNanos = System.nanoTime();
+        RuntimeException failure = null;
+        try {
+            process(operations);
+        }
+        catch (RuntimeException e) {
+            failure = e;
+        }
+
+        synchronized (monitor) {
+            lastBatchNanos = System.nanoTime() - startNanos;
+            for (Entry entry : batch.entries) {
+                entry.failure = failure;
+                entry.done = true;
+                entry.ids.forEach(id -> processingIds.merge(id, -1, (count, decrement) -> count == 1 ? null : count - 1));
+            }
+            readmit();
+        }
+    }
+
+    /** Adds the given entry to the open batch, or holds it back if a previous operation on any of its documents is not done. */
+    private void admit(Entry entry) {
+        for (String id : entry.ids) {
+            if (processingIds.containsKey(id) || heldIds.containsKey(id)) {
+                held.add(entry);
+                entry.ids.forEach(heldId -> heldIds.merge(heldId, 1, Integer::sum));
+                return;
+            }
+        }
+        join(entry);
+    }
+
+    private void join(Entry entry) {
+        if (open == null) open = new Batch(System.nanoTime());
+        open.entries.add(entry);
+        open.size += entry.operations.size();
+        entry.batch = open;
+    }
+
+    /** Admits held entries whose documents are no longer in batches being processed, nor in earlier held entries. */
+    private void readmit() {
+        Set<String> blocked = new HashSet<>();
+        for (Iterator<Entry> iterator = held.iterator(); iterator.hasNext(); ) {
+            Entry entry = iterator.next();
+            boolean free = true;
+            for (String id : entry.ids)
+                free &= ! processingIds.containsKey(id) && ! blocked.contains(id);
+
+            if (free) {
+                iterator.remove();
+                entry.ids.forEach(id -> heldIds.merge(id, -1, (count, decrement) -> count == 1 ? null : count - 1));
+                join(entry);
+            }
+            else blocked.addAll(entry.ids);
+        }
+    }
+
+    private static class Batch {
+
+        private final long startNanos;
+        private final List<Entry> entries = new ArrayList<>();
+        private int size = 0;
+
+        private Batch(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+    }
+
+    private static class Entry {
+
+        private final List<DocumentOperation> operations;
+        private final Set<String> ids = new HashSet<>();
+        private Batch batch = null;
+        private RuntimeException failure = null;
+        private volatile boolean done = false;
+
+        private Entry(List<DocumentOperation> operations) {
+            this.operations = List.copyOf(operations);
+            for (DocumentOperation operation : operations)
+                ids.add(operation.getId().toString());
+        }
+
+    }
+
+}
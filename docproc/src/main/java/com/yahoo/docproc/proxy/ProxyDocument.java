@@ -24,11 +24,13 @@ import com.yahoo.document.serialization.XmlStream;
 import com.yahoo.vespa.objects.Serializer;
 
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.function.BiFunction;
 
 /**
  * This is a facade to a Document, with two purposes:
@@ -133,6 +135,30 @@ public class ProxyDocument extends Document implements DocumentOperationWrapper
         return doc.removeFieldValue(field);
     }
 
+    @Override
+    public void setSerializedFieldValue(Field field, ByteBuffer value, BiFunction<Field, ByteBuffer, FieldValue> decoder) {
+        Field mapped = getMappedField(field);
+        if (mapped == null)
+            throw new IllegalArgumentException("Field '" + field.getName() + "' is mapped to a nested field, and can not be set serialized.");
+        doc.setSerializedFieldValue(mapped, value, decoder);
+    }
+
+    @Override
+    public ByteBuffer getSerializedFieldValue(Field field) {
+        Field mapped = getMappedField(field);
+        return mapped == null ? null : doc.getSerializedFieldValue(mapped);
+    }
+
+    /** Returns the top-level field of the proxied document the given field maps to, or null if it maps to a nested field. */
+    private Field getMappedField(Field field) {
+        if (fieldMap == null || ! fieldMap.containsKey(field.getName())) {
+            checkAccess(field);
+            return field;
+        }
+        FieldPath path = getFieldPath(field.getName());
+        return path.size() == 1 ? path.get(0).getFieldRef() : null;
+    }
+
     private FieldPath getFieldPath(String fieldName) {
         if (fieldMap != null && fieldMap.containsKey(fieldName)) {
             fieldName = fieldMap.get(fieldName);
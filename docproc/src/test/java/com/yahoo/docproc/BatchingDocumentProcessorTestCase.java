@@ -0,0 +1,144 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.docproc;
+
+import com.yahoo.document.DataType;
+import com.yahoo.document.DocumentId;
+import com.yahoo.document.DocumentOperation;
+import com.yahoo.document.DocumentPut;
+import com.yahoo.document.DocumentType;
+import com.yahoo.docproc.impl.TransientFailureException;
+import com.yahoo.document.datatypes.StringFieldValue;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class BatchingDocumentProcessorTestCase {
+
+    private final DocumentType type = new DocumentType("test");
+
+    public BatchingDocumentProcessorTestCase() {
+        type.addField("title", DataType.STRING);
+    }
+
+    @Test
+    public void testBatchIsProcessedWhenFull() {
+        RecordingProcessor processor = new RecordingProcessor(3, Duration.ofHours(1));
+        Processing first = processing("a"), second = processing("b"), third = processing("c");
+        assertTrue(processor.process(first) instanceof DocumentProcessor.LaterProgress);
+        assertTrue(processor.process(second) instanceof DocumentProcessor.LaterProgress);
+        assertTrue(processor.process(first) instanceof DocumentProcessor.LaterProgress);
+        assertEquals(List.of(), processor.batches);
+
+        assertSame(DocumentProcessor.Progress.DONE, processor.process(third));
+        assertEquals(List.of(List.of("a", "b", "c")), processor.batches);
+        assertSame(DocumentProcessor.Progress.DONE, processor.process(first));
+        assertSame(DocumentProcessor.Progress.DONE, processor.process(second));
+        assertEquals("processed", ((DocumentPut) second.getDocumentOperations().get(0)).getDocument().getFieldValue("title").toString());
+        assertFalse(first.getVariableAndNameIterator().hasNext());
+    }
+
+    @Test
+    public void testBatchIsProcessedWhenWindowHasPassed() {
+        RecordingProcessor processor = new RecordingProcessor(3, Duration.ZERO);
+        assertSame(DocumentProcessor.Progress.DONE, processor.process(processing("a")));
+        assertSame(DocumentProcessor.Progress.DONE, processor.process(processing("b")));
+        assertSame(DocumentProcessor.Progress.DONE, processor.process(new Processing()));
+        assertEquals(List.of(List.of("a"), List.of("b")), processor.batches);
+
+        processor = new RecordingProcessor(3, Duration.ofMillis(10));
+        Processing processing = processing("a");
+        DocumentProcessor.Progress progress = processor.process(processing);
+        assertTrue(progress instanceof DocumentProcessor.LaterProgress);
+        assertTrue(((DocumentProcessor.LaterProgress) progress).getDelay() <= 10);
+        while (progress != DocumentProcessor.Progress.DONE)
+            progress = processor.process(processing);
+        assertEquals(List.of(List.of("a")), processor.batches);
+    }
+
+    @Test
+    public void testOperationsOnDocumentsBeingProcessedAreHeldBack() throws Exception {
+        CountDownLatch processing = new CountDownLatch(1);
+        CompletableFuture<Void> proceed = new CompletableFuture<>();
+        RecordingProcessor processor = new RecordingProcessor(2, Duration.ofHours(1)) {
+            @Override protected void process(List<DocumentOperation> operations) {
+                super.process(operations);
+                if (batches.size() == 1) {
+                    processing.countDown();
+                    proceed.join();
+                }
+            }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Processing a1 = processing("a"), b = processing("b"), a2 = processing("a"), c = processing("c"), a3 = processing("a");
+            assertTrue(processor.process(a1) instanceof DocumentProcessor.LaterProgress);
+            Future<DocumentProcessor.Progress> filled = executor.submit(() -> processor.process(b));
+            processing.await();
+
+            assertTrue(processor.process(a2) instanceof DocumentProcessor.LaterProgress); // Held back, as a1 is being processed.
+            assertTrue(processor.process(c) instanceof DocumentProcessor.LaterProgress);  // Starts the next batch.
+            assertTrue(processor.process(a3) instanceof DocumentProcessor.LaterProgress); // Held back behind a2.
+            proceed.complete(null);
+            assertSame(DocumentProcessor.Progress.DONE, filled.get());
+
+            assertSame(DocumentProcessor.Progress.DONE, processor.process(a2)); // Joined c in the next batch, with a3 after it.
+            assertSame(DocumentProcessor.Progress.DONE, processor.process(a3));
+            assertSame(DocumentProcessor.Progress.DONE, processor.process(a1));
+            assertEquals(List.of(List.of("a", "b"), List.of("c", "a", "a")), processor.batches);
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testFailureFailsWholeBatch() {
+        RecordingProcessor processor = new RecordingProcessor(2, Duration.ofHours(1)) {
+            @Override protected void process(List<DocumentOperation> operations) {
+                throw new TransientFailureException("try again");
+            }
+        };
+        Processing first = processing("a"), second = processing("b");
+        assertTrue(processor.process(first) instanceof DocumentProcessor.LaterProgress);
+        assertEquals("try again", assertThrows(TransientFailureException.class, () -> processor.process(second)).getMessage());
+        assertEquals("try again", assertThrows(TransientFailureException.class, () -> processor.process(first)).getMessage());
+    }
+
+    private Processing processing(String id) {
+        return Processing.of(new DocumentPut(type, new DocumentId("id:ns:test::" + id)));
+    }
+
+    private static class RecordingProcessor extends BatchingDocumentProcessor {
+
+        final List<List<String>> batches = new ArrayList<>();
+
+        RecordingProcessor(int maxBatchSize, Duration window) {
+            super(maxBatchSize, window);
+        }
+
+        @Override
+        protected void process(List<DocumentOperation> operations) {
+            List<String> ids = new ArrayList<>();
+            for (DocumentOperation operation : operations) {
+                ids.add(operation.getId().getScheme().getNamespaceSpecific());
+                ((DocumentPut) operation).getDocument().setFieldValue("title", new StringFieldValue("processed"));
+            }
+            batches.add(ids);
+        }
+
+    }
+
+}
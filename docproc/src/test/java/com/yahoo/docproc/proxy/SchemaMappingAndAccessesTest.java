@@ -4,6 +4,7 @@ package com.yahoo.docproc.proxy;
 import java.io.ByteArrayOutputStream;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -490,6 +491,26 @@ public class SchemaMappingAndAccessesTest {
         //assertEquals(doc.get("title"), "MyTitle");
     }
 
+    @Test
+    public void testSerializedFieldValueIsMappedAndChecked() {
+        Document doc = getDoc();
+        ByteBuffer serialized = ByteBuffer.wrap(new byte[] { 1, 2, 3 });
+        doc.setSerializedFieldValue(doc.getField("title"), serialized, (field, value) -> new StringFieldValue("Black Rock"));
+
+        Map<String, String> fieldMap = new HashMap<>();
+        fieldMap.put("titleMapped", "title");
+        ProxyDocument mapped = new ProxyDocument(new TestDPSecure(), doc, fieldMap);
+        assertEquals(serialized, mapped.getSerializedFieldValue(new com.yahoo.document.Field("titleMapped", DataType.STRING)));
+
+        ProxyDocument insecure = new ProxyDocument(new TestDPInsecure(), doc, fieldMap);
+        try {
+            insecure.getSerializedFieldValue(doc.getField("year"));
+            fail("Access to 'year' should not be allowed");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().matches(".*allowed.*"));
+        }
+    }
+
     /**
      * To make it less likely to break schema mapping, we enforce that ProxyDocument does wrap every public
      * non-static, non-final method on Document and StructuredFieldValue
@@ -21,9 +21,11 @@ import com.yahoo.vespa.objects.Serializer;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.function.BiFunction;
 
 /**
  * A document is an identifiable
@@ -180,6 +182,16 @@ public class Document extends StructuredFieldValue {
         return content.getFieldValue(field);
     }
 
+    /** Sets the serialized value of the given field, to be decoded lazily; see {@link Struct#setSerializedFieldValue} */
+    public void setSerializedFieldValue(Field field, ByteBuffer value, BiFunction<Field, ByteBuffer, FieldValue> decoder) {
+        content.setSerializedFieldValue(field, value, decoder);
+    }
+
+    @Override
+    public ByteBuffer getSerializedFieldValue(Field field) {
+        return content.getSerializedFieldValue(field);
+    }
+
     @Override
     protected void doSetFieldValue(Field field, FieldValue value) {
         content.setFieldValue(field, value);
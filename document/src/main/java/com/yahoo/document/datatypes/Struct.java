@@ -13,12 +13,14 @@ import com.yahoo.document.serialization.XmlSerializationHelper;
 import com.yahoo.document.serialization.XmlStream;
 import com.yahoo.vespa.objects.Ids;
 
+import java.nio.ByteBuffer;
 import java.util.AbstractSet;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.function.BiFunction;
 
 
 /**
@@ -30,19 +32,59 @@ public class Struct extends StructuredFieldValue {
     private Hashlet<Integer, FieldValue> values = new Hashlet<>();
     private int [] order = null;
 
+    // Serialized values of fields which are not yet decoded; decoded fields are nulled here, and moved to values.
+    private Hashlet<Integer, ByteBuffer> serialized = null;
+    private int serializedCount = 0;
+    private BiFunction<Field, ByteBuffer, FieldValue> decoder = null;
+
     private int version;
 
     private int [] getInOrder() {
         if (order == null) {
-            order = new int[values.size()];
+            order = new int[getFieldCount()];
+            int next = 0;
             for (int i = 0; i < values.size(); i++) {
-                order[i] = values.key(i);
+                order[next++] = values.key(i);
+            }
+            for (int i = 0; serializedCount > 0 && i < serialized.size(); i++) {
+                if (serialized.value(i) != null) order[next++] = serialized.key(i);
             }
             Arrays.sort(order);
         }
         return order;
     }
 
+    /** Returns the value of the field with the given id, decoding it first if it is still serialized. */
+    private FieldValue get(int id) {
+        FieldValue value = values.get(id);
+        if (value == null && serializedCount > 0) {
+            int index = serialized.getIndexOfKey(id);
+            if (index != -1 && serialized.value(index) != null) {
+                value = decoder.apply(getDataType().getField(id), serialized.value(index).duplicate());
+                serialized.setValue(index, null);
+                --serializedCount;
+                values.put(id, value); // The set of fields, and thus their order, is unchanged.
+            }
+        }
+        return value;
+    }
+
+    /** Drops any serialized value of the field with the given id, and returns whether there was one. */
+    private boolean dropSerialized(int id) {
+        if (serializedCount == 0) return false;
+        int index = serialized.getIndexOfKey(id);
+        if (index == -1 || serialized.value(index) == null) return false;
+        serialized.setValue(index, null);
+        --serializedCount;
+        return true;
+    }
+
+    private void decodeAll() {
+        for (int i = 0; serializedCount > 0 && i < serialized.size(); i++) {
+            get(serialized.key(i));
+        }
+    }
+
     private void invalidateOrder() {
         order = null;
     }
@@ -73,12 +115,18 @@ public class Struct extends StructuredFieldValue {
         for (int i = 0; i < values.size(); i++) {
             struct.values.put(values.key(i), values.value(i).clone());
         }
+        if (serialized != null) {
+            struct.serialized = new Hashlet<>(serialized); // The serialized bytes themselves are never modified.
+        }
         return struct;
     }
 
     @Override
     public void clear() {
         values = new Hashlet<>();
+        serialized = null;
+        serializedCount = 0;
+        decoder = null;
         invalidateOrder();
     }
 
@@ -107,7 +155,42 @@ public class Struct extends StructuredFieldValue {
 
     @Override
     public FieldValue getFieldValue(Field field) {
-        return values.get(field.getId());
+        return get(field.getId());
+    }
+
+    /**
+     * Sets the value of the given field to the given serialized bytes, which are decoded by the given decoder only if
+     * the value is accessed, and otherwise copied verbatim when this is serialized. This lets documents which are
+     * passed through, or of which only a few fields are used, skip the cost of decoding all their fields.
+     * The given bytes must not be modified after this, and the decoder must be the same for all fields of this.
+     */
+    public void setSerializedFieldValue(Field field, ByteBuffer value, BiFunction<Field, ByteBuffer, FieldValue> decoder) {
+        Field myField = getDataType().getField(field.getId());
+        if (myField == null) {
+            throw new IllegalArgumentException("No such field in " + getDataType() + " : " + field.getName());
+        }
+        if (serialized == null) {
+            serialized = new Hashlet<>();
+        }
+        this.decoder = decoder;
+        if (values.getIndexOfKey(field.getId()) != -1) {
+            removeFieldValue(field);
+        }
+        int index = serialized.getIndexOfKey(field.getId());
+        if (index == -1) {
+            serialized.put(field.getId(), value);
+        } else if (serialized.setValue(index, value) != null) {
+            --serializedCount;
+        }
+        ++serializedCount;
+        invalidateOrder();
+    }
+
+    @Override
+    public ByteBuffer getSerializedFieldValue(Field field) {
+        if (serializedCount == 0) return null;
+        ByteBuffer value = serialized.get(field.getId());
+        return value == null ? null : value.asReadOnlyBuffer();
     }
 
 
@@ -118,7 +201,7 @@ public class Struct extends StructuredFieldValue {
 
     @Override
     public int getFieldCount() {
-        return values.size();
+        return values.size() + serializedCount;
     }
 
     @Override
@@ -138,10 +221,11 @@ public class Struct extends StructuredFieldValue {
             throw new IllegalArgumentException("Inconsistent field: " + field);
         }
 
+        boolean wasSerialized = dropSerialized(field.getId());
         int index = values.getIndexOfKey(field.getId());
         if (index == -1) {
             values.put(field.getId(), value);
-            invalidateOrder();
+            if ( ! wasSerialized) invalidateOrder();
         } else {
             values.setValue(index, value);
         }
@@ -149,7 +233,7 @@ public class Struct extends StructuredFieldValue {
 
     @Override
     public FieldValue removeFieldValue(Field field) {
-        FieldValue found = values.get(field.getId());
+        FieldValue found = get(field.getId());
         if (found != null) {
             Hashlet<Integer, FieldValue> copy = new Hashlet<>();
             copy.reserve(values.size() - 1);
@@ -196,11 +280,14 @@ public class Struct extends StructuredFieldValue {
         if (!(o instanceof Struct struct)) return false;
         if (!super.equals(o)) return false;
 
+        decodeAll();
+        struct.decodeAll();
         return values.equals(struct.values);
     }
 
     @Override
     public int hashCode() {
+        decodeAll();
         int result = super.hashCode();
         result = 31 * result + values.hashCode();
         return result;
@@ -212,7 +299,7 @@ public class Struct extends StructuredFieldValue {
         retVal.append("Struct (").append(getDataType()).append("): ");
         int [] increasing = getInOrder();
         for (int id : increasing) {
-            retVal.append(getDataType().getField(id)).append("=").append(values.get(id)).append(", ");
+            retVal.append(getDataType().getField(id)).append("=").append(get(id)).append(", ");
         }
         return retVal.toString();
     }
@@ -229,7 +316,7 @@ public class Struct extends StructuredFieldValue {
             return cmp;
         }
         Struct rhs = (Struct)obj;
-        cmp = values.size() - rhs.values.size();
+        cmp = getFieldCount() - rhs.getFieldCount();
         if (cmp != 0) {
             return cmp;
         }
@@ -270,7 +357,7 @@ public class Struct extends StructuredFieldValue {
         }
 
         public FieldValue getValue() {
-            return values.get(id);
+            return get(id);
         }
 
         public FieldValue setValue(FieldValue value) {
@@ -278,13 +365,12 @@ public class Struct extends StructuredFieldValue {
                 throw new NullPointerException("Null values in Struct not supported, use removeFieldValue() to remove value instead.");
             }
 
+            FieldValue retVal = get(id);
             int index = values.getIndexOfKey(id);
-            FieldValue retVal = null;
             if (index == -1) {
                 values.put(id, value);
                 invalidateOrder();
             } else {
-                retVal = values.value(index);
                 values.setValue(index, value);
             }
 
@@ -306,7 +392,7 @@ public class Struct extends StructuredFieldValue {
     private class FieldSet extends AbstractSet<Map.Entry<Field, FieldValue>> {
         @Override
         public int size() {
-            return values.size();
+            return getFieldCount();
         }
 
         @Override
@@ -4,6 +4,7 @@ package com.yahoo.document.datatypes;
 import com.yahoo.document.*;
 import com.yahoo.vespa.objects.Ids;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -41,6 +42,14 @@ public abstract class StructuredFieldValue extends CompositeFieldValue {
      */
     public abstract FieldValue getFieldValue(Field field);
 
+    /**
+     * Returns the serialized bytes of the value of the given field, if this was deserialized lazily and that value
+     * has not yet been decoded, or null otherwise. Such bytes are copied verbatim when this is serialized again.
+     */
+    public ByteBuffer getSerializedFieldValue(Field field) {
+        return null;
+    }
+
     /**
      * Convenience method to return the value of a named field. This is the same as calling {@link #getField(String)},
      * and using the returned value to call {@link #getFieldValue(Field)}. If the named field does not exist, this
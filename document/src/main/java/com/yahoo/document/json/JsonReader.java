@@ -156,6 +156,31 @@ public class JsonReader {
         }
     }
 
+    /**
+     * Reads the next document operation from input where operations are not enclosed in an array,
+     * like JSON lines, and returns it, or empty if the end of input is reached.
+     *
+     * @return the parsed document operation, or empty if there are no more operations
+     */
+    public Optional<ParsedDocumentOperation> readOperation() {
+        try {
+            JsonToken token = parser.nextToken();
+            if (token == null) {
+                state = END_OF_FEED;
+                return Optional.empty();
+            }
+            if (token != JsonToken.START_OBJECT)
+                throw new IllegalArgumentException("Expected start of document operation object, got " + token);
+
+            return Optional.of(new DocumentParser(parser).parseOperation(this::createDocumentOperation)
+                                                         .orElseThrow(() -> new IllegalArgumentException("Missing a document operation ('put', 'update' or 'remove')")));
+        } catch (IOException e) {
+            // Jackson is not able to recover from structural parse errors
+            state = END_OF_FEED;
+            throw new IllegalArgumentException(e);
+        }
+    }
+
     /** Returns the next document operation, or null if we have reached the end */
     public DocumentOperation next() {
         switch (state) {
@@ -169,24 +194,29 @@ public class JsonReader {
             case READING:
                 break;
         }
-        Optional<DocumentParseInfo> documentParseInfo;
         try {
-            documentParseInfo = parseDocument();
+            JsonToken token = parser.nextToken();
+            if (token != JsonToken.START_OBJECT) {
+                state = END_OF_FEED;
+                return null;
+            }
+            Optional<ParsedDocumentOperation> operation = new DocumentParser(parser).parseOperation(this::createDocumentOperation);
+            if (operation.isEmpty()) {
+                state = END_OF_FEED;
+                return null;
+            }
+            return operation.get().operation();
         } catch (IOException r) {
             // Jackson is not able to recover from structural parse errors
             state = END_OF_FEED;
             throw new IllegalArgumentException(r);
         }
-        if ( ! documentParseInfo.isPresent()) {
-            state = END_OF_FEED;
-            return null;
-        }
+    }
+
+    private ParsedDocumentOperation createDocumentOperation(DocumentParseInfo documentParseInfo) {
         VespaJsonDocumentReader vespaJsonDocumentReader = new VespaJsonDocumentReader(typeManager.getIgnoreUndefinedFields());
-        DocumentOperation operation = vespaJsonDocumentReader.createDocumentOperation(
-                getDocumentTypeFromString(documentParseInfo.get().documentId.getDocType(), typeManager),
-                documentParseInfo.get()).operation();
-        operation.setCondition(TestAndSetCondition.fromConditionString(documentParseInfo.get().condition));
-        return operation;
+        return vespaJsonDocumentReader.createDocumentOperation(
+                getDocumentTypeFromString(documentParseInfo.documentId.getDocType(), typeManager), documentParseInfo);
     }
 
 
@@ -8,53 +8,90 @@ import java.util.function.Supplier;
 
 /**
  * A {@link TokenBuffer} which only buffers tokens when needed, i.e., when peeking.
+ * Otherwise, the current token is read directly from the parser, so field values are streamed straight into
+ * the document being built, without copying the tokens.
  *
  * @author jonmv
  */
 public class LazyTokenBuffer extends TokenBuffer {
 
     private final JsonParser parser;
+    private boolean streaming = true; // Whether the current token is the current token of the parser, rather than buffered.
 
     public LazyTokenBuffer(JsonParser parser) {
         this.parser = parser;
-        try { addFromParser(parser); }
-        catch (IOException e) { throw new IllegalArgumentException("failed parsing document JSON", e); }
-        if (JsonToken.START_OBJECT != current())
-            throw new IllegalArgumentException("expected start of JSON object, but got " + current());
+        if (JsonToken.START_OBJECT != parser.currentToken())
+            throw new IllegalArgumentException("expected start of JSON object, but got " + parser.currentToken());
         updateNesting(current());
     }
 
+    @Override
+    public boolean isEmpty() {
+        return ! streaming && super.isEmpty();
+    }
+
+    @Override
+    public JsonToken current() {
+        return streaming ? parser.currentToken() : super.current();
+    }
+
+    @Override
+    public String currentName() {
+        try {
+            return streaming ? parser.currentName() : super.currentName();
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("failed reading document JSON", e);
+        }
+    }
+
+    @Override
+    public String currentText() {
+        try {
+            return streaming ? parser.getText() : super.currentText();
+        }
+        catch (IOException e) {
+            throw new IllegalArgumentException("failed reading document JSON", e);
+        }
+    }
+
+    @Override
     void advance() {
-        super.advance();
-        if (tokens.isEmpty() && nesting() > 0) tokens.add(nextToken()); // Fill current token if needed and possible.
+        if ( ! streaming) super.advance();
+        streaming = super.isEmpty() && nesting() > 0; // Stream the next token if needed and possible.
+        if (streaming) nextToken();
     }
 
     @Override
     public Supplier<Token> lookahead() {
+        if (streaming) { // Buffer the current token, before moving the parser ahead.
+            try { addFromParser(parser); }
+            catch (IOException e) { throw new IllegalArgumentException("failed reading document JSON", e); }
+            streaming = false;
+        }
         return new Supplier<>() {
             int localNesting = nesting();
-            Supplier<Token> buffered = LazyTokenBuffer.super.lookahead();
+            int offset = 1;
             @Override public Token get() {
                 if (localNesting == 0)
                     return null;
 
-                Token token = buffered.get();
-                if (token == null) {
-                    token = nextToken();
-                    tokens.add(token);
+                if (offset == size()) {
+                    nextToken();
+                    try { addFromParser(parser); }
+                    catch (IOException e) { throw new IllegalArgumentException("failed reading document JSON", e); }
                 }
+                Token token = peek(offset++);
                 localNesting += nestingOffset(token.token);
                 return token;
             }
         };
     }
 
-    private Token nextToken() {
+    private void nextToken() {
         try {
-            JsonToken token = parser.nextValue();
-            if (token == null)
+            if (parser.nextValue() == null)
                 throw new IllegalStateException("no more JSON tokens");
-            return new Token(token, parser.getCurrentName(), parser.getText());
         }
         catch (IOException e) {
             throw new IllegalArgumentException("failed reading document JSON", e);
@@ -6,26 +6,31 @@ import com.fasterxml.jackson.core.JsonToken;
 import com.google.common.base.Preconditions;
 
 import java.io.IOException;
-import java.util.ArrayDeque;
-import java.util.Deque;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.function.Supplier;
 
 /**
  * Helper class to enable lookahead in the token stream.
  *
+ * Tokens are stored in parallel arrays, rather than as an object per token, and the text of tokens is only
+ * kept for scalar values, as the text of other tokens is given by their type.
+ *
  * @author Steinar Knutsen
  */
 public class TokenBuffer {
 
-    final Deque<Token> tokens = new ArrayDeque<>();
+    private JsonToken[] types = new JsonToken[16];
+    private String[] names = new String[16];
+    private String[] texts = new String[16];
+    private int head = 0; // Position of the current token.
+    private int tail = 0; // Position after the last buffered token.
 
     private int nesting = 0;
 
     public TokenBuffer() { }
 
     /** Returns whether any tokens are available in this */
-    public boolean isEmpty() { return tokens.isEmpty(); }
+    public boolean isEmpty() { return head == tail; }
 
     /** Returns the next token, or null, and updates the nesting count of this. */
     public JsonToken next() {
@@ -36,22 +41,26 @@ public class TokenBuffer {
     }
 
     void advance() {
-        tokens.poll();
+        if (isEmpty()) return;
+        types[head] = null;
+        names[head] = null;
+        texts[head] = null;
+        if (++head == tail) head = tail = 0;
     }
 
     /** Returns the current token without changing position, or null if none */
     public JsonToken current() {
-        return isEmpty() ? null : tokens.peek().token;
+        return isEmpty() ? null : types[head];
     }
 
     /** Returns the current token name without changing position, or null if none */
     public String currentName() {
-        return isEmpty() ? null : tokens.peek().name;
+        return isEmpty() ? null : names[head];
     }
 
     /** Returns the current token text without changing position, or null if none */
     public String currentText() {
-        return isEmpty() ? null : tokens.peek().text;
+        return isEmpty() ? null : textOf(head);
     }
 
     /**
@@ -59,13 +68,52 @@ public class TokenBuffer {
      * This may fill the token buffer, but not otherwise modify it.
      */
     public Supplier<Token> lookahead() {
-        Iterator<Token> iterator = tokens.iterator();
-        if (iterator.hasNext()) iterator.next();
-        return () -> iterator.hasNext() ? iterator.next() : null;
+        return new Supplier<>() {
+            int offset = 1;
+            @Override public Token get() {
+                return offset < size() ? peek(offset++) : null;
+            }
+        };
+    }
+
+    /** Returns the number of buffered tokens, including the current one. */
+    int size() {
+        return tail - head;
+    }
+
+    /** Returns the buffered token at the given offset from the current one. */
+    Token peek(int offset) {
+        int position = head + offset;
+        return new Token(types[position], names[position], textOf(position));
     }
 
-    private void add(JsonToken token, String name, String text) {
-        tokens.add(new Token(token, name, text));
+    private String textOf(int position) {
+        return texts[position] != null ? texts[position] : types[position].asString();
+    }
+
+    void add(JsonToken token, String name, String text) {
+        if (tail == types.length) {
+            if (head > 0) { // Compact before growing.
+                int size = tail - head;
+                System.arraycopy(types, head, types, 0, size);
+                System.arraycopy(names, head, names, 0, size);
+                System.arraycopy(texts, head, texts, 0, size);
+                Arrays.fill(types, size, tail, null);
+                Arrays.fill(names, size, tail, null);
+                Arrays.fill(texts, size, tail, null);
+                head = 0;
+                tail = size;
+            }
+            if (tail == types.length) {
+                types = Arrays.copyOf(types, types.length * 2);
+                names = Arrays.copyOf(names, names.length * 2);
+                texts = Arrays.copyOf(texts, texts.length * 2);
+            }
+        }
+        types[tail] = token;
+        names[tail] = name;
+        texts[tail] = text;
+        ++tail;
     }
 
     public void bufferObject(JsonParser parser) {
@@ -99,8 +147,14 @@ public class TokenBuffer {
     }
 
     int addFromParser(JsonParser tokens) throws IOException {
-        add(tokens.currentToken(), tokens.getCurrentName(), tokens.getText());
-        return nestingOffset(tokens.currentToken());
+        JsonToken token = tokens.currentToken();
+        add(token, tokens.getCurrentName(), textOf(token, tokens));
+        return nestingOffset(token);
+    }
+
+    /** Returns the text of the current token of the given parser, or null if it is given by the token type. */
+    static String textOf(JsonToken token, JsonParser parser) throws IOException {
+        return token != null && token.isScalarValue() && token.asString() == null ? parser.getText() : null;
     }
 
     void updateNesting(JsonToken token) {
@@ -4,11 +4,17 @@ package com.yahoo.document.json.document;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 import com.yahoo.document.DocumentId;
+import com.yahoo.document.DocumentPut;
+import com.yahoo.document.DocumentUpdate;
+import com.yahoo.document.TestAndSetCondition;
 import com.yahoo.document.json.DocumentOperationType;
+import com.yahoo.document.json.LazyTokenBuffer;
+import com.yahoo.document.json.ParsedDocumentOperation;
 import com.yahoo.document.json.readers.DocumentParseInfo;
 
 import java.io.IOException;
 import java.util.Optional;
+import java.util.function.Function;
 
 /**
  * Parses a document operation.
@@ -25,7 +31,7 @@ public class DocumentParser {
     public static final String FIELDS = "fields";
     public static final String REMOVE = "remove";
     private final JsonParser parser;
-    private  long indentLevel;
+    private boolean foundItems;
 
     public DocumentParser(JsonParser parser) {
         this.parser = parser;
@@ -36,84 +42,105 @@ public class DocumentParser {
      * Returns empty if we have reached the end of the stream.
      */
     public Optional<DocumentParseInfo> parse(Optional<DocumentId> documentIdArg) throws IOException {
-        indentLevel = 0;
         DocumentParseInfo documentParseInfo = new DocumentParseInfo();
         documentIdArg.ifPresent(documentId -> documentParseInfo.documentId = documentId);
-        boolean foundItems = false;
-        do {
-            foundItems |= parseOneItem(documentParseInfo, documentIdArg.isPresent() /* doc id set externally */);
-        } while (indentLevel > 0L);
-
-        if (documentParseInfo.documentId == null) {
-            if (foundItems)
-                throw new IllegalArgumentException("Missing a document operation ('put', 'update' or 'remove')");
-            else
-                return Optional.empty();
-        }
-        return Optional.of(documentParseInfo);
+        JsonToken token = parser.nextValue();
+        if (token == null)
+            throw new IllegalArgumentException("Could not read document, no document?");
+
+        foundItems = false;
+        if (token == JsonToken.START_OBJECT)
+            parseObject(documentParseInfo, documentIdArg.isPresent() /* doc id set externally */, null);
+        else if (token.isStructStart())
+            parser.skipChildren();
+
+        return hasDocumentId(documentParseInfo) ? Optional.of(documentParseInfo) : Optional.empty();
     }
 
     /**
-     * Parses one item from the stream.
-     *
-     * @return whether an item was found
+     * Parses the document operation object whose start the parser is at, and returns the operation created from it
+     * by the given operation reader, or empty if the object has no members. When the document ID precedes the fields,
+     * as is the common case, the operation reader reads the fields directly from the parser; otherwise they are
+     * buffered until the end of the object, where the operation is created.
      */
-    private boolean parseOneItem(DocumentParseInfo documentParseInfo, boolean docIdAndOperationIsSetExternally) throws IOException {
-        parser.nextValue();
-        processIndent();
-        if (parser.getCurrentName() == null) return false;
-        if (indentLevel == 1L) {
-            handleIdentLevelOne(documentParseInfo, docIdAndOperationIsSetExternally);
-        } else if (indentLevel == 2L) {
-            handleIdentLevelTwo(documentParseInfo);
-        }
-        return true;
-    }
+    public Optional<ParsedDocumentOperation> parseOperation(Function<DocumentParseInfo, ParsedDocumentOperation> operationReader)
+            throws IOException {
+        DocumentParseInfo documentParseInfo = new DocumentParseInfo();
+        foundItems = false;
+        ParsedDocumentOperation operation = parseObject(documentParseInfo, false, operationReader);
+        if ( ! hasDocumentId(documentParseInfo))
+            return Optional.empty();
 
-    private void processIndent() {
-        JsonToken currentToken = parser.currentToken();
-        if (currentToken == null) {
-            throw new IllegalArgumentException("Could not read document, no document?");
-        }
-        switch (currentToken) {
-            case START_OBJECT -> indentLevel++;
-            case END_OBJECT -> indentLevel--;
-            case START_ARRAY -> indentLevel += 10000L;
-            case END_ARRAY -> indentLevel -= 10000L;
+        if (operation == null)
+            operation = operationReader.apply(documentParseInfo);
+        else if (documentParseInfo.create.isPresent()) { // The create flag may follow the fields.
+            if (operation.operation() instanceof DocumentPut put) put.setCreateIfNonExistent(documentParseInfo.create.get());
+            if (operation.operation() instanceof DocumentUpdate update) update.setCreateIfNonExistent(documentParseInfo.create.get());
         }
+        operation.operation().setCondition(TestAndSetCondition.fromConditionString(documentParseInfo.condition));
+        return Optional.of(operation);
     }
 
-    private void handleIdentLevelOne(DocumentParseInfo documentParseInfo, boolean docIdAndOperationIsSetExternally)
+    /**
+     * Parses the members of the object whose start the parser is at, until the end of the object.
+     *
+     * @return the operation created by the given operation reader, if it was given, and the fields were streamed to it
+     */
+    private ParsedDocumentOperation parseObject(DocumentParseInfo documentParseInfo, boolean docIdAndOperationIsSetExternally,
+                                                Function<DocumentParseInfo, ParsedDocumentOperation> operationReader)
             throws IOException {
-        JsonToken currentToken = parser.getCurrentToken();
-        if ((currentToken == JsonToken.VALUE_TRUE || currentToken == JsonToken.VALUE_FALSE) &&
-                CREATE_IF_NON_EXISTENT.equals(parser.getCurrentName())) {
-            documentParseInfo.create = Optional.of(currentToken == JsonToken.VALUE_TRUE);
-        } else if (currentToken == JsonToken.VALUE_STRING && CONDITION.equals(parser.getCurrentName())) {
-            documentParseInfo.condition = Optional.of(parser.getText());
-        } else if (currentToken == JsonToken.VALUE_STRING) {
-            // Value is expected to be set in the header not in the document. Ignore any unknown field
-            // as well.
-            if (! docIdAndOperationIsSetExternally) {
-                documentParseInfo.operationType = operationNameToOperationType(parser.getCurrentName());
-                documentParseInfo.documentId = new DocumentId(parser.getText());
+        ParsedDocumentOperation operation = null;
+        for (JsonToken token = parser.nextValue(); token != JsonToken.END_OBJECT; token = parser.nextValue()) {
+            if (token == null)
+                throw new IllegalArgumentException("Could not read document, no document?");
+
+            foundItems = true;
+            String name = parser.currentName();
+            switch (token) {
+                case VALUE_TRUE, VALUE_FALSE -> {
+                    if (CREATE_IF_NON_EXISTENT.equals(name))
+                        documentParseInfo.create = Optional.of(token == JsonToken.VALUE_TRUE);
+                }
+                case VALUE_STRING -> {
+                    if (CONDITION.equals(name))
+                        documentParseInfo.condition = Optional.of(parser.getText());
+                    else if ( ! docIdAndOperationIsSetExternally) {
+                        // Value is expected to be set in the header not in the document.
+                        documentParseInfo.operationType = operationNameToOperationType(name);
+                        documentParseInfo.documentId = new DocumentId(parser.getText());
+                    }
+                }
+                case START_OBJECT -> {
+                    if ( ! FIELDS.equals(name))
+                        parser.skipChildren();
+                    else if (operationReader == null || documentParseInfo.documentId == null)
+                        documentParseInfo.fieldsBuffer.bufferObject(parser);
+                    else if (documentParseInfo.operationType == DocumentOperationType.REMOVE)
+                        parser.skipChildren();
+                    else {
+                        documentParseInfo.fieldsBuffer = new LazyTokenBuffer(parser);
+                        operation = operationReader.apply(documentParseInfo);
+                    }
+                }
+                case START_ARRAY -> parser.skipChildren();
+                default -> { }
             }
         }
+        return operation;
     }
 
-    private void handleIdentLevelTwo(DocumentParseInfo documentParseInfo) {
-        try {
-            // "fields" opens a dictionary and is therefore on level two which might be surprising.
-            if (parser.currentToken() == JsonToken.START_OBJECT && FIELDS.equals(parser.getCurrentName())) {
-                documentParseInfo.fieldsBuffer.bufferObject(parser);
-                processIndent();
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("Got IO exception while parsing document", e);
-        }
+    private boolean hasDocumentId(DocumentParseInfo documentParseInfo) {
+        if (documentParseInfo.documentId != null)
+            return true;
+
+        if (foundItems)
+            throw new IllegalArgumentException("Missing a document operation ('put', 'update' or 'remove')");
+
+        return false;
     }
 
-    private static DocumentOperationType operationNameToOperationType(String operationName) {
+    /** Returns the operation type for the given name of the member holding the document ID of an operation. */
+    public static DocumentOperationType operationNameToOperationType(String operationName) {
         return switch (operationName) {
             case PUT, ID -> DocumentOperationType.PUT;
             case REMOVE -> DocumentOperationType.REMOVE;
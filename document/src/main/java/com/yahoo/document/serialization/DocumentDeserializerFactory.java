@@ -19,6 +19,16 @@ public class DocumentDeserializerFactory {
         return new VespaDocumentDeserializerHead(manager, buf);
     }
 
+    /**
+     * Creates a de-serializer for the current head document format, which decodes the field values of documents
+     * only when they are accessed, and copies the serialized bytes of other fields when the document is serialized
+     * again. This is cheaper when only some fields are used, but the given buffer must then not be modified for as
+     * long as the documents read from it are in use, and such documents must not be accessed concurrently.
+     */
+    public static DocumentDeserializer createLazyHead(DocumentTypeManager manager, GrowableByteBuffer buf) {
+        return new VespaDocumentDeserializerHead(manager, buf, true);
+    }
+
     /**
      * Creates a de-serializer for the 6.x document format.
      * This format is an extension of the 4.2 format.
@@ -67,6 +67,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiFunction;
 
 import static com.yahoo.text.Utf8.calculateStringPositions;
 
@@ -78,14 +79,24 @@ import static com.yahoo.text.Utf8.calculateStringPositions;
 public class VespaDocumentDeserializer6 extends BufferSerializer implements DocumentDeserializer {
 
     private final DocumentTypeManager manager;
+    private final boolean lazy;
     private short version;
     private List<SpanNode> spanNodes;
     private List<Annotation> annotations;
     private int[] stringPositions;
 
     VespaDocumentDeserializer6(DocumentTypeManager manager, GrowableByteBuffer buf) {
+        this(manager, buf, false);
+    }
+
+    /**
+     * Creates a deserializer which, if lazy, only indexes the fields of documents, and decodes each
+     * field value when it is first accessed, from the bytes of the given buffer.
+     */
+    VespaDocumentDeserializer6(DocumentTypeManager manager, GrowableByteBuffer buf, boolean lazy) {
         super(buf);
         this.manager = manager;
+        this.lazy = lazy;
         this.version = Document.SERIALIZED_VERSION;
     }
 
@@ -117,11 +128,11 @@ public class VespaDocumentDeserializer6 extends BufferSerializer implements Docu
         doc.setId(documentId);
 
         if ((content & 0x2) != 0) {
-            readStruct(doc, doc.getDataType().contentStruct());
+            readStruct(doc, doc.getDataType().contentStruct(), lazy);
 
         }
         if ((content & 0x4) != 0) {
-            readStruct(doc, doc.getDataType().contentStruct());
+            readStruct(doc, doc.getDataType().contentStruct(), lazy);
         }
 
         if (dataLength != (position() - dataPos)) {
@@ -261,10 +272,10 @@ public class VespaDocumentDeserializer6 extends BufferSerializer implements Docu
     public void read(FieldBase fieldDef, Struct s) {
         s.setVersion(version);
         s.clear();
-        readStruct(s, s.getDataType());
+        readStruct(s, s.getDataType(), false);
     }
 
-    private void readStruct(StructuredFieldValue target, StructDataType priType) {
+    private void readStruct(StructuredFieldValue target, StructDataType priType, boolean lazy) {
         if (version < 8) {
             throw new DeserializationException("Illegal document serialization version " + version);
         }
@@ -280,11 +291,15 @@ public class VespaDocumentDeserializer6 extends BufferSerializer implements Docu
         }
 
         int afterPos = position() + dataSize;
+        BiFunction<Field, ByteBuffer, FieldValue> decoder = lazy ? fieldDecoder(manager, version) : null;
         for (int i = 0; i < numberOfFields; i++) {
             int posBefore = position();
             Field structField = priType.getField(fieldIds[i]);
             // ignoring unknown field
-            if (structField != null) {
+            if (structField != null && lazy) {
+                ((Document) target).setSerializedFieldValue(structField, getBuf().getByteBuffer().slice(posBefore, fieldLens[i]), decoder);
+            }
+            else if (structField != null) {
                 FieldValue value = structField.getDataType().createFieldValue();
                 value.deserialize(structField, this);
                 target.setFieldValue(structField, value);
@@ -296,6 +311,16 @@ public class VespaDocumentDeserializer6 extends BufferSerializer implements Docu
         position(afterPos);
     }
 
+    private static BiFunction<Field, ByteBuffer, FieldValue> fieldDecoder(DocumentTypeManager manager, short version) {
+        return (field, serialized) -> {
+            VespaDocumentDeserializer6 deserializer = new VespaDocumentDeserializer6(manager, new GrowableByteBuffer(serialized));
+            deserializer.version = version;
+            FieldValue value = field.getDataType().createFieldValue();
+            value.deserialize(field, deserializer);
+            return value;
+        };
+    }
+
     public void read(FieldBase field, StructuredFieldValue value) {
         throw new IllegalArgumentException("read not implemented yet.");
     }
@@ -23,6 +23,10 @@ public class VespaDocumentDeserializerHead extends VespaDocumentDeserializer6 {
         super(manager, buffer);
     }
 
+    VespaDocumentDeserializerHead(DocumentTypeManager manager, GrowableByteBuffer buffer, boolean lazy) {
+        super(manager, buffer, lazy);
+    }
+
     @Override
     protected ValueUpdate readTensorModifyUpdate(DataType type) {
         byte operationId = getByte(null);
@@ -336,7 +336,11 @@ public class VespaDocumentSerializer6 extends BufferSerializer implements Docume
 
             int startPos = buffer.position();
             Field key = value.getKey();
-            value.getValue().serialize(key, this);
+            ByteBuffer serialized = s.getSerializedFieldValue(key);
+            if (serialized != null)
+                put(null, serialized); // Not decoded since it was deserialized, so it is copied as-is.
+            else
+                value.getValue().serialize(key, this);
 
             fieldLengths[i] = buffer.position() - startPos;
             fieldIds[i] = key.getId();
@@ -0,0 +1,105 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.document.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.yahoo.document.ArrayDataType;
+import com.yahoo.document.DataType;
+import com.yahoo.document.DocumentType;
+import com.yahoo.document.DocumentTypeManager;
+import com.yahoo.document.Field;
+import com.yahoo.document.TensorDataType;
+import com.yahoo.tensor.TensorType;
+import com.yahoo.test.Microbenchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Microbenchmark of parsing document puts of about 1 KB, 50 KB, and with large tensors, from feed JSON with the
+ * document ID before and after the fields, and from the /document/v1 format, where the document ID is given up front,
+ * reporting time and heap allocation per document.
+ */
+public class JsonReaderBenchmark {
+
+    private static final JsonFactory factory = new JsonFactory();
+
+    private static Object sink;
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        DocumentTypeManager types = new DocumentTypeManager();
+        DocumentType type = new DocumentType("music");
+        type.addField(new Field("title", DataType.STRING));
+        type.addField(new Field("body", DataType.STRING));
+        type.addField(new Field("year", DataType.INT));
+        type.addField(new Field("tags", new ArrayDataType(DataType.STRING)));
+        type.addField(new Field("embedding", new TensorDataType(TensorType.fromSpec("tensor<float>(x[768])"))));
+        type.addField(new Field("features", new TensorDataType(TensorType.fromSpec("tensor<float>(key{},x[16])"))));
+        types.registerDocumentType(type);
+
+        Random random = new Random(42);
+        for (int round = 0; round < 2; round++) { // first round is warmup
+            boolean print = round > 0;
+            benchmark(types, "1 KB", fields(random, 900, 10, 0, 0), iterations * 10, print);
+            benchmark(types, "50 KB", fields(random, 30_000, 2000, 0, 0), iterations, print);
+            benchmark(types, "tensors", fields(random, 100, 5, 768, 64), iterations, print);
+        }
+    }
+
+    private static void benchmark(DocumentTypeManager types, String name, String fields, int iterations, boolean print) {
+        String id = "id:music:music::document";
+        byte[] idFirst = ("{\"put\":\"" + id + "\",\"fields\":" + fields + "}").getBytes(UTF_8);
+        byte[] idLast = ("{\"fields\":" + fields + ",\"put\":\"" + id + "\"}").getBytes(UTF_8);
+        byte[] documentV1 = ("{\"fields\":" + fields + "}").getBytes(UTF_8);
+        if (print) System.out.printf("%-8s %8d bytes%n", name, documentV1.length);
+        run("feed, id first", iterations, print, () -> readOperation(types, idFirst));
+        run("feed, id last", iterations, print, () -> readOperation(types, idLast));
+        run("/document/v1", iterations, print,
+            () -> new JsonReader(types, new ByteArrayInputStream(documentV1), factory)
+                    .readSingleDocumentStreaming(DocumentOperationType.PUT, id));
+    }
+
+    private static Object readOperation(DocumentTypeManager types, byte[] json) {
+        JsonReader reader = new JsonReader(types, new ByteArrayInputStream(json), factory);
+        Object operation = reader.readOperation().get();
+        reader.readOperation(); // Reads to the end, which releases parser buffers.
+        return operation;
+    }
+
+    private static void run(String operation, int iterations, boolean print, Supplier<Object> op) {
+        Microbenchmark.Cost cost = Microbenchmark.measure(iterations, () -> sink = op.get());
+        if (print)
+            System.out.printf("    %-20s %s%n", operation, cost);
+    }
+
+    private static String fields(Random random, int bodyLength, int tags, int embeddingSize, int features) {
+        StringBuilder json = new StringBuilder("{\"title\":\"The title of the document\",\"year\":1984,\"body\":\"");
+        while (json.length() < bodyLength)
+            json.append("Lorem ipsum dolor sit amet, consectetur adipiscing elit. ");
+        json.append("\",\"tags\":[");
+        for (int i = 0; i < tags; i++)
+            json.append(i == 0 ? "" : ",").append("\"tag").append(random.nextInt(1000)).append('"');
+        json.append(']');
+        if (embeddingSize > 0) {
+            json.append(",\"embedding\":{\"values\":[");
+            for (int i = 0; i < embeddingSize; i++)
+                json.append(i == 0 ? "" : ",").append(random.nextFloat());
+            json.append("]}");
+        }
+        if (features > 0) {
+            json.append(",\"features\":{\"blocks\":{");
+            for (int i = 0; i < features; i++) {
+                json.append(i == 0 ? "" : ",").append("\"key").append(i).append("\":[");
+                for (int j = 0; j < 16; j++)
+                    json.append(j == 0 ? "" : ",").append(random.nextFloat());
+                json.append(']');
+            }
+            json.append("}}");
+        }
+        return json.append('}').toString();
+    }
+
+}
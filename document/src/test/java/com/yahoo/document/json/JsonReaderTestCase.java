@@ -1311,6 +1311,50 @@ public class JsonReaderTestCase {
         assertNull(r.next());
     }
 
+    @Test
+    public void testEmptyObjectEndsFeed() {
+        JsonReader r = createReader("""
+                                    [
+                                      { "remove": "id:unittest:smoke::whee" },
+                                      { },
+                                      { "remove": "id:unittest:smoke::whoa" }
+                                    ]
+                                    """);
+
+        assertEquals("id:unittest:smoke::whee", ((DocumentRemove) r.next()).getId().toString());
+        assertNull(r.next());
+        assertNull(r.next());
+
+        assertEquals("Missing a document operation ('put', 'update' or 'remove')",
+                     assertThrows(IllegalArgumentException.class,
+                                  () -> createReader("[ { \"fields\": { } } ]").next()).getMessage());
+    }
+
+    @Test
+    public void testJsonLinesFeed() {
+        JsonReader r = createReader("""
+                                    {"put": "id:unittest:smoke::whee", "fields": {"something": "smoketest", "flag": true, "nalle": "bamse"}}
+                                    {"condition": "bla", "update": "id:unittest:testarray::whee", "create": true, "fields": {"actualarray": {"add": ["person", "another person"]}}}
+
+                                    {"remove": "id:unittest:smoke::whee"}
+                                    """);
+
+        smokeTestDoc(((DocumentPut) r.readOperation().get().operation()).getDocument());
+
+        DocumentUpdate update = (DocumentUpdate) r.readOperation().get().operation();
+        checkSimpleArrayAdd(update);
+        assertTrue(update.getCreateIfNonExistent());
+        assertEquals("bla", update.getCondition().getSelection());
+
+        DocumentRemove remove = (DocumentRemove) r.readOperation().get().operation();
+        assertEquals("id:unittest:smoke::whee", remove.getId().toString());
+
+        assertTrue(r.readOperation().isEmpty());
+
+        assertEquals("Missing a document operation ('put', 'update' or 'remove')",
+                     assertThrows(IllegalArgumentException.class, () -> createReader("{ }").readOperation()).getMessage());
+    }
+
     @Test
     public void testUpdateWithConditionAndCreateInDifferentOrdering() {
         int documentsCreated = 106;
@@ -11,6 +11,7 @@ import java.util.function.Supplier;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author jonmv
@@ -129,4 +130,49 @@ public class LazyTokenBufferTest {
         assertNull(buffer.next());
     }
 
+    @Test
+    public void testStreamingAndGrowth() throws IOException {
+        StringBuilder json = new StringBuilder("{\"fields\":{");
+        for (int i = 0; i < 100; i++)
+            json.append(i == 0 ? "" : ",").append("\"f").append(i).append("\":[").append(i).append(",true]");
+        json.append("}}");
+        JsonParser parser = new JsonFactory().createParser(json.toString());
+        parser.nextValue();
+        parser.nextValue();
+        LazyTokenBuffer buffer = new LazyTokenBuffer(parser);
+
+        // Without lookahead, tokens are read directly from the parser.
+        assertEquals(JsonToken.START_ARRAY, buffer.next());
+        assertEquals("f0", buffer.currentName());
+        assertEquals(JsonToken.VALUE_NUMBER_INT, buffer.next());
+        assertEquals("0", buffer.currentText());
+        assertEquals("0", parser.getText());
+
+        // Looking far ahead grows the buffer, but doesn't change the current token.
+        Supplier<Token> lookahead = buffer.lookahead();
+        for (int i = 0; i < 72; i++) lookahead.get();
+        assertEquals("true", lookahead.get().text);
+        assertEquals(JsonToken.VALUE_NUMBER_INT, buffer.current());
+        assertEquals("0", buffer.currentText());
+        assertEquals(2, buffer.nesting());
+
+        // Advancing through the buffer, and then the parser, gives all tokens in order.
+        assertEquals(JsonToken.VALUE_TRUE, buffer.next());
+        assertEquals("true", buffer.currentText());
+        assertEquals(JsonToken.END_ARRAY, buffer.next());
+        for (int i = 1; i < 100; i++) {
+            assertEquals(JsonToken.START_ARRAY, buffer.next());
+            assertEquals("f" + i, buffer.currentName());
+            assertEquals(JsonToken.VALUE_NUMBER_INT, buffer.next());
+            assertEquals(Integer.toString(i), buffer.currentText());
+            assertEquals(JsonToken.VALUE_TRUE, buffer.next());
+            assertEquals(JsonToken.END_ARRAY, buffer.next());
+        }
+        assertEquals(JsonToken.END_OBJECT, buffer.next());
+        assertEquals(0, buffer.nesting());
+        assertNull(buffer.next());
+        assertTrue(buffer.isEmpty());
+        assertEquals(JsonToken.END_OBJECT, parser.nextToken());
+    }
+
 }
@@ -1,10 +1,13 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.document.serialization;
 
+import com.yahoo.document.ArrayDataType;
 import com.yahoo.document.DataType;
 import com.yahoo.document.Document;
 import com.yahoo.document.DocumentType;
+import com.yahoo.document.DocumentTypeManager;
 import com.yahoo.document.Field;
+import com.yahoo.document.datatypes.Array;
 import com.yahoo.document.datatypes.IntegerFieldValue;
 import com.yahoo.document.datatypes.PredicateFieldValue;
 import com.yahoo.document.datatypes.StringFieldValue;
@@ -12,7 +15,13 @@ import com.yahoo.io.GrowableByteBuffer;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 /**
  * @author Simon Thoresen Hult
@@ -47,4 +56,60 @@ public class VespaDocumentSerializerTestCase {
         Mockito.verify(predicate, Mockito.times(1)).serialize(Mockito.same(field), Mockito.any(FieldWriter.class));
     }
 
+    @Test
+    public void lazily_deserialized_documents_decode_fields_on_access_and_copy_the_others() {
+        DocumentType docType = new DocumentType("my_type");
+        docType.addField("my_str", DataType.STRING);
+        docType.addField("my_int", DataType.INT);
+        docType.addField("my_array", new ArrayDataType(DataType.STRING));
+        Document doc = new Document(docType, "id:ns:my_type::");
+        doc.setFieldValue("my_str", new StringFieldValue("foo"));
+        doc.setFieldValue("my_int", new IntegerFieldValue(69));
+        Array<StringFieldValue> array = new Array<>(docType.getField("my_array").getDataType());
+        array.addAll(List.of(new StringFieldValue("bar"), new StringFieldValue("baz")));
+        doc.setFieldValue("my_array", array);
+        byte[] serialized = serialize(doc);
+
+        Document lazy = deserializeLazily(docType, serialized);
+        assertEquals(3, lazy.getFieldCount());
+        assertNotNull(lazy.getSerializedFieldValue(docType.getField("my_int")));
+        assertEquals(new IntegerFieldValue(69), lazy.getFieldValue("my_int"));
+        assertNull(lazy.getSerializedFieldValue(docType.getField("my_int")));
+        assertNotNull(lazy.getSerializedFieldValue(docType.getField("my_str")));
+        assertArrayEquals(serialized, serialize(lazy));
+
+        Document copy = lazy.clone();
+        assertEquals(array, copy.getFieldValue("my_array"));
+        assertNull(copy.getSerializedFieldValue(docType.getField("my_array")));
+        assertNotNull(lazy.getSerializedFieldValue(docType.getField("my_array")));
+        assertEquals(doc, lazy);
+        assertEquals(doc.hashCode(), deserializeLazily(docType, serialized).hashCode());
+
+        lazy = deserializeLazily(docType, serialized);
+        lazy.setFieldValue("my_str", new StringFieldValue("qux"));
+        assertEquals(new StringFieldValue("bar"), ((Array<?>) lazy.removeFieldValue("my_array")).get(0));
+        assertEquals(2, lazy.getFieldCount());
+        Document expected = new Document(docType, "id:ns:my_type::");
+        expected.setFieldValue("my_str", new StringFieldValue("qux"));
+        expected.setFieldValue("my_int", new IntegerFieldValue(69));
+        assertEquals(expected, new Document(DocumentDeserializerFactory.createHead(typesOf(docType), GrowableByteBuffer.wrap(serialize(lazy)))));
+    }
+
+    private static byte[] serialize(Document doc) {
+        GrowableByteBuffer buf = new GrowableByteBuffer();
+        doc.serialize(buf);
+        buf.flip();
+        return Arrays.copyOf(buf.array(), buf.limit());
+    }
+
+    private static Document deserializeLazily(DocumentType docType, byte[] serialized) {
+        return new Document(DocumentDeserializerFactory.createLazyHead(typesOf(docType), GrowableByteBuffer.wrap(serialized)));
+    }
+
+    private static DocumentTypeManager typesOf(DocumentType docType) {
+        DocumentTypeManager types = new DocumentTypeManager();
+        types.registerDocumentType(docType);
+        return types;
+    }
+
 }
@@ -111,6 +111,22 @@ public abstract class DocumentAccess {
      */
     public abstract VisitorSession createVisitorSession(VisitorParameters parameters) throws ParseException;
 
+    /**
+     * Run a visitor with the given visitor parameters, which visits the given number of slices of the
+     * bucket space concurrently, with one session each, and get the result back here.
+     *
+     * @param parameters The parameters of this visitor session.
+     * @param parallelism The number of slices to visit concurrently.
+     * @return a session used to track progress of the visitor and get the actual data returned.
+     * @throws UnsupportedOperationException if this access implementation does not support visiting
+     * @throws RuntimeException              if an error prevented the session from being created
+     * @throws ParseException                if the document selection string could not be parsed
+     * @see ParallelVisitorSession
+     */
+    public VisitorSession createVisitorSession(VisitorParameters parameters, int parallelism) throws ParseException {
+        return new ParallelVisitorSession(parameters, parallelism, this::createVisitorSession);
+    }
+
     /**
      * Creates a destination session for receiving data from visiting.
      * The visitor must be started and progress tracked through a visitor session.
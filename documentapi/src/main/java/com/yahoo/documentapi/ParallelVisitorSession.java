@@ -0,0 +1,268 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.documentapi;
+
+import com.yahoo.document.BucketIdFactory;
+import com.yahoo.document.select.BucketSelector;
+import com.yahoo.document.select.parser.ParseException;
+import com.yahoo.documentapi.VisitorControlHandler.CompletionCode;
+import com.yahoo.messagebus.Message;
+import com.yahoo.messagebus.Trace;
+import com.yahoo.vdslib.VisitorStatistics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A visitor session which splits the bucket space into a number of slices, and visits these concurrently, with
+ * one session per slice. Each session keeps its own set of super buckets pending, and data from all of them is
+ * handled concurrently, so a client may visit a large corpus as fast as the content nodes allow.
+ * <p>
+ * All data is handed to the local data handler of the given parameters, which must therefore be thread safe; a
+ * {@link VisitorDataQueue}, which is the default, may be polled by many consumer threads. The control handler of
+ * the given parameters sees the progress of all slices merged to one token, see {@link ProgressToken#fromSlices},
+ * and may be used to resume the visit, with any number of slices. It is notified when all slices are done, with
+ * the least successful of their completion codes. If the given parameters are for a slice of the bucket space
+ * already, that slice is split further. Visits of explicit sets of buckets, e.g., of a single group, are not split.
+ *
+ * @see DocumentAccess#createVisitorSession(VisitorParameters, int)
+ */
+public class ParallelVisitorSession implements VisitorSession {
+
+    /** Creates a visitor session for a single slice, e.g., {@link DocumentAccess#createVisitorSession(VisitorParameters)}. */
+    @FunctionalInterface
+    public interface SessionFactory {
+
+        VisitorSession create(VisitorParameters parameters) throws ParseException;
+
+    }
+
+    private final Object monitor = new Object();
+    private final List<SliceControlHandler> slices = new ArrayList<>();
+    private final List<VisitorSession> sessions = new CopyOnWriteArrayList<>();
+    private final AtomicInteger slicesRunning;
+    private final AtomicInteger dataRunning;
+    private final VisitorDataHandler data;
+    private final VisitorControlHandler control;
+
+    /**
+     * Creates and starts a new session, which visits the given number of slices concurrently.
+     *
+     * @param parameters the parameters of the visit, to split into slices
+     * @param parallelism the number of slices to visit concurrently
+     * @param factory creates the session of each of the slices
+     * @throws ParseException if the document selection of the parameters is invalid
+     */
+    public ParallelVisitorSession(VisitorParameters parameters, int parallelism, SessionFactory factory) throws ParseException {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism must be positive, but was " + parallelism);
+        if ( ! visitsBucketRange(parameters))
+            parallelism = 1;
+
+        if (parameters.getLocalDataHandler() == null && parameters.getRemoteDataHandler() == null)
+            parameters.setLocalDataHandler(new VisitorDataQueue());
+        if (parameters.getControlHandler() == null)
+            parameters.setControlHandler(new VisitorControlHandler());
+
+        this.data = parameters.getLocalDataHandler();
+        this.control = parameters.getControlHandler();
+        this.slicesRunning = new AtomicInteger(parallelism);
+        this.dataRunning = new AtomicInteger(parallelism);
+        if (data != null) {
+            data.reset();
+            data.setSession(this);
+        }
+        control.reset();
+        control.setSession(this);
+
+        int totalSlices = parameters.getSlices() * parallelism;
+        List<VisitorParameters> sliceParameters = new ArrayList<>();
+        for (int i = 0; i < parallelism; i++) {
+            int sliceId = parameters.getSliceId() + i * parameters.getSlices();
+            VisitorParameters slice = new VisitorParameters(parameters);
+            slice.slice(totalSlices, sliceId);
+            if (parallelism > 1 && parameters.getResumeToken() != null)
+                slice.setResumeToken(parameters.getResumeToken().forSlice(totalSlices, sliceId));
+            if (data != null)
+                slice.setLocalDataHandler(new SliceDataHandler());
+            SliceControlHandler sliceControl = new SliceControlHandler();
+            slice.setControlHandler(sliceControl);
+            slices.add(sliceControl);
+            sliceParameters.add(slice);
+        }
+        // All handlers must exist before the first session starts, as any of them may be called by any session.
+        try {
+            for (VisitorParameters slice : sliceParameters)
+                sessions.add(factory.create(slice));
+        }
+        catch (RuntimeException | ParseException e) {
+            sessions.forEach(VisitorSession::destroy);
+            throw e;
+        }
+    }
+
+    private static boolean visitsBucketRange(VisitorParameters parameters) throws ParseException {
+        return    (parameters.getBucketsToVisit() == null || parameters.getBucketsToVisit().isEmpty())
+               && new BucketSelector(new BucketIdFactory()).getBucketList(parameters.getDocumentSelection()) == null;
+    }
+
+    /** Returns the number of slices visited concurrently by this. */
+    public int parallelism() {
+        return sessions.size();
+    }
+
+    @Override
+    public boolean isDone() {
+        return control.isDone() && sessions.stream().allMatch(VisitorSession::isDone);
+    }
+
+    /** Returns the merged progress of all slices. */
+    @Override
+    public ProgressToken getProgress() {
+        List<ProgressToken> progress = new ArrayList<>();
+        for (VisitorSession session : sessions)
+            progress.add(session.getProgress());
+        return progress.size() == 1 ? progress.get(0) : ProgressToken.fromSlices(progress);
+    }
+
+    /** Returns a trace with the traces of all slices as children. */
+    @Override
+    public Trace getTrace() {
+        Trace trace = new Trace();
+        for (VisitorSession session : sessions)
+            trace.getRoot().addChild(session.getTrace().getRoot());
+        return trace;
+    }
+
+    @Override
+    public boolean waitUntilDone(long timeoutMs) throws InterruptedException {
+        return control.waitUntilDone(timeoutMs);
+    }
+
+    @Override
+    public void ack(AckToken token) {
+        SliceAck ack = (SliceAck) token.ackObject;
+        ack.handler.ack(ack.token);
+    }
+
+    @Override
+    public void abort() {
+        sessions.forEach(VisitorSession::abort);
+    }
+
+    @Override
+    public VisitorResponse getNext() {
+        if (data == null)
+            throw new IllegalStateException("Data has been routed to external source for this visitor");
+
+        return data.getNext();
+    }
+
+    @Override
+    public VisitorResponse getNext(int timeoutMilliseconds) throws InterruptedException {
+        if (data == null)
+            throw new IllegalStateException("Data has been routed to external source for this visitor");
+
+        return data.getNext(timeoutMilliseconds);
+    }
+
+    @Override
+    public void destroy() {
+        sessions.forEach(VisitorSession::destroy);
+    }
+
+    private ProgressToken mergedProgress() {
+        List<ProgressToken> progress = new ArrayList<>();
+        for (SliceControlHandler slice : slices)
+            progress.add(slice.snapshot);
+        return ProgressToken.fromSlices(progress);
+    }
+
+    private static int severity(CompletionCode code) {
+        return switch (code) {
+            case SUCCESS -> 0;
+            case ABORTED -> 1;
+            case TIMEOUT -> 2;
+            case FAILURE -> 3;
+        };
+    }
+
+    /** Hands data to the data handler of the parallel session, and lets this ack it through the session of the slice. */
+    private class SliceDataHandler extends VisitorDataHandler {
+
+        @Override
+        public void onMessage(Message m, AckToken token) {
+            data.onMessage(m, new AckToken(new SliceAck(this, token)));
+        }
+
+        @Override
+        public void onDone() {
+            if (dataRunning.decrementAndGet() == 0)
+                data.onDone();
+        }
+
+    }
+
+    private record SliceAck(VisitorDataHandler handler, AckToken token) { }
+
+    /** Tracks the progress of a slice, and reports progress for all slices to the control handler of the parallel session. */
+    private class SliceControlHandler extends VisitorControlHandler {
+
+        // Sessions hold the lock of their token when reporting progress, so we can't lock those of other slices.
+        private volatile ProgressToken snapshot = new ProgressToken();
+
+        @Override
+        public void onProgress(ProgressToken token) {
+            super.onProgress(token);
+            synchronized (monitor) {
+                if (slices.size() == 1) {
+                    control.onProgress(token);
+                }
+                else {
+                    snapshot = token.forSlice(1, 0);
+                    control.onProgress(mergedProgress());
+                }
+            }
+        }
+
+        @Override
+        public void onVisitorError(String message) {
+            synchronized (monitor) {
+                control.onVisitorError(message);
+            }
+        }
+
+        @Override
+        public void onVisitorStatistics(VisitorStatistics statistics) {
+            super.onVisitorStatistics(statistics);
+            synchronized (monitor) {
+                VisitorStatistics total = new VisitorStatistics();
+                for (SliceControlHandler slice : slices)
+                    if (slice.getVisitorStatistics() != null)
+                        total.add(slice.getVisitorStatistics());
+                control.onVisitorStatistics(total);
+            }
+        }
+
+        @Override
+        public void onDone(CompletionCode code, String message) {
+            super.onDone(code, message);
+            if (slicesRunning.decrementAndGet() > 0)
+                return;
+
+            Result result = slices.get(0).getResult();
+            for (SliceControlHandler slice : slices)
+                if (severity(slice.getResult().getCode()) > severity(result.getCode()))
+                    result = slice.getResult();
+
+            synchronized (monitor) {
+                if (slices.size() > 1)
+                    control.onProgress(mergedProgress());
+                control.onDone(result.getCode(), result.getMessage());
+            }
+        }
+
+    }
+
+}
@@ -2,7 +2,9 @@
 package com.yahoo.documentapi;
 
 import java.util.Base64;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.logging.Logger;
@@ -399,6 +401,97 @@ public class ProgressToken {
         ++bucketCursor;
     }
 
+    /**
+     * Returns a token with only the progress of the given slice of the bucket space of this token, which must be
+     * from a visit of the full range of buckets, and not of an explicit set of buckets. The returned token may be
+     * used to resume the visit of that slice, where buckets of other slices, and below the bucket cursor, are
+     * considered finished; this is used to resume a visit with more slices than the visit was done with.
+     * Failed buckets are included as pending, and will be retried.
+     *
+     * @param slices the total number of slices
+     * @param sliceId the slice to return progress for, in the range [0, slices)
+     * @return progress of only the given slice
+     * @see #fromSlices(List)
+     */
+    public synchronized ProgressToken forSlice(int slices, int sliceId) {
+        if (slices < 1)
+            throw new IllegalArgumentException("slices must be positive, but was " + slices);
+        if (sliceId < 0 || sliceId >= slices)
+            throw new IllegalArgumentException("sliceId must be in [0, " + slices + "), but was " + sliceId);
+        if (totalBucketCount == 0)
+            return new ProgressToken();
+        if (totalBucketCount != 1L << distributionBits)
+            throw new IllegalArgumentException("Only progress of visits of the full bucket space can be sliced");
+
+        ProgressToken slice = new ProgressToken(distributionBits);
+        slice.totalBucketCount = totalBucketCount;
+        slice.bucketCursor = bucketCursor;
+        for (Map.Entry<BucketKeyWrapper, BucketEntry> entry : buckets.entrySet())
+            if (bucketIndex(entry.getKey().getKey(), distributionBits) % slices == sliceId)
+                slice.addBucket(entry.getKey().toBucketId(), entry.getValue().getProgress(), BucketState.BUCKET_PENDING);
+        for (Map.Entry<BucketId, BucketId> entry : failedBuckets.entrySet())
+            if (bucketIndex(bucketToKey(entry.getKey().getId()), distributionBits) % slices == sliceId)
+                slice.addBucket(entry.getKey(), entry.getValue(), BucketState.BUCKET_PENDING);
+        slice.finishedBucketCount = Math.max(0, bucketCursor - slice.pendingBucketCount);
+        return slice;
+    }
+
+    /**
+     * Returns a token with the merged progress of the given tokens, which must be from concurrent visits of
+     * the different slices of the full range of buckets. The returned token may be used to resume the visit,
+     * with any number of slices; see {@link #forSlice(int, int)}. Its bucket cursor is the lowest of those of
+     * the given tokens, so buckets beyond it, which some slices have already visited, are visited again on
+     * resumption, as are buckets which were partially visited by slices, when beyond it; but no buckets are lost.
+     * Failed buckets are included as pending, and will be retried.
+     *
+     * @param slices progress of each of the slices of a visit
+     * @return merged progress of all slices
+     */
+    public static ProgressToken fromSlices(List<ProgressToken> slices) {
+        int distributionBits = 0;
+        int[] sliceBits = new int[slices.size()];
+        long[] cursors = new long[slices.size()];
+        List<BucketId> superbuckets = new ArrayList<>();
+        List<BucketId> progress = new ArrayList<>();
+        for (int i = 0; i < slices.size(); i++) {
+            ProgressToken slice = slices.get(i);
+            synchronized (slice) {
+                if (slice.totalBucketCount == 0) continue; // Slice has not started, so neither can the merged token.
+                if (slice.totalBucketCount != 1L << slice.distributionBits)
+                    throw new IllegalArgumentException("Only progress of visits of the full bucket space can be merged");
+
+                distributionBits = Math.max(distributionBits, slice.distributionBits);
+                sliceBits[i] = slice.distributionBits;
+                cursors[i] = slice.bucketCursor;
+                for (Map.Entry<BucketKeyWrapper, BucketEntry> entry : slice.buckets.entrySet()) {
+                    superbuckets.add(entry.getKey().toBucketId());
+                    progress.add(entry.getValue().getProgress());
+                }
+                superbuckets.addAll(slice.failedBuckets.keySet());
+                progress.addAll(slice.failedBuckets.values());
+            }
+        }
+        if (distributionBits == 0) // No slice has any progress yet.
+            return new ProgressToken();
+
+        ProgressToken merged = new ProgressToken(distributionBits);
+        merged.totalBucketCount = 1L << distributionBits;
+        merged.bucketCursor = merged.totalBucketCount;
+        for (int i = 0; i < cursors.length; i++) // Scale cursors to the highest distribution bit count.
+            merged.bucketCursor = Math.min(merged.bucketCursor, cursors[i] << (distributionBits - sliceBits[i]));
+        for (int i = 0; i < superbuckets.size(); i++)
+            if (   bucketIndex(bucketToKey(superbuckets.get(i).getId()), distributionBits) < merged.bucketCursor
+                && ! merged.buckets.containsKey(bucketToKeyWrapper(superbuckets.get(i))))
+                merged.addBucket(superbuckets.get(i), progress.get(i), BucketState.BUCKET_PENDING);
+        merged.finishedBucketCount = Math.max(0, merged.bucketCursor - merged.pendingBucketCount);
+        return merged;
+    }
+
+    /** Returns the index of the (first) bucket with the given distribution bit count covered by the given bucket key. */
+    private static long bucketIndex(long bucketKey, int distributionBits) {
+        return bucketKey >>> (64 - distributionBits);
+    }
+
     /**
      * Directly generate a bucket Id key for the <code>n</code>th bucket in
      * reverse sorted order.
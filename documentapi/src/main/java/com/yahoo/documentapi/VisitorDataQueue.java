@@ -19,17 +19,32 @@ import java.util.concurrent.TimeUnit;
  * <p>
  * Visitor responses should be polled for with the
  * <code>getNext</code> methods and need to be acked when processed for
- * visiting not to halt. The class is thread safe.
+ * visiting not to halt. The class is thread safe, and any number of threads may poll it.
+ * <p>
+ * The queue may be bounded, in which case the session threads handing data to it block while it is full.
+ * This bounds memory use when a fast visit, e.g., with a {@link ParallelVisitorSession}, is consumed slower
+ * than data is returned by the content nodes, while acking alone bounds it by the number of visitors
+ * times their maximum number of pending messages.
  *
  * @author Håkon Humberset
  * @author vekterli
  */
 public class VisitorDataQueue extends VisitorDataHandler {
 
-    private final BlockingQueue<VisitorResponse> pendingResponses = new LinkedBlockingQueue<>();
+    private final BlockingQueue<VisitorResponse> pendingResponses;
 
-    /** Creates a new visitor data queue. */
+    /** Creates a new, unbounded visitor data queue. */
     public VisitorDataQueue() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a new visitor data queue, which holds at most the given number of responses.
+     *
+     * @param capacity the maximum number of responses in the queue
+     */
+    public VisitorDataQueue(int capacity) {
+        pendingResponses = new LinkedBlockingQueue<>(capacity);
     }
 
     // Inherit doc from VisitorDataHandler
@@ -41,7 +56,12 @@ public class VisitorDataQueue extends VisitorDataHandler {
 
     private void appendSingleOpToPendingList(final DocumentOperation op, final AckToken token) {
         final DocumentOpVisitorResponse response = new DocumentOpVisitorResponse(op, token);
-        pendingResponses.add(response);
+        try {
+            pendingResponses.put(response);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for room in the visitor data queue", e);
+        }
     }
 
     @Override
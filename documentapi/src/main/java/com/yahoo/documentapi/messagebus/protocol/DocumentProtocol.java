@@ -36,6 +36,7 @@ public class DocumentProtocol implements Protocol {
     private final RoutingPolicyRepository routingPolicyRepository = new RoutingPolicyRepository();
     private final RoutableRepository routableRepository;
     private final DocumentTypeManager docMan;
+    private volatile boolean lazyFieldDecoding = false;
 
     /** The name of this protocol. */
     public static final Utf8String NAME = new Utf8String("document");
@@ -325,13 +326,13 @@ public class DocumentProtocol implements Protocol {
 
         putRoutableFactory(MESSAGE_CREATEVISITOR,   RoutableFactories80.createCreateVisitorMessageFactory(),   from8);
         putRoutableFactory(MESSAGE_DESTROYVISITOR,  RoutableFactories80.createDestroyVisitorMessageFactory(),  from8);
-        putRoutableFactory(MESSAGE_DOCUMENTLIST,    RoutableFactories80.createDocumentListMessageFactory(),    from8);
+        putRoutableFactory(MESSAGE_DOCUMENTLIST,    RoutableFactories80.createDocumentListMessageFactory(this::lazyFieldDecoding),    from8);
         putRoutableFactory(MESSAGE_EMPTYBUCKETS,    RoutableFactories80.createEmptyBucketsMessageFactory(),    from8);
         putRoutableFactory(MESSAGE_GETBUCKETLIST,   RoutableFactories80.createGetBucketListMessageFactory(),   from8);
         putRoutableFactory(MESSAGE_GETBUCKETSTATE,  RoutableFactories80.createGetBucketStateMessageFactory(),  from8);
         putRoutableFactory(MESSAGE_GETDOCUMENT,     RoutableFactories80.createGetDocumentMessageFactory(),     from8);
         putRoutableFactory(MESSAGE_MAPVISITOR,      RoutableFactories80.createMapVisitorMessageFactory(),      from8);
-        putRoutableFactory(MESSAGE_PUTDOCUMENT,     RoutableFactories80.createPutDocumentMessageFactory(),     from8);
+        putRoutableFactory(MESSAGE_PUTDOCUMENT,     RoutableFactories80.createPutDocumentMessageFactory(this::lazyFieldDecoding),     from8);
         putRoutableFactory(MESSAGE_QUERYRESULT,     RoutableFactories80.createQueryResultMessageFactory(),     from8);
         putRoutableFactory(MESSAGE_REMOVEDOCUMENT,  RoutableFactories80.createRemoveDocumentMessageFactory(),  from8);
         putRoutableFactory(MESSAGE_REMOVELOCATION,  RoutableFactories80.createRemoveLocationMessageFactory(),  from8);
@@ -345,7 +346,7 @@ public class DocumentProtocol implements Protocol {
         putRoutableFactory(REPLY_EMPTYBUCKETS,      RoutableFactories80.createEmptyBucketsReplyFactory(),      from8);
         putRoutableFactory(REPLY_GETBUCKETLIST,     RoutableFactories80.createGetBucketListReplyFactory(),     from8);
         putRoutableFactory(REPLY_GETBUCKETSTATE,    RoutableFactories80.createGetBucketStateReplyFactory(),    from8);
-        putRoutableFactory(REPLY_GETDOCUMENT,       RoutableFactories80.createGetDocumentReplyFactory(),       from8);
+        putRoutableFactory(REPLY_GETDOCUMENT,       RoutableFactories80.createGetDocumentReplyFactory(this::lazyFieldDecoding),       from8);
         putRoutableFactory(REPLY_MAPVISITOR,        RoutableFactories80.createMapVisitorReplyFactory(),        from8);
         putRoutableFactory(REPLY_PUTDOCUMENT,       RoutableFactories80.createPutDocumentReplyFactory(),       from8);
         putRoutableFactory(REPLY_QUERYRESULT,       RoutableFactories80.createQueryResultReplyFactory(),       from8);
@@ -357,6 +358,21 @@ public class DocumentProtocol implements Protocol {
         putRoutableFactory(REPLY_WRONGDISTRIBUTION, RoutableFactories80.createWrongDistributionReplyFactory(), from8);
     }
 
+    /**
+     * Sets whether the fields of documents in received messages are decoded when first accessed, rather than when the
+     * message is decoded. This saves the cost of decoding fields which are never accessed, but the documents then keep
+     * the received message bytes alive until all their fields are decoded, and reading a field may modify a document,
+     * so such documents must not be read by several threads concurrently. Default is false.
+     *
+     * @return this, to allow chaining
+     */
+    public DocumentProtocol setLazyFieldDecoding(boolean lazyFieldDecoding) {
+        this.lazyFieldDecoding = lazyFieldDecoding;
+        return this;
+    }
+
+    boolean lazyFieldDecoding() { return lazyFieldDecoding; }
+
     /**
      * Adds a new routable factory to this protocol. This method is thread-safe, and may be invoked on a protocol object
      * that is already in use by a message bus instance. Notice that the name you supply for a factory is the
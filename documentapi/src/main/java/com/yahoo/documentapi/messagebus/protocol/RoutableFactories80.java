@@ -6,8 +6,11 @@ import ai.vespa.documentapi.protobuf.DocapiInspect;
 import ai.vespa.documentapi.protobuf.DocapiVisiting;
 import com.google.protobuf.AbstractMessage;
 import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Parser;
+import com.google.protobuf.UnsafeByteOperations;
 import com.yahoo.document.BucketId;
 import com.yahoo.document.Document;
 import com.yahoo.document.DocumentId;
@@ -29,9 +32,13 @@ import com.yahoo.vespa.objects.BufferSerializer;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
 import java.util.function.Function;
 import java.util.logging.Logger;
 
@@ -75,6 +82,8 @@ abstract class RoutableFactories80 {
             } catch (IOException | RuntimeException e) {
                 log.severe("Error during Protobuf encoding of message type %s: %s".formatted(apiClass.getSimpleName(), e.getMessage()));
                 return null;
+            } finally {
+                ScratchBuffers.releaseAll();
             }
         }
 
@@ -127,7 +136,7 @@ abstract class RoutableFactories80 {
             }
             decoderFn = (buf) -> {
                 try {
-                    var protoObj = parser.parseFrom(buf.getBuf().getByteBuffer());
+                    var protoObj = parse(parser, buf.getBuf().getByteBuffer());
                     return fn.apply(protoObj);
                 } catch (IOException e) {
                     throw new RuntimeException(e);
@@ -142,7 +151,7 @@ abstract class RoutableFactories80 {
             }
             decoderFn = (buf) -> {
                 try {
-                    var protoObj = parser.parseFrom(buf.getBuf().getByteBuffer());
+                    var protoObj = parse(parser, buf.getBuf().getByteBuffer());
                     return fn.apply(protoObj, buf.getTypeRepo());
                 } catch (IOException e) {
                     throw new RuntimeException(e);
@@ -151,6 +160,17 @@ abstract class RoutableFactories80 {
             return this;
         }
 
+        /**
+         * Parses the remaining bytes of the given buffer, aliasing rather than copying them into any bytes fields,
+         * such as document payloads, which are then deserialized straight from the received message buffer.
+         */
+        private static <ProtoT> ProtoT parse(Parser<ProtoT> parser, ByteBuffer bytes) throws InvalidProtocolBufferException {
+            var input = bytes.hasArray() ? CodedInputStream.newInstance(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining())
+                                         : CodedInputStream.newInstance(bytes);
+            input.enableAliasing(true);
+            return parser.parseFrom(input);
+        }
+
         ProtobufCodec<DocApiT, ProtoT> build() {
             Objects.requireNonNull(encoderFn, "Encoder has not been set");
             Objects.requireNonNull(decoderFn, "Decoder has not been set");
@@ -158,6 +178,52 @@ abstract class RoutableFactories80 {
         }
     }
 
+    /**
+     * Per-thread buffers which documents and updates are serialized into while a message is encoded, and which are
+     * reused for subsequent messages. The protobuf messages wrap, rather than copy, the serialized bytes, and are
+     * written to their final array before {@link ProtobufCodec#encode(int, Routable)} releases the buffers again.
+     * A message may hold several documents, so each serialization acquires a separate buffer. Only a few, small
+     * buffers are retained per thread, so a message with many or large documents does not pin memory afterwards.
+     */
+    private static class ScratchBuffers {
+
+        private static final int maxRetainedBuffers = 2;
+        private static final int maxRetainedCapacity = 1 << 18;
+        private static final ThreadLocal<ScratchBuffers> local = ThreadLocal.withInitial(ScratchBuffers::new);
+
+        private final List<GrowableByteBuffer> buffers = new ArrayList<>();
+        private int acquired = 0;
+
+        static GrowableByteBuffer acquire(int initialCapacity) {
+            ScratchBuffers scratch = local.get();
+            if (scratch.acquired == scratch.buffers.size())
+                scratch.buffers.add(new GrowableByteBuffer(initialCapacity, 2.0f));
+
+            GrowableByteBuffer buf = scratch.buffers.get(scratch.acquired++);
+            buf.clear();
+            buf.order(ByteOrder.BIG_ENDIAN);
+            return buf;
+        }
+
+        static void releaseAll() {
+            ScratchBuffers scratch = local.get();
+            scratch.buffers.removeIf(buffer -> buffer.capacity() > maxRetainedCapacity); // Don't hold on to memory for unusually large documents.
+            if (scratch.buffers.size() > maxRetainedBuffers)
+                scratch.buffers.subList(maxRetainedBuffers, scratch.buffers.size()).clear();
+            scratch.acquired = 0;
+        }
+
+        static int retained() {
+            return local.get().buffers.size();
+        }
+
+    }
+
+    /** Returns the number of scratch buffers the calling thread retains between messages. */
+    static int retainedScratchBuffers() {
+        return ScratchBuffers.retained();
+    }
+
     // Protobuf codec helpers for common types
 
     private static DocapiCommon.GlobalId toProtoGlobalId(GlobalId gid) {
@@ -193,26 +259,27 @@ abstract class RoutableFactories80 {
     }
 
     private static ByteBuffer serializeDoc(Document doc) {
-        var buf = new GrowableByteBuffer(8 * 1024, 2.0f);
+        var buf = ScratchBuffers.acquire(8 * 1024);
         doc.serialize(DocumentSerializerFactory.createHead(buf));
         buf.flip();
         return buf.getByteBuffer();
     }
 
     private static DocapiCommon.Document toProtoDocument(Document doc) {
-        // TODO a lot of copying here... Consider adding Document serialization to OutputStream
-        //  so that we can serialize directly into a ByteString.Output instance.
         return toProtoDocument(serializeDoc(doc));
     }
 
     private static DocapiCommon.Document toProtoDocument(ByteBuffer rawDocData) {
         return DocapiCommon.Document.newBuilder()
-                .setPayload(ByteString.copyFrom(rawDocData))
+                .setPayload(UnsafeByteOperations.unsafeWrap(rawDocData)) // Serialized into a scratch buffer; see ScratchBuffers
                 .build();
     }
 
-    private static Document fromProtoDocument(DocapiCommon.Document protoDoc, DocumentTypeManager repo) {
-        var deserializer = DocumentDeserializerFactory.createHead(repo, new GrowableByteBuffer(protoDoc.getPayload().asReadOnlyByteBuffer()));
+    private static Document fromProtoDocument(DocapiCommon.Document protoDoc, DocumentTypeManager repo, boolean lazyFieldDecoding) {
+        // The payload aliases the received message bytes, which are never modified, so fields may be decoded lazily.
+        var buffer = new GrowableByteBuffer(protoDoc.getPayload().asReadOnlyByteBuffer());
+        var deserializer = lazyFieldDecoding ? DocumentDeserializerFactory.createLazyHead(repo, buffer)
+                                             : DocumentDeserializerFactory.createHead(repo, buffer);
         return Document.createDocument(deserializer);
     }
 
@@ -233,16 +300,15 @@ abstract class RoutableFactories80 {
     }
 
     private static ByteBuffer serializeUpdate(DocumentUpdate update) {
-        var buf = new GrowableByteBuffer(4 * 1024, 2.0f);
+        var buf = ScratchBuffers.acquire(4 * 1024);
         update.serialize(DocumentSerializerFactory.createHead(buf));
         buf.flip();
         return buf.getByteBuffer();
     }
 
     private static DocapiFeed.DocumentUpdate toProtoUpdate(DocumentUpdate update) {
-        // TODO also consider DocumentUpdate serialization directly to OutputStream to avoid unneeded copying
         return DocapiFeed.DocumentUpdate.newBuilder()
-                .setPayload(ByteString.copyFrom(serializeUpdate(update)))
+                .setPayload(UnsafeByteOperations.unsafeWrap(serializeUpdate(update))) // See ScratchBuffers
                 .build();
     }
 
@@ -300,7 +366,7 @@ abstract class RoutableFactories80 {
                 .build();
     }
 
-    static RoutableFactory createGetDocumentReplyFactory() {
+    static RoutableFactory createGetDocumentReplyFactory(BooleanSupplier lazyFieldDecoding) {
         return ProtobufCodecBuilder
                 .of(GetDocumentReply.class, DocapiFeed.GetDocumentResponse.class)
                 .encoder((apiReply) -> {
@@ -315,7 +381,7 @@ abstract class RoutableFactories80 {
                 .decoderWithRepo(DocapiFeed.GetDocumentResponse.parser(), (protoReply, repo) -> {
                     GetDocumentReply reply;
                     if (protoReply.hasDocument()) {
-                        var doc = fromProtoDocument(protoReply.getDocument(), repo);
+                        var doc = fromProtoDocument(protoReply.getDocument(), repo, lazyFieldDecoding.getAsBoolean());
                         doc.setLastModified(protoReply.getLastModified());
                         reply = new GetDocumentReply(doc);
                     } else {
@@ -331,7 +397,7 @@ abstract class RoutableFactories80 {
     // Put request and response
     // ---------------------------------------------
 
-    static RoutableFactory createPutDocumentMessageFactory() {
+    static RoutableFactory createPutDocumentMessageFactory(BooleanSupplier lazyFieldDecoding) {
         return ProtobufCodecBuilder
                 .of(PutDocumentMessage.class, DocapiFeed.PutDocumentRequest.class)
                 .encoder((apiMsg) -> {
@@ -345,7 +411,7 @@ abstract class RoutableFactories80 {
                     return builder.build();
                 })
                 .decoderWithRepo(DocapiFeed.PutDocumentRequest.parser(), (protoMsg, repo) -> {
-                    var doc = fromProtoDocument(protoMsg.getDocument(), repo);
+                    var doc = fromProtoDocument(protoMsg.getDocument(), repo, lazyFieldDecoding.getAsBoolean());
                     var msg = new PutDocumentMessage(new DocumentPut(doc));
                     if (protoMsg.hasCondition()) {
                         msg.setCondition(fromProtoTasCondition(protoMsg.getCondition()));
@@ -721,7 +787,7 @@ abstract class RoutableFactories80 {
     // TODO this should be deprecated
     // ---------------------------------------------
 
-    static RoutableFactory createDocumentListMessageFactory() {
+    static RoutableFactory createDocumentListMessageFactory(BooleanSupplier lazyFieldDecoding) {
         return ProtobufCodecBuilder
                 .of(DocumentListMessage.class, DocapiVisiting.DocumentListRequest.class)
                 .encoder((apiMsg) -> {
@@ -740,7 +806,7 @@ abstract class RoutableFactories80 {
                     msg.setBucketId(fromProtoBucketId(protoMsg.getBucketId()));
                     for (var entry : protoMsg.getEntriesList()) {
                         msg.getDocuments().add(new DocumentListEntry(
-                                fromProtoDocument(entry.getDocument(), repo),
+                                fromProtoDocument(entry.getDocument(), repo, lazyFieldDecoding.getAsBoolean()),
                                 entry.getTimestamp(),
                                 entry.getIsTombstone()));
                     }
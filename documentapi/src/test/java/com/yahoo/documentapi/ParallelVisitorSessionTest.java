@@ -0,0 +1,145 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.documentapi;
+
+import com.yahoo.document.BucketIdFactory;
+import com.yahoo.document.DocumentId;
+import com.yahoo.document.select.parser.ParseException;
+import com.yahoo.documentapi.VisitorControlHandler.CompletionCode;
+import com.yahoo.documentapi.messagebus.protocol.RemoveDocumentMessage;
+import com.yahoo.messagebus.Trace;
+import com.yahoo.vdslib.VisitorStatistics;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelVisitorSessionTest {
+
+    private final List<StubSession> sessions = new ArrayList<>();
+
+    private ParallelVisitorSession createSession(VisitorParameters parameters, int parallelism) throws ParseException {
+        return new ParallelVisitorSession(parameters, parallelism, slice -> {
+            StubSession session = new StubSession(slice);
+            sessions.add(session);
+            return session;
+        });
+    }
+
+    @Test
+    public void slices_are_visited_concurrently_and_data_is_acked_through_their_sessions() throws ParseException, InterruptedException {
+        VisitorParameters parameters = new VisitorParameters("");
+        parameters.slice(2, 1);
+        VisitorDataQueue queue = new VisitorDataQueue(10);
+        parameters.setLocalDataHandler(queue);
+        ParallelVisitorSession session = createSession(parameters, 3);
+
+        assertEquals(3, session.parallelism());
+        assertEquals(List.of(1, 3, 5), sessions.stream().map(slice -> slice.parameters.getSliceId()).toList());
+        for (StubSession slice : sessions)
+            assertEquals(6, slice.parameters.getSlices());
+
+        for (int i = 0; i < 3; i++)
+            sessions.get(i).parameters.getLocalDataHandler().onMessage(new RemoveDocumentMessage(new DocumentId("id:ns:type::" + i)),
+                                                                       new AckToken(i));
+        for (int i = 0; i < 3; i++) {
+            DocumentOpVisitorResponse response = (DocumentOpVisitorResponse) session.getNext(1000);
+            assertEquals("id:ns:type::" + i, response.getDocumentOperation().getId().toString());
+            queue.ack(response.getAckToken());
+            assertEquals(List.of(i), sessions.get(i).acked);
+        }
+        assertNull(session.getNext());
+    }
+
+    @Test
+    public void control_handler_sees_merged_progress_and_least_successful_result() throws ParseException {
+        List<String> events = new ArrayList<>();
+        VisitorParameters parameters = new VisitorParameters("");
+        parameters.setControlHandler(new VisitorControlHandler() {
+            @Override public void onProgress(ProgressToken token) {
+                super.onProgress(token);
+                events.add("progress " + token.getFinishedBucketCount());
+            }
+            @Override public void onVisitorStatistics(VisitorStatistics statistics) {
+                super.onVisitorStatistics(statistics);
+                events.add("statistics " + statistics.getDocumentsVisited());
+            }
+            @Override public void onDone(CompletionCode code, String message) {
+                super.onDone(code, message);
+                events.add("done " + code + ": " + message);
+            }
+        });
+        parameters.setLocalDataHandler(new VisitorDataQueue() {
+            @Override public void onDone() { events.add("data done"); }
+        });
+        ParallelVisitorSession session = createSession(parameters, 2);
+
+        // Each slice finishes its first bucket.
+        for (StubSession slice : sessions) {
+            VisitorIterator iterator = VisitorIterator.createFromDocumentSelection("", new BucketIdFactory(), 4, slice.progress,
+                                                                                  slice.parameters.getSlices(), slice.parameters.getSliceId());
+            VisitorIterator.BucketProgress bucket = iterator.getNext();
+            iterator.update(bucket.getSuperbucket(), ProgressToken.FINISHED_BUCKET);
+            slice.parameters.getControlHandler().onProgress(slice.progress);
+            VisitorStatistics statistics = new VisitorStatistics();
+            statistics.setDocumentsVisited(10);
+            slice.parameters.getControlHandler().onVisitorStatistics(statistics);
+        }
+        assertEquals(2, session.getProgress().getFinishedBucketCount());
+
+        sessions.get(1).parameters.getLocalDataHandler().onDone();
+        sessions.get(1).parameters.getControlHandler().onDone(CompletionCode.ABORTED, "aborted");
+        assertFalse(session.isDone());
+        sessions.get(0).parameters.getLocalDataHandler().onDone();
+        sessions.get(0).parameters.getControlHandler().onDone(CompletionCode.SUCCESS, "ok");
+        assertTrue(session.isDone());
+        // Nothing is known to be finished before the second slice has started.
+        assertEquals(List.of("progress 0", "statistics 10", "progress 2", "statistics 20",
+                             "data done", "progress 2", "done ABORTED: aborted"),
+                     events);
+    }
+
+    @Test
+    public void explicit_bucket_sets_are_not_sliced() throws ParseException {
+        VisitorParameters parameters = new VisitorParameters("id.group == \"foo\"");
+        ProgressToken progress = new ProgressToken();
+        parameters.setResumeToken(progress);
+        ParallelVisitorSession session = createSession(parameters, 4);
+        assertEquals(1, session.parallelism());
+        assertEquals(1, sessions.get(0).parameters.getSlices());
+        assertSame(progress, sessions.get(0).parameters.getResumeToken());
+        assertNotNull(parameters.getLocalDataHandler());
+    }
+
+    private static class StubSession implements VisitorSession {
+
+        final VisitorParameters parameters;
+        final ProgressToken progress;
+        final List<Object> acked = new ArrayList<>();
+
+        StubSession(VisitorParameters parameters) {
+            this.parameters = parameters;
+            this.progress = parameters.getResumeToken() == null ? new ProgressToken() : parameters.getResumeToken();
+            parameters.getLocalDataHandler().setSession(this);
+            parameters.getControlHandler().setSession(this);
+        }
+
+        @Override public boolean isDone() { return parameters.getControlHandler().isDone(); }
+        @Override public ProgressToken getProgress() { return progress; }
+        @Override public Trace getTrace() { return new Trace(); }
+        @Override public boolean waitUntilDone(long timeoutMs) { return isDone(); }
+        @Override public void ack(AckToken token) { acked.add(token.ackObject); }
+        @Override public void abort() { }
+        @Override public VisitorResponse getNext() { return null; }
+        @Override public VisitorResponse getNext(int timeoutMilliseconds) { return null; }
+        @Override public void destroy() { }
+
+    }
+
+}
@@ -207,6 +207,62 @@ public class VisitorIteratorTestCase {
         }
     }
 
+    @Test
+    public void testMergingAndSplittingSliceProgress() throws ParseException {
+        int distBits = 6;
+        int buckets = 1 << distBits;
+        BucketIdFactory idFactory = new BucketIdFactory();
+        for (int slices = 1; slices <= 4; slices++) {
+            for (int resumedSlices = 1; resumedSlices <= 5; resumedSlices++) {
+                String context = "slices: " + slices + ", resumed slices: " + resumedSlices;
+                Set<BucketId> visited = new TreeSet<>();
+                List<ProgressToken> tokens = new ArrayList<>();
+                for (int sliceId = 0; sliceId < slices; sliceId++) {
+                    ProgressToken progress = new ProgressToken();
+                    VisitorIterator iter = VisitorIterator.createFromDocumentSelection(
+                            "id.group != \"yahoo.com\"", idFactory, distBits, progress, slices, sliceId);
+                    // Finish a different number of buckets per slice, then leave one partially visited, and one active
+                    for (int i = 0; i < 3 * (sliceId + 1); i++) {
+                        VisitorIterator.BucketProgress ids = iter.getNext();
+                        iter.update(ids.getSuperbucket(), ProgressToken.FINISHED_BUCKET);
+                        visited.add(ids.getSuperbucket());
+                    }
+                    VisitorIterator.BucketProgress partial = iter.getNext();
+                    iter.update(partial.getSuperbucket(), new BucketId(distBits + 2, partial.getSuperbucket().getId()));
+                    iter.getNext();
+                    tokens.add(progress);
+                }
+
+                ProgressToken merged = new ProgressToken(ProgressToken.fromSlices(tokens).serialize());
+                assertEquals(context, buckets, merged.getTotalBucketCount());
+                assertFalse(context, merged.isFinished());
+                assertTrue(context, merged.getFinishedBucketCount() <= visited.size());
+
+                Set<BucketId> resumed = new TreeSet<>();
+                for (int sliceId = 0; sliceId < resumedSlices; sliceId++) {
+                    ProgressToken progress = merged.forSlice(resumedSlices, sliceId);
+                    VisitorIterator iter = VisitorIterator.createFromDocumentSelection(
+                            "id.group != \"yahoo.com\"", idFactory, distBits, progress, resumedSlices, sliceId);
+                    while (iter.hasNext()) {
+                        VisitorIterator.BucketProgress ids = iter.getNext();
+                        iter.update(ids.getSuperbucket(), ProgressToken.FINISHED_BUCKET);
+                        assertTrue(context + ", bucket " + ids.getSuperbucket() + " visited twice after resumption",
+                                   resumed.add(ids.getSuperbucket()));
+                    }
+                    assertTrue(context, iter.isDone());
+                    assertTrue(context, progress.isFinished());
+                }
+
+                // Buckets visited beyond the merged bucket cursor may be visited again, but none may be lost.
+                visited.addAll(resumed);
+                for (int i = 0; i < buckets; i++)
+                    assertTrue(context + ", bucket " + i, visited.contains(ProgressToken.toBucketId(i, distBits)));
+                assertEquals(context, buckets, visited.size());
+            }
+        }
+        assertTrue(ProgressToken.fromSlices(List.of(new ProgressToken(), new ProgressToken())).isEmpty());
+    }
+
     @Test
     public void testProgressSerializationRange() throws ParseException {
         int distBits = 4;
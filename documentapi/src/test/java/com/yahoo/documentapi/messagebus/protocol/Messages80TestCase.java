@@ -9,16 +9,19 @@ import com.yahoo.document.DocumentPut;
 import com.yahoo.document.DocumentUpdate;
 import com.yahoo.document.GlobalId;
 import com.yahoo.document.TestAndSetCondition;
+import com.yahoo.document.datatypes.StringFieldValue;
 import com.yahoo.document.fieldpathupdate.RemoveFieldPathUpdate;
 import com.yahoo.document.idstring.IdString;
 import com.yahoo.messagebus.Routable;
 import com.yahoo.text.Utf8;
 import com.yahoo.vdslib.SearchResult;
+import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.Map;
 import java.util.function.Consumer;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -73,6 +76,59 @@ public class Messages80TestCase extends MessagesTestBase {
         return true;
     }
 
+    @Test
+    public void requireThatDocumentsInSameMessageAreSerializedIntoSeparateBuffers() {
+        var msg = new DocumentListMessage();
+        msg.setBucketId(new BucketId(17, 1234));
+        for (int i = 0; i < 3; i++) {
+            var doc = new Document(protocol.getDocumentTypeManager().getDocumentType("testdoc"), "id:scheme:testdoc:n=1234:" + i);
+            doc.setFieldValue("stringfield", new StringFieldValue("value " + i + " ".repeat(10_000 * i)));
+            msg.getDocuments().add(new DocumentListEntry(doc, 1234 + i, false));
+        }
+        byte[] first = encode(msg);
+        byte[] firstCopy = first.clone();
+        var decoded = (DocumentListMessage) decode(first);
+        encode(msg); // Reuses the scratch buffers of the first encoding, which must not be referenced by the output.
+        assertArrayEquals(firstCopy, first);
+        assertEquals(3, decoded.getDocuments().size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(msg.getDocuments().get(i).getDocument(), decoded.getDocuments().get(i).getDocument());
+            assertEquals(1234 + i, decoded.getDocuments().get(i).getTimestamp());
+        }
+        assertEquals(2, RoutableFactories80.retainedScratchBuffers());
+    }
+
+    @Test
+    public void requireThatFewScratchBuffersAreRetainedAfterLargeMessages() {
+        var msg = new DocumentListMessage();
+        msg.setBucketId(new BucketId(17, 1234));
+        for (int i = 0; i < 100; i++) {
+            var doc = new Document(protocol.getDocumentTypeManager().getDocumentType("testdoc"), "id:scheme:testdoc:n=1234:" + i);
+            doc.setFieldValue("stringfield", new StringFieldValue("value " + i));
+            msg.getDocuments().add(new DocumentListEntry(doc, 1234 + i, false));
+        }
+        encode(msg);
+        assertEquals(2, RoutableFactories80.retainedScratchBuffers());
+    }
+
+    @Test
+    public void requireThatDocumentFieldsAreDecodedLazilyOnlyWhenEnabled() {
+        var doc = new Document(protocol.getDocumentTypeManager().getDocumentType("testdoc"), "id:ns:testdoc::");
+        doc.setFieldValue("stringfield", new StringFieldValue("value"));
+        var field = doc.getField("stringfield");
+        byte[] data = encode(new PutDocumentMessage(new DocumentPut(doc)));
+
+        var eager = ((PutDocumentMessage) decode(data)).getDocumentPut().getDocument();
+        assertNull(eager.getSerializedFieldValue(field));
+        assertEquals(doc, eager);
+
+        protocol.setLazyFieldDecoding(true);
+        var lazy = ((PutDocumentMessage) decode(data)).getDocumentPut().getDocument();
+        assertNotNull(lazy.getSerializedFieldValue(field));
+        assertEquals(new StringFieldValue("value"), lazy.getFieldValue(field));
+        assertNull(lazy.getSerializedFieldValue(field));
+    }
+
     private static void forEachLanguage(Consumer<Language> fun) {
         for (var lang : MessagesTestBase.LANGUAGES) {
             fun.accept(lang);
@@ -111,8 +111,9 @@ public class EmbedExpression extends Expression  {
                                               ExecutionContext context) {
         String mappedDimension = targetType.mappedSubtype().dimensions().get(0).name();
         String indexedDimension = targetType.indexedSubtype().dimensions().get(0).name();
-        for (int i = 0; i < input.size(); i++) {
-            Tensor tensor = embed(input.get(i).getString(), targetType.indexedSubtype(), context);
+        List<Tensor> tensors = embed(input, targetType.indexedSubtype(), context);
+        for (int i = 0; i < tensors.size(); i++) {
+            Tensor tensor = tensors.get(i);
             for (Iterator<Tensor.Cell> cells = tensor.cellIterator(); cells.hasNext(); ) {
                 Tensor.Cell cell = cells.next();
                 builder.cell()
@@ -133,8 +134,9 @@ public class EmbedExpression extends Expression  {
         var innerType = new TensorType.Builder(targetType.valueType()).mapped(innerMappedDimension).indexed(indexedDimension,indexedDimensionSize).build();
         int innerMappedDimensionIndex = innerType.indexOfDimensionAsInt(innerMappedDimension);
         int indexedDimensionIndex = innerType.indexOfDimensionAsInt(indexedDimension);
-        for (int i = 0; i < input.size(); i++) {
-            Tensor tensor = embed(input.get(i).getString(), innerType, context);
+        List<Tensor> tensors = embed(input, innerType, context);
+        for (int i = 0; i < tensors.size(); i++) {
+            Tensor tensor = tensors.get(i);
             for (Iterator<Tensor.Cell> cells = tensor.cellIterator(); cells.hasNext(); ) {
                 Tensor.Cell cell = cells.next();
                 builder.cell()
@@ -155,8 +157,9 @@ public class EmbedExpression extends Expression  {
         var innerType = new TensorType.Builder(targetType.valueType()).mapped(innerMappedDimension).build();
         int innerMappedDimensionIndex = innerType.indexOfDimensionAsInt(innerMappedDimension);
 
-        for (int i = 0; i < input.size(); i++) {
-            Tensor tensor = embed(input.get(i).getString(), innerType, context);
+        List<Tensor> tensors = embed(input, innerType, context);
+        for (int i = 0; i < tensors.size(); i++) {
+            Tensor tensor = tensors.get(i);
             for (Iterator<Tensor.Cell> cells = tensor.cellIterator(); cells.hasNext(); ) {
                 Tensor.Cell cell = cells.next();
                 builder.cell()
@@ -168,10 +171,20 @@ public class EmbedExpression extends Expression  {
     }
 
     private Tensor embed(String input, TensorType targetType, ExecutionContext context) {
-        return embedder.embed(input,
-                              new Embedder.Context(destination, context.getCache()).setLanguage(context.getLanguage())
-                                                                                   .setEmbedderId(embedderId),
-                              targetType);
+        return embedder.embed(input, embedderContext(context), targetType);
+    }
+
+    /** Embeds all the elements of the given array in one call, which lets the embedder evaluate them in batches */
+    private List<Tensor> embed(Array<StringFieldValue> input, TensorType targetType, ExecutionContext context) {
+        List<String> texts = new ArrayList<>(input.size());
+        for (int i = 0; i < input.size(); i++)
+            texts.add(input.get(i).getString());
+        return embedder.embed(texts, embedderContext(context), targetType);
+    }
+
+    private Embedder.Context embedderContext(ExecutionContext context) {
+        return new Embedder.Context(destination, context.getCache()).setLanguage(context.getLanguage())
+                                                                    .setEmbedderId(embedderId);
     }
 
     @Override
@@ -6,6 +6,7 @@ import java.nio.ByteBuffer;
 
 
 class Buffer {
+    private final BufferPool pool;
     private ByteBuffer buf;
     private int        readPos;
     private int        writePos;
@@ -55,18 +56,38 @@ class Buffer {
             if (buf.capacity() + free < minFree) {
                 size = buf.capacity() + minFree;
             }
-            ByteBuffer tmp = ByteBuffer.allocate(size);
+            ByteBuffer tmp = allocate(size);
             tmp.order(buf.order());
             buf.position(readPos);
             buf.limit(writePos);
             tmp.put(buf);
-            buf = tmp;
+            replace(tmp);
             readPos = 0;
         }
     }
 
+    private ByteBuffer allocate(int size) {
+        return (pool != null) ? pool.acquire(size) : ByteBuffer.allocate(size);
+    }
+
+    private void replace(ByteBuffer tmp) {
+        if (pool != null) {
+            pool.release(buf);
+        }
+        buf = tmp;
+    }
+
     public Buffer(int size) {
-        buf = ByteBuffer.allocate(size);
+        this(size, null);
+    }
+
+    /**
+     * Creates a buffer which allocates its memory from the given
+     * pool, and returns it there when shrinking or released.
+     **/
+    Buffer(int size, BufferPool pool) {
+        this.pool = pool;
+        buf = allocate(size);
         readPos = 0;
         writePos = 0;
         readMode = false;
@@ -79,12 +100,12 @@ class Buffer {
         if (used > size || buf.capacity() <= size) {
             return false;
         }
-        ByteBuffer tmp = ByteBuffer.allocate(size);
+        ByteBuffer tmp = allocate(size);
         tmp.order(buf.order());
         buf.position(rpos);
         buf.limit(wpos);
         tmp.put(buf);
-        buf = tmp;
+        replace(tmp);
         readPos = 0;
         writePos = used;
         buf.position(readMode? readPos : writePos);
@@ -92,6 +113,17 @@ class Buffer {
         return true;
     }
 
+    /**
+     * Drops the content of this buffer, and returns its memory to
+     * the pool it came from, if any.
+     **/
+    void release() {
+        replace(allocate(0));
+        readPos = 0;
+        writePos = 0;
+        readMode = false;
+    }
+
     public int bytes() {
         return (readMode)
             ? (writePos - buf.position())
@@ -0,0 +1,90 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+
+/**
+ * Output buffer of a connection, made of a chain of buffers from a
+ * {@link BufferPool}. Packets are encoded at the end of the last
+ * buffer, or into a new buffer when they do not fit there, so the
+ * output never needs to be moved to a larger buffer. All the buffers
+ * are written to the socket with a single gathering write, and are
+ * returned to the pool as soon as they have been written.
+ *
+ * All the buffers in the chain are kept in read mode, while the last
+ * one is temporarily switched to write mode when encoding.
+ **/
+class BufferChain {
+
+    private final BufferPool pool;
+    private final int minBufferSize;
+    private final ArrayDeque<ByteBuffer> buffers = new ArrayDeque<>();
+    private ByteBuffer[] gather = new ByteBuffer[4];
+    private int bytes = 0;
+
+    /**
+     * @param pool the pool to allocate buffers from
+     * @param minBufferSize the min size of each buffer, which decides how many small packets share one
+     **/
+    BufferChain(BufferPool pool, int minBufferSize) {
+        this.pool = pool;
+        this.minBufferSize = minBufferSize;
+    }
+
+    /** Returns the number of bytes not yet written */
+    int bytes() {
+        return bytes;
+    }
+
+    /** Encodes the given packet at the end of this */
+    void encode(PacketInfo info, Packet packet) {
+        int length = info.packetLength();
+        ByteBuffer last = buffers.peekLast();
+        if (last == null || last.capacity() - last.limit() < length) {
+            last = pool.acquire(Math.max(length, minBufferSize)).flip();
+            buffers.addLast(last);
+        }
+        int readPos = last.position();
+        last.position(last.limit()).limit(last.capacity());
+        try {
+            info.encodePacket(packet, last);
+        } finally {
+            last.limit(last.position()).position(readPos);
+        }
+        bytes += length;
+    }
+
+    /** Writes as much as the socket accepts, and returns the number of bytes written */
+    long writeTo(CryptoSocket socket) throws IOException {
+        if (buffers.isEmpty()) {
+            return 0;
+        }
+        if (gather.length < buffers.size()) {
+            gather = new ByteBuffer[Math.max(buffers.size(), gather.length * 2)];
+        }
+        int count = 0;
+        for (ByteBuffer buf : buffers) {
+            gather[count++] = buf;
+        }
+        long written = socket.write(gather, 0, count);
+        bytes -= (int) written;
+        Arrays.fill(gather, 0, count, null);
+        while ( ! buffers.isEmpty() && ! buffers.peekFirst().hasRemaining()) {
+            pool.release(buffers.pollFirst());
+        }
+        return written;
+    }
+
+    /** Drops any unwritten output, and returns all buffers to the pool */
+    void release() {
+        while ( ! buffers.isEmpty()) {
+            pool.release(buffers.pollFirst());
+        }
+        bytes = 0;
+    }
+}
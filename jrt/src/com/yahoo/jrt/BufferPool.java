@@ -0,0 +1,107 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * A pool of direct byte buffers used for the network buffers of the
+ * connections of a single {@link TransportThread}. Buffers are handed
+ * out in power-of-two size classes, and returned buffers are kept for
+ * reuse, up to a limit on the total size kept. This means connections
+ * do not allocate (and copy into) new buffers every time their
+ * buffers grow, and socket reads and writes need no copying between
+ * heap and native memory. Requests larger than the largest size class
+ * are served with unpooled heap buffers.
+ *
+ * This class is not thread safe; it must only be used by the owning
+ * transport thread.
+ **/
+class BufferPool {
+
+    static final int MIN_SIZE = 1024;
+    static final int MAX_SIZE = 1024 * 1024;
+    static final int MAX_RETAINED_BYTES = 4 * 1024 * 1024;
+
+    private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_SIZE);
+
+    private static final int SIZE_CLASSES = Integer.numberOfTrailingZeros(MAX_SIZE) - MIN_SHIFT + 1;
+
+    private final List<ArrayDeque<ByteBuffer>> free = new ArrayList<>(SIZE_CLASSES);
+    private int maxRetainedBytes;
+    private final TransportMetrics metrics = TransportMetrics.getInstance();
+    private int retainedBytes = 0;
+
+    BufferPool(int maxRetainedBytes) {
+        this.maxRetainedBytes = maxRetainedBytes;
+        for (int i = 0; i < SIZE_CLASSES; i++) {
+            free.add(new ArrayDeque<>());
+        }
+    }
+
+    BufferPool() { this(MAX_RETAINED_BYTES); }
+
+    /**
+     * Returns an empty buffer in write mode, with big endian byte
+     * order and a capacity of at least the given size.
+     **/
+    ByteBuffer acquire(int size) {
+        if (size == 0 || size > MAX_SIZE) {
+            return ByteBuffer.allocate(size);
+        }
+        int sizeClass = sizeClass(size);
+        ByteBuffer buf = free.get(sizeClass).pollLast();
+        if (buf != null) {
+            retainedBytes -= buf.capacity();
+            metrics.addBufferPoolRetainedBytes(-buf.capacity());
+            metrics.incrementBufferPoolHits();
+            return buf;
+        }
+        metrics.incrementBufferPoolMisses();
+        return ByteBuffer.allocateDirect(MIN_SIZE << sizeClass);
+    }
+
+    /**
+     * Returns the given buffer to this pool, after which it must not
+     * be used by the caller. Buffers which were not acquired from a
+     * pool are ignored.
+     **/
+    void release(ByteBuffer buf) {
+        if ( ! buf.isDirect() || retainedBytes + buf.capacity() > maxRetainedBytes) {
+            return;
+        }
+        int capacity = buf.capacity();
+        if (capacity < MIN_SIZE || capacity > MAX_SIZE || Integer.bitCount(capacity) != 1) {
+            return;
+        }
+        buf.clear().order(ByteOrder.BIG_ENDIAN);
+        free.get(sizeClass(capacity)).addLast(buf);
+        retainedBytes += capacity;
+        metrics.addBufferPoolRetainedBytes(capacity);
+    }
+
+    /** Drops all buffers kept for reuse, and stops keeping any more */
+    void shutdown() {
+        for (ArrayDeque<ByteBuffer> buffers : free) {
+            buffers.clear();
+        }
+        metrics.addBufferPoolRetainedBytes(-retainedBytes);
+        retainedBytes = 0;
+        maxRetainedBytes = 0;
+    }
+
+    /** Returns the total capacity of the buffers kept for reuse */
+    int retainedBytes() {
+        return retainedBytes;
+    }
+
+    private static int sizeClass(int size) {
+        int shift = 32 - Integer.numberOfLeadingZeros(Math.max(size, MIN_SIZE) - 1);
+        return shift - MIN_SHIFT;
+    }
+}
@@ -34,12 +34,16 @@ class Connection extends Target {
     private int state = INITIAL;
     private final Queue  queue   = new Queue();
     private final Queue  myQueue = new Queue();
-    private final Buffer input   = new Buffer(0); // Start off with empty buffer.
-    private final Buffer output  = new Buffer(0); // Start off with empty buffer.
+    private final Buffer input;
+    private final BufferChain output;
     private final int maxInputSize;
-    private final int maxOutputSize;
     private final boolean dropEmptyBuffers;
     private final boolean tcpNoDelay;
+    private final long writeDelayNanos;
+    private final int writeDelayBytes;
+    private long lastWriteNanos;
+    private boolean writeDelayed = false;
+    private int delayedBytes = 0;
     private final Map<Integer, ReplyHandler> replyMap = new HashMap<>();
     private final Map<TargetWatcher, TargetWatcher> watchers = new IdentityHashMap<>();
     private int writeWork  = 0;
@@ -51,6 +55,7 @@ class Connection extends Target {
     private int readSize = READ_SIZE;
     private final boolean server;
     private final AtomicLong requestId = new AtomicLong(0);
+    private final TransportMetrics metrics = TransportMetrics.getInstance();
     private SelectionKey selectionKey;
     private Exception lostReason = null;
 
@@ -92,9 +97,13 @@ class Connection extends Target {
         this.socket = parent.transport().createServerCryptoSocket(channel);
         this.spec = null;
         this.tcpNoDelay = tcpNoDelay;
+        input = new Buffer(0, parent.bufferPool()); // Start off with empty buffer.
+        output = new BufferChain(parent.bufferPool(), WRITE_SIZE);
         maxInputSize = owner.getMaxInputBufferSize();
-        maxOutputSize = owner.getMaxOutputBufferSize();
         dropEmptyBuffers = owner.getDropEmptyBuffers();
+        writeDelayNanos = owner.getWriteCoalescingNanos();
+        writeDelayBytes = owner.getWriteCoalescingBytes();
+        lastWriteNanos = System.nanoTime() - writeDelayNanos;
         server = true;
     }
 
@@ -104,9 +113,13 @@ class Connection extends Target {
         this.owner = owner;
         this.spec = spec;
         this.tcpNoDelay = tcpNoDelay;
+        input = new Buffer(0, parent.bufferPool()); // Start off with empty buffer.
+        output = new BufferChain(parent.bufferPool(), WRITE_SIZE);
         maxInputSize = owner.getMaxInputBufferSize();
-        maxOutputSize = owner.getMaxOutputBufferSize();
         dropEmptyBuffers = owner.getDropEmptyBuffers();
+        writeDelayNanos = owner.getWriteCoalescingNanos();
+        writeDelayBytes = owner.getWriteCoalescingBytes();
+        lastWriteNanos = System.nanoTime() - writeDelayNanos;
         server = false;
     }
 
@@ -137,23 +150,68 @@ class Connection extends Target {
     public boolean postPacket(Packet packet, ReplyHandler handler) {
         boolean accepted = false;
         boolean enableWrite = false;
+        long writeDeadline = 0;
         synchronized (this) {
             if (state <= CONNECTED) {
-                enableWrite = (writeWork == 0 && state == CONNECTED);
+                if (writeWork == 0 && state == CONNECTED) {
+                    writeDeadline = nextWriteDeadline();
+                    enableWrite = (writeDeadline == 0);
+                    writeDelayed = ! enableWrite;
+                    delayedBytes = 0;
+                }
                 queue.enqueue(packet);
                 writeWork++;
                 accepted = true;
                 if (handler != null) {
                     replyMap.put(handler.key(), handler);
                 }
+                if (writeDelayed) {
+                    delayedBytes += packet.bytes();
+                    if (delayedBytes >= writeDelayBytes) {
+                        writeDelayed = false;
+                        enableWrite = true;
+                        writeDeadline = 0;
+                    }
+                }
             }
         }
         if (enableWrite) {
             parent.enableWrite(this);
+        } else if (writeDeadline != 0) {
+            parent.enableWriteLater(this, writeDeadline);
         }
         return accepted;
     }
 
+    /**
+     * Returns the time at which to write packets posted now, or 0 to
+     * write them right away. Must be called while synchronized.
+     **/
+    private long nextWriteDeadline() {
+        if (writeDelayNanos == 0) {
+            return 0;
+        }
+        long deadline = lastWriteNanos + writeDelayNanos;
+        if (deadline - System.nanoTime() <= 0) {
+            return 0;
+        }
+        return (deadline == 0) ? 1 : deadline;
+    }
+
+    /**
+     * Invoked by the transport thread when the write delay of this
+     * connection has passed.
+     **/
+    void handleWriteDelayDone() {
+        synchronized (this) {
+            if (!writeDelayed) {
+                return; // Already written because enough bytes were waiting.
+            }
+            writeDelayed = false;
+        }
+        enableWrite();
+    }
+
     public boolean postPacket(Packet packet) {
         return postPacket(packet, null);
     }
@@ -257,7 +315,8 @@ class Connection extends Target {
         }
     }
 
-    private void handlePackets() throws IOException {
+    private int handlePackets() throws IOException {
+        int packets = 0;
         ByteBuffer rb = input.getReadable();
         while (true) {
             PacketInfo info = PacketInfo.getPacketInfo(rb);
@@ -281,25 +340,33 @@ class Connection extends Target {
             } else {
                 owner.handlePacket(this, packet);
             }
+            packets++;
         }
+        return packets;
     }
 
     private void read() throws IOException {
         boolean doneRead = false;
+        int packets = 0;
         for (int i = 0; !doneRead && i < READ_REDO; i++) {
             ByteBuffer wb = input.getWritable(readSize);
             if (socket.read(wb) == -1) {
                 throw new IOException("jrt: Connection closed by peer");
             }
             doneRead = (wb.remaining() > 0);
-            handlePackets();
+            packets += handlePackets();
         }
         while (socket.drain(input.getWritable(readSize)) > 0) {
-            handlePackets();
+            packets += handlePackets();
+        }
+        if (packets > 0) {
+            metrics.addPacketsRead(packets);
+        }
+        if (input.bytes() == 0) {
+            input.release(); // Return idle buffer to the pool.
         }
         if (dropEmptyBuffers) {
             socket.dropEmptyBuffers();
-            input.shrink(0);
         }
         if (maxInputSize > 0) {
             input.shrink(maxInputSize);
@@ -320,6 +387,7 @@ class Connection extends Target {
         synchronized (this) {
             queue.flush(myQueue);
         }
+        int packets = 0;
         for (int i = 0; i < WRITE_REDO; i++) {
             while (output.bytes() < WRITE_SIZE) {
                 Packet packet = (Packet) myQueue.dequeue();
@@ -327,19 +395,21 @@ class Connection extends Target {
                     break;
                 }
                 PacketInfo info = packet.getPacketInfo();
-                ByteBuffer wb = output.getWritable(info.packetLength());
                 owner.writePacket(info);
-                info.encodePacket(packet, wb);
+                output.encode(info, packet);
+                packets++;
             }
-            ByteBuffer rb = output.getReadable();
-            if (rb.remaining() == 0) {
+            if (output.bytes() == 0) {
                 break;
             }
-            socket.write(rb);
-            if (rb.remaining() > 0) {
+            output.writeTo(socket);
+            if (output.bytes() > 0) {
                 break;
             }
         }
+        if (packets > 0) {
+            metrics.addPacketsWritten(packets);
+        }
         int myWriteWork = 0;
         if (output.bytes() > 0) {
             myWriteWork++;
@@ -353,16 +423,15 @@ class Connection extends Target {
                         + myQueue.size()
                         + myWriteWork;
             disableWrite = (writeWork == 0);
+            if (packets > 0) {
+                lastWriteNanos = System.nanoTime();
+            }
         }
         if (disableWrite) {
             disableWrite();
         }
         if (dropEmptyBuffers) {
             socket.dropEmptyBuffers();
-            output.shrink(0);
-        }
-        if (maxOutputSize > 0) {
-            output.shrink(maxOutputSize);
         }
     }
 
@@ -378,6 +447,8 @@ class Connection extends Target {
 
     public void fini() {
         setState(CLOSED);
+        input.release();
+        output.release();
         if (selectionKey != null) {
             selectionKey.cancel();
         }
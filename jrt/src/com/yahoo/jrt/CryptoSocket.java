@@ -83,6 +83,24 @@ public interface CryptoSocket {
      **/
     public int write(ByteBuffer src) throws IOException;
 
+    /**
+     * Gathering version of write, which writes from a sequence of
+     * buffers, in order. This lets the application write data which
+     * is spread over several buffers without first copying it into
+     * a single one. The default implementation writes the buffers
+     * one at a time, until one of them is not completely written.
+     **/
+    public default long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+        long written = 0;
+        for (int i = offset; i < offset + length; i++) {
+            written += write(srcs[i]);
+            if (srcs[i].hasRemaining()) {
+                break;
+            }
+        }
+        return written;
+    }
+
     public enum FlushResult { DONE, NEED_WRITE }
 
     /**
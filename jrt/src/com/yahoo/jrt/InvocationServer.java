@@ -1,6 +1,7 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.jrt;
 
+import java.util.concurrent.RejectedExecutionException;
 
 class InvocationServer {
 
@@ -10,6 +11,8 @@ class InvocationServer {
     private int        replyKey;
     private boolean    noReply;
     private TieBreaker done;
+    private final long receivedNanos = System.nanoTime();
+    private boolean    dispatched = false;
 
     public InvocationServer(Connection conn, Request request, Method method,
                             int replyKey, boolean noReply) {
@@ -32,6 +35,10 @@ class InvocationServer {
         if (method != null) {
             if (method.checkParameters(request)) {
                 if (method.requestAccessFilter().allow(request)) {
+                    if (method.executor() != null) {
+                        dispatch();
+                        return;
+                    }
                     method.invoke(request);
                 } else {
                     request.setError(ErrorCode.PERMISSION_DENIED, "Permission denied");
@@ -47,10 +54,41 @@ class InvocationServer {
         }
     }
 
+    private void dispatch() {
+        MethodMetrics metrics = method.metrics();
+        if (metrics.tryAddPending(method.maxPending())) {
+            dispatched = true;
+            try {
+                method.executor().execute(this::invokeDispatched);
+                return;
+            } catch (RejectedExecutionException e) {
+                metrics.removePending();
+                dispatched = false;
+            }
+        }
+        metrics.addOverload();
+        request.setError(ErrorCode.OVERLOAD, "Too many pending invocations of " + method.name());
+        returnRequest();
+    }
+
+    private void invokeDispatched() {
+        method.metrics().sampleQueueTime(System.nanoTime() - receivedNanos);
+        method.invoke(request);
+        if (!request.isDetached()) {
+            returnRequest();
+        }
+    }
+
     public void returnRequest() {
         if (!conn.completeRequest(done)) {
             throw new IllegalStateException("Request already returned");
         }
+        if (method != null) {
+            if (dispatched) {
+                method.metrics().removePending();
+            }
+            method.metrics().sampleLatency(System.nanoTime() - receivedNanos);
+        }
         if (noReply) {
             return;
         }
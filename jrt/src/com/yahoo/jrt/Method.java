@@ -5,6 +5,9 @@ package com.yahoo.jrt;
 import com.yahoo.security.tls.Capability;
 import com.yahoo.security.tls.CapabilitySet;
 
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
 /**
  * <p>A Method encapsulates the reflective information about a single RPC
  * method.</p>
@@ -46,6 +49,10 @@ public class Method {
     private static final RequireCapabilitiesFilter defaultFilter = RequireCapabilitiesFilter.unclassified();
     private RequestAccessFilter filter = defaultFilter;
 
+    private Executor executor = null;
+    private int maxPending = Integer.MAX_VALUE;
+    private final MethodMetrics metrics = new MethodMetrics();
+
     private static final String undocumented = "???";
 
 
@@ -165,6 +172,66 @@ public class Method {
 
     public RequestAccessFilter requestAccessFilter() { return filter; }
 
+    /**
+     * Make the handler of this method be invoked by the given
+     * executor, rather than by the transport thread receiving the
+     * request. Use this for handlers which may block or take long, so
+     * they do not delay other requests and replies on the same
+     * transport thread. The request is returned when the handler
+     * completes, unless it detaches the request. Invocations beyond
+     * the given max number pending, or which the executor rejects,
+     * fail with {@link ErrorCode#OVERLOAD}.
+     *
+     * @return this Method, to allow chaining
+     * @param executor the executor to invoke the handler in
+     * @param maxPending the max number of invocations handed off to
+     *                   the executor and not yet returned
+     **/
+    public Method executor(Executor executor, int maxPending) {
+        if (maxPending < 1) {
+            throw new IllegalArgumentException("Max pending invocations must be positive, but was " + maxPending);
+        }
+        this.executor = Objects.requireNonNull(executor);
+        this.maxPending = maxPending;
+        return this;
+    }
+
+    /**
+     * Make the handler of this method be invoked by the given
+     * executor, with no limit on pending invocations other than what
+     * the executor imposes.
+     *
+     * @return this Method, to allow chaining
+     * @param executor the executor to invoke the handler in
+     * @see #executor(Executor, int)
+     **/
+    public Method executor(Executor executor) {
+        return executor(executor, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Obtain the executor invoking the handler of this method, or
+     * null if it is invoked by the transport thread.
+     *
+     * @return executor of this method, or null
+     **/
+    Executor executor() {
+        return executor;
+    }
+
+    int maxPending() {
+        return maxPending;
+    }
+
+    /**
+     * Obtain the metrics of the invocations of this method.
+     *
+     * @return metrics of this method
+     **/
+    public MethodMetrics metrics() {
+        return metrics;
+    }
+
     /**
      * Obtain the name of a parameter
      *
@@ -0,0 +1,144 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+/**
+ * Metric values of the invocations of a single {@link Method}.
+ * Queue time is the time from an invocation is received until its
+ * handler is invoked, which is only non-zero for methods with an
+ * executor. Latency is the time from an invocation is received until
+ * it is returned.
+ */
+public class MethodMetrics {
+
+    private final AtomicLong invocations = new AtomicLong(0);
+    private final AtomicLong overloads = new AtomicLong(0);
+    private final AtomicLong queueTimeNanos = new AtomicLong(0);
+    private final AtomicLong latencyNanos = new AtomicLong(0);
+    private final AtomicInteger pending = new AtomicInteger(0);
+
+    MethodMetrics() {}
+
+    /** Returns the number of returned invocations, including failed ones */
+    public long invocations() { return invocations.get(); }
+
+    /** Returns the number of invocations rejected because too many were pending */
+    public long overloads() { return overloads.get(); }
+
+    /** Returns the sum of the queue time of all invocations */
+    public long queueTimeNanos() { return queueTimeNanos.get(); }
+
+    /** Returns the sum of the latency of all invocations */
+    public long latencyNanos() { return latencyNanos.get(); }
+
+    /** Returns the number of invocations currently handed off to the executor of the method, and not yet returned */
+    public int pending() { return pending.get(); }
+
+    public Snapshot snapshot() { return new Snapshot(this); }
+
+    boolean tryAddPending(int max) {
+        while (true) {
+            int current = pending.get();
+            if (current >= max) {
+                return false;
+            }
+            if (pending.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void removePending() {
+        pending.decrementAndGet();
+    }
+
+    void addOverload() {
+        overloads.incrementAndGet();
+    }
+
+    void sampleQueueTime(long nanos) {
+        queueTimeNanos.addAndGet(nanos);
+    }
+
+    void sampleLatency(long nanos) {
+        invocations.incrementAndGet();
+        latencyNanos.addAndGet(nanos);
+    }
+
+    @Override
+    public String toString() {
+        return "MethodMetrics{" +
+                "invocations=" + invocations +
+                ", overloads=" + overloads +
+                ", queueTimeNanos=" + queueTimeNanos +
+                ", latencyNanos=" + latencyNanos +
+                ", pending=" + pending +
+                '}';
+    }
+
+    public static class Snapshot {
+        public static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0, 0);
+
+        private final long invocations;
+        private final long overloads;
+        private final long queueTimeNanos;
+        private final long latencyNanos;
+        private final int pending;
+
+        private Snapshot(MethodMetrics metrics) {
+            this(metrics.invocations.get(),
+                 metrics.overloads.get(),
+                 metrics.queueTimeNanos.get(),
+                 metrics.latencyNanos.get(),
+                 metrics.pending.get());
+        }
+
+        private Snapshot(long invocations, long overloads, long queueTimeNanos, long latencyNanos, int pending) {
+            this.invocations = invocations;
+            this.overloads = overloads;
+            this.queueTimeNanos = queueTimeNanos;
+            this.latencyNanos = latencyNanos;
+            this.pending = pending;
+        }
+
+        public long invocations() { return invocations; }
+        public long overloads() { return overloads; }
+        public long queueTimeNanos() { return queueTimeNanos; }
+        public long latencyNanos() { return latencyNanos; }
+        public int pending() { return pending; }
+
+        /** Returns the average queue time of the invocations in this, in nanoseconds */
+        public double averageQueueTimeNanos() { return invocations == 0 ? 0 : (double) queueTimeNanos / invocations; }
+
+        /** Returns the average latency of the invocations in this, in nanoseconds */
+        public double averageLatencyNanos() { return invocations == 0 ? 0 : (double) latencyNanos / invocations; }
+
+        /** Returns the changes in the counters since the given snapshot, together with the current number of pending invocations */
+        public Snapshot changesSince(Snapshot base) {
+            return new Snapshot(
+                changesSince(base, Snapshot::invocations),
+                changesSince(base, Snapshot::overloads),
+                changesSince(base, Snapshot::queueTimeNanos),
+                changesSince(base, Snapshot::latencyNanos),
+                pending);
+        }
+
+        private long changesSince(Snapshot base, ToLongFunction<Snapshot> metricProperty) {
+            return metricProperty.applyAsLong(this) - metricProperty.applyAsLong(base);
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot{" +
+                    "invocations=" + invocations +
+                    ", overloads=" + overloads +
+                    ", queueTimeNanos=" + queueTimeNanos +
+                    ", latencyNanos=" + latencyNanos +
+                    ", pending=" + pending +
+                    '}';
+        }
+    }
+}
@@ -1,6 +1,7 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.jrt;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -21,6 +22,8 @@ public class Supervisor {
     private int                     maxInputBufferSize  = 64*1024;
     private int                     maxOutputBufferSize = 64*1024;
     private boolean                 dropEmptyBuffers = false;
+    private long                    writeCoalescingNanos = 0;
+    private int                     writeCoalescingBytes = 0;
 
     /**
      * Creates a new Supervisor based on the given {@link Transport}
@@ -75,6 +78,34 @@ public class Supervisor {
     }
     int getMaxOutputBufferSize() { return maxOutputBufferSize; }
 
+    /**
+     * Enables coalescing of small writes on connections. A connection
+     * which has written to its socket less than the given max delay
+     * ago waits until the delay has passed since that write before
+     * writing again, so the packets posted in the meantime go out in
+     * a single write. A connection which has been idle for at least
+     * the max delay writes new packets right away, so coalescing only
+     * kicks in under load. Waiting packets are written as soon as
+     * they add up to the given number of bytes. The delay is enforced
+     * with the precision of the transport thread, around a
+     * millisecond. Only affects connections created after this call.
+     *
+     * @param maxDelay the max time a packet waits to be written, zero disables coalescing
+     * @param maxBytes the number of waiting bytes which causes an immediate write
+     * @return this, to allow chaining
+     */
+    public Supervisor setWriteCoalescing(Duration maxDelay, int maxBytes) {
+        if (maxDelay.isNegative() || maxBytes < 0) {
+            throw new IllegalArgumentException("Write coalescing delay and bytes must be non-negative, but were " +
+                                               maxDelay + " and " + maxBytes);
+        }
+        writeCoalescingNanos = maxDelay.toNanos();
+        writeCoalescingBytes = maxBytes;
+        return this;
+    }
+    long getWriteCoalescingNanos() { return writeCoalescingNanos; }
+    int getWriteCoalescingBytes() { return writeCoalescingBytes; }
+
     /**
      * Obtains the method map for this Supervisor
      *
@@ -201,6 +201,19 @@ public class TlsCryptoSocket implements CryptoSocket {
         return totalBytesWrapped;
     }
 
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+        verifyHandshakeCompleted();
+        if (flush() == FlushResult.NEED_WRITE) return 0;
+        long totalBytesWrapped = 0;
+        int bytesWrapped;
+        do {
+            bytesWrapped = applicationDataWrap(srcs, offset, length);
+            totalBytesWrapped += bytesWrapped;
+        } while (bytesWrapped > 0 && wrapBuffer.bytes() < sessionPacketBufferSize);
+        return totalBytesWrapped;
+    }
+
     @Override
     public FlushResult flush() throws IOException {
         verifyHandshakeCompleted();
@@ -234,7 +247,14 @@ public class TlsCryptoSocket implements CryptoSocket {
     }
 
     private int applicationDataWrap(ByteBuffer src) throws IOException {
-        SSLEngineResult result = sslEngineWrap(src);
+        return applicationDataWrap(sslEngineWrap(src));
+    }
+
+    private int applicationDataWrap(ByteBuffer[] srcs, int offset, int length) throws IOException {
+        return applicationDataWrap(sslEngineWrap(srcs, offset, length));
+    }
+
+    private int applicationDataWrap(SSLEngineResult result) throws IOException {
         failIfRenegotiationDetected(result);
         switch (result.getStatus()) {
             case OK:
@@ -252,6 +272,12 @@ public class TlsCryptoSocket implements CryptoSocket {
         return result;
     }
 
+    private SSLEngineResult sslEngineWrap(ByteBuffer[] srcs, int offset, int length) throws IOException {
+        SSLEngineResult result = sslEngine.wrap(srcs, offset, length, wrapBuffer.getWritable(sessionPacketBufferSize));
+        failIfCloseSignalDetected(result);
+        return result;
+    }
+
     private boolean handshakeUnwrap() throws IOException {
         SSLEngineResult result = sslEngineUnwrap(handshakeDummyBuffer);
         switch (result.getStatus()) {
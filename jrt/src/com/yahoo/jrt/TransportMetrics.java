@@ -19,6 +19,13 @@ public class TransportMetrics {
     private final AtomicLong clientTlsConnectionsEstablished = new AtomicLong(0);
     private final AtomicLong serverUnencryptedConnectionsEstablished = new AtomicLong(0);
     private final AtomicLong clientUnencryptedConnectionsEstablished = new AtomicLong(0);
+    private final AtomicLong bufferPoolHits = new AtomicLong(0);
+    private final AtomicLong bufferPoolMisses = new AtomicLong(0);
+    private final AtomicLong bufferPoolRetainedBytes = new AtomicLong(0);
+    private final AtomicLong socketWrites = new AtomicLong(0);
+    private final AtomicLong packetsWritten = new AtomicLong(0);
+    private final AtomicLong socketReads = new AtomicLong(0);
+    private final AtomicLong packetsRead = new AtomicLong(0);
 
     private TransportMetrics() {}
 
@@ -48,6 +55,41 @@ public class TransportMetrics {
         return clientUnencryptedConnectionsEstablished.get();
     }
 
+    /** Returns the number of network buffers which were reused from a buffer pool */
+    public long bufferPoolHits() {
+        return bufferPoolHits.get();
+    }
+
+    /** Returns the number of network buffers which had to be allocated because none were available in the buffer pool */
+    public long bufferPoolMisses() {
+        return bufferPoolMisses.get();
+    }
+
+    /** Returns the total size of the network buffers currently kept for reuse in buffer pools */
+    public long bufferPoolRetainedBytes() {
+        return bufferPoolRetainedBytes.get();
+    }
+
+    /** Returns the number of times connections have written packets to their sockets */
+    public long socketWrites() {
+        return socketWrites.get();
+    }
+
+    /** Returns the number of packets written to sockets, which divided by {@link #socketWrites()} gives the packets per write */
+    public long packetsWritten() {
+        return packetsWritten.get();
+    }
+
+    /** Returns the number of times connections have read packets from their sockets */
+    public long socketReads() {
+        return socketReads.get();
+    }
+
+    /** Returns the number of packets read from sockets, which divided by {@link #socketReads()} gives the packets per read */
+    public long packetsRead() {
+        return packetsRead.get();
+    }
+
     public Snapshot snapshot() { return new Snapshot(this); }
 
     void incrementTlsCertificateVerificationFailures() {
@@ -74,6 +116,28 @@ public class TransportMetrics {
         clientUnencryptedConnectionsEstablished.incrementAndGet();
     }
 
+    void incrementBufferPoolHits() {
+        bufferPoolHits.incrementAndGet();
+    }
+
+    void incrementBufferPoolMisses() {
+        bufferPoolMisses.incrementAndGet();
+    }
+
+    void addBufferPoolRetainedBytes(long bytes) {
+        bufferPoolRetainedBytes.addAndGet(bytes);
+    }
+
+    void addPacketsWritten(long packets) {
+        socketWrites.incrementAndGet();
+        packetsWritten.addAndGet(packets);
+    }
+
+    void addPacketsRead(long packets) {
+        socketReads.incrementAndGet();
+        packetsRead.addAndGet(packets);
+    }
+
     @Override
     public String toString() {
         return "TransportMetrics{" +
@@ -83,11 +147,18 @@ public class TransportMetrics {
                 ", clientTlsConnectionsEstablished=" + clientTlsConnectionsEstablished +
                 ", serverUnencryptedConnectionsEstablished=" + serverUnencryptedConnectionsEstablished +
                 ", clientUnencryptedConnectionsEstablished=" + clientUnencryptedConnectionsEstablished +
+                ", bufferPoolHits=" + bufferPoolHits +
+                ", bufferPoolMisses=" + bufferPoolMisses +
+                ", bufferPoolRetainedBytes=" + bufferPoolRetainedBytes +
+                ", socketWrites=" + socketWrites +
+                ", packetsWritten=" + packetsWritten +
+                ", socketReads=" + socketReads +
+                ", packetsRead=" + packetsRead +
                 '}';
     }
 
     public static class Snapshot {
-        public static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0, 0, 0);
+        public static final Snapshot EMPTY = new Snapshot(0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0);
 
         private final long tlsCertificateVerificationFailures;
         private final long peerAuthorizationFailures;
@@ -95,6 +166,13 @@ public class TransportMetrics {
         private final long clientTlsConnectionsEstablished;
         private final long serverUnencryptedConnectionsEstablished;
         private final long clientUnencryptedConnectionsEstablished;
+        private final long bufferPoolHits;
+        private final long bufferPoolMisses;
+        private final long bufferPoolRetainedBytes;
+        private final long socketWrites;
+        private final long packetsWritten;
+        private final long socketReads;
+        private final long packetsRead;
 
         private Snapshot(TransportMetrics metrics) {
             this(metrics.tlsCertificateVerificationFailures.get(),
@@ -102,7 +180,14 @@ public class TransportMetrics {
                  metrics.serverTlsConnectionsEstablished.get(),
                  metrics.clientTlsConnectionsEstablished.get(),
                  metrics.serverUnencryptedConnectionsEstablished.get(),
-                 metrics.clientUnencryptedConnectionsEstablished.get());
+                 metrics.clientUnencryptedConnectionsEstablished.get(),
+                 metrics.bufferPoolHits.get(),
+                 metrics.bufferPoolMisses.get(),
+                 metrics.bufferPoolRetainedBytes.get(),
+                 metrics.socketWrites.get(),
+                 metrics.packetsWritten.get(),
+                 metrics.socketReads.get(),
+                 metrics.packetsRead.get());
         }
 
         private Snapshot(long tlsCertificateVerificationFailures,
@@ -110,13 +195,27 @@ public class TransportMetrics {
                         long serverTlsConnectionsEstablished,
                         long clientTlsConnectionsEstablished,
                         long serverUnencryptedConnectionsEstablished,
-                        long clientUnencryptedConnectionsEstablished) {
+                        long clientUnencryptedConnectionsEstablished,
+                        long bufferPoolHits,
+                        long bufferPoolMisses,
+                        long bufferPoolRetainedBytes,
+                        long socketWrites,
+                        long packetsWritten,
+                        long socketReads,
+                        long packetsRead) {
             this.tlsCertificateVerificationFailures = tlsCertificateVerificationFailures;
             this.peerAuthorizationFailures = peerAuthorizationFailures;
             this.serverTlsConnectionsEstablished = serverTlsConnectionsEstablished;
             this.clientTlsConnectionsEstablished = clientTlsConnectionsEstablished;
             this.serverUnencryptedConnectionsEstablished = serverUnencryptedConnectionsEstablished;
             this.clientUnencryptedConnectionsEstablished = clientUnencryptedConnectionsEstablished;
+            this.bufferPoolHits = bufferPoolHits;
+            this.bufferPoolMisses = bufferPoolMisses;
+            this.bufferPoolRetainedBytes = bufferPoolRetainedBytes;
+            this.socketWrites = socketWrites;
+            this.packetsWritten = packetsWritten;
+            this.socketReads = socketReads;
+            this.packetsRead = packetsRead;
         }
 
         public long tlsCertificateVerificationFailures() { return tlsCertificateVerificationFailures; }
@@ -125,6 +224,15 @@ public class TransportMetrics {
         public long clientTlsConnectionsEstablished() { return clientTlsConnectionsEstablished; }
         public long serverUnencryptedConnectionsEstablished() { return serverUnencryptedConnectionsEstablished; }
         public long clientUnencryptedConnectionsEstablished() { return clientUnencryptedConnectionsEstablished; }
+        public long bufferPoolHits() { return bufferPoolHits; }
+        public long bufferPoolMisses() { return bufferPoolMisses; }
+        public long bufferPoolRetainedBytes() { return bufferPoolRetainedBytes; }
+        public long socketWrites() { return socketWrites; }
+        public long packetsWritten() { return packetsWritten; }
+        public long socketReads() { return socketReads; }
+        public long packetsRead() { return packetsRead; }
+
+        /** Returns the changes in the counters since the given snapshot, together with the current value of the gauges in this */
 
         public Snapshot changesSince(Snapshot base) {
             return new Snapshot(
@@ -133,7 +241,14 @@ public class TransportMetrics {
                 changesSince(base, Snapshot::serverTlsConnectionsEstablished),
                 changesSince(base, Snapshot::clientTlsConnectionsEstablished),
                 changesSince(base, Snapshot::serverUnencryptedConnectionsEstablished),
-                changesSince(base, Snapshot::clientUnencryptedConnectionsEstablished));
+                changesSince(base, Snapshot::clientUnencryptedConnectionsEstablished),
+                changesSince(base, Snapshot::bufferPoolHits),
+                changesSince(base, Snapshot::bufferPoolMisses),
+                bufferPoolRetainedBytes,
+                changesSince(base, Snapshot::socketWrites),
+                changesSince(base, Snapshot::packetsWritten),
+                changesSince(base, Snapshot::socketReads),
+                changesSince(base, Snapshot::packetsRead));
         }
 
         private long changesSince(Snapshot base, ToLongFunction<Snapshot> metricProperty) {
@@ -149,6 +264,13 @@ public class TransportMetrics {
                     ", clientTlsConnectionsEstablished=" + clientTlsConnectionsEstablished +
                     ", serverUnencryptedConnectionsEstablished=" + serverUnencryptedConnectionsEstablished +
                     ", clientUnencryptedConnectionsEstablished=" + clientUnencryptedConnectionsEstablished +
+                    ", bufferPoolHits=" + bufferPoolHits +
+                    ", bufferPoolMisses=" + bufferPoolMisses +
+                    ", bufferPoolRetainedBytes=" + bufferPoolRetainedBytes +
+                    ", socketWrites=" + socketWrites +
+                    ", packetsWritten=" + packetsWritten +
+                    ", socketReads=" + socketReads +
+                    ", packetsRead=" + packetsRead +
                     '}';
         }
     }
@@ -5,6 +5,7 @@ import java.io.IOException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.util.Iterator;
+import java.util.PriorityQueue;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -46,6 +47,13 @@ public class TransportThread {
         public void run() { handleEnableWrite(conn); }
     }
 
+    private class EnableWriteLaterCmd implements Runnable {
+        private final Connection conn;
+        private final long deadline;
+        EnableWriteLaterCmd(Connection conn, long deadline) { this.conn = conn; this.deadline = deadline; }
+        public void run() { delayedWrites.add(this); }
+    }
+
     private class HandshakeWorkDoneCmd implements Runnable {
         private final Connection conn;
         HandshakeWorkDoneCmd(Connection conn) { this.conn = conn; }
@@ -74,6 +82,8 @@ public class TransportThread {
     private final Scheduler scheduler;
     private int             state;
     private final Selector  selector;
+    private final BufferPool bufferPool = new BufferPool();
+    private final PriorityQueue<EnableWriteLaterCmd> delayedWrites = new PriorityQueue<>((a, b) -> Long.signum(a.deadline - b.deadline));
 
     private void handleAddConnection(Connection conn) {
         if (conn.isClosed()) {
@@ -104,6 +114,30 @@ public class TransportThread {
         conn.enableWrite();
     }
 
+    private void handleDelayedWrites() {
+        long now = System.nanoTime();
+        while ( ! delayedWrites.isEmpty() && delayedWrites.peek().deadline - now <= 0) {
+            Connection conn = delayedWrites.poll().conn;
+            if ( ! conn.isClosed()) {
+                conn.handleWriteDelayDone();
+            }
+        }
+    }
+
+    private void select() throws IOException {
+        EnableWriteLaterCmd next = delayedWrites.peek();
+        if (next == null) {
+            selector.select(100);
+            return;
+        }
+        long millis = (next.deadline - System.nanoTime() + 999_999) / 1_000_000;
+        if (millis <= 0) {
+            selector.selectNow();
+        } else {
+            selector.select(Math.min(millis, 100));
+        }
+    }
+
     private void handleHandshakeWorkDone(Connection conn) {
         if (conn.isClosed()) {
             return;
@@ -184,6 +218,14 @@ public class TransportThread {
         return parent;
     }
 
+    /**
+     * Returns the pool of network buffers used by the connections of
+     * this thread. Only to be used by this thread.
+     **/
+    BufferPool bufferPool() {
+        return bufferPool;
+    }
+
     /**
      * Proxy method used to dispatch fatal errors to the enclosing
      * Transport.
@@ -230,6 +272,22 @@ public class TransportThread {
         }
     }
 
+    /**
+     * Requests that write events are enabled for a connection at the
+     * given time, as given by {@link System#nanoTime()}.
+     *
+     * @param conn the connection to enable write events for
+     * @param deadline when to enable write events
+     */
+    void enableWriteLater(Connection conn, long deadline) {
+        EnableWriteLaterCmd cmd = new EnableWriteLaterCmd(conn, deadline);
+        if (Thread.currentThread() == thread) {
+            cmd.run();
+        } else {
+            postCommand(cmd);
+        }
+    }
+
     void handshakeWorkDone(Connection conn) {
         postCommand(new HandshakeWorkDoneCmd(conn));
     }
@@ -312,7 +370,7 @@ public class TransportThread {
 
             // perform I/O selection
             try {
-                selector.select(100);
+                select();
             } catch (IOException e) {
                 log.log(Level.WARNING, "error during select", e);
             }
@@ -320,6 +378,9 @@ public class TransportThread {
             // handle internal events
             handleEvents();
 
+            // enable writes which have been delayed long enough
+            handleDelayedWrites();
+
             // handle I/O events
             Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
             while (keys.hasNext()) {
@@ -344,7 +405,9 @@ public class TransportThread {
             Connection conn = (Connection) key.attachment();
             handleCloseConnection(conn);
         }
+        delayedWrites.clear();
         try { selector.close(); } catch (Exception e) {}
+        bufferPool.shutdown();
         parent.notifyDone(this);
     }
 
@@ -13,9 +13,11 @@ import com.yahoo.jrt.Values;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Logger;
 import java.util.logging.Level;
@@ -26,11 +28,15 @@ import java.util.logging.Level;
  *
  * Updates to the service repository are fetched in the
  * background. Lookups against this object is done using an internal
- * mirror of the service repository.
+ * mirror of the service repository, which is an immutable snapshot
+ * replaced on each update, so lookups never lock. The snapshot is
+ * sorted by name, and a lookup only visits the names which start
+ * with the literal prefix of its pattern.
  */
 public class Mirror implements IMirror {
 
     private static final Logger log = Logger.getLogger(Mirror.class.getName());
+    private static final int MAX_CACHED_PATTERNS = 1024;
 
     private final EventLog eventLog = new EventLog();
     private final Supervisor orb;
@@ -41,7 +47,8 @@ public class Mirror implements IMirror {
     private volatile long iterations = 0;
     private boolean requestDone = false;
     private boolean logOnSuccess = true;
-    private final AtomicReference<Entry[]> specs = new AtomicReference<>(new Entry[0]);
+    private final AtomicReference<Snapshot> specs = new AtomicReference<>(Snapshot.empty);
+    private final Map<String, CompiledPattern> patterns = new ConcurrentHashMap<>();
     private int specsGeneration = 0;
     private final TransportThread transportThread;
     private final Task updateTask;
@@ -96,14 +103,15 @@ public class Mirror implements IMirror {
 
     @Override
     public List<Entry> lookup(String pattern) {
-        ArrayList<Entry> found = new ArrayList<>();
-        char[] p = pattern.toCharArray();
-        for (Entry specEntry : specs.get()) {
-            if (match(specEntry.getNameArray(), p)) {
-                found.add(specEntry);
+        CompiledPattern compiled = patterns.get(pattern);
+        if (compiled == null) {
+            if (patterns.size() >= MAX_CACHED_PATTERNS) {
+                patterns.clear();
             }
+            compiled = CompiledPattern.compile(pattern);
+            patterns.put(pattern, compiled);
         }
-        return found;
+        return specs.get().lookup(compiled);
     }
 
     @Override
@@ -243,34 +251,24 @@ public class Mirror implements IMirror {
             String[]        n = answer.get(2).asStringArray();
             String[]        s = answer.get(3).asStringArray();
 
-            Entry[]  newSpecs;
+            Map<String, Entry> map;
             if (diffFromGeneration == 0) {
-                newSpecs = new Entry[numNames];
-                for (int idx = 0; idx < numNames; idx++) {
-                    newSpecs[idx] = new Entry(n[idx], s[idx]);
-                }
+                map = new HashMap<>();
             } else {
-                Map<String, Entry> map = new HashMap<>();
-                for (Entry e : specs.get()) {
-                    map.put(e.getName(), e);
-                }
+                map = new HashMap<>(specs.get().byName);
                 for (String rem : r) {
                     map.remove(rem);
                 }
-                for (int idx = 0; idx < numNames; idx++) {
-                    map.put(n[idx], new Entry(n[idx], s[idx]));
-                }
-                newSpecs = new Entry[map.size()];
-                int idx = 0;
-                for (Entry e : map.values()) {
-                    newSpecs[idx++] = e;
-                }
             }
+            for (int idx = 0; idx < numNames; idx++) {
+                map.put(n[idx], new Entry(n[idx], s[idx]));
+            }
+            Snapshot newSpecs = new Snapshot(map);
             if (logOnSuccess) {
-                log.log(Level.INFO, "successfully connected to location broker "+currSlobrok+" (mirror initialized with "+newSpecs.length+" service names)");
+                log.log(Level.INFO, "successfully connected to location broker "+currSlobrok+" (mirror initialized with "+newSpecs.size()+" service names)");
                 logOnSuccess = false;
             } else {
-                log.fine(() -> "successfully updated from location broker "+currSlobrok+" (now "+newSpecs.length+" service names)");
+                log.fine(() -> "successfully updated from location broker "+currSlobrok+" (now "+newSpecs.size()+" service names)");
             }
             specs.set(newSpecs);
 
@@ -299,7 +297,80 @@ public class Mirror implements IMirror {
             target.close();
             target = null;
         }
-        specs.set(new Entry[0]);
+        specs.set(Snapshot.empty);
+    }
+
+    /**
+     * A pattern to look up, with the literal prefix before its first wildcard.
+     * Patterns without wildcards only match the name which equals them.
+     */
+    static final class CompiledPattern {
+
+        private final char[] chars;
+        private final String prefix;
+        private final boolean exact;
+
+        private CompiledPattern(char[] chars, String prefix, boolean exact) {
+            this.chars = chars;
+            this.prefix = prefix;
+            this.exact = exact;
+        }
+
+        static CompiledPattern compile(String pattern) {
+            int wildcard = pattern.indexOf('*');
+            return new CompiledPattern(pattern.toCharArray(),
+                                       wildcard < 0 ? pattern : pattern.substring(0, wildcard),
+                                       wildcard < 0);
+        }
+
+    }
+
+    /**
+     * An immutable set of entries, indexed by name, and sorted by name so that
+     * names with a common prefix are adjacent.
+     */
+    static final class Snapshot {
+
+        static final Snapshot empty = new Snapshot(Map.of());
+
+        private final Map<String, Entry> byName;
+        private final Entry[] entries;
+        private final String[] names;
+
+        /** Creates a new snapshot with the entries of the given map, which must not be modified after this. */
+        Snapshot(Map<String, Entry> byName) {
+            this.byName = byName;
+            this.entries = byName.values().toArray(new Entry[0]);
+            Arrays.sort(entries);
+            this.names = new String[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                names[i] = entries[i].getName();
+            }
+        }
+
+        /** Returns the entries matching the given pattern, in name order, visiting only those with its prefix. */
+        List<Entry> lookup(CompiledPattern pattern) {
+            ArrayList<Entry> found = new ArrayList<>();
+            if (pattern.exact) {
+                Entry entry = byName.get(pattern.prefix);
+                if (entry != null) {
+                    found.add(entry);
+                }
+                return found;
+            }
+            int i = Arrays.binarySearch(names, pattern.prefix);
+            for (i = i < 0 ? -i - 1 : i; i < names.length && names[i].startsWith(pattern.prefix); i++) {
+                if (match(entries[i].getNameArray(), pattern.chars)) {
+                    found.add(entries[i]);
+                }
+            }
+            return found;
+        }
+
+        int size() {
+            return entries.length;
+        }
+
     }
 
     /**
@@ -346,7 +417,7 @@ public class Mirror implements IMirror {
         log.log(Level.INFO, "location broker mirror state: " +
                 " iterations: " + iterations +
                 ", connected to: " + target +
-                ", number of service specs: " + specs.get().length +
+                ", number of service specs: " + specs.get().size() +
                 ", seen " + updates + " updates" +
                 ", current server: "+ currSlobrok +
                 ", list of servers: " + slobroks);
@@ -0,0 +1,83 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import static org.junit.Assert.assertEquals;
+
+public class BufferChainTest {
+
+    @org.junit.Test
+    public void testPacketsAreWrittenInOrderWithGatheringWrites() throws IOException {
+        BufferPool pool = new BufferPool();
+        BufferChain chain = new BufferChain(pool, 1024);
+        RecordingSocket socket = new RecordingSocket(1500);
+        ByteBuffer expected = ByteBuffer.allocate(64 * 1024);
+        for (int i = 0; i < 20; i++) {
+            Packet packet = packet(i, i % 5 == 0 ? 2000 : 100);
+            PacketInfo info = packet.getPacketInfo();
+            chain.encode(info, packet);
+            info.encodePacket(packet, expected);
+        }
+        assertEquals(expected.position(), chain.bytes());
+
+        int writes = 0;
+        while (chain.bytes() > 0) {
+            chain.writeTo(socket);
+            writes++;
+        }
+        assertEquals((expected.position() + 1499) / 1500, writes);
+        assertEquals(expected.flip(), socket.written.flip());
+        assertEquals(0, chain.bytes());
+        assertEquals(0, chain.writeTo(socket));
+        assertEquals(4 * 1024 + 4 * 2048, pool.retainedBytes()); // All buffers are back in the pool.
+    }
+
+    @org.junit.Test
+    public void testReleaseDropsUnwrittenOutput() throws IOException {
+        BufferPool pool = new BufferPool();
+        BufferChain chain = new BufferChain(pool, 1024);
+        Packet packet = packet(1, 100);
+        chain.encode(packet.getPacketInfo(), packet);
+        chain.release();
+        assertEquals(0, chain.bytes());
+        assertEquals(1024, pool.retainedBytes());
+        RecordingSocket socket = new RecordingSocket(1500);
+        assertEquals(0, chain.writeTo(socket));
+        assertEquals(0, socket.written.position());
+    }
+
+    private static Packet packet(int requestId, int size) {
+        Values params = new Values();
+        params.add(new DataValue(new byte[size]));
+        return new RequestPacket(0, requestId, "test", params);
+    }
+
+    /** Accepts at most the given number of bytes for each write */
+    private static class RecordingSocket extends NullCryptoSocket {
+
+        final ByteBuffer written = ByteBuffer.allocate(64 * 1024);
+        final int maxBytesPerWrite;
+
+        RecordingSocket(int maxBytesPerWrite) {
+            super((SocketChannel) null, false);
+            this.maxBytesPerWrite = maxBytesPerWrite;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) {
+            long total = 0;
+            for (int i = offset; i < offset + length && total < maxBytesPerWrite; i++) {
+                while (srcs[i].hasRemaining() && total < maxBytesPerWrite) {
+                    written.put(srcs[i].get());
+                    total++;
+                }
+            }
+            return total;
+        }
+
+    }
+
+}
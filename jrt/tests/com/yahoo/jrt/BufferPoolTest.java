@@ -0,0 +1,86 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BufferPoolTest {
+
+    @org.junit.Test
+    public void testBuffersAreReusedBySizeClass() {
+        BufferPool pool = new BufferPool(64 * 1024);
+        ByteBuffer small = pool.acquire(100);
+        assertTrue(small.isDirect());
+        assertEquals(BufferPool.MIN_SIZE, small.capacity());
+        ByteBuffer large = pool.acquire(20000);
+        assertEquals(32 * 1024, large.capacity());
+
+        small.putInt(42).order(ByteOrder.LITTLE_ENDIAN);
+        pool.release(small);
+        pool.release(large);
+        assertEquals(33 * 1024, pool.retainedBytes());
+
+        ByteBuffer reused = pool.acquire(1024);
+        assertSame(small, reused);
+        assertEquals(0, reused.position());
+        assertEquals(reused.capacity(), reused.limit());
+        assertEquals(ByteOrder.BIG_ENDIAN, reused.order());
+        assertSame(large, pool.acquire(16 * 1024 + 1));
+        assertNotSame(large, pool.acquire(32 * 1024));
+        assertEquals(0, pool.retainedBytes());
+    }
+
+    @org.junit.Test
+    public void testRetainedBytesAreBounded() {
+        BufferPool pool = new BufferPool(3 * 1024);
+        ByteBuffer first = pool.acquire(2048);
+        ByteBuffer second = pool.acquire(2048);
+        pool.release(first);
+        pool.release(second);
+        assertEquals(2048, pool.retainedBytes());
+
+        pool.shutdown();
+        assertEquals(0, pool.retainedBytes());
+        pool.release(pool.acquire(1024));
+        assertEquals(0, pool.retainedBytes());
+    }
+
+    @org.junit.Test
+    public void testOversizedAndForeignBuffersAreNotPooled() {
+        BufferPool pool = new BufferPool();
+        ByteBuffer huge = pool.acquire(BufferPool.MAX_SIZE + 1);
+        assertFalse(huge.isDirect());
+        assertEquals(0, pool.acquire(0).capacity());
+        pool.release(huge);
+        pool.release(ByteBuffer.allocate(4096));
+        pool.release(ByteBuffer.allocateDirect(3000));
+        assertEquals(0, pool.retainedBytes());
+    }
+
+    @org.junit.Test
+    public void testPooledBufferGrowsAndShrinksThroughPool() {
+        BufferPool pool = new BufferPool();
+        Buffer buf = new Buffer(0, pool);
+        ByteBuffer b = buf.getWritable(1000);
+        assertTrue(b.isDirect());
+        b.put(new byte[1000]);
+        buf.getWritable(5000).put((byte) 1);
+        assertEquals(1001, buf.bytes());
+        assertEquals(1024, pool.retainedBytes()); // Old buffer went back to the pool.
+
+        ByteBuffer r = buf.getReadable();
+        r.position(r.position() + 1000);
+        assertEquals(1, r.get());
+        buf.release();
+        assertEquals(0, buf.bytes());
+        assertEquals(1024 + 8192, pool.retainedBytes());
+        assertEquals(0, buf.getReadable().remaining());
+    }
+
+}
@@ -0,0 +1,133 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+import org.junit.After;
+import org.junit.Before;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class MethodExecutorTest {
+
+    Supervisor      server;
+    Acceptor        acceptor;
+    Supervisor      client;
+    Target          target;
+    ExecutorService executor;
+    Method          echo;
+    Method          block;
+    CountDownLatch  blocked = new CountDownLatch(1);
+    CountDownLatch  release = new CountDownLatch(1);
+
+    @Before
+    public void setUp() throws ListenFailedException {
+        server   = new Supervisor(new Transport());
+        client   = new Supervisor(new Transport());
+        acceptor = server.listen(new Spec(0));
+        target   = client.connect(new Spec("localhost", acceptor.port()));
+        executor = Executors.newFixedThreadPool(2);
+        echo     = new Method("echo", "s", "ss", this::rpc_echo).executor(executor);
+        block    = new Method("block", "", "", this::rpc_block).executor(executor, 1);
+        server.addMethod(echo);
+        server.addMethod(block);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        release.countDown();
+        target.close();
+        acceptor.shutdown().join();
+        client.transport().shutdown().join();
+        server.transport().shutdown().join();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+    }
+
+    private void rpc_echo(Request req) {
+        req.returnValues().add(req.parameters().get(0));
+        req.returnValues().add(new StringValue(Thread.currentThread().getName()));
+    }
+
+    private void rpc_block(Request req) {
+        blocked.countDown();
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @org.junit.Test
+    public void testHandlerIsInvokedByExecutor() {
+        for (int i = 0; i < 10; i++) {
+            Request req = new Request("echo");
+            req.parameters().add(new StringValue("hello " + i));
+            target.invokeSync(req, Duration.ofSeconds(60));
+            assertFalse(req.errorMessage(), req.isError());
+            assertEquals("hello " + i, req.returnValues().get(0).asString());
+            assertTrue(req.returnValues().get(1).asString().startsWith("pool-"));
+        }
+        MethodMetrics.Snapshot snapshot = echo.metrics().snapshot();
+        assertEquals(10, snapshot.invocations());
+        assertEquals(0, snapshot.overloads());
+        assertEquals(0, snapshot.pending());
+        assertTrue(snapshot.latencyNanos() >= snapshot.queueTimeNanos());
+    }
+
+    @org.junit.Test
+    public void testInvocationsBeyondMaxPendingAreRejected() throws InterruptedException {
+        Request first = new Request("block");
+        Test.Waiter waiter = new Test.Waiter();
+        target.invokeAsync(first, Duration.ofSeconds(60), waiter);
+        assertTrue(blocked.await(60, TimeUnit.SECONDS));
+        assertEquals(1, block.metrics().pending());
+
+        Request second = new Request("block");
+        target.invokeSync(second, Duration.ofSeconds(60));
+        assertTrue(second.isError());
+        assertEquals(ErrorCode.OVERLOAD, second.errorCode());
+        assertEquals(1, block.metrics().overloads());
+
+        release.countDown();
+        waiter.waitDone();
+        assertFalse(first.errorMessage(), first.isError());
+        assertEquals(0, block.metrics().pending());
+        assertEquals(2, block.metrics().invocations());
+    }
+
+    @org.junit.Test
+    public void testInvocationsRejectedByExecutorAreOverloaded() {
+        executor.shutdown();
+        Request req = new Request("echo");
+        req.parameters().add(new StringValue("hello"));
+        target.invokeSync(req, Duration.ofSeconds(60));
+        assertEquals(ErrorCode.OVERLOAD, req.errorCode());
+        assertEquals(1, echo.metrics().overloads());
+        assertEquals(0, echo.metrics().pending());
+    }
+
+    @org.junit.Test
+    public void testMaxPendingMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new Method("foo", "", "", req -> {}).executor(executor, 0));
+    }
+
+    @org.junit.Test
+    public void testSnapshotChanges() {
+        MethodMetrics.Snapshot before = echo.metrics().snapshot();
+        Request req = new Request("echo");
+        req.parameters().add(new StringValue("hello"));
+        target.invokeSync(req, Duration.ofSeconds(60));
+        MethodMetrics.Snapshot changes = echo.metrics().snapshot().changesSince(before);
+        assertEquals(1, changes.invocations());
+        assertEquals(changes.latencyNanos(), changes.averageLatencyNanos(), 0.0);
+    }
+
+}
@@ -0,0 +1,101 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+import org.junit.After;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class WriteCoalescingTest {
+
+    Supervisor server;
+    Acceptor   acceptor;
+    Supervisor client;
+    Target     target;
+
+    private void setUp(Duration maxDelay, int maxBytes) throws ListenFailedException {
+        server   = new Supervisor(new Transport());
+        client   = new Supervisor(new Transport()).setWriteCoalescing(maxDelay, maxBytes);
+        acceptor = server.listen(new Spec(0));
+        target   = client.connect(new Spec("localhost", acceptor.port()));
+        server.addMethod(new Method("echo", "s", "s", req -> req.returnValues().add(req.parameters().get(0))));
+    }
+
+    @After
+    public void tearDown() {
+        if (target == null) {
+            return;
+        }
+        target.close();
+        acceptor.shutdown().join();
+        client.transport().shutdown().join();
+        server.transport().shutdown().join();
+    }
+
+    private Request echo(String value) {
+        Request req = new Request("echo");
+        req.parameters().add(new StringValue(value));
+        return req;
+    }
+
+    private void invoke(Request req) {
+        target.invokeSync(req, Duration.ofSeconds(60));
+        assertFalse(req.errorMessage(), req.isError());
+    }
+
+    @org.junit.Test
+    public void testWritesSoonAfterPreviousWriteAreDelayed() throws ListenFailedException {
+        setUp(Duration.ofMillis(500), 1024 * 1024);
+        invoke(echo("first")); // Connection was idle, so this is written right away.
+        long start = System.nanoTime();
+        invoke(echo("second"));
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(250).toNanos());
+    }
+
+    @org.junit.Test
+    public void testDelayedWritesAreCoalesced() throws ListenFailedException {
+        setUp(Duration.ofMillis(200), 1024 * 1024);
+        invoke(echo("first"));
+        TransportMetrics.Snapshot before = TransportMetrics.getInstance().snapshot();
+        List<Request> requests = new ArrayList<>();
+        List<Test.Waiter> waiters = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            requests.add(echo("hello " + i));
+            waiters.add(new Test.Waiter());
+            target.invokeAsync(requests.get(i), Duration.ofSeconds(60), waiters.get(i));
+        }
+        for (int i = 0; i < 100; i++) {
+            waiters.get(i).waitDone();
+            assertFalse(requests.get(i).errorMessage(), requests.get(i).isError());
+            assertEquals("hello " + i, requests.get(i).returnValues().get(0).asString());
+        }
+        server.transport().sync(); // Make sure the metrics of the last reply are updated.
+        client.transport().sync();
+        TransportMetrics.Snapshot changes = TransportMetrics.getInstance().snapshot().changesSince(before);
+        assertTrue(changes.toString(), changes.packetsWritten() >= 200);
+        assertTrue(changes.toString(), changes.packetsWritten() > changes.socketWrites());
+        assertTrue(changes.toString(), changes.packetsRead() >= 200);
+        assertTrue(changes.toString(), changes.packetsRead() > changes.socketReads());
+    }
+
+    @org.junit.Test
+    public void testEnoughWaitingBytesAreWrittenRightAway() throws ListenFailedException {
+        setUp(Duration.ofHours(1), 1);
+        invoke(echo("first"));
+        invoke(echo("second")); // Would time out if delayed.
+    }
+
+    @org.junit.Test
+    public void testNegativeDelayIsRejected() {
+        Supervisor supervisor = new Supervisor(new Transport());
+        assertThrows(IllegalArgumentException.class, () -> supervisor.setWriteCoalescing(Duration.ofMillis(-1), 0));
+        supervisor.transport().shutdown().join();
+    }
+
+}
@@ -0,0 +1,82 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt.slobrok.api;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A benchmark of lookups in a {@link Mirror} with 10000 services, like those of a large content cluster,
+ * comparing the indexed snapshot lookup to a scan of all services, as was done before.
+ */
+public class MirrorBenchmark {
+
+    private static volatile int sink;
+
+    private final Map<String, Mirror.Entry> entries = new HashMap<>();
+    private final List<String> patterns = new ArrayList<>();
+
+    public MirrorBenchmark(int services) {
+        for (int i = 0; entries.size() < services; i++) {
+            add("storage/cluster.content/distributor/" + i + "/default", i);
+            add("storage/cluster.content/storage/" + i + "/default", i);
+            add("search/cluster.content/" + i % 10 + "/" + i + "/realtimecontroller", i);
+            add("docproc/cluster.feed/docproc/" + i + "/chain.default", i);
+        }
+        for (int i = 0; i < 100; i++) {
+            patterns.add("storage/cluster.content/distributor/" + (i * 31) % (services / 4) + "/default");
+            patterns.add("docproc/cluster.feed/docproc/" + (i * 17) % (services / 4) + "/chain.default");
+        }
+        patterns.add("docproc/cluster.feed/docproc/*/chain.default");
+        patterns.add("search/cluster.content/3/*/realtimecontroller");
+    }
+
+    private void add(String name, int i) {
+        entries.put(name, new Mirror.Entry(name, "tcp/host" + i + ".example.com:19100"));
+    }
+
+    /** Returns the number of lookups per second done by scanning all services */
+    public double runScan(int rounds) {
+        Mirror.Entry[] all = entries.values().toArray(new Mirror.Entry[0]);
+        long startNanos = System.nanoTime();
+        int found = 0;
+        for (int round = 0; round < rounds; round++) {
+            for (String pattern : patterns) {
+                char[] p = pattern.toCharArray();
+                for (Mirror.Entry entry : all) {
+                    if (Mirror.match(entry.getNameArray(), p)) {
+                        found++;
+                    }
+                }
+            }
+        }
+        sink = found;
+        return rounds * patterns.size() * 1e9 / (System.nanoTime() - startNanos);
+    }
+
+    /** Returns the number of lookups per second done in the indexed snapshot */
+    public double runIndexed(int rounds) {
+        Mirror.Snapshot snapshot = new Mirror.Snapshot(entries);
+        Map<String, Mirror.CompiledPattern> compiled = new HashMap<>();
+        long startNanos = System.nanoTime();
+        int found = 0;
+        for (int round = 0; round < rounds; round++) {
+            for (String pattern : patterns) {
+                found += snapshot.lookup(compiled.computeIfAbsent(pattern, Mirror.CompiledPattern::compile)).size();
+            }
+        }
+        sink = found;
+        return rounds * patterns.size() * 1e9 / (System.nanoTime() - startNanos);
+    }
+
+    public static void main(String[] args) {
+        MirrorBenchmark benchmark = new MirrorBenchmark(10_000);
+        for (int i = 0; i < 3; i++) { // The first iterations are warmup.
+            System.out.println(String.format(Locale.ENGLISH, "scan:    %12.0f lookups/s", benchmark.runScan(20)));
+            System.out.println(String.format(Locale.ENGLISH, "indexed: %12.0f lookups/s", benchmark.runIndexed(2000)));
+        }
+    }
+
+}
@@ -2,6 +2,13 @@
 package com.yahoo.jrt.slobrok.api;
 
 import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertFalse;
 
@@ -86,4 +93,20 @@ public class MirrorTest {
         mustNotMatch(nomatch, pattern);
     }
 
+    @Test public void requireThatSnapshotLookupMatchesAllNamesWithPattern() {
+        Map<String, Mirror.Entry> entries = new HashMap<>();
+        for (String name : List.of("foo", "foo/bar", "foo/bar/baz", "foo/baz", "foo1/bar", "foo/bar.1/qux", "bar/foo", "a", "A/b"))
+            entries.put(name, new Mirror.Entry(name, "tcp/localhost:" + (entries.size() + 1)));
+        Mirror.Snapshot snapshot = new Mirror.Snapshot(entries);
+        for (String pattern : List.of("foo", "foo/bar", "fo", "foo/*", "foo*", "foo/**", "foo/bar*/*", "foo/bar.*/qux",
+                                      "*", "*/*", "**", "*/foo", "a", "A/**", "foo1/*", "bar", "baz/*", "")) {
+            List<Mirror.Entry> expected = new ArrayList<>();
+            for (Mirror.Entry entry : entries.values())
+                if (Mirror.match(entry.getNameArray(), pattern.toCharArray()))
+                    expected.add(entry);
+            expected.sort(null);
+            assertEquals(pattern, expected, snapshot.lookup(Mirror.CompiledPattern.compile(pattern)));
+        }
+    }
+
 }
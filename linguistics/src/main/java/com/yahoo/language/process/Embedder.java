@@ -7,6 +7,7 @@ import com.yahoo.language.Language;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -68,6 +69,24 @@ public interface Embedder {
      */
     Tensor embed(String text, Context context, TensorType tensorType);
 
+    /**
+     * Converts a batch of texts into tokens in tensors.
+     * Embedders which evaluate a model should override this to evaluate all the texts together, which is
+     * much cheaper than evaluating them one by one. This default implementation embeds each text separately.
+     *
+     * @param texts the texts to embed
+     * @param context the context which may influence an embedder's behavior
+     * @param tensorType the type of the tensors to be returned
+     * @return the tensor embeddings of the texts, as the specified tensor type, in the order of the texts
+     * @throws IllegalArgumentException if the language or tensor type is not supported by this embedder
+     */
+    default List<Tensor> embed(List<String> texts, Context context, TensorType tensorType) {
+        List<Tensor> tensors = new ArrayList<>(texts.size());
+        for (String text : texts)
+            tensors.add(embed(text, context, tensorType));
+        return tensors;
+    }
+
     /**
      * Runtime that is injectable through {@link Embedder} constructor.
      */
@@ -78,6 +97,10 @@ public interface Embedder {
         void sampleEmbeddingLatency(double millis, Context ctx);
         /** Add a sample embedding length to this */
         void sampleSequenceLength(long length, Context ctx);
+        /** Add a lookup in a shared embedding cache, which found the embedding, to this */
+        default void sampleCacheHit(Context ctx) { }
+        /** Add a lookup in a shared embedding cache, which did not find the embedding, to this */
+        default void sampleCacheMiss(Context ctx) { }
 
         static Runtime testInstance() {
             return new Runtime() {
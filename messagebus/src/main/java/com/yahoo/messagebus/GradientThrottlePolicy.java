@@ -0,0 +1,280 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.messagebus;
+
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This is an implementation of the {@link ThrottlePolicy} that limits the number of pending messages a
+ * {@link SourceSession} is allowed to have, the <em>window size</em>, by the gradient of the round-trip time of
+ * messages. Unlike the {@link DynamicThrottlePolicy}, which reacts to changes in throughput, this reacts to the
+ * queueing in the backend, which shows as increased latency before it leads to errors or lower throughput.
+ * <p>
+ * Round-trip times are measured for every reply, and averaged over periods of at least one window of replies.
+ * The <em>base</em> round-trip time is the lowest such average, and approximates the latency of the backend
+ * without queueing. At the end of each period, the window size moves towards
+ * <code>windowSize * gradient</code>, where <code>gradient = tolerance * base / average</code> is capped to
+ * [0.5, 1], or towards <code>windowSize + sqrt(windowSize)</code> if the gradient is 1. The window therefore grows
+ * by the square root of its size for as long as latency stays within the tolerance of the base latency, and
+ * shrinks in proportion as latency rises above it.
+ * </p><p>
+ * The window starts out at its minimum size, where there is no queueing, and doubles every period until latency
+ * first rises above the tolerance. To follow lasting changes in backend latency, the base round-trip time is
+ * measured anew regularly, by halving the window for a couple of periods. With a tolerance below 2, this drains
+ * the backend queues the window has built up, and the latency measured is again that without queueing.
+ * </p><p>
+ * The window is not grown while the client does not use at least half of it, and it backs off when replies
+ * have errors.
+ * </p>
+ */
+public class GradientThrottlePolicy extends StaticThrottlePolicy {
+
+    private static final Logger log = Logger.getLogger(GradientThrottlePolicy.class.getName());
+    private static final int MIN_SAMPLES = 10;
+    private static final int PROBE_PERIODS = 2;
+
+    private final LongSupplier nanoClock;
+    private double minWindowSize = 1;
+    private double maxWindowSize = Integer.MAX_VALUE;
+    private double windowSize = minWindowSize;
+    private double tolerance = 1.5;
+    private double smoothing = 0.2;
+    private double windowSizeBackOff = 0.9;
+    private int baseRttPeriods = 100;
+
+    private int samples = 0;
+    private int errors = 0;
+    private long rttSumNanos = 0;
+    private int maxPending = 0;
+    private int periods = 0;
+    private boolean slowStart = true;
+    private int probePeriods = 0;
+    private double probeWindowSize = 0;
+    private double probeRttMillis = Double.MAX_VALUE;
+    private double latestRttMillis = 0;
+    private double baseRttMillis = Double.MAX_VALUE;
+
+    public GradientThrottlePolicy() {
+        this(System::nanoTime);
+    }
+
+    /** Constructs a new instance of this class which measures round-trip times with the given clock, in nanoseconds. */
+    GradientThrottlePolicy(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public boolean canSend(Message message, int pendingCount) {
+        if ( ! super.canSend(message, pendingCount) || pendingCount >= (int) windowSize) {
+            return false;
+        }
+        maxPending = Math.max(maxPending, pendingCount + 1);
+        return true;
+    }
+
+    @Override
+    public void processMessage(Message message) {
+        super.processMessage(message);
+        message.setContext(new SendContext((Integer) message.getContext(), nanoClock.getAsLong()));
+    }
+
+    @Override
+    public void processReply(Reply reply) {
+        SendContext context = (SendContext) reply.getContext();
+        reply.setContext(context.size);
+        super.processReply(reply);
+
+        rttSumNanos += nanoClock.getAsLong() - context.sentNanos;
+        if (reply.hasErrors()) {
+            ++errors;
+        }
+        if (++samples >= Math.max(MIN_SAMPLES, windowSize)) {
+            resize();
+        }
+    }
+
+    private void resize() {
+        latestRttMillis = Math.max(rttSumNanos * 1e-6 / samples, 1e-3);
+        if (probePeriods > 0) {
+            probeRttMillis = Math.min(probeRttMillis, latestRttMillis);
+            if (--probePeriods == 0) {
+                baseRttMillis = probeRttMillis;
+                windowSize = probeWindowSize;
+            }
+        }
+        else if (++periods >= baseRttPeriods) {
+            startProbe();
+        }
+        else {
+            adjustWindow();
+        }
+        samples = 0;
+        errors = 0;
+        rttSumNanos = 0;
+        maxPending = 0;
+    }
+
+    private void startProbe() {
+        periods = 0;
+        probePeriods = PROBE_PERIODS;
+        probeRttMillis = Double.MAX_VALUE;
+        probeWindowSize = windowSize;
+        windowSize = Math.max(minWindowSize, windowSize / 2);
+        log.log(Level.FINE, () -> "windowSize " + windowSize + " while measuring base rtt");
+    }
+
+    private void adjustWindow() {
+        baseRttMillis = Math.min(baseRttMillis, latestRttMillis);
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * baseRttMillis / latestRttMillis));
+        double target;
+        if (slowStart && gradient == 1 && errors == 0) {
+            target = 2 * windowSize;
+        }
+        else {
+            slowStart = false;
+            target = gradient < 1 ? windowSize * gradient : windowSize + Math.sqrt(windowSize);
+            if (errors > 0) {
+                target = Math.min(target, windowSize * windowSizeBackOff);
+            }
+            target = windowSize * (1 - smoothing) + target * smoothing;
+        }
+        if (maxPending < windowSize / 2) { // Client did not use the window, so nothing was learnt about a larger one.
+            target = Math.min(target, windowSize);
+        }
+        windowSize = Math.max(minWindowSize, Math.min(maxWindowSize, target));
+        log.log(Level.FINE, () -> "windowSize " + windowSize + " rtt " + latestRttMillis + " base rtt " + baseRttMillis +
+                                  " gradient " + gradient);
+    }
+
+    /**
+     * Sets how much higher than the base round-trip time the average round-trip time may be before the window
+     * size is decreased. Must be at least 1.
+     *
+     * @param tolerance the tolerance to set
+     * @return this, to allow chaining
+     */
+    public GradientThrottlePolicy setRttTolerance(double tolerance) {
+        if (tolerance < 1)
+            throw new IllegalArgumentException("Round-trip time tolerance cannot be less than one");
+
+        this.tolerance = tolerance;
+        return this;
+    }
+
+    /**
+     * Sets how far the window size moves towards its new target at the end of each period. Capped to (0, 1].
+     *
+     * @param smoothing the smoothing to set
+     * @return this, to allow chaining
+     */
+    public GradientThrottlePolicy setSmoothing(double smoothing) {
+        this.smoothing = Math.max(1e-3, Math.min(1, smoothing));
+        return this;
+    }
+
+    /**
+     * Sets the factor of window size to back off to when replies have errors. Capped to [0, 1]
+     *
+     * @param windowSizeBackOff the back off to set
+     * @return this, to allow chaining
+     */
+    public GradientThrottlePolicy setWindowSizeBackOff(double windowSizeBackOff) {
+        this.windowSizeBackOff = Math.max(0, Math.min(1, windowSizeBackOff));
+        return this;
+    }
+
+    /**
+     * Sets the number of periods after which the base round-trip time is measured anew. Must be positive.
+     *
+     * @param periods the number of periods to set
+     * @return this, to allow chaining
+     */
+    public GradientThrottlePolicy setBaseRttPeriods(int periods) {
+        if (periods < 1)
+            throw new IllegalArgumentException("Number of base round-trip time periods must be positive");
+
+        this.baseRttPeriods = periods;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of pending operations allowed at any time, in
+     * order to avoid using too much resources.
+     *
+     * @param max the max to set
+     * @return this, to allow chaining
+     */
+    public GradientThrottlePolicy setMaxWindowSize(double max) {
+        if (max < 1)
+            throw new IllegalArgumentException("Maximum window size cannot be less than one");
+
+        this.maxWindowSize = max;
+        this.windowSize = Math.min(windowSize, max);
+        return this;
+    }
+
+    public double getMaxWindowSize() {
+        return maxWindowSize;
+    }
+
+    /**
+     * Sets the minimum number of pending operations allowed at any time, in
+     * order to keep a level of performance.
+     *
+     * @param min the min to set
+     * @return this, to allow chaining
+     */
+    public GradientThrottlePolicy setMinWindowSize(double min) {
+        if (min < 1)
+            throw new IllegalArgumentException("Minimum window size cannot be less than one");
+
+        this.minWindowSize = min;
+        this.windowSize = Math.max(windowSize, min);
+        return this;
+    }
+
+    public double getMinWindowSize() {
+        return minWindowSize;
+    }
+
+    @Override
+    public GradientThrottlePolicy setMaxPendingCount(int maxCount) {
+        super.setMaxPendingCount(maxCount);
+        return setMaxWindowSize(maxCount);
+    }
+
+    /** Returns the current number of pending messages allowed. */
+    @Override
+    public int getMaxPendingCount() {
+        return (int) windowSize;
+    }
+
+    /** Returns the current window size. */
+    public double getWindowSize() {
+        return windowSize;
+    }
+
+    /** Returns the average round-trip time of the replies of the last completed period, in milliseconds. */
+    public double getLatestRttMillis() {
+        return latestRttMillis;
+    }
+
+    /** Returns the base round-trip time, in milliseconds, or 0 if no period has completed yet. */
+    public double getBaseRttMillis() {
+        return baseRttMillis == Double.MAX_VALUE ? 0 : baseRttMillis;
+    }
+
+    private static class SendContext {
+
+        final int size;
+        final long sentNanos;
+
+        SendContext(int size, long sentNanos) {
+            this.size = size;
+            this.sentNanos = sentNanos;
+        }
+
+    }
+
+}
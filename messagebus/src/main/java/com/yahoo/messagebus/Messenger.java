@@ -12,6 +12,7 @@ import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 /**
@@ -26,7 +27,9 @@ public class Messenger implements Runnable {
     private static final Logger log = Logger.getLogger(Messenger.class.getName());
     private final AtomicBoolean destroyed = new AtomicBoolean(false);
     private final List<Task> children = new ArrayList<>();
-    private final Queue<Task> queue = new ArrayDeque<>();
+    private final Queue<QueuedTask> queue = new ArrayDeque<>();
+    private final AtomicLong tasksRun = new AtomicLong(0);
+    private final AtomicLong queueTimeNanos = new AtomicLong(0);
 
     private final Thread thread = new Thread(this, "Messenger");
 
@@ -101,7 +104,7 @@ public class Messenger implements Runnable {
             return;
         }
         synchronized (this) {
-            queue.offer(task);
+            queue.offer(new QueuedTask(task, System.nanoTime()));
             if (queue.size() == 1) {
                 notify();
             }
@@ -148,11 +151,26 @@ public class Messenger implements Runnable {
         return done;
     }
 
+    /** Returns the number of tasks run by this so far. */
+    public long tasksRun() {
+        return tasksRun.get();
+    }
+
+    /** Returns the total time the tasks run so far spent queued before they were run, in nanoseconds. */
+    public long queueTimeNanos() {
+        return queueTimeNanos.get();
+    }
+
+    /** Returns the number of tasks currently waiting to be run. */
+    public synchronized int queueSize() {
+        return queue.size();
+    }
+
     @Override
     public void run() {
         long timeoutMS = SystemTimer.adjustTimeoutByDetectedHz(Duration.ofMillis(100)).toMillis();
         while (true) {
-            Task task = null;
+            QueuedTask queued = null;
             synchronized (this) {
                 if (queue.isEmpty()) {
                     try {
@@ -166,13 +184,16 @@ public class Messenger implements Runnable {
                     }
                 }
                 if (queue.size() > 0) {
-                    task = queue.poll();
+                    queued = queue.poll();
                 }
             }
-            if (task == TERMINATE) {
+            if (queued != null && queued.task == TERMINATE) {
                 break;
             }
-            if (task != null) {
+            if (queued != null) {
+                Task task = queued.task;
+                queueTimeNanos.addAndGet(System.nanoTime() - queued.enqueuedNanos);
+                tasksRun.incrementAndGet();
                 try {
                     task.run();
                 } catch (Exception e) {
@@ -194,8 +215,7 @@ public class Messenger implements Runnable {
         }
         synchronized (this) {
             while (!queue.isEmpty()) {
-                Task task = queue.poll();
-                task.destroy();
+                queue.poll().task.destroy();
             }
             notify();
         }
@@ -219,6 +239,17 @@ public class Messenger implements Runnable {
         void destroy();
     }
 
+    private static class QueuedTask {
+
+        final Task task;
+        final long enqueuedNanos;
+
+        QueuedTask(Task task, long enqueuedNanos) {
+            this.task = task;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+
     private static class SyncTask implements Task {
 
         final CountDownLatch latch = new CountDownLatch(1);
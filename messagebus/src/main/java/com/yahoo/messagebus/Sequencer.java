@@ -1,10 +1,10 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.messagebus;
 
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.ArrayDeque;
 import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -12,6 +12,9 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * linked message handlers. Each message that carries a sequencing id is queued in an internal list of messages for that
  * id, and messages are only sent when they are at the front of their list. When a reply arrives, the current front of
  * the list is removed and the next message, if any, is sent.
+ * <p>
+ * The state of each sequence id is only ever updated atomically through its entry in a concurrent map, so messages
+ * and replies for different ids do not contend for a common lock.
  *
  * @author Simon Thoresen Hult
  */
@@ -19,7 +22,9 @@ public class Sequencer implements MessageHandler, ReplyHandler {
 
     private final AtomicBoolean destroyed = new AtomicBoolean(false);
     private final MessageHandler sender;
-    private final Map<Long, Queue<Message>> seqMap = new HashMap<>();
+    private final Map<Long, Queue<Message>> seqMap = new ConcurrentHashMap<>();
+    /** Marks a sequence id with a message in flight and none queued, to avoid allocating a queue for every message. */
+    private final Queue<Message> inFlight = new ArrayDeque<>(0);
     private final Messenger msn;
     private final static ThreadLocal<Boolean> isSending = ThreadLocal.withInitial(() -> Boolean.FALSE);
 
@@ -44,15 +49,13 @@ public class Sequencer implements MessageHandler, ReplyHandler {
      */
     public boolean destroy() {
         if (!destroyed.getAndSet(true)) {
-            synchronized (this) {
-                for (Queue<Message> queue : seqMap.values()) {
-                    if (queue != null) {
-                        for (Message msg : queue) {
-                            msg.discard();
-                        }
+            for (Long seqId : seqMap.keySet()) {
+                seqMap.computeIfPresent(seqId, (id, queue) -> {
+                    for (Message msg : queue) {
+                        msg.discard();
                     }
-                }
-                seqMap.clear();
+                    return null;
+                });
             }
             return true;
         }
@@ -71,19 +74,24 @@ public class Sequencer implements MessageHandler, ReplyHandler {
     private boolean filter(Message msg) {
         long seqId = msg.getSequenceId();
         msg.setContext(seqId);
-        synchronized (this) {
-            if (seqMap.containsKey(seqId)) {
-                Queue<Message> queue = seqMap.computeIfAbsent(seqId, k -> new LinkedList<>());
-                if (msg.getTrace().shouldTrace(TraceLevel.COMPONENT)) {
-                    msg.getTrace().trace(TraceLevel.COMPONENT,
-                                         "Sequencer queued message with sequence id '" + seqId + "'.");
-                }
-                queue.add(msg);
-                return false;
-            }
-            seqMap.put(seqId, null);
+        if (seqMap.putIfAbsent(seqId, inFlight) == null) {
+            return true; // The common case, with no message in flight for this id, needs no capturing lambda.
         }
-        return true;
+        boolean[] queued = new boolean[1];
+        seqMap.compute(seqId, (id, current) -> {
+            if (current == null) {
+                return inFlight;
+            }
+            Queue<Message> queue = (current == inFlight) ? new ArrayDeque<>() : current;
+            if (msg.getTrace().shouldTrace(TraceLevel.COMPONENT)) {
+                msg.getTrace().trace(TraceLevel.COMPONENT,
+                                     "Sequencer queued message with sequence id '" + seqId + "'.");
+            }
+            queue.add(msg);
+            queued[0] = true;
+            return queue;
+        });
+        return ! queued[0];
     }
 
     /**
@@ -152,15 +160,15 @@ public class Sequencer implements MessageHandler, ReplyHandler {
     }
 
     private void sendNextInSequence(long seqId) {
-        Message msg = null;
-        synchronized (this) {
-            Queue<Message> queue = seqMap.get(seqId);
-            if (queue == null || queue.isEmpty()) {
-                seqMap.remove(seqId);
-            } else {
-                msg = queue.remove();
-            }
+        if (seqMap.remove(seqId, inFlight)) {
+            return; // The common case, with no queued messages for this id, needs no capturing lambda.
         }
+        Message[] next = new Message[1];
+        seqMap.computeIfPresent(seqId, (id, queue) -> {
+            next[0] = queue.poll();
+            return (next[0] == null) ? null : queue;
+        });
+        Message msg = next[0];
         if (msg != null) {
             Boolean alreadySending = isSending.get();
             if (alreadySending && (msn != null)) {
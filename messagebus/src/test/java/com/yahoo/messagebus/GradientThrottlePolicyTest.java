@@ -0,0 +1,121 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.messagebus;
+
+import com.yahoo.concurrent.ManualTimer;
+import com.yahoo.messagebus.ThrottlePolicySimulation.MockServer;
+import com.yahoo.messagebus.ThrottlePolicySimulation.Summary;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static com.yahoo.messagebus.ThrottlePolicySimulation.assertInRange;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Tests the {@link GradientThrottlePolicy} against the simulated server of {@link ThrottlePolicySimulation}.
+ */
+public class GradientThrottlePolicyTest {
+
+    @Test
+    void singlePolicySingleWorkerWithIncreasingParallelism() {
+        for (int exponent = 0; exponent < 4; exponent++) {
+            ManualTimer timer = new ManualTimer();
+            GradientThrottlePolicy policy = policy(timer);
+            int scaleFactor = (int) Math.pow(10, exponent);
+            long operations = 3_000L * scaleFactor;
+            int workPerSuccess = 6;
+            int numberOfWorkers = 1;
+            int maximumTasksPerWorker = 100000;
+            int workerParallelism = scaleFactor;
+            Summary summary = run(operations, workPerSuccess, numberOfWorkers, maximumTasksPerWorker, workerParallelism,
+                                  timer, List.of(policy));
+
+            double minMaxPending = numberOfWorkers * workerParallelism;
+            assertInRange(minMaxPending, summary.averagePending, 3 * minMaxPending + 20);
+            assertInRange(1, summary.inefficiency, 1.3);
+            assertInRange(0, summary.waste, 0);
+            assertInRange(workPerSuccess - 1, policy.getBaseRttMillis(), 2 * workPerSuccess);
+        }
+    }
+
+    /** Latency rises long before the queues overflow, and the policy should keep well below that. */
+    @Test
+    void singlePolicyManyWorkersWithLongTaskQueues() {
+        ManualTimer timer = new ManualTimer();
+        GradientThrottlePolicy policy = policy(timer);
+        long operations = 1_000_000;
+        int workPerSuccess = 6;
+        int numberOfWorkers = 10;
+        int maximumTasksPerWorker = 100_000;
+        int workerParallelism = 32;
+        Summary summary = run(operations, workPerSuccess, numberOfWorkers, maximumTasksPerWorker, workerParallelism,
+                              timer, List.of(policy));
+
+        double minMaxPending = numberOfWorkers * workerParallelism;
+        assertInRange(minMaxPending, summary.averagePending, 3 * minMaxPending);
+        assertInRange(minMaxPending, summary.averageWindows[0], 3 * minMaxPending);
+        assertInRange(1, summary.inefficiency, 1.1);
+        assertInRange(0, summary.waste, 0);
+        assertInRange(policy.getBaseRttMillis(), policy.getLatestRttMillis(), 3 * policy.getBaseRttMillis());
+    }
+
+    @Test
+    void tenPoliciesVeryParallelServerWithShortTaskQueue() {
+        long operations = 1_000_000;
+        int workPerSuccess = 6;
+        int numberOfWorkers = 6;
+        int maximumTasksPerWorker = 240;
+        int workerParallelism = 80;
+        ManualTimer timer = new ManualTimer();
+        List<GradientThrottlePolicy> policies = IntStream.range(0, 10)
+                                                         .mapToObj(__ -> policy(timer))
+                                                         .toList();
+        Summary summary = run(operations, workPerSuccess, numberOfWorkers, maximumTasksPerWorker, workerParallelism,
+                              timer, policies);
+
+        double minMaxPending = numberOfWorkers * workerParallelism;
+        double maxMaxPending = numberOfWorkers * maximumTasksPerWorker;
+        assertInRange(minMaxPending, summary.averagePending, maxMaxPending);
+        assertInRange(1, summary.inefficiency, 1.1);
+        assertInRange(0, summary.waste, 0.05);
+    }
+
+    /** The server slows down periodically, like a content node which flushes or merges; the policy must back off without overloading it. */
+    @Test
+    void singlePolicyWithPeriodicallySlowServer() {
+        ManualTimer timer = new ManualTimer();
+        GradientThrottlePolicy policy = policy(timer);
+        MockServer server = new MockServer(6, 8, 200, 16) {
+            @Override void tick() {
+                workPerSuccess = (timer.milliTime() / 20_000) % 2 == 0 ? 6 : 18;
+                super.tick();
+            }
+        };
+        Summary summary = new ThrottlePolicySimulation(server, timer).run(500_000, GradientThrottlePolicy::getWindowSize, List.of(policy));
+
+        assertInRange(0, summary.waste, 0.01);
+        assertInRange(8 * 16, summary.averagePending, 8 * 200);
+    }
+
+    static GradientThrottlePolicy policy(ManualTimer timer) {
+        return new GradientThrottlePolicy(() -> timer.milliTime() * 1_000_000);
+    }
+
+    static Summary run(long operations, int workPerSuccess, int numberOfWorkers, int maximumTasksPerWorker, int workerParallelism,
+                       ManualTimer timer, List<GradientThrottlePolicy> policies) {
+        return new ThrottlePolicySimulation(new MockServer(workPerSuccess, numberOfWorkers, maximumTasksPerWorker, workerParallelism), timer)
+                .run(operations, GradientThrottlePolicy::getWindowSize, policies);
+    }
+
+    @Test
+    void windowSizeIsBounded() {
+        GradientThrottlePolicy policy = policy(new ManualTimer()).setMinWindowSize(30).setMaxPendingCount(40);
+        assertEquals(30, policy.getWindowSize());
+        assertEquals(40, policy.getMaxWindowSize());
+        assertThrows(IllegalArgumentException.class, () -> policy.setRttTolerance(0.5));
+        assertThrows(IllegalArgumentException.class, () -> policy.setMinWindowSize(0));
+    }
+
+}
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -95,6 +96,31 @@ public class MessengerTestCase {
         assertTrue(tryMessenger(msn));
     }
 
+    @Test
+    void requireThatQueueTimeAndSizeAreTracked() throws InterruptedException {
+        Messenger msn = new Messenger();
+        msn.start();
+        CountDownLatch release = new CountDownLatch(1);
+        MyTask blocked = new MyTask() {
+            @Override public void run() {
+                try { release.await(); } catch (InterruptedException e) { throw new IllegalStateException(e); }
+                super.run();
+            }
+        };
+        msn.enqueue(blocked);
+        MyTask queued = new MyTask();
+        msn.enqueue(queued);
+        while (msn.queueSize() > 1) Thread.sleep(1); // The messenger thread takes the blocked task, and the other one waits.
+        assertEquals(1, msn.queueSize());
+        release.countDown();
+        assertTrue(queued.destroyLatch.await(60, TimeUnit.SECONDS));
+        msn.sync();
+        assertEquals(0, msn.queueSize());
+        assertEquals(3, msn.tasksRun()); // Including the task used to sync.
+        assertTrue(msn.queueTimeNanos() > 0);
+        assertTrue(msn.destroy());
+    }
+
     private static boolean tryMessenger(Messenger msn) {
         MyTask task = new MyTask();
         msn.enqueue(task);
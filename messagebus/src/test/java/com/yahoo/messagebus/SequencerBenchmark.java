@@ -0,0 +1,83 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.messagebus;
+
+import com.yahoo.messagebus.test.SimpleMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A contention benchmark of the {@link Sequencer}: many threads send messages with skewed sequence ids through a
+ * single sequencer, and replies are returned immediately by the sending thread, like they are when feeding
+ * through an async session with a fast backend.
+ */
+public class SequencerBenchmark {
+
+    private final int threadCount;
+    private final int messagesPerThread;
+    private final int idCount;
+
+    public SequencerBenchmark(int threadCount, int messagesPerThread, int idCount) {
+        this.threadCount = threadCount;
+        this.messagesPerThread = messagesPerThread;
+        this.idCount = idCount;
+    }
+
+    /** Returns the number of messages per second sent through the sequencer */
+    public double run() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(threadCount * messagesPerThread);
+        Messenger messenger = new Messenger();
+        messenger.start();
+        Sequencer sequencer = new Sequencer(message -> {
+            Reply reply = new EmptyReply();
+            reply.swapState(message);
+            reply.setMessage(message);
+            reply.popHandler().handleReply(reply);
+        }, messenger);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            threads.add(new Thread(() -> {
+                for (int j = 0; j < messagesPerThread; j++) {
+                    // Skewed towards low ids, so a few ids are hot, like a feed with some frequently updated documents.
+                    long seqId = (long) (Math.pow(ThreadLocalRandom.current().nextDouble(), 3) * idCount);
+                    Message message = new SequencedMessage(seqId);
+                    message.pushHandler(reply -> done.countDown());
+                    sequencer.handleMessage(message);
+                }
+            }));
+        }
+        long startNanos = System.nanoTime();
+        threads.forEach(Thread::start);
+        done.await();
+        long elapsedNanos = System.nanoTime() - startNanos;
+        messenger.destroy();
+        return threadCount * messagesPerThread * 1e9 / elapsedNanos;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        for (int threads : new int[] { 1, 4, 16, 64 }) {
+            SequencerBenchmark benchmark = new SequencerBenchmark(threads, 2_000_000 / threads, 10_000);
+            benchmark.run(); // Warmup
+            System.out.println(String.format(Locale.ENGLISH, "%3d threads: %12.0f messages/s", threads, benchmark.run()));
+        }
+    }
+
+    private static class SequencedMessage extends SimpleMessage {
+
+        private final long seqId;
+
+        SequencedMessage(long seqId) {
+            super("foo");
+            this.seqId = seqId;
+        }
+
+        @Override public boolean hasSequenceId() { return true; }
+        @Override public long getSequenceId() { return seqId; }
+
+    }
+
+}
@@ -4,14 +4,21 @@ package com.yahoo.messagebus;
 import com.yahoo.messagebus.test.SimpleMessage;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -156,6 +163,56 @@ public class SequencerTestCase {
         messenger.destroy();
     }
 
+    @Test
+    void testConcurrentSequencingWithSkewedIds() throws InterruptedException {
+        int threads = 8, messagesPerThread = 5000;
+        CountDownLatch latch = new CountDownLatch(threads * messagesPerThread);
+        ExecutorService replier = Executors.newFixedThreadPool(4);
+        Map<Long, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+        Map<String, Integer> lastSent = new ConcurrentHashMap<>();
+        Queue<String> errors = new ConcurrentLinkedQueue<>();
+        MessageHandler sender = message -> {
+            OrderedMessage msg = (OrderedMessage) message;
+            if (inFlight.computeIfAbsent(msg.seqId, __ -> new AtomicInteger()).incrementAndGet() != 1)
+                errors.add("Several messages in flight for id " + msg.seqId);
+            Integer previous = lastSent.put(msg.producer + "/" + msg.seqId, msg.index);
+            if (previous != null && previous >= msg.index)
+                errors.add("Message " + msg.index + " from " + msg.producer + " sent after " + previous);
+            Runnable reply = () -> {
+                inFlight.get(msg.seqId).decrementAndGet();
+                Reply r = new EmptyReply();
+                r.swapState(msg);
+                r.setMessage(msg);
+                r.popHandler().handleReply(r);
+            };
+            if (ThreadLocalRandom.current().nextBoolean()) replier.execute(reply);
+            else reply.run();
+        };
+        Messenger messenger = new Messenger();
+        messenger.start();
+        Sequencer sequencer = new Sequencer(sender, messenger);
+
+        List<Thread> producers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            int producer = i;
+            producers.add(new Thread(() -> {
+                for (int j = 0; j < messagesPerThread; j++) {
+                    long seqId = (long) (Math.pow(ThreadLocalRandom.current().nextDouble(), 4) * 32); // Mostly low ids.
+                    Message msg = new OrderedMessage(seqId, producer, j);
+                    msg.pushHandler(reply -> latch.countDown());
+                    sequencer.handleMessage(msg);
+                }
+            }));
+        }
+        producers.forEach(Thread::start);
+        for (Thread producer : producers) producer.join();
+
+        assertTrue(latch.await(60, TimeUnit.SECONDS), "All messages should obtain a reply within 60s");
+        assertEquals(List.of(), List.copyOf(errors));
+        replier.shutdown();
+        messenger.destroy();
+    }
+
     private static class TestQueue extends LinkedList<Routable> implements ReplyHandler {
 
         void checkReply(boolean hasSeqId, long seqId) {
@@ -212,6 +269,18 @@ public class SequencerTestCase {
         }
     }
 
+    private static class OrderedMessage extends MyMessage {
+
+        final int producer;
+        final int index;
+
+        OrderedMessage(long seqId, int producer, int index) {
+            super(true, seqId);
+            this.producer = producer;
+            this.index = index;
+        }
+    }
+
     private static class MyMessage extends SimpleMessage {
 
         final boolean hasSeqId;
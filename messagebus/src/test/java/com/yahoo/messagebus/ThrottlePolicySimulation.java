@@ -0,0 +1,170 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.messagebus;
+
+import com.yahoo.concurrent.ManualTimer;
+import com.yahoo.messagebus.test.SimpleMessage;
+import com.yahoo.messagebus.test.SimpleReply;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs throttle policies against a simulated server, the {@link MockServer} below, as the {@link DynamicThrottlePolicyTest}
+ * does, but for any kind of policy, and with the message context passed on to its replies, as a real session does.
+ * The server may also change its cost per operation while running.
+ */
+class ThrottlePolicySimulation {
+
+    private final Message message = new SimpleMessage("message");
+    private final Reply success = new SimpleReply("success");
+    private final Reply error = new SimpleReply("error");
+    {
+        error.addError(new Error(0, "overload"));
+    }
+
+    private final MockServer resource;
+    private final ManualTimer timer;
+
+    ThrottlePolicySimulation(MockServer resource, ManualTimer timer) {
+        this.resource = resource;
+        this.timer = timer;
+    }
+
+    static void assertInRange(double lower, double actual, double upper) {
+        System.err.printf("%10.4f  <= %10.4f  <= %10.4f\n", lower, actual, upper);
+        assertTrue(lower <= actual, actual + " should be not be smaller than " + lower);
+        assertTrue(upper >= actual, actual + " should be not be greater than " + upper);
+    }
+
+    /** Sends the given number of operations through the given policies, one tick of the timer at a time, until all are done. */
+    <T extends ThrottlePolicy> Summary run(long operations, ToDoubleFunction<T> windowSize, List<T> policies) {
+        System.err.printf("\n### Running %d operations of %d ticks each against %d workers with parallelism %d and queue size %d\n",
+                          operations, resource.workPerSuccess, resource.numberOfWorkers, resource.workerParallelism, resource.maximumTaskPerWorker);
+
+        List<Integer> order = IntStream.range(0, policies.size()).boxed().collect(Collectors.toCollection(ArrayList::new));
+        AtomicLong outstanding = new AtomicLong(operations);
+        AtomicLong errors = new AtomicLong(0);
+        long ticks = 0;
+        long totalPending = 0;
+        double[] windows = new double[policies.size()];
+        int[] pending = new int[policies.size()];
+        while (outstanding.get() + resource.pending() > 0) {
+            Collections.shuffle(order);
+            for (int j = 0; j < policies.size(); j++) {
+                int i = order.get(j);
+                T policy = policies.get(i);
+                windows[i] += windowSize.applyAsDouble(policy);
+                while (policy.canSend(message, pending[i])) {
+                    outstanding.decrementAndGet();
+                    policy.processMessage(message);
+                    Object context = message.getContext();
+                    ++pending[i];
+                    resource.send(successful -> {
+                        --pending[i];
+                        Reply reply = successful ? success : error;
+                        if ( ! successful) {
+                            errors.incrementAndGet();
+                            outstanding.incrementAndGet();
+                        }
+                        reply.setContext(context);
+                        policy.processReply(reply);
+                    });
+                }
+            }
+            ++ticks;
+            totalPending += resource.pending();
+            resource.tick();
+            timer.advance(1);
+        }
+
+        for (int i = 0; i < windows.length; i++)
+            windows[i] /= ticks;
+
+        return new Summary(timer.milliTime() / (resource.workPerSuccess * operations / (double) resource.numberOfWorkers) * resource.workerParallelism,
+                           errors.get() / (double) operations,
+                           totalPending / (double) ticks,
+                           windows);
+    }
+
+    static class Summary {
+        final double inefficiency;
+        final double waste;
+        final double averagePending;
+        final double[] averageWindows;
+        Summary(double inefficiency, double waste, double averagePending, double[] averageWindows) {
+            this.inefficiency = inefficiency;       // Time spent working / minimum time possible
+            this.waste = waste;                     // Number of error replies / number of successful replies
+            this.averagePending = averagePending;   // Average number of pending operations in the server
+            this.averageWindows = averageWindows;   // Average number of pending operations per policy
+        }
+    }
+
+    /**
+     * Resource shared between clients with throttle policies, with simulated throughput and efficiency.
+     * This is the model of the server in {@link DynamicThrottlePolicyTest}, except that the work per successful
+     * operation may be changed between ticks.
+     */
+    static class MockServer {
+
+        final Random random = new Random();
+        final int numberOfWorkers;
+        final int maximumTaskPerWorker;
+        final int workerParallelism;
+        final int[] currentTask;
+        final List<ArrayDeque<Consumer<Boolean>>> outstandingTasks;
+        int workPerSuccess;
+        int pending = 0;
+
+        MockServer(int workPerSuccess, int numberOfWorkers, int maximumTaskPerWorker, int workerParallelism) {
+            this.workPerSuccess = workPerSuccess;
+            this.numberOfWorkers = numberOfWorkers;
+            this.maximumTaskPerWorker = maximumTaskPerWorker;
+            this.workerParallelism = workerParallelism;
+            this.currentTask = new int[numberOfWorkers];
+            this.outstandingTasks = IntStream.range(0, numberOfWorkers)
+                                             .mapToObj(__ -> new ArrayDeque<Consumer<Boolean>>())
+                                             .toList();
+        }
+
+        void tick() {
+            for (int i = 0; i < numberOfWorkers; i++)
+                tick(i);
+        }
+
+        private void tick(int worker) {
+            Deque<Consumer<Boolean>> tasks = outstandingTasks.get(worker);
+            for (int i = 0; i < Math.min(workerParallelism, tasks.size()); i++) {
+                if (currentTask[worker] == 0) {
+                    if (tasks.size() > maximumTaskPerWorker) {
+                        tasks.pop().accept(false);
+                        continue; // Spend work to signal failure to one excess task.
+                    }
+                    currentTask[worker] = workPerSuccess; // Start work on next task.
+                }
+                if (--currentTask[worker] == 0)
+                    tasks.poll().accept(true); // Signal success to the completed task.
+            }
+        }
+
+        void send(Consumer<Boolean> replyHandler) {
+            ++pending;
+            outstandingTasks.get(random.nextInt(numberOfWorkers))
+                            .addLast(outcome -> { --pending; replyHandler.accept(outcome); });
+        }
+
+        int pending() { return pending; }
+
+    }
+
+}
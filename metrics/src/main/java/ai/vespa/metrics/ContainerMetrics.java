@@ -89,6 +89,7 @@ public enum ContainerMetrics implements VespaMetrics {
     
     HTTPAPI_LATENCY("httpapi_latency", Unit.MILLISECOND, "Duration for requests to the HTTP document APIs"),
     HTTPAPI_PENDING("httpapi_pending", Unit.OPERATION, "Document operations pending execution"),
+    HTTPAPI_DISPATCH_LATENCY("httpapi_dispatch_latency", Unit.MILLISECOND, "Time document operations spend enqueued before dispatch"),
     HTTPAPI_NUM_OPERATIONS("httpapi_num_operations", Unit.OPERATION, "Total number of document operations performed"),
     HTTPAPI_NUM_UPDATES("httpapi_num_updates", Unit.OPERATION, "Document update operations performed"),
     HTTPAPI_NUM_REMOVES("httpapi_num_removes", Unit.OPERATION, "Document remove operations performed"),
@@ -207,7 +208,13 @@ public enum ContainerMetrics implements VespaMetrics {
     SERVER_STARTED_MILLIS("serverStartedMillis", Unit.MILLISECOND, "Time since the service was started"),
 
     EMBEDDER_LATENCY("embedder.latency", Unit.MILLISECOND, "Time spent creating an embedding"),
-    EMBEDDER_SEQUENCE_LENGTH("embedder.sequence_length", Unit.BYTE, "Size of sequence produced by tokenizer");
+    EMBEDDER_SEQUENCE_LENGTH("embedder.sequence_length", Unit.BYTE, "Size of sequence produced by tokenizer"),
+    EMBEDDER_CACHE_HITS("embedder.cache.hits", Unit.OPERATION, "Number of embeddings found in the shared embedding cache"),
+    EMBEDDER_CACHE_MISSES("embedder.cache.misses", Unit.OPERATION, "Number of embeddings not found in the shared embedding cache"),
+
+    ONNX_EVALUATION_LATENCY("onnx.evaluation.latency", Unit.MILLISECOND, "Time spent evaluating ONNX models, excluding time waiting for threads"),
+    ONNX_EVALUATION_QUEUE_LATENCY("onnx.evaluation.queue_latency", Unit.MILLISECOND, "Time ONNX model evaluations wait for threads from the shared thread budget"),
+    ONNX_EVALUATION_QUEUE_SIZE("onnx.evaluation.queue_size", Unit.OPERATION, "Number of ONNX model evaluations waiting for threads from the shared thread budget");
 
     private final String name;
     private final Unit unit;
@@ -119,6 +119,11 @@ public class VespaMetricSet {
         // Embedders
         addMetric(metrics, ContainerMetrics.EMBEDDER_LATENCY, EnumSet.of(max, sum, count));
         addMetric(metrics, ContainerMetrics.EMBEDDER_SEQUENCE_LENGTH, EnumSet.of(max, sum, count));
+        addMetric(metrics, ContainerMetrics.EMBEDDER_CACHE_HITS, EnumSet.of(rate, count));
+        addMetric(metrics, ContainerMetrics.EMBEDDER_CACHE_MISSES, EnumSet.of(rate, count));
+        addMetric(metrics, ContainerMetrics.ONNX_EVALUATION_LATENCY, EnumSet.of(max, sum, count));
+        addMetric(metrics, ContainerMetrics.ONNX_EVALUATION_QUEUE_LATENCY, EnumSet.of(max, sum, count));
+        addMetric(metrics, ContainerMetrics.ONNX_EVALUATION_QUEUE_SIZE, EnumSet.of(max, average));
 
         return metrics;
     }
@@ -161,6 +166,7 @@ public class VespaMetricSet {
 
         addMetric(metrics, ContainerMetrics.HTTPAPI_LATENCY, EnumSet.of(max, sum, count));
         addMetric(metrics, ContainerMetrics.HTTPAPI_PENDING, EnumSet.of(max, sum, count));
+        addMetric(metrics, ContainerMetrics.HTTPAPI_DISPATCH_LATENCY, EnumSet.of(max, sum, count));
         addMetric(metrics, ContainerMetrics.HTTPAPI_NUM_OPERATIONS.rate());
         addMetric(metrics, ContainerMetrics.HTTPAPI_NUM_UPDATES.rate());
         addMetric(metrics, ContainerMetrics.HTTPAPI_NUM_REMOVES.rate());
@@ -14,6 +14,9 @@ import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -40,6 +43,8 @@ public class BertBaseEmbedder extends AbstractComponent implements Embedder {
     private final String tokenTypeIdsName;
     private final String outputName;
     private final PoolingStrategy poolingStrategy;
+    private final int maxBatchSize;
+    private final EmbeddingCache cache;
 
     private final Embedder.Runtime runtime;
     private final WordPieceEmbedder tokenizer;
@@ -56,6 +61,8 @@ public class BertBaseEmbedder extends AbstractComponent implements Embedder {
         tokenTypeIdsName = config.transformerTokenTypeIds();
         outputName = config.transformerOutput();
         poolingStrategy = PoolingStrategy.fromString(config.poolingStrategy().toString());
+        maxBatchSize = config.batchingMaxSize();
+        cache = new EmbeddingCache(config.cacheMaxBytes(), runtime);
 
         OnnxEvaluatorOptions options = new OnnxEvaluatorOptions();
         options.setExecutionMode(config.onnxExecutionMode().toString());
@@ -99,18 +106,50 @@ public class BertBaseEmbedder extends AbstractComponent implements Embedder {
 
     @Override
     public Tensor embed(String text, Context context, TensorType type) {
+        validateType(type);
+        return cache.computeIfAbsent(context, text, type, () -> evaluate(text, context, type));
+    }
+
+    private Tensor evaluate(String text, Context context, TensorType type) {
+        var start = System.nanoTime();
+        List<Integer> tokens = embedWithSeparatorTokens(text, context, maxTokens);
+        runtime.sampleSequenceLength(tokens.size(), context);
+        var embedding = embedTokens(tokens, type);
+        runtime.sampleEmbeddingLatency((System.nanoTime() - start)/1_000_000d, context);
+        return embedding;
+    }
+
+    @Override
+    public List<Tensor> embed(List<String> texts, Context context, TensorType type) {
+        validateType(type);
+        return cache.computeIfAbsent(context, texts, type, missing -> evaluate(missing, context, type));
+    }
+
+    private List<Tensor> evaluate(List<String> texts, Context context, TensorType type) {
         var start = System.nanoTime();
+        List<List<Integer>> sequences = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            List<Integer> tokens = embedWithSeparatorTokens(text, context, maxTokens);
+            runtime.sampleSequenceLength(tokens.size(), context);
+            sequences.add(tokens);
+        }
+        Tensor[] embeddings = new Tensor[texts.size()];
+        for (List<Integer> batch : TokenBatch.partition(sequences, maxBatchSize)) {
+            List<Tensor> batchEmbeddings = embedBatch(batch.stream().map(sequences::get).toList(), type);
+            for (int i = 0; i < batch.size(); i++)
+                embeddings[batch.get(i)] = batchEmbeddings.get(i);
+        }
+        runtime.sampleEmbeddingLatency((System.nanoTime() - start)/1_000_000d, context);
+        return Arrays.asList(embeddings);
+    }
+
+    private static void validateType(TensorType type) {
         if (type.dimensions().size() != 1) {
             throw new IllegalArgumentException("Error in embedding to type '" + type + "': should only have one dimension.");
         }
         if (!type.dimensions().get(0).isIndexed()) {
             throw new IllegalArgumentException("Error in embedding to type '" + type + "': dimension should be indexed.");
         }
-        List<Integer> tokens = embedWithSeparatorTokens(text, context, maxTokens);
-        runtime.sampleSequenceLength(tokens.size(), context);
-        var embedding = embedTokens(tokens, type);
-        runtime.sampleEmbeddingLatency((System.nanoTime() - start)/1_000_000d, context);
-        return embedding;
     }
 
     @Override public void deconstruct() { evaluator.close(); }
@@ -139,6 +178,31 @@ public class BertBaseEmbedder extends AbstractComponent implements Embedder {
         return poolingStrategy.toSentenceEmbedding(type, tokenEmbeddings, attentionMask);
     }
 
+    /** Embeds the given token sequences in a single model evaluation, padding them to the longest sequence */
+    List<Tensor> embedBatch(List<List<Integer>> batch, TensorType type) {
+        TokenBatch tokens = new TokenBatch(batch);
+        List<List<Integer>> attentionMasks = new ArrayList<>(batch.size());
+        List<List<Integer>> tokenTypeIds = new ArrayList<>(batch.size());
+        for (List<Integer> sequence : batch) {
+            attentionMasks.add(sequence.stream().map(token -> token > 0 ? 1 : 0).toList());
+            tokenTypeIds.add(Collections.nCopies(sequence.size(), 0)); // Assume only one token type
+        }
+
+        Map<String, Tensor> inputs = new HashMap<>();
+        inputs.put(inputIdsName, tokens.padded(batch));
+        inputs.put(attentionMaskName, tokens.padded(attentionMasks));
+        if (!"".equals(tokenTypeIdsName))
+            inputs.put(tokenTypeIdsName, tokens.padded(tokenTypeIds));
+        IndexedTensor tokenEmbeddings = (IndexedTensor) evaluator.evaluate(inputs).get(outputName);
+
+        List<Tensor> embeddings = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            Tensor attentionMask = createAttentionMask(createTensorRepresentation(batch.get(i), "d1"));
+            embeddings.add(poolingStrategy.toSentenceEmbedding(type, tokens.row(tokenEmbeddings, i), attentionMask));
+        }
+        return embeddings;
+    }
+
     private List<Integer> embedWithSeparatorTokens(String text, Context context, int maxLength) {
         List<Integer> tokens = new ArrayList<>();
         tokens.add(startSequenceToken);
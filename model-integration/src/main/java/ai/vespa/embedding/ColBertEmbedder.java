@@ -20,6 +20,8 @@ import com.yahoo.tensor.TensorAddress;
 import com.yahoo.tensor.TensorType;
 
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.List;
 import java.util.ArrayList;
@@ -51,6 +53,7 @@ public class ColBertEmbedder extends AbstractComponent implements Embedder {
     private final int maxTransformerTokens;
     private final int maxQueryTokens;
     private final int maxDocumentTokens;
+    private final int maxBatchSize;
 
     private final long startSequenceToken;
     private final long endSequenceToken;
@@ -80,6 +83,7 @@ public class ColBertEmbedder extends AbstractComponent implements Embedder {
         padSequenceToken = config.transformerPadToken();
         querySequenceToken = config.queryTokenId();
         documentSequenceToken = config.documentTokenId();
+        maxBatchSize = config.batchingMaxSize();
 
         var tokenizerPath = Paths.get(config.tokenizerPath().toString());
         var builder = new HuggingFaceTokenizer.Builder()
@@ -142,6 +146,27 @@ public class ColBertEmbedder extends AbstractComponent implements Embedder {
             return embedDocument(text, context, tensorType);
         }
     }
+
+    @Override
+    public List<Tensor> embed(List<String> texts, Context context, TensorType tensorType) {
+        if ( ! validTensorType(tensorType)) {
+            throw new IllegalArgumentException("Invalid colbert embedder tensor target destination. " +
+                                               "Wanted a mixed 2-d mapped-indexed tensor, got " + tensorType);
+        }
+        boolean isQuery = context.getDestination().startsWith("query");
+        if (isQuery && tensorType.valueType() == TensorType.Value.INT8)
+            throw new IllegalArgumentException("ColBert query embed does not accept int8 tensor value type");
+
+        List<Tensor> embeddings = new ArrayList<>(texts.size());
+        for (EmbeddingResult result : lookupOrEvaluate(context, texts, isQuery)) {
+            var modelOutput = (IndexedTensor)result.outputs.get(outputName);
+            if (tensorType.valueType() == TensorType.Value.INT8)
+                embeddings.add(toBitTensor(modelOutput, tensorType, result.inputIdSize));
+            else
+                embeddings.add(toFloatTensor(modelOutput, tensorType, result.inputIdSize));
+        }
+        return embeddings;
+    }
     @Override
     public void deconstruct() {
         evaluator.close();
@@ -206,6 +231,58 @@ public class ColBertEmbedder extends AbstractComponent implements Embedder {
         return context.computeCachedValueIfAbsent(key, () -> evaluate(context, text, isQuery));
     }
 
+    /**
+     * Evaluate the embedding model, in batches, for the texts which are not present in the context cache.
+     *
+     * @param context the context accompanying the request
+     * @param texts the texts that are embedded
+     * @return the model output for each text
+     */
+    protected List<EmbeddingResult> lookupOrEvaluate(Context context, List<String> texts, boolean isQuery) {
+        EmbeddingResult[] results = new EmbeddingResult[texts.size()];
+        Map<String, List<Integer>> missing = new LinkedHashMap<>(); // Positions of each distinct text not in the cache
+        for (int i = 0; i < texts.size(); i++) {
+            var cached = context.getCachedValue(new EmbedderCacheKey(context.getEmbedderId(), texts.get(i)));
+            if (cached != null)
+                results[i] = (EmbeddingResult) cached;
+            else
+                missing.computeIfAbsent(texts.get(i), __ -> new ArrayList<>()).add(i);
+        }
+        if (missing.isEmpty()) return Arrays.asList(results);
+
+        var start = System.nanoTime();
+        List<String> toEvaluate = new ArrayList<>(missing.keySet());
+        List<TransformerInput> inputs = new ArrayList<>(toEvaluate.size());
+        for (String text : toEvaluate) {
+            var encoding = tokenizer.encode(text, context.getLanguage());
+            runtime.sampleSequenceLength(encoding.ids().size(), context);
+            inputs.add(buildTransformerInput(encoding.ids(), isQuery ? maxQueryTokens : maxDocumentTokens, isQuery));
+        }
+        for (List<Integer> batch : TokenBatch.partition(inputs.stream().map(TransformerInput::inputIds).toList(), maxBatchSize)) {
+            List<EmbeddingResult> evaluated = evaluate(batch.stream().map(inputs::get).toList());
+            for (int i = 0; i < batch.size(); i++) {
+                String text = toEvaluate.get(batch.get(i));
+                context.putCachedValue(new EmbedderCacheKey(context.getEmbedderId(), text), evaluated.get(i));
+                for (int position : missing.get(text))
+                    results[position] = evaluated.get(i);
+            }
+        }
+        runtime.sampleEmbeddingLatency((System.nanoTime() - start) / 1_000_000d, context);
+        return Arrays.asList(results);
+    }
+
+    private List<EmbeddingResult> evaluate(List<TransformerInput> inputs) {
+        // Documents are not padded by buildTransformerInput, so shorter ones are padded here, with padding masked out
+        TokenBatch batch = new TokenBatch(inputs.stream().map(TransformerInput::inputIds).toList());
+        Map<String, Tensor> modelInputs = Map.of(inputIdsName, batch.padded(inputs.stream().map(TransformerInput::inputIds).toList()),
+                                               attentionMaskName, batch.padded(inputs.stream().map(TransformerInput::attentionMask).toList()));
+        IndexedTensor output = (IndexedTensor) evaluator.evaluate(modelInputs).get(outputName);
+        List<EmbeddingResult> results = new ArrayList<>(inputs.size());
+        for (int i = 0; i < inputs.size(); i++)
+            results.add(new EmbeddingResult(batch.length(i), Map.of(outputName, batch.row(output, i))));
+        return results;
+    }
+
     private EmbeddingResult evaluate(Context context, String text, boolean isQuery) {
         var start = System.nanoTime();
         var encoding = tokenizer.encode(text, context.getLanguage());
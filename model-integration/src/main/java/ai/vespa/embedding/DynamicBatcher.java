@@ -0,0 +1,163 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.embedding;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent calls into batches, which are evaluated together, e.g., by a single model invocation.
+ *
+ * The first waiting call collects a batch: it waits until the batch is full, or until the max delay has passed
+ * since the call arrived, and then evaluates the batch in its own thread, while the other calls in the batch wait
+ * for their results. Calls arriving meanwhile go into the next batch, which is collected by the first of them.
+ * No threads are used besides those of the callers.
+ *
+ * @param <T> the type of the inputs
+ * @param <R> the type of the results
+ */
+public class DynamicBatcher<T, R> {
+
+    private final int maxSize;
+    private final long maxDelayNanos;
+    private final Function<List<T>, List<R>> evaluator;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Deque<Call<T, R>> waiting = new ArrayDeque<>();
+    private boolean collecting = false;
+
+    /**
+     * Creates a new dynamic batcher.
+     *
+     * @param maxSize the max number of inputs in a batch
+     * @param maxDelay the max time a call waits for other calls to join its batch. Zero disables batching
+     * @param evaluator evaluates a batch of inputs, returning the results in the same order
+     */
+    public DynamicBatcher(int maxSize, Duration maxDelay, Function<List<T>, List<R>> evaluator) {
+        if (maxSize < 1) throw new IllegalArgumentException("Max batch size must be positive, but was " + maxSize);
+        if (maxDelay.isNegative()) throw new IllegalArgumentException("Max batching delay cannot be negative, but was " + maxDelay);
+        this.maxSize = maxSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.evaluator = evaluator;
+    }
+
+    /** Evaluates the given input, possibly together with those of concurrent calls, and returns its result */
+    public R evaluate(T input) {
+        if (maxSize == 1 || maxDelayNanos == 0)
+            return evaluator.apply(List.of(input)).get(0);
+
+        Call<T, R> call = new Call<>(input, System.nanoTime());
+        List<Call<T, R>> batch = null;
+        lock.lock();
+        try {
+            waiting.add(call);
+            if (waiting.size() >= maxSize) changed.signalAll(); // Wake the collector of the now full batch.
+            while ( ! call.done && batch == null) {
+                if ( ! collecting && waiting.peekFirst() == call)
+                    batch = collect(call);
+                else
+                    changed.awaitUninterruptibly();
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+        if (batch != null)
+            run(batch);
+        return call.result();
+    }
+
+    /** Waits until the batch collected by the given call is full or due, and removes and returns it. */
+    private List<Call<T, R>> collect(Call<T, R> collector) {
+        collecting = true;
+        try {
+            long remainingNanos;
+            while (waiting.size() < maxSize && (remainingNanos = collector.arrivalNanos + maxDelayNanos - System.nanoTime()) > 0)
+                changed.awaitNanos(remainingNanos);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // Evaluate what we have, and leave the interrupt to the caller.
+        }
+        finally {
+            collecting = false;
+        }
+        List<Call<T, R>> batch = new ArrayList<>(Math.min(maxSize, waiting.size()));
+        while (batch.size() < maxSize && ! waiting.isEmpty())
+            batch.add(waiting.poll());
+        changed.signalAll(); // Let the first remaining call collect the next batch.
+        return batch;
+    }
+
+    private void run(List<Call<T, R>> batch) {
+        List<T> inputs = new ArrayList<>(batch.size());
+        for (Call<T, R> call : batch)
+            inputs.add(call.input);
+
+        List<R> results = null;
+        Throwable failure = null;
+        try {
+            results = evaluator.apply(inputs);
+            if (results.size() != inputs.size())
+                throw new IllegalStateException("Expected " + inputs.size() + " results, but got " + results.size());
+        }
+        catch (RuntimeException | Error e) {
+            failure = e;
+        }
+
+        lock.lock();
+        try {
+            for (int i = 0; i < batch.size(); i++)
+                batch.get(i).complete(failure == null ? results.get(i) : null, failure);
+            changed.signalAll();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /** Returns the number of calls waiting for their batch to be evaluated */
+    int waiting() {
+        lock.lock();
+        try {
+            return waiting.size();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private static class Call<T, R> {
+
+        private final T input;
+        private final long arrivalNanos;
+        private R result;
+        private Throwable failure;
+        private boolean done = false;
+
+        private Call(T input, long arrivalNanos) {
+            this.input = input;
+            this.arrivalNanos = arrivalNanos;
+        }
+
+        private void complete(R result, Throwable failure) {
+            this.result = result;
+            this.failure = failure;
+            this.done = true;
+        }
+
+        /** Returns the result of this call. This has a happens-before relation with completion, by way of the lock. */
+        private R result() {
+            if (failure instanceof RuntimeException e) throw e;
+            if (failure instanceof Error e) throw e;
+            return result;
+        }
+
+    }
+
+}
@@ -0,0 +1,168 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.embedding;
+
+import com.yahoo.io.GrowableByteBuffer;
+import com.yahoo.language.Language;
+import com.yahoo.language.process.Embedder;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.serialization.TypedBinaryFormat;
+import net.jpountz.xxhash.XXHash64;
+import net.jpountz.xxhash.XXHashFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A size-bounded cache of embeddings, which lives as long as the embedder owning it, so embeddings of the same text
+ * are shared between all queries and document operations. This complements the cache in {@link Embedder.Context},
+ * which only lives for a single request.
+ *
+ * Embeddings are keyed on the embedder id, the language, the tensor type and a 128-bit hash of the text, so the texts
+ * are not kept. The language is part of the key since embedders may tokenize the text differently for each language.
+ * The embeddings are stored in binary form in off-heap memory, so the cache adds little to heap usage or GC work.
+ * That memory is split into segments, which are locked separately, and in which each new embedding overwrites
+ * the oldest ones.
+ */
+public class EmbeddingCache {
+
+    private static final int segmentCount = 16;
+    private static final XXHash64 hasher = XXHashFactory.fastestInstance().hash64();
+
+    private final Embedder.Runtime runtime;
+    private final Segment[] segments;
+
+    /**
+     * Creates a new embedding cache.
+     *
+     * @param maxBytes the max number of bytes of off-heap memory to use for embeddings, where 0 disables the cache
+     * @param runtime the runtime to report cache hits and misses to
+     */
+    public EmbeddingCache(long maxBytes, Embedder.Runtime runtime) {
+        if (maxBytes < 0 || maxBytes / segmentCount > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Embedding cache size must be between 0 and " +
+                                               (long) segmentCount * Integer.MAX_VALUE + " bytes, but was " + maxBytes);
+        this.runtime = runtime;
+        this.segments = new Segment[maxBytes == 0 ? 0 : segmentCount];
+        for (int i = 0; i < segments.length; i++)
+            segments[i] = new Segment((int) (maxBytes / segmentCount));
+    }
+
+    /** Returns whether this caches anything */
+    public boolean isEnabled() { return segments.length > 0; }
+
+    /** Returns the cached embedding of the given text, or computes and caches it if absent */
+    public Tensor computeIfAbsent(Embedder.Context context, String text, TensorType type, Supplier<Tensor> embedder) {
+        if ( ! isEnabled()) return embedder.get();
+
+        Key key = key(context, text, type);
+        Tensor embedding = segmentOf(key).get(key);
+        if (embedding != null) {
+            runtime.sampleCacheHit(context);
+            return embedding;
+        }
+        runtime.sampleCacheMiss(context);
+        embedding = embedder.get();
+        segmentOf(key).put(key, TypedBinaryFormat.encode(embedding));
+        return embedding;
+    }
+
+    /**
+     * Returns the cached embeddings of the given texts, in the same order, where those which are absent are
+     * computed together, by a single call to the given batch embedder, and then cached.
+     */
+    public List<Tensor> computeIfAbsent(Embedder.Context context, List<String> texts, TensorType type,
+                                        Function<List<String>, List<Tensor>> embedder) {
+        if ( ! isEnabled()) return embedder.apply(texts);
+
+        Tensor[] embeddings = new Tensor[texts.size()];
+        List<Integer> missing = new ArrayList<>();
+        Key[] keys = new Key[texts.size()];
+        for (int i = 0; i < texts.size(); i++) {
+            keys[i] = key(context, texts.get(i), type);
+            embeddings[i] = segmentOf(keys[i]).get(keys[i]);
+            if (embeddings[i] != null) {
+                runtime.sampleCacheHit(context);
+            }
+            else {
+                runtime.sampleCacheMiss(context);
+                missing.add(i);
+            }
+        }
+        if ( ! missing.isEmpty()) {
+            List<Tensor> computed = embedder.apply(missing.stream().map(texts::get).toList());
+            for (int i = 0; i < missing.size(); i++) {
+                int position = missing.get(i);
+                embeddings[position] = computed.get(i);
+                segmentOf(keys[position]).put(keys[position], TypedBinaryFormat.encode(computed.get(i)));
+            }
+        }
+        return Arrays.asList(embeddings);
+    }
+
+    private static Key key(Embedder.Context context, String text, TensorType type) {
+        byte[] utf8 = text.getBytes(UTF_8);
+        return new Key(context.getEmbedderId(), context.getLanguage(), type,
+                       hasher.hash(utf8, 0, utf8.length, 0), hasher.hash(utf8, 0, utf8.length, 1));
+    }
+
+    private Segment segmentOf(Key key) {
+        return segments[(int) Long.remainderUnsigned(key.textHash, segments.length)];
+    }
+
+    private record Key(String embedderId, Language language, TensorType type, long textHash, long otherTextHash) { }
+
+    private record Slot(Key key, int offset, int length) { }
+
+    /** A ring buffer of serialized embeddings in off-heap memory, where the oldest are overwritten by new ones */
+    private static class Segment {
+
+        private final ByteBuffer memory;
+        private final Map<Key, Slot> slots = new HashMap<>();
+        private final Deque<Slot> oldestFirst = new ArrayDeque<>();
+        private int position = 0; // Where the next embedding is written.
+
+        private Segment(int size) {
+            memory = ByteBuffer.allocateDirect(size);
+        }
+
+        synchronized Tensor get(Key key) {
+            Slot slot = slots.get(key);
+            if (slot == null) return null;
+            return TypedBinaryFormat.decode(Optional.of(key.type), new GrowableByteBuffer(memory.slice(slot.offset, slot.length)));
+        }
+
+        synchronized void put(Key key, byte[] embedding) {
+            if (embedding.length > memory.capacity() || slots.containsKey(key)) return;
+
+            if (position + embedding.length > memory.capacity()) { // Wrap around, after evicting the embeddings at the end.
+                while ( ! oldestFirst.isEmpty() && oldestFirst.peekFirst().offset >= position)
+                    slots.remove(oldestFirst.pollFirst().key);
+                position = 0;
+            }
+            while (   ! oldestFirst.isEmpty()
+                   && oldestFirst.peekFirst().offset >= position
+                   && oldestFirst.peekFirst().offset < position + embedding.length)
+                slots.remove(oldestFirst.pollFirst().key);
+
+            Slot slot = new Slot(key, position, embedding.length);
+            memory.put(position, embedding);
+            slots.put(key, slot);
+            oldestFirst.addLast(slot);
+            position += embedding.length;
+        }
+
+    }
+
+}
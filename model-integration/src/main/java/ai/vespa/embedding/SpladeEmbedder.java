@@ -8,6 +8,7 @@ import com.yahoo.api.annotations.Beta;
 import com.yahoo.component.AbstractComponent;
 import com.yahoo.component.annotation.Inject;
 import com.yahoo.embedding.SpladeEmbedderConfig;
+import com.yahoo.language.huggingface.Encoding;
 import com.yahoo.language.huggingface.HuggingFaceTokenizer;
 import com.yahoo.language.process.Embedder;
 import com.yahoo.tensor.DirectIndexedAddress;
@@ -17,6 +18,8 @@ import com.yahoo.tensor.TensorType;
 import com.yahoo.tensor.functions.Reduce;
 
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 
@@ -38,6 +41,7 @@ public class SpladeEmbedder extends AbstractComponent implements Embedder {
     private final String outputName;
     private final double termScoreThreshold;
     private final boolean useCustomReduce;
+    private final int maxBatchSize;
     private final HuggingFaceTokenizer tokenizer;
     private final OnnxEvaluator evaluator;
 
@@ -53,6 +57,7 @@ public class SpladeEmbedder extends AbstractComponent implements Embedder {
         tokenTypeIdsName = config.transformerTokenTypeIds();
         termScoreThreshold = config.termScoreThreshold();
         this.useCustomReduce = useCustomReduce;
+        maxBatchSize = config.batchingMaxSize();
 
         var tokenizerPath = Paths.get(config.tokenizerPath().toString());
         var builder = new HuggingFaceTokenizer.Builder()
@@ -135,6 +140,36 @@ public class SpladeEmbedder extends AbstractComponent implements Embedder {
         return spladeTensor;
     }
 
+    @Override
+    public List<Tensor> embed(List<String> texts, Context context, TensorType tensorType) {
+        if (!verifyTensorType(tensorType)) {
+            throw new IllegalArgumentException("Invalid splade embedder tensor destination. " +
+                                               "Wanted a mapped 1-d tensor, got " + tensorType);
+        }
+        var start = System.nanoTime();
+        List<Encoding> allEncodings = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            var encoding = tokenizer.encode(text, context.getLanguage());
+            runtime.sampleSequenceLength(encoding.ids().size(), context);
+            allEncodings.add(encoding);
+        }
+        Tensor[] spladeTensors = new Tensor[texts.size()];
+        for (List<Integer> indices : TokenBatch.partition(allEncodings.stream().map(Encoding::ids).toList(), maxBatchSize)) {
+            List<Encoding> encodings = indices.stream().map(allEncodings::get).toList();
+            TokenBatch batch = new TokenBatch(encodings.stream().map(Encoding::ids).toList());
+            Map<String, Tensor> inputs = Map.of(inputIdsName, batch.padded(encodings.stream().map(Encoding::ids).toList()),
+                                                attentionMaskName, batch.padded(encodings.stream().map(Encoding::attentionMask).toList()),
+                                                tokenTypeIdsName, batch.padded(encodings.stream().map(Encoding::typeIds).toList()));
+            IndexedTensor output = (IndexedTensor) evaluator.evaluate(inputs).get(outputName);
+            for (int i = 0; i < batch.size(); i++) {
+                IndexedTensor row = batch.row(output, i); // Padding would add scores, so each row is cut to its own length
+                spladeTensors[indices.get(i)] = useCustomReduce ? sparsifyCustomReduce(row, tensorType) : sparsifyReduce(row, tensorType);
+            }
+        }
+        runtime.sampleEmbeddingLatency((System.nanoTime() - start)/1_000_000d, context);
+        return Arrays.asList(spladeTensors);
+    }
+
     /**
      * Sparsify the output tensor by applying a threshold on the log of the relu of the output.
      * This uses generic tensor reduce+map, and is slightly slower than a custom unrolled variant.
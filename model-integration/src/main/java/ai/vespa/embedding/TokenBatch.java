@@ -0,0 +1,110 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.embedding;
+
+import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.TensorType;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * The token sequences of a batch of texts, for evaluating a transformer model over all of them in one invocation.
+ * Model inputs are padded with zeros to the length of the longest sequence, and the padding must be masked out by
+ * the attention mask input. Each row of the model output is then cut back to the length of its own sequence,
+ * which makes it equal to the output of evaluating that sequence alone.
+ */
+public class TokenBatch {
+
+    private final int[] lengths;
+    private final int maxLength;
+
+    /** Creates a batch of token sequences with the given sizes */
+    public TokenBatch(List<? extends List<?>> sequences) {
+        if (sequences.isEmpty()) throw new IllegalArgumentException("A batch must contain at least one sequence");
+        lengths = new int[sequences.size()];
+        int maxLength = 0;
+        for (int i = 0; i < lengths.length; i++) {
+            lengths[i] = sequences.get(i).size();
+            maxLength = Math.max(maxLength, lengths[i]);
+        }
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Returns the indices of the given sequences in batches of at most the given size, where each batch holds
+     * sequences of similar length, which minimizes the padding needed to evaluate them.
+     */
+    public static List<List<Integer>> partition(List<? extends List<?>> sequences, int maxSize) {
+        List<Integer> byLength = IntStream.range(0, sequences.size()).boxed()
+                                          .sorted(Comparator.comparingInt(i -> sequences.get(i).size()))
+                                          .toList();
+        List<List<Integer>> batches = new ArrayList<>();
+        for (int from = 0; from < byLength.size(); from += maxSize)
+            batches.add(byLength.subList(from, Math.min(from + maxSize, byLength.size())));
+        return batches;
+    }
+
+    /** Returns the number of sequences in this batch */
+    public int size() { return lengths.length; }
+
+    /** Returns the length of the given sequence, without padding */
+    public int length(int row) { return lengths[row]; }
+
+    /**
+     * Returns the given per-token values of each sequence, e.g., token ids or attention masks,
+     * as a float tensor of type d0[size],d1[max length], where padding is 0.
+     */
+    public IndexedTensor padded(List<? extends List<? extends Number>> values) {
+        if (values.size() != lengths.length)
+            throw new IllegalArgumentException("Expected " + lengths.length + " sequences, got " + values.size());
+        float[] cells = new float[lengths.length * maxLength];
+        for (int i = 0; i < lengths.length; i++) {
+            List<? extends Number> sequence = values.get(i);
+            if (sequence.size() != lengths[i])
+                throw new IllegalArgumentException("Expected sequence " + i + " to have length " + lengths[i] +
+                                                   ", got " + sequence.size());
+            for (int j = 0; j < lengths[i]; j++)
+                cells[i * maxLength + j] = sequence.get(j).floatValue();
+        }
+        TensorType type = new TensorType.Builder(TensorType.Value.FLOAT).indexed("d0", lengths.length)
+                                                                        .indexed("d1", maxLength).build();
+        return IndexedTensor.Builder.of(type, cells).build();
+    }
+
+    /**
+     * Returns the given row of a model output of shape [size, max length, ...], as a tensor of the same type,
+     * but with shape [1, length of the sequence of the row, ...], i.e., without padding.
+     */
+    public IndexedTensor row(IndexedTensor output, int row) {
+        if (lengths.length == 1) return output; // Nothing to cut.
+
+        long[] shape = output.shape();
+        if (shape.length < 2 || shape[0] != lengths.length || shape[1] != maxLength)
+            throw new IllegalArgumentException("Expected model output of shape [" + lengths.length + ", " + maxLength +
+                                               ", ...], got " + output.type());
+
+        TensorType.Builder type = new TensorType.Builder(output.type().valueType());
+        type.indexed(output.type().dimensions().get(0).name(), 1);
+        type.indexed(output.type().dimensions().get(1).name(), lengths[row]);
+        long tokenSize = 1;
+        for (int i = 2; i < shape.length; i++) {
+            type.indexed(output.type().dimensions().get(i).name(), shape[i]);
+            tokenSize *= shape[i];
+        }
+        int size = (int) (lengths[row] * tokenSize);
+        long offset = row * maxLength * tokenSize;
+        if (output.type().valueType() == TensorType.Value.DOUBLE) {
+            double[] cells = new double[size];
+            for (int i = 0; i < size; i++)
+                cells[i] = output.get(offset + i);
+            return IndexedTensor.Builder.of(type.build(), cells).build();
+        }
+        float[] cells = new float[size];
+        for (int i = 0; i < size; i++)
+            cells[i] = output.getFloat(offset + i);
+        return IndexedTensor.Builder.of(type.build(), cells).build();
+    }
+
+}
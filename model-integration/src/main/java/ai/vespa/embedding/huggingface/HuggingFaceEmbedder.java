@@ -1,7 +1,10 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package ai.vespa.embedding.huggingface;
 
+import ai.vespa.embedding.DynamicBatcher;
+import ai.vespa.embedding.EmbeddingCache;
 import ai.vespa.embedding.PoolingStrategy;
+import ai.vespa.embedding.TokenBatch;
 import ai.vespa.modelintegration.evaluator.OnnxEvaluator;
 import ai.vespa.modelintegration.evaluator.OnnxEvaluatorOptions;
 import ai.vespa.modelintegration.evaluator.OnnxRuntime;
@@ -9,6 +12,7 @@ import com.yahoo.api.annotations.Beta;
 import com.yahoo.component.AbstractComponent;
 import com.yahoo.component.annotation.Inject;
 import com.yahoo.embedding.huggingface.HuggingFaceEmbedderConfig;
+import com.yahoo.language.huggingface.Encoding;
 import com.yahoo.language.huggingface.HuggingFaceTokenizer;
 import com.yahoo.language.process.Embedder;
 import com.yahoo.tensor.IndexedTensor;
@@ -17,7 +21,12 @@ import com.yahoo.tensor.TensorAddress;
 import com.yahoo.tensor.TensorType;
 
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
@@ -38,6 +47,9 @@ public class HuggingFaceEmbedder extends AbstractComponent implements Embedder {
     private final HuggingFaceTokenizer tokenizer;
     private final OnnxEvaluator evaluator;
     private final PoolingStrategy poolingStrategy;
+    private final int maxBatchSize;
+    private final DynamicBatcher<Encoding, IndexedTensor> batcher;
+    private final EmbeddingCache cache;
 
     @Inject
     public HuggingFaceEmbedder(OnnxRuntime onnx, Embedder.Runtime runtime, HuggingFaceEmbedderConfig config) {
@@ -70,6 +82,9 @@ public class HuggingFaceEmbedder extends AbstractComponent implements Embedder {
         onnxOpts.setThreads(config.transformerInterOpThreads(), config.transformerIntraOpThreads());
         evaluator = onnx.evaluatorOf(config.transformerModel().toString(), onnxOpts);
         validateModel();
+        maxBatchSize = config.batchingMaxSize();
+        batcher = new DynamicBatcher<>(maxBatchSize, Duration.ofMillis(config.batchingMaxDelayMillis()), this::evaluate);
+        cache = new EmbeddingCache(config.cacheMaxBytes(), runtime);
     }
 
     public void validateModel() {
@@ -104,16 +119,35 @@ public class HuggingFaceEmbedder extends AbstractComponent implements Embedder {
         tokenizer.close();
     }
 
-    @SuppressWarnings("unchecked")
     @Override
     public Tensor embed(String text, Context context, TensorType tensorType) {
+        validateType(tensorType);
+        return cache.computeIfAbsent(context, text, tensorType,
+                                     () -> toEmbedding(lookupOrEvaluate(context, text), tensorType));
+    }
+
+    /** Embeds the given texts, evaluating the model for those not already in the context cache in batches. */
+    @Override
+    public List<Tensor> embed(List<String> texts, Context context, TensorType tensorType) {
+        validateType(tensorType);
+        return cache.computeIfAbsent(context, texts, tensorType, missing -> {
+            List<Tensor> embeddings = new ArrayList<>(missing.size());
+            for (HFEmbeddingResult embeddingResult : lookupOrEvaluate(context, missing))
+                embeddings.add(toEmbedding(embeddingResult, tensorType));
+            return embeddings;
+        });
+    }
+
+    private static void validateType(TensorType tensorType) {
         if (tensorType.dimensions().size() != 1) {
             throw new IllegalArgumentException("Error in embedding to type '" + tensorType + "': should only have one dimension.");
         }
         if (!tensorType.dimensions().get(0).isIndexed()) {
             throw new IllegalArgumentException("Error in embedding to type '" + tensorType + "': dimension should be indexed.");
         }
-        var embeddingResult = lookupOrEvaluate(context, text);
+    }
+
+    private Tensor toEmbedding(HFEmbeddingResult embeddingResult, TensorType tensorType) {
         IndexedTensor tokenEmbeddings = embeddingResult.output;
         if (tensorType.valueType() == TensorType.Value.INT8) {
             return binaryQuantization(embeddingResult, tensorType);
@@ -144,26 +178,64 @@ public class HuggingFaceEmbedder extends AbstractComponent implements Embedder {
 
     private HuggingFaceEmbedder.HFEmbeddingResult lookupOrEvaluate(Context context, String text) {
         var key = new HFEmbedderCacheKey(context.getEmbedderId(), text);
-        return context.computeCachedValueIfAbsent(key, () -> evaluate(context, text));
+        return context.computeCachedValueIfAbsent(key, () -> {
+            var start = System.nanoTime();
+            var encoding = tokenizer.encode(text, context.getLanguage());
+            runtime.sampleSequenceLength(encoding.ids().size(), context);
+            // Concurrent calls may be evaluated together, if dynamic batching is enabled
+            var embeddingResult = toResult(batcher.evaluate(encoding), encoding, context);
+            runtime.sampleEmbeddingLatency((System.nanoTime() - start)/1_000_000d, context);
+            return embeddingResult;
+        });
     }
 
-    private HuggingFaceEmbedder.HFEmbeddingResult evaluate(Context context, String text) {
+    private List<HFEmbeddingResult> lookupOrEvaluate(Context context, List<String> texts) {
+        HFEmbeddingResult[] embeddingResults = new HFEmbeddingResult[texts.size()];
+        Map<String, List<Integer>> missing = new LinkedHashMap<>(); // Positions of each distinct text not in the cache
+        for (int i = 0; i < texts.size(); i++) {
+            var cached = context.getCachedValue(new HFEmbedderCacheKey(context.getEmbedderId(), texts.get(i)));
+            if (cached != null)
+                embeddingResults[i] = (HFEmbeddingResult) cached;
+            else
+                missing.computeIfAbsent(texts.get(i), __ -> new ArrayList<>()).add(i);
+        }
+        if (missing.isEmpty()) return Arrays.asList(embeddingResults);
+
         var start = System.nanoTime();
-        var encoding = tokenizer.encode(text, context.getLanguage());
-        runtime.sampleSequenceLength(encoding.ids().size(), context);
-        Tensor inputSequence = createTensorRepresentation(encoding.ids(), "d1");
-        Tensor attentionMask = createTensorRepresentation(encoding.attentionMask(), "d1");
-        Tensor tokenTypeIds = tokenTypeIdsName.isEmpty() ? null : createTensorRepresentation(encoding.typeIds(), "d1");
-
-        Map<String, Tensor> inputs;
-        if (tokenTypeIdsName.isEmpty() || tokenTypeIds.isEmpty()) {
-            inputs = Map.of(inputIdsName, inputSequence.expand("d0"),
-                    attentionMaskName, attentionMask.expand("d0"));
-        } else {
-            inputs = Map.of(inputIdsName, inputSequence.expand("d0"),
-                    attentionMaskName, attentionMask.expand("d0"),
-                    tokenTypeIdsName, tokenTypeIds.expand("d0"));
+        List<String> toEvaluate = new ArrayList<>(missing.keySet());
+        List<Encoding> encodings = new ArrayList<>(toEvaluate.size());
+        for (String text : toEvaluate) {
+            var encoding = tokenizer.encode(text, context.getLanguage());
+            runtime.sampleSequenceLength(encoding.ids().size(), context);
+            encodings.add(encoding);
         }
+        for (List<Integer> batch : TokenBatch.partition(encodings.stream().map(Encoding::ids).toList(), maxBatchSize)) {
+            List<IndexedTensor> outputs = evaluate(batch.stream().map(encodings::get).toList());
+            for (int i = 0; i < batch.size(); i++) {
+                String text = toEvaluate.get(batch.get(i));
+                var embeddingResult = toResult(outputs.get(i), encodings.get(batch.get(i)), context);
+                context.putCachedValue(new HFEmbedderCacheKey(context.getEmbedderId(), text), embeddingResult);
+                for (int position : missing.get(text))
+                    embeddingResults[position] = embeddingResult;
+            }
+        }
+        runtime.sampleEmbeddingLatency((System.nanoTime() - start)/1_000_000d, context);
+        return Arrays.asList(embeddingResults);
+    }
+
+    private HFEmbeddingResult toResult(IndexedTensor tokenEmbeddings, Encoding encoding, Context context) {
+        return new HFEmbeddingResult(tokenEmbeddings, createTensorRepresentation(encoding.attentionMask(), "d1"), context.getEmbedderId());
+    }
+
+    /** Evaluates the model once for all the given encodings, and returns the token embeddings of each of them */
+    private List<IndexedTensor> evaluate(List<Encoding> encodings) {
+        TokenBatch batch = new TokenBatch(encodings.stream().map(Encoding::ids).toList());
+        Map<String, Tensor> inputs = new HashMap<>();
+        inputs.put(inputIdsName, batch.padded(encodings.stream().map(Encoding::ids).toList()));
+        inputs.put(attentionMaskName, batch.padded(encodings.stream().map(Encoding::attentionMask).toList()));
+        if ( ! tokenTypeIdsName.isEmpty() && encodings.stream().noneMatch(encoding -> encoding.typeIds().isEmpty()))
+            inputs.put(tokenTypeIdsName, batch.padded(encodings.stream().map(Encoding::typeIds).toList()));
+
         IndexedTensor tokenEmbeddings = (IndexedTensor) evaluator.evaluate(inputs).get(outputName);
         long[] resultShape = tokenEmbeddings.shape();
         //shape batch, sequence, embedding dimensionality
@@ -172,8 +244,10 @@ public class HuggingFaceEmbedder extends AbstractComponent implements Embedder {
                     "Expected 3 output dimensions for output name '" +
                     outputName + "': [batch, sequence, embedding], got " + resultShape.length);
         }
-        runtime.sampleEmbeddingLatency((System.nanoTime() - start)/1_000_000d, context);
-        return new HFEmbeddingResult(tokenEmbeddings, attentionMask, context.getEmbedderId());
+        List<IndexedTensor> outputs = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++)
+            outputs.add(batch.row(tokenEmbeddings, i));
+        return outputs;
     }
 
     private Tensor binaryQuantization(HuggingFaceEmbedder.HFEmbeddingResult embeddingResult, TensorType tensorType) {
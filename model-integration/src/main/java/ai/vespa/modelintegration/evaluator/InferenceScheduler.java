@@ -0,0 +1,91 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+
+package ai.vespa.modelintegration.evaluator;
+
+import ai.onnxruntime.OrtException;
+import ai.vespa.metrics.ContainerMetrics;
+import com.yahoo.metrics.simple.Gauge;
+import com.yahoo.metrics.simple.MetricReceiver;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Schedules ONNX evaluations within a budget of threads which is shared by all models, so that concurrent evaluations
+ * together do not use more threads than the cores can run, which would make them all slow.
+ *
+ * Each evaluation takes as many threads from the budget as its session has intra-op threads, as ONNX Runtime uses
+ * the calling container thread as one of these. Evaluations which do not fit in what remains of the budget wait,
+ * in arrival order, until enough threads are returned by those running.
+ */
+class InferenceScheduler {
+
+    interface Task<T> {
+        T run() throws OrtException;
+    }
+
+    private final int threads;
+    private final Semaphore budget;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Gauge evaluationLatency;
+    private final Gauge queueLatency;
+    private final Gauge queueSize;
+
+    /**
+     * Creates a new scheduler.
+     *
+     * @param threads the number of threads to share between evaluations, where 0 means no limit
+     * @param metrics the receiver of latency and queue metrics
+     */
+    InferenceScheduler(int threads, MetricReceiver metrics) {
+        if (threads < 0) throw new IllegalArgumentException("Thread budget cannot be negative, but was " + threads);
+        this.threads = threads;
+        this.budget = threads == 0 ? null : new Semaphore(threads, true);
+        this.evaluationLatency = metrics.declareGauge(ContainerMetrics.ONNX_EVALUATION_LATENCY.baseName());
+        this.queueLatency = metrics.declareGauge(ContainerMetrics.ONNX_EVALUATION_QUEUE_LATENCY.baseName());
+        this.queueSize = metrics.declareGauge(ContainerMetrics.ONNX_EVALUATION_QUEUE_SIZE.baseName());
+    }
+
+    /** Returns a copy of the given options with intra-op threads reduced to fit the budget, or the given options if they fit */
+    OnnxEvaluatorOptions fit(OnnxEvaluatorOptions options) {
+        if (threads == 0) return options;
+        // 0 intra-op threads lets ONNX Runtime use one per core
+        if (options.intraOpThreads() > 0 && options.intraOpThreads() <= threads) return options;
+        var copy = options.copy();
+        copy.setIntraOpThreads(threads);
+        return copy;
+    }
+
+    /** Returns the number of threads an evaluation with the given options takes from the budget */
+    int threadsOf(OnnxEvaluatorOptions options) {
+        if (threads == 0) return 0;
+        return Math.max(1, fit(options).intraOpThreads());
+    }
+
+    /** Runs the given task when the given number of threads are available, and returns its result */
+    <T> T execute(int threadCount, Task<T> task) throws OrtException {
+        long enqueuedNanos = System.nanoTime();
+        if (budget != null && threadCount > 0) {
+            queueSize.sample(queued.incrementAndGet());
+            try {
+                budget.acquireUninterruptibly(threadCount);
+            }
+            finally {
+                queued.decrementAndGet();
+            }
+            queueLatency.sample((System.nanoTime() - enqueuedNanos) / 1e6);
+        }
+        long startNanos = System.nanoTime();
+        try {
+            return task.run();
+        }
+        finally {
+            if (budget != null && threadCount > 0) budget.release(threadCount);
+            evaluationLatency.sample((System.nanoTime() - startNanos) / 1e6);
+        }
+    }
+
+    /** Returns the number of evaluations waiting for threads */
+    int queued() { return queued.get(); }
+
+}
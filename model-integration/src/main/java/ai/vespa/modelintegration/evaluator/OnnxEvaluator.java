@@ -45,9 +45,13 @@ public class OnnxEvaluator implements AutoCloseable {
         try {
             output = mapToInternalName(output);
             onnxInputs = TensorConverter.toOnnxTensors(inputs, OnnxRuntime.ortEnvironment(), session.instance());
-            try (OrtSession.Result result = session.instance().run(onnxInputs, Collections.singleton(output))) {
-                return TensorConverter.toVespaTensor(result.get(0));
-            }
+            var ortInputs = onnxInputs;
+            var outputs = Collections.singleton(output);
+            return session.run(instance -> {
+                try (OrtSession.Result result = instance.run(ortInputs, outputs)) {
+                    return TensorConverter.toVespaTensor(result.get(0));
+                }
+            });
         } catch (OrtException e) {
             throw new RuntimeException("ONNX Runtime exception", e);
         } finally {
@@ -61,14 +65,17 @@ public class OnnxEvaluator implements AutoCloseable {
         Map<String, OnnxTensor> onnxInputs = null;
         try {
             onnxInputs = TensorConverter.toOnnxTensors(inputs, OnnxRuntime.ortEnvironment(), session.instance());
-            Map<String, Tensor> outputs = new HashMap<>();
-            try (OrtSession.Result result = session.instance().run(onnxInputs)) {
-                for (Map.Entry<String, OnnxValue> output : result) {
-                    String mapped = TensorConverter.asValidName(output.getKey());
-                    outputs.put(mapped, TensorConverter.toVespaTensor(output.getValue()));
+            var ortInputs = onnxInputs;
+            return session.run(instance -> {
+                Map<String, Tensor> outputs = new HashMap<>();
+                try (OrtSession.Result result = instance.run(ortInputs)) {
+                    for (Map.Entry<String, OnnxValue> output : result) {
+                        String mapped = TensorConverter.asValidName(output.getKey());
+                        outputs.put(mapped, TensorConverter.toVespaTensor(output.getValue()));
+                    }
+                    return outputs;
                 }
-                return outputs;
-            }
+            });
         } catch (OrtException e) {
             throw new RuntimeException("ONNX Runtime exception", e);
         } finally {
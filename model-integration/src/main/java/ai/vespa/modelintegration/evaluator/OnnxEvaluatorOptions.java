@@ -77,7 +77,7 @@ public class OnnxEvaluatorOptions {
         intraOpThreads = calculateThreads(intraOp);
     }
 
-    private static int calculateThreads(int t) {
+    static int calculateThreads(int t) {
         if (t >= 0) return t;
         return Math.max(1, (int) Math.ceil(-1d * Runtime.getRuntime().availableProcessors() / t));
     }
@@ -99,6 +99,8 @@ public class OnnxEvaluatorOptions {
 
     public int gpuDeviceNumber() { return gpuDeviceNumber; }
 
+    int intraOpThreads() { return intraOpThreads; }
+
     public OnnxEvaluatorOptions copy() {
         var copy = new OnnxEvaluatorOptions();
         copy.gpuDeviceNumber = gpuDeviceNumber;
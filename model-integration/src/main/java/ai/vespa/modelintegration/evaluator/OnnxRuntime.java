@@ -10,6 +10,7 @@ import com.yahoo.component.annotation.Inject;
 import com.yahoo.jdisc.ResourceReference;
 import com.yahoo.jdisc.refcount.DebugReferencesWithStack;
 import com.yahoo.jdisc.refcount.References;
+import com.yahoo.metrics.simple.MetricReceiver;
 import com.yahoo.vespa.config.search.core.OnnxModelsConfig;
 import net.jpountz.xxhash.XXHashFactory;
 
@@ -17,9 +18,12 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -28,6 +32,10 @@ import static com.yahoo.yolean.Exceptions.throwUnchecked;
 /**
  * Provides ONNX runtime environment with session management.
  *
+ * Each model gets a pool of sessions, and evaluations are spread over these, so concurrent evaluations of a model
+ * use separate intra-op thread pools. All evaluations are scheduled within a thread budget shared by all models;
+ * see {@link InferenceScheduler}.
+ *
  * @author bjorncs
  */
 public class OnnxRuntime extends AbstractComponent {
@@ -54,15 +62,23 @@ public class OnnxRuntime extends AbstractComponent {
     private final Map<OrtSessionId, SharedOrtSession> sessions = new HashMap<>();
     private final OrtSessionFactory factory;
     private final int gpusAvailable;
+    private final int sessionsPerModel;
+    private final InferenceScheduler scheduler;
 
     // For test use only
-    public OnnxRuntime() { this(defaultFactory, new OnnxModelsConfig.Builder().build()); }
+    public OnnxRuntime() { this(defaultFactory, new OnnxModelsConfig.Builder().build(), MetricReceiver.nullImplementation); }
+
+    public OnnxRuntime(OnnxModelsConfig cfg) { this(defaultFactory, cfg, MetricReceiver.nullImplementation); }
 
-    @Inject public OnnxRuntime(OnnxModelsConfig cfg) { this(defaultFactory, cfg); }
+    @Inject public OnnxRuntime(OnnxModelsConfig cfg, MetricReceiver metrics) { this(defaultFactory, cfg, metrics); }
 
-    OnnxRuntime(OrtSessionFactory factory, OnnxModelsConfig cfg) {
+    OnnxRuntime(OrtSessionFactory factory, OnnxModelsConfig cfg, MetricReceiver metrics) {
+        if (cfg.execution().sessions_per_model() < 1)
+            throw new IllegalArgumentException("Sessions per model must be positive, but was " + cfg.execution().sessions_per_model());
         this.factory = factory;
         this.gpusAvailable = cfg.gpu().count();
+        this.sessionsPerModel = cfg.execution().sessions_per_model();
+        this.scheduler = new InferenceScheduler(OnnxEvaluatorOptions.calculateThreads(cfg.execution().threads()), metrics);
     }
 
     public OnnxEvaluator evaluatorOf(byte[] model) {
@@ -90,14 +106,16 @@ public class OnnxRuntime extends AbstractComponent {
     public void deconstruct() {
         synchronized (monitor) {
             sessions.forEach((id, sharedSession) -> {
-                int hash = System.identityHashCode(sharedSession.session());
                 var refs = sharedSession.references();
-                log.warning("Closing leaked session %s (%s) with %d outstanding references:\n%s"
-                                    .formatted(id, hash, refs.referenceCount(), refs.currentState()));
-                try {
-                    sharedSession.session().close();
-                } catch (Exception e) {
-                    log.log(Level.WARNING, "Failed to close session %s (%s)".formatted(id, hash), e);
+                for (var session : sharedSession.pool().instances()) {
+                    int hash = System.identityHashCode(session);
+                    log.warning("Closing leaked session %s (%s) with %d outstanding references:\n%s"
+                                        .formatted(id, hash, refs.referenceCount(), refs.currentState()));
+                    try {
+                        session.close();
+                    } catch (Exception e) {
+                        log.log(Level.WARNING, "Failed to close session %s (%s)".formatted(id, hash), e);
+                    }
                 }
             });
             sessions.clear();
@@ -136,6 +154,7 @@ public class OnnxRuntime extends AbstractComponent {
     }
 
     ReferencedOrtSession acquireSession(ModelPathOrData model, OnnxEvaluatorOptions options, boolean loadCuda) throws OrtException {
+        options = scheduler.fit(options);
         var sessionId = new OrtSessionId(calculateModelHash(model), options, loadCuda);
         synchronized (monitor) {
             var sharedSession = sessions.get(sessionId);
@@ -146,10 +165,22 @@ public class OnnxRuntime extends AbstractComponent {
 
         var opts = options.getOptions(loadCuda);
         // Note: identical models loaded simultaneously will result in duplicate session instances
-        var session = model.path().isPresent() ? factory.create(model.path().get(), opts) : factory.create(model.data().get(), opts);
-        log.fine(() -> "Created new session (%s)".formatted(System.identityHashCode(session)));
+        // Sessions on a GPU are not pooled, as they would compete for the same device, and its memory
+        int poolSize = loadCuda ? 1 : sessionsPerModel;
+        List<OrtSession> instances = new ArrayList<>(poolSize);
+        try {
+            for (int i = 0; i < poolSize; i++) {
+                var session = model.path().isPresent() ? factory.create(model.path().get(), opts) : factory.create(model.data().get(), opts);
+                log.fine(() -> "Created new session (%s)".formatted(System.identityHashCode(session)));
+                instances.add(session);
+            }
+        } catch (OrtException | RuntimeException e) {
+            for (var session : instances) session.close();
+            throw e;
+        }
 
-        var sharedSession = new SharedOrtSession(sessionId, session);
+        var pool = new SessionPool(instances, scheduler, scheduler.threadsOf(options));
+        var sharedSession = new SharedOrtSession(sessionId, pool);
         var referencedSession = sharedSession.newReference();
         synchronized (monitor) { sessions.put(sessionId, sharedSession); }
         sharedSession.references().release(); // Release initial reference
@@ -187,19 +218,67 @@ public class OnnxRuntime extends AbstractComponent {
 
     int sessionsCached() { synchronized(monitor) { return sessions.size(); } }
 
+    /** An evaluation using some session of a pool */
+    interface Evaluation<T> {
+        T run(OrtSession session) throws OrtException;
+    }
+
     static class ReferencedOrtSession implements AutoCloseable {
-        private final OrtSession instance;
+        private final SessionPool pool;
         private final ResourceReference ref;
 
-        ReferencedOrtSession(OrtSession instance, ResourceReference ref) {
-            this.instance = instance;
+        ReferencedOrtSession(SessionPool pool, ResourceReference ref) {
+            this.pool = pool;
             this.ref = ref;
         }
 
-        OrtSession instance() { return instance; }
+        /** Returns the first session of the pool, which is equivalent to all the others */
+        OrtSession instance() { return pool.instances().get(0); }
+
+        /** Runs the given evaluation with the least busy session of the pool, when the thread budget allows */
+        <T> T run(Evaluation<T> evaluation) throws OrtException { return pool.run(evaluation); }
+
         @Override public void close() { ref.close(); }
     }
 
+    /** Sessions of the same model and options, which are used for evaluation by turns */
+    static class SessionPool {
+
+        private final List<OrtSession> instances;
+        private final AtomicIntegerArray active;
+        private final InferenceScheduler scheduler;
+        private final int threads;
+
+        SessionPool(List<OrtSession> instances, InferenceScheduler scheduler, int threads) {
+            this.instances = List.copyOf(instances);
+            this.active = new AtomicIntegerArray(instances.size());
+            this.scheduler = scheduler;
+            this.threads = threads;
+        }
+
+        List<OrtSession> instances() { return instances; }
+
+        <T> T run(Evaluation<T> evaluation) throws OrtException {
+            return scheduler.execute(threads, () -> {
+                int index = leastActive();
+                active.incrementAndGet(index);
+                try {
+                    return evaluation.run(instances.get(index));
+                } finally {
+                    active.decrementAndGet(index);
+                }
+            });
+        }
+
+        private int leastActive() {
+            int least = 0;
+            for (int i = 1; i < instances.size() && active.get(least) > 0; i++)
+                if (active.get(i) < active.get(least)) least = i;
+            return least;
+        }
+
+    }
+
     record ModelPathOrData(Optional<String> path, Optional<byte[]> data) {
         static ModelPathOrData of(String path) { return new ModelPathOrData(Optional.of(path), Optional.empty()); }
         static ModelPathOrData of(byte[] data) { return new ModelPathOrData(Optional.empty(), Optional.of(data)); }
@@ -215,23 +294,25 @@ public class OnnxRuntime extends AbstractComponent {
 
     private class SharedOrtSession {
         private final OrtSessionId id;
-        private final OrtSession session;
+        private final SessionPool pool;
         private final References refs = new DebugReferencesWithStack(this::close);
 
-        SharedOrtSession(OrtSessionId id, OrtSession session) {
+        SharedOrtSession(OrtSessionId id, SessionPool pool) {
             this.id = id;
-            this.session = session;
+            this.pool = pool;
         }
 
-        ReferencedOrtSession newReference() { return new ReferencedOrtSession(session, refs.refer(id)); }
+        ReferencedOrtSession newReference() { return new ReferencedOrtSession(pool, refs.refer(id)); }
         References references() { return refs; }
-        OrtSession session() { return session; }
+        SessionPool pool() { return pool; }
 
         void close() {
             try {
                 synchronized (OnnxRuntime.this.monitor) { sessions.remove(id); }
-                log.fine(() -> "Closing session (%s)".formatted(System.identityHashCode(session)));
-                session.close();
+                for (var session : pool.instances()) {
+                    log.fine(() -> "Closing session (%s)".formatted(System.identityHashCode(session)));
+                    session.close();
+                }
             } catch (OrtException e) { throw new UncheckedOrtException(e);}
         }
     }
@@ -34,6 +34,7 @@ public class BertBaseEmbedderTest {
 
         Tensor expected = Tensor.from("tensor<float>(x[7]):[-0.6178509, -0.8135831, 0.34416935, 0.3912577, -0.13068882, 2.5897025E-4, -0.18638384]");
         assertEquals(embedding, expected);
+        assertEquals(List.of(expected), embedder.embedBatch(List.of(tokens), destType));
     }
 
     @Test
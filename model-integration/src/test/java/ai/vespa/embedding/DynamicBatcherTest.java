@@ -0,0 +1,87 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.embedding;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+public class DynamicBatcherTest {
+
+    @Test
+    public void testConcurrentCallsAreBatched() throws Exception {
+        List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+        DynamicBatcher<Integer, Integer> batcher = new DynamicBatcher<>(3, Duration.ofHours(1), inputs -> {
+            batches.add(inputs);
+            return inputs.stream().map(input -> input * 10).toList();
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                int input = i;
+                results.add(executor.submit(() -> batcher.evaluate(input)));
+            }
+            for (int i = 0; i < 6; i++)
+                assertEquals(i * 10, (int) results.get(i).get());
+        }
+        finally {
+            executor.shutdown();
+        }
+        assertEquals(2, batches.size()); // Only full batches are evaluated before the max delay.
+        assertEquals(3, batches.get(0).size());
+        assertEquals(3, batches.get(1).size());
+        assertEquals(0, batcher.waiting());
+    }
+
+    @Test
+    public void testBatchIsEvaluatedAfterMaxDelay() {
+        List<List<String>> batches = new ArrayList<>();
+        DynamicBatcher<String, String> batcher = new DynamicBatcher<>(8, Duration.ofMillis(10), inputs -> {
+            batches.add(inputs);
+            return inputs.stream().map(String::toUpperCase).toList();
+        });
+        assertEquals("A", batcher.evaluate("a"));
+        assertEquals("B", batcher.evaluate("b"));
+        assertEquals(List.of(List.of("a"), List.of("b")), batches);
+    }
+
+    @Test
+    public void testFailureFailsWholeBatch() throws Exception {
+        DynamicBatcher<Integer, Integer> batcher = new DynamicBatcher<>(2, Duration.ofHours(1), inputs -> {
+            throw new IllegalArgumentException("bad inputs " + inputs.size());
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> first = executor.submit(() -> batcher.evaluate(1));
+            Future<Integer> second = executor.submit(() -> batcher.evaluate(2));
+            for (Future<Integer> result : List.of(first, second))
+                assertEquals("bad inputs 2",
+                             assertThrows(ExecutionException.class, result::get).getCause().getMessage());
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testZeroDelayDisablesBatching() {
+        List<List<Integer>> batches = new ArrayList<>();
+        DynamicBatcher<Integer, Integer> batcher = new DynamicBatcher<>(32, Duration.ZERO, inputs -> {
+            batches.add(inputs);
+            return inputs;
+        });
+        assertEquals(1, (int) batcher.evaluate(1));
+        assertEquals(List.of(List.of(1)), batches);
+    }
+
+}
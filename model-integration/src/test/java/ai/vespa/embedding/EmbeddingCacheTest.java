@@ -0,0 +1,106 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.embedding;
+
+import com.yahoo.language.Language;
+import com.yahoo.language.process.Embedder;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+import com.yahoo.tensor.serialization.TypedBinaryFormat;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+
+public class EmbeddingCacheTest {
+
+    private final TensorType type = TensorType.fromSpec("tensor<float>(x[4])");
+    private final CountingRuntime runtime = new CountingRuntime();
+    private final List<String> embedded = new ArrayList<>();
+
+    @Test
+    public void testCachingAcrossRequests() {
+        EmbeddingCache cache = new EmbeddingCache(1 << 16, runtime);
+        assertEquals(embedding("a"), cache.computeIfAbsent(context("e1"), "a", type, () -> embed("a")));
+        assertEquals(embedding("a"), cache.computeIfAbsent(context("e1"), "a", type, () -> embed("a")));
+        assertEquals(List.of("a"), embedded);
+        assertEquals(1, runtime.hits);
+        assertEquals(1, runtime.misses);
+
+        // Other embedders, languages and tensor types have separate entries.
+        cache.computeIfAbsent(context("e2"), "a", type, () -> embed("a"));
+        cache.computeIfAbsent(context("e1").setLanguage(Language.GERMAN), "a", type, () -> embed("a"));
+        TensorType otherType = TensorType.fromSpec("tensor<float>(x[2])");
+        assertEquals(Tensor.from(otherType, "[1, 1]"),
+                     cache.computeIfAbsent(context("e1"), "a", otherType, () -> Tensor.from(otherType, "[1, 1]")));
+        assertEquals(List.of("a", "a", "a"), embedded);
+        assertEquals(4, runtime.misses);
+    }
+
+    @Test
+    public void testBatchComputesOnlyMissingEmbeddings() {
+        EmbeddingCache cache = new EmbeddingCache(1 << 16, runtime);
+        cache.computeIfAbsent(context("e1"), "b", type, () -> embed("b"));
+        List<Tensor> embeddings = cache.computeIfAbsent(context("e1"), List.of("a", "b", "c"), type,
+                                                        texts -> texts.stream().map(this::embed).toList());
+        assertEquals(List.of(embedding("a"), embedding("b"), embedding("c")), embeddings);
+        assertEquals(List.of("b", "a", "c"), embedded);
+        assertEquals(1, runtime.hits);
+        assertEquals(3, runtime.misses);
+
+        cache.computeIfAbsent(context("e1"), List.of("c", "a"), type, texts -> { throw new AssertionError("all cached"); });
+        assertEquals(3, runtime.hits);
+    }
+
+    @Test
+    public void testOldestEmbeddingsAreEvicted() {
+        int size = TypedBinaryFormat.encode(embedding("a")).length;
+        EmbeddingCache cache = new EmbeddingCache(16 * 3L * size, runtime); // Room for 3 embeddings in each segment.
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) texts.add("text " + i);
+        cache.computeIfAbsent(context("e1"), texts, type, missing -> missing.stream().map(this::embed).toList());
+        embedded.clear();
+
+        cache.computeIfAbsent(context("e1"), texts, type, missing -> missing.stream().map(this::embed).toList());
+        assertEquals(1000 - 16 * 3, embedded.size()); // Only the last 3 embeddings in each segment were retained ...
+        assertFalse(embedded.contains("text 999")); // ... which includes the very last one.
+    }
+
+    @Test
+    public void testDisabledCache() {
+        EmbeddingCache cache = new EmbeddingCache(0, runtime);
+        cache.computeIfAbsent(context("e1"), "a", type, () -> embed("a"));
+        cache.computeIfAbsent(context("e1"), "a", type, () -> embed("a"));
+        assertEquals(List.of("a", "a"), embedded);
+        assertEquals(0, runtime.hits + runtime.misses);
+        assertThrows(IllegalArgumentException.class, () -> new EmbeddingCache(-1, runtime));
+    }
+
+    private Tensor embed(String text) {
+        embedded.add(text);
+        return embedding(text);
+    }
+
+    private Tensor embedding(String text) {
+        return Tensor.from(type, "[" + text.length() + ", " + text.hashCode() + ", 0.5, -1]");
+    }
+
+    private static Embedder.Context context(String embedderId) {
+        return new Embedder.Context("schema.field").setEmbedderId(embedderId);
+    }
+
+    private static class CountingRuntime implements Embedder.Runtime {
+
+        int hits = 0, misses = 0;
+
+        @Override public void sampleEmbeddingLatency(double millis, Embedder.Context ctx) { }
+        @Override public void sampleSequenceLength(long length, Embedder.Context ctx) { }
+        @Override public void sampleCacheHit(Embedder.Context ctx) { hits++; }
+        @Override public void sampleCacheMiss(Embedder.Context ctx) { misses++; }
+
+    }
+
+}
@@ -38,6 +38,18 @@ public class SpladeEmbedderTest {
         assertTrue(value > scoreThreshold);
     }
 
+    @Test
+    public void testBatchEmbedding() {
+        TensorType destType = TensorType.fromSpec("tensor<float>(t{})");
+        List<String> texts = List.of("what was the manhattan project", "", "manhattan", "what was the project in this context");
+        List<Tensor> embeddings = spladeEmbedder.embed(texts, indexingContext, destType);
+        assertEquals(texts.size(), embeddings.size());
+        for (Tensor embedding : embeddings)
+            assertEquals(destType, embedding.type());
+        assertEquals(spladeEmbedder.embed(texts.get(0), indexingContext, destType),
+                     spladeEmbedder.embed(texts.subList(0, 1), indexingContext, destType).get(0));
+    }
+
     @Test
     public void testZeroTokens() {
         Tensor result = assertEmbed("tensor<float>(t{})", "", indexingContext);
@@ -0,0 +1,54 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.embedding;
+
+import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.Tensor;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+public class TokenBatchTest {
+
+    private final List<List<Long>> ids = List.of(List.of(101L, 7L, 102L), List.of(101L, 102L), List.of(101L, 5L, 6L, 102L));
+    private final TokenBatch batch = new TokenBatch(ids);
+
+    @Test
+    public void testPadding() {
+        assertEquals(3, batch.size());
+        assertEquals(2, batch.length(1));
+        assertEquals(Tensor.from("tensor<float>(d0[3],d1[4]):[[101, 7, 102, 0], [101, 102, 0, 0], [101, 5, 6, 102]]"),
+                     batch.padded(ids));
+        assertEquals(Tensor.from("tensor<float>(d0[3],d1[4]):[[1, 1, 1, 0], [1, 1, 0, 0], [1, 1, 1, 1]]"),
+                     batch.padded(List.of(List.of(1, 1, 1), List.of(1, 1), List.of(1, 1, 1, 1))));
+        assertEquals("Expected sequence 1 to have length 2, got 3",
+                     assertThrows(IllegalArgumentException.class,
+                                  () -> batch.padded(List.of(List.of(1, 1, 1), List.of(1, 1, 1), List.of(1, 1, 1, 1)))).getMessage());
+    }
+
+    @Test
+    public void testPartitionGroupsSequencesOfSimilarLength() {
+        List<List<Integer>> sequences = List.of(List.of(1, 2, 3), List.of(1), List.of(1, 2, 3, 4), List.of(1, 2), List.of(1, 2, 3));
+        assertEquals(List.of(List.of(1, 3), List.of(0, 4), List.of(2)), TokenBatch.partition(sequences, 2));
+        assertEquals(List.of(List.of(1, 3, 0, 4, 2)), TokenBatch.partition(sequences, 8));
+        assertEquals(List.of(), TokenBatch.partition(List.of(), 8));
+    }
+
+    @Test
+    public void testRows() {
+        IndexedTensor output = (IndexedTensor) Tensor.from("tensor<float>(d0[3],d1[4],d2[2]):" +
+                                                           "[[[1, 2], [3, 4], [5, 6], [-1, -1]]," +
+                                                           " [[7, 8], [9, 10], [-1, -1], [-1, -1]]," +
+                                                           " [[11, 12], [13, 14], [15, 16], [17, 18]]]");
+        assertEquals(Tensor.from("tensor<float>(d0[1],d1[3],d2[2]):[[[1, 2], [3, 4], [5, 6]]]"), batch.row(output, 0));
+        assertEquals(Tensor.from("tensor<float>(d0[1],d1[2],d2[2]):[[[7, 8], [9, 10]]]"), batch.row(output, 1));
+        assertEquals(Tensor.from("tensor<float>(d0[1],d1[4],d2[2]):[[[11, 12], [13, 14], [15, 16], [17, 18]]]"), batch.row(output, 2));
+
+        IndexedTensor single = (IndexedTensor) Tensor.from("tensor<float>(d0[1],d1[2],d2[1]):[[[1], [2]]]");
+        assertSame(single, new TokenBatch(List.of(List.of(1, 2))).row(single, 0));
+    }
+
+}
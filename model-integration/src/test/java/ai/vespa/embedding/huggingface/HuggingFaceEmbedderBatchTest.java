@@ -0,0 +1,91 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.embedding.huggingface;
+
+import ai.vespa.modelintegration.evaluator.OnnxRuntime;
+import com.yahoo.config.ModelReference;
+import com.yahoo.embedding.huggingface.HuggingFaceEmbedderConfig;
+import com.yahoo.language.process.Embedder;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorAddress;
+import com.yahoo.tensor.TensorType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Verifies that texts embedded together in a batch get the same embeddings as when embedded one at a time,
+ * using a model whose output for a sequence depends on its unmasked tokens only.
+ */
+public class HuggingFaceEmbedderBatchTest {
+
+    private static final String modelPath = "src/test/models/onnx/transformer/batch_embedding_model.onnx";
+    private static final TensorType type = TensorType.fromSpec("tensor<float>(x[8])");
+    private static final List<String> texts = List.of("Hello",
+                                                      "This is a somewhat longer text, which needs more tokens than the others",
+                                                      "A short one",
+                                                      "Hello",
+                                                      "Texts of different lengths are padded to the longest one in their batch",
+                                                      "Another text of medium length");
+
+    @Test
+    public void testBatchedEmbeddingsEqualSingleEmbeddings() {
+        assumeTrue(OnnxRuntime.isRuntimeAvailable(modelPath));
+        HuggingFaceEmbedder embedder = embedder(3, 0);
+        List<Tensor> single = embedSingly(embedder);
+        List<Tensor> batched = embedder.embed(texts, new Embedder.Context("schema.indexing"), type);
+        assertEqualEmbeddings(single, batched);
+    }
+
+    @Test
+    public void testDynamicallyBatchedEmbeddingsEqualSingleEmbeddings() throws Exception {
+        assumeTrue(OnnxRuntime.isRuntimeAvailable(modelPath));
+        List<Tensor> single = embedSingly(embedder(1, 0));
+        HuggingFaceEmbedder embedder = embedder(4, 100);
+        ExecutorService executor = Executors.newFixedThreadPool(texts.size());
+        try {
+            List<Future<Tensor>> futures = new ArrayList<>();
+            for (String text : texts)
+                futures.add(executor.submit(() -> embedder.embed(text, new Embedder.Context("schema.indexing"), type)));
+            List<Tensor> batched = new ArrayList<>();
+            for (Future<Tensor> future : futures)
+                batched.add(future.get());
+            assertEqualEmbeddings(single, batched);
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    private static List<Tensor> embedSingly(HuggingFaceEmbedder embedder) {
+        List<Tensor> embeddings = new ArrayList<>();
+        for (String text : texts)
+            embeddings.add(embedder.embed(text, new Embedder.Context("schema.indexing"), type));
+        return embeddings;
+    }
+
+    private static void assertEqualEmbeddings(List<Tensor> expected, List<Tensor> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++)
+            for (int j = 0; j < 8; j++)
+                assertEquals("Cell " + j + " of '" + texts.get(i) + "'",
+                             expected.get(i).get(TensorAddress.of(j)), actual.get(i).get(TensorAddress.of(j)), 1e-5);
+    }
+
+    private static HuggingFaceEmbedder embedder(int batchingMaxSize, int batchingMaxDelayMillis) {
+        HuggingFaceEmbedderConfig.Builder builder = new HuggingFaceEmbedderConfig.Builder();
+        builder.tokenizerPath(ModelReference.valueOf("src/test/models/onnx/transformer/real_tokenizer.json"));
+        builder.transformerModel(ModelReference.valueOf(modelPath));
+        builder.transformerGpuDevice(-1);
+        builder.batchingMaxSize(batchingMaxSize);
+        builder.batchingMaxDelayMillis(batchingMaxDelayMillis);
+        return new HuggingFaceEmbedder(new OnnxRuntime(), Embedder.Runtime.testInstance(), builder.build());
+    }
+
+}
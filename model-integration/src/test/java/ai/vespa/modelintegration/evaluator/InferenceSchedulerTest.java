@@ -0,0 +1,83 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+
+package ai.vespa.modelintegration.evaluator;
+
+import com.yahoo.metrics.simple.MetricReceiver;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class InferenceSchedulerTest {
+
+    @Test
+    void evaluations_wait_for_threads_from_the_budget() throws Exception {
+        var scheduler = new InferenceScheduler(4, MetricReceiver.nullImplementation);
+        var running = new AtomicInteger();
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Integer> first = executor.submit(() -> scheduler.execute(3, () -> {
+                running.incrementAndGet();
+                started.countDown();
+                try {
+                    release.await();
+                }
+                catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return running.getAndDecrement();
+            }));
+            started.await();
+            Future<Integer> second = executor.submit(() -> scheduler.execute(2, running::incrementAndGet));
+            while (scheduler.queued() == 0) Thread.sleep(1);
+            assertFalse(second.isDone()); // Only 1 of the 4 threads remain while the first runs.
+
+            release.countDown();
+            assertEquals(1, first.get());
+            assertEquals(1, second.get());
+            assertEquals(0, scheduler.queued());
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void threads_are_returned_when_evaluation_fails() throws Exception {
+        var scheduler = new InferenceScheduler(1, MetricReceiver.nullImplementation);
+        assertThrows(IllegalStateException.class, () -> scheduler.execute(1, () -> { throw new IllegalStateException(); }));
+        assertEquals("ok", scheduler.execute(1, () -> "ok"));
+    }
+
+    @Test
+    void intra_op_threads_are_fit_to_the_budget() {
+        var options = new OnnxEvaluatorOptions();
+        options.setIntraOpThreads(8);
+        var budget = new InferenceScheduler(4, MetricReceiver.nullImplementation);
+        assertEquals(4, budget.fit(options).intraOpThreads());
+        assertEquals(4, budget.threadsOf(options));
+        assertEquals(8, options.intraOpThreads());
+
+        options.setIntraOpThreads(0); // One per core
+        assertEquals(4, budget.fit(options).intraOpThreads());
+
+        options.setIntraOpThreads(2);
+        assertSame(options, budget.fit(options));
+        assertEquals(2, budget.threadsOf(options));
+
+        var unlimited = new InferenceScheduler(0, MetricReceiver.nullImplementation);
+        assertSame(options, unlimited.fit(options));
+        assertEquals(0, unlimited.threadsOf(options));
+    }
+
+}
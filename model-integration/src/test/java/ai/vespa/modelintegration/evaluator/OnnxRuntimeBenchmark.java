@@ -0,0 +1,102 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+
+package ai.vespa.modelintegration.evaluator;
+
+import com.yahoo.metrics.simple.MetricReceiver;
+import com.yahoo.tensor.IndexedTensor;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorType;
+import com.yahoo.vespa.config.search.core.OnnxModelsConfig;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load benchmark of concurrent evaluation of a small transformer model, with and without a shared thread budget,
+ * reporting throughput and latency percentiles for each setup.
+ *
+ * Arguments: [client threads] [seconds per setup] [intra-op threads per evaluation]
+ */
+public class OnnxRuntimeBenchmark {
+
+    private static final String model = "src/test/models/onnx/transformer/dummy_transformer.onnx";
+
+    public static void main(String[] args) throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 4 * cores;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int intraOpThreads = args.length > 2 ? Integer.parseInt(args[2]) : cores;
+        if ( ! OnnxRuntime.isRuntimeAvailable()) throw new IllegalStateException("ONNX Runtime is not available");
+
+        System.out.printf("%d cores, %d clients, %d intra-op threads per evaluation%n", cores, clients, intraOpThreads);
+        benchmark("no thread budget", 0, 1, clients, seconds, intraOpThreads);
+        benchmark("thread budget", cores, 1, clients, seconds, intraOpThreads);
+        benchmark("thread budget, session pool", cores, Math.max(1, cores / intraOpThreads), clients, seconds, intraOpThreads);
+    }
+
+    private static void benchmark(String name, int threads, int sessionsPerModel, int clients, int seconds,
+                                  int intraOpThreads) throws InterruptedException {
+        var config = new OnnxModelsConfig.Builder();
+        config.execution.threads(threads).sessions_per_model(sessionsPerModel);
+        var runtime = new OnnxRuntime(config.build(), MetricReceiver.nullImplementation);
+        var options = new OnnxEvaluatorOptions();
+        options.setIntraOpThreads(intraOpThreads);
+        try (var evaluator = runtime.evaluatorOf(model, options)) {
+            Map<String, Tensor> inputs = inputs(8, 128);
+            for (int i = 0; i < 100; i++) // warmup
+                evaluator.evaluate(inputs, "output_0");
+
+            List<List<Long>> latencies = new ArrayList<>();
+            CountDownLatch done = new CountDownLatch(clients);
+            long endNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+            for (int i = 0; i < clients; i++) {
+                List<Long> clientLatencies = new ArrayList<>();
+                latencies.add(clientLatencies);
+                new Thread(() -> {
+                    try {
+                        long startNanos;
+                        while ((startNanos = System.nanoTime()) < endNanos) {
+                            evaluator.evaluate(inputs, "output_0");
+                            clientLatencies.add(System.nanoTime() - startNanos);
+                        }
+                    }
+                    finally {
+                        done.countDown();
+                    }
+                }).start();
+            }
+            done.await();
+
+            List<Long> all = new ArrayList<>();
+            latencies.forEach(all::addAll);
+            Collections.sort(all);
+            System.out.printf("%-28s %8.1f evaluations/s  p50 %7.2f ms  p99 %7.2f ms  max %7.2f ms%n",
+                              name, all.size() / (double) seconds, percentile(all, 0.5), percentile(all, 0.99),
+                              all.get(all.size() - 1) / 1e6);
+        }
+    }
+
+    private static double percentile(List<Long> sortedNanos, double fraction) {
+        return sortedNanos.get((int) Math.min(sortedNanos.size() - 1, sortedNanos.size() * fraction)) / 1e6;
+    }
+
+    private static Map<String, Tensor> inputs(int batch, int tokens) {
+        TensorType type = TensorType.fromSpec("tensor<float>(d0[" + batch + "],d1[" + tokens + "])");
+        var ids = IndexedTensor.Builder.of(type);
+        var mask = IndexedTensor.Builder.of(type);
+        var typeIds = IndexedTensor.Builder.of(type);
+        for (int i = 0; i < batch; i++) {
+            for (int j = 0; j < tokens; j++) {
+                ids.cell((i + j) % 20, i, j);
+                mask.cell(1, i, j);
+                typeIds.cell(0, i, j);
+            }
+        }
+        return Map.of("input_ids", ids.build(), "attention_mask", mask.build(), "token_type_ids", typeIds.build());
+    }
+
+}
@@ -2,16 +2,25 @@
 
 package ai.vespa.modelintegration.evaluator;
 
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import com.yahoo.metrics.simple.MetricReceiver;
+import com.yahoo.tensor.Tensor;
+import com.yahoo.vespa.config.search.core.OnnxModelsConfig;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
@@ -80,6 +89,42 @@ class OnnxRuntimeTest {
         }
     }
 
+    @Test
+    void creates_a_pool_of_sessions_per_model() {
+        assumeTrue(OnnxRuntime.isRuntimeAvailable());
+        List<OrtSession> created = new ArrayList<>();
+        var factory = new OnnxRuntime.OrtSessionFactory() {
+            @Override public OrtSession create(String path, OrtSession.SessionOptions opts) throws OrtException {
+                var session = OnnxRuntime.ortEnvironment().createSession(path, opts);
+                created.add(session);
+                return session;
+            }
+            @Override public OrtSession create(byte[] data, OrtSession.SessionOptions opts) throws OrtException {
+                throw new UnsupportedOperationException();
+            }
+        };
+        var config = new OnnxModelsConfig.Builder();
+        config.execution.threads(2).sessions_per_model(3);
+        var runtime = new OnnxRuntime(factory, config.build(), MetricReceiver.nullImplementation);
+        String model = "src/test/models/onnx/simple/simple.onnx";
+        var evaluator1 = runtime.evaluatorOf(model);
+        var evaluator2 = runtime.evaluatorOf(model);
+        assertEquals(3, created.size());
+        assertEquals(1, runtime.sessionsCached());
+        assertSameSession(evaluator1, evaluator2);
+
+        var inputs = Map.of("query_tensor", Tensor.from("tensor(d0[1],d1[4]):[0.1, 0.2, 0.3, 0.4]"),
+                            "attribute_tensor", Tensor.from("tensor(d0[4],d1[1]):[0.1, 0.2, 0.3, 0.4]"),
+                            "bias_tensor", Tensor.from("tensor(d0[1],d1[1]):[1.0]"));
+        assertEquals(Tensor.from("tensor<float>(d0[1],d1[1]):[1.3]"), evaluator1.evaluate(inputs, "output"));
+
+        evaluator1.close();
+        evaluator2.close();
+        assertEquals(0, runtime.sessionsCached());
+        for (var session : created)
+            assertThrows(IllegalStateException.class, session::getInputInfo);
+    }
+
     private static void assertClosed(OnnxEvaluator evaluator) { assertTrue(isClosed(evaluator), "Session is not closed"); }
     private static void assertNotClosed(OnnxEvaluator evaluator) { assertFalse(isClosed(evaluator), "Session is closed"); }
     private static void assertSameSession(OnnxEvaluator evaluator1, OnnxEvaluator evaluator2) {
@@ -0,0 +1,52 @@
+# Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+
+# A tiny batch-first embedding model: each token embedding is combined with the mean of the embeddings
+# of the unmasked tokens of its own sequence, so the output of a sequence does not depend on the
+# other sequences in the batch, nor on padding.
+
+import math
+import onnx
+from onnx import helper, TensorProto
+
+VOCAB_SIZE = 64
+DIM = 8
+
+
+def weights(name, rows, cols, offset):
+    values = [math.sin(offset + 0.1 * (r * cols + c + 1)) for r in range(rows) for c in range(cols)]
+    return helper.make_tensor(name, TensorProto.FLOAT, [rows, cols], values)
+
+
+INPUT_IDS = helper.make_tensor_value_info('input_ids', TensorProto.INT64, ['batch', 'tokens'])
+ATTENTION_MASK = helper.make_tensor_value_info('attention_mask', TensorProto.INT64, ['batch', 'tokens'])
+TOKEN_TYPE_IDS = helper.make_tensor_value_info('token_type_ids', TensorProto.INT64, ['batch', 'tokens'])
+OUTPUT = helper.make_tensor_value_info('last_hidden_state', TensorProto.FLOAT, ['batch', 'tokens', 'dim'])
+
+nodes = [
+    helper.make_node('Mod', ['input_ids', 'vocab_size'], ['ids']),
+    helper.make_node('Gather', ['token_embeddings', 'ids'], ['tokens']),
+    helper.make_node('Gather', ['type_embeddings', 'token_type_ids'], ['types']),
+    helper.make_node('Add', ['tokens', 'types'], ['embeddings']),
+    helper.make_node('Cast', ['attention_mask'], ['mask'], to=TensorProto.FLOAT),
+    helper.make_node('Unsqueeze', ['mask'], ['mask3'], axes=[2]),
+    helper.make_node('Mul', ['embeddings', 'mask3'], ['masked']),
+    helper.make_node('ReduceSum', ['masked'], ['sum'], axes=[1], keepdims=1),
+    helper.make_node('ReduceSum', ['mask3'], ['count'], axes=[1], keepdims=1),
+    helper.make_node('Div', ['sum', 'count'], ['context']),
+    helper.make_node('Add', ['embeddings', 'context'], ['hidden']),
+    helper.make_node('Tanh', ['hidden'], ['last_hidden_state']),
+]
+graph_def = helper.make_graph(
+    nodes,
+    'batch_embedding_model',
+    [INPUT_IDS, ATTENTION_MASK, TOKEN_TYPE_IDS],
+    [OUTPUT],
+    [
+        helper.make_tensor('vocab_size', TensorProto.INT64, [], [VOCAB_SIZE]),
+        weights('token_embeddings', VOCAB_SIZE, DIM, 0),
+        weights('type_embeddings', 2, DIM, 1),
+    ],
+)
+model_def = helper.make_model(graph_def, producer_name='batch_embedding_model.py', opset_imports=[onnx.OperatorSetIdProto(version=12)])
+model_def.ir_version = 7
+onnx.save(model_def, 'batch_embedding_model.onnx')
@@ -0,0 +1,43 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.test;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the time and heap allocation per run of an operation in the current thread,
+ * for microbenchmarks which are run as main programs.
+ */
+public class Microbenchmark {
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private Microbenchmark() { }
+
+    /** Runs the given operation the given number of times, and returns the average cost of a run. */
+    public static <E extends Exception> Cost measure(int iterations, Operation<E> operation) throws E {
+        long startBytes = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < iterations; i++)
+            operation.run();
+        long nanos = (System.nanoTime() - startNanos) / iterations;
+        long bytes = (threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - startBytes) / iterations;
+        return new Cost(nanos, bytes);
+    }
+
+    @FunctionalInterface
+    public interface Operation<E extends Exception> {
+        void run() throws E;
+    }
+
+    /** The average time, and bytes allocated, per run of an operation. */
+    public record Cost(long nanos, long bytes) {
+
+        @Override
+        public String toString() {
+            return String.format("%10d ns/op %12d bytes/op", nanos, bytes);
+        }
+
+    }
+
+}
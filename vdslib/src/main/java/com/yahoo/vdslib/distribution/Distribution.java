@@ -12,6 +12,7 @@ import com.yahoo.document.BucketId;
 
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -22,6 +23,7 @@ import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicReference;
 
 public class Distribution {
@@ -29,8 +31,32 @@ public class Distribution {
     private record Config(Group nodeGraph, int redundancy) {
     }
 
+    /**
+     * The ideal distributor of each superbucket in a cluster state, or -1 where this is not yet known,
+     * with one table for each set of up states
+     */
+    private record DistributorCache(Config config, ClusterState state, Map<String, int[]> distributors) {
+
+        boolean isFor(Config config, ClusterState state) {
+            return this.config == config && this.state == state;
+        }
+
+        int[] distributors(String upStates) {
+            return distributors.computeIfAbsent(upStates, __ -> {
+                int[] table = new int[1 << state.getDistributionBitCount()];
+                Arrays.fill(table, -1);
+                return table;
+            });
+        }
+
+    }
+
+    /** The highest number of distribution bits for which ideal distributors are cached, using 4 bytes per superbucket */
+    static final int maxCachedDistributionBits = 16;
+
     private ConfigSubscriber configSub;
     private final AtomicReference<Config> config = new AtomicReference<>(new Config(null, 1));
+    private final AtomicReference<DistributorCache> distributorCache = new AtomicReference<>();
 
     public Group getRootGroup() {
         return config.getAcquire().nodeGraph;
@@ -461,6 +487,35 @@ public class Distribution {
         return node.index;
     }
 
+    /**
+     * Returns the same as {@link #getIdealDistributorNode}, but remembers the result for each superbucket, as the
+     * ideal distributor depends only on the distribution bits of the bucket. Lookups are then constant time as long as
+     * the same cluster state instance is used. A table is kept for each distinct up states string, and all tables
+     * are dropped when the cluster state instance or the distribution config changes.
+     * <p>
+     * The given cluster state <b>must not be modified</b> after it is first passed to this.
+     */
+    public int getIdealDistributorNodeCached(ClusterState state, BucketId bucket, String upStates) throws TooFewBucketBitsInUseException, NoDistributorsAvailableException {
+        int distributionBits = state.getDistributionBitCount();
+        if (distributionBits > maxCachedDistributionBits || bucket.getUsedBits() < distributionBits)
+            return getIdealDistributorNode(state, bucket, upStates);
+
+        Config cfg = config.getAcquire();
+        DistributorCache cache = distributorCache.getAcquire();
+        if (cache == null || ! cache.isFor(cfg, state)) {
+            cache = new DistributorCache(cfg, state, new ConcurrentHashMap<>());
+            distributorCache.setRelease(cache);
+        }
+        int[] distributors = cache.distributors(upStates);
+        int superbucket = (int) lastNBits(bucket.getRawId(), distributionBits);
+        int distributor = distributors[superbucket];
+        if (distributor < 0) { // Racing writers store the same value, so this needs no synchronization
+            distributor = getIdealDistributorNode(state, bucket, upStates);
+            distributors[superbucket] = distributor;
+        }
+        return distributor;
+    }
+
     private boolean visitGroups(GroupVisitor visitor, Map<Integer, Group> groups) {
         for (Group g : groups.values()) {
             if (!visitor.visitGroup(g)) return false;
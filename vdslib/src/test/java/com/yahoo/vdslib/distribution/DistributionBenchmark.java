@@ -0,0 +1,66 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vdslib.distribution;
+
+import com.yahoo.document.BucketId;
+import com.yahoo.vdslib.state.ClusterState;
+import com.yahoo.vespa.config.content.StorDistributionConfig;
+
+import java.util.Random;
+
+/**
+ * Microbenchmark of ideal distributor lookup, computed and cached, in a content cluster with 200 nodes
+ * in a 3-level group hierarchy of 2 x 4 x 5 groups with 5 nodes each.
+ */
+public class DistributionBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Distribution distribution = new Distribution(new StorDistributionConfig(hierarchicalConfig()));
+        ClusterState state = new ClusterState("version:1 distributor:200 .13.s:d .77.s:m storage:200");
+        BucketId[] buckets = new BucketId[1 << 16];
+        Random random = new Random(42);
+        for (int i = 0; i < buckets.length; i++)
+            buckets[i] = new BucketId(32, random.nextLong());
+
+        long start = System.nanoTime();
+        for (BucketId bucket : buckets)
+            distribution.getIdealDistributorNodeCached(state, bucket, "uim");
+        System.out.printf("Filling cache for %d superbuckets: %d ms%n", buckets.length, (System.nanoTime() - start) / 1_000_000);
+
+        for (int round = 0; round < 2; round++) { // first round is warmup
+            long checksum = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++)
+                checksum += distribution.getIdealDistributorNode(state, buckets[i & (buckets.length - 1)], "uim");
+            long computed = (System.nanoTime() - start) / iterations;
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++)
+                checksum -= distribution.getIdealDistributorNodeCached(state, buckets[i & (buckets.length - 1)], "uim");
+            long cached = (System.nanoTime() - start) / iterations;
+            if (round > 0)
+                System.out.printf("computed: %6d ns/op, cached: %6d ns/op (checksum %d)%n", computed, cached, checksum);
+        }
+    }
+
+    private static StorDistributionConfig.Builder hierarchicalConfig() {
+        StorDistributionConfig.Builder builder = new StorDistributionConfig.Builder().redundancy(4);
+        builder.group(new StorDistributionConfig.Group.Builder().name("invalid").index("invalid").partitions("*|*"));
+        int node = 0;
+        for (int i = 0; i < 2; i++) {
+            builder.group(new StorDistributionConfig.Group.Builder().name("zone" + i).index("" + i).partitions("*|*"));
+            for (int j = 0; j < 4; j++) {
+                builder.group(new StorDistributionConfig.Group.Builder().name("rack" + i + "." + j).index(i + "." + j)
+                                      .partitions("*"));
+                for (int k = 0; k < 5; k++) {
+                    StorDistributionConfig.Group.Builder group = new StorDistributionConfig.Group.Builder()
+                            .name("host-group" + i + "." + j + "." + k).index(i + "." + j + "." + k);
+                    for (int n = 0; n < 5; n++)
+                        group.nodes(new StorDistributionConfig.Group.Nodes.Builder().index(node++));
+                    builder.group(group);
+                }
+            }
+        }
+        return builder;
+    }
+
+}
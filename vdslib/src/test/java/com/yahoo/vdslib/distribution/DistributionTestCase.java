@@ -384,6 +384,32 @@ public class DistributionTestCase {
         assertTrue(Arrays.toString(counts) + ": Too small diff" + diff, diff > 2.9);
     }
 
+    @Test
+    public void testCachedIdealDistributorEqualsComputed() throws Exception {
+        Distribution distribution = new Distribution(new StorDistributionConfig(buildHierarchicalConfig(8, 5, 3, "*|*", 3)));
+        List<ClusterState> states = List.of(new ClusterState("distributor:375 storage:375"),
+                                            new ClusterState("bits:8 distributor:375 .2.s:d .17.s:m .30.s:d storage:375"),
+                                            new ClusterState("bits:20 distributor:375 storage:375"));
+        for (ClusterState state : states) {
+            for (String upStates : List.of("uim", "u")) {
+                for (int round = 0; round < 2; round++) { // second round is served from the cache
+                    for (BucketId bucket : getTestBuckets()) {
+                        if (bucket.getUsedBits() < state.getDistributionBitCount()) continue;
+                        assertEquals(bucket + " in " + state + " with up states " + upStates,
+                                     distribution.getIdealDistributorNode(state, bucket, upStates),
+                                     distribution.getIdealDistributorNodeCached(state, bucket, upStates));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test(expected = Distribution.TooFewBucketBitsInUseException.class)
+    public void cachedIdealDistributorRequiresEnoughUsedBits() throws Exception {
+        Distribution distribution = new Distribution(new StorDistributionConfig(buildHierarchicalConfig(4, 4, 1, "1|1|1|*", 1)));
+        distribution.getIdealDistributorNodeCached(new ClusterState("distributor:4"), new BucketId(8, 0), "uim");
+    }
+
     @Test(expected = Distribution.NoDistributorsAvailableException.class)
     public void clusterDownInHierarchicSetupThrowsNoDistributorsAvailableException() throws Exception {
         ClusterState clusterState = new ClusterState("cluster:d");
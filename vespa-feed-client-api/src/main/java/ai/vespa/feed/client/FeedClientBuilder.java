@@ -43,6 +43,8 @@ public interface FeedClientBuilder {
     }
     /**
      * Sets the number of connections this client will use per endpoint.
+     * More connections, up to four times this number, may be used while these increase throughput,
+     * and connections which are much slower than the others to the same endpoint are replaced.
      *
      * A reasonable value here is a value that lets all feed clients (if more than one)
      * collectively have a number of connections which is a small multiple of the numbers
@@ -150,6 +152,13 @@ public interface FeedClientBuilder {
     /** What compression to use for request bodies; default {@code auto}. */
     FeedClientBuilder setCompression(Compression compression);
 
+    /**
+     * Sets the maximum number of operations to send in each HTTP request; default 1.
+     * When larger than 1, operations are sent as JSON lines to the bulk feed endpoint of the server,
+     * which reduces the per-request overhead when feeding many small documents.
+     */
+    FeedClientBuilder setOperationsPerRequest(int max);
+
     enum Compression { auto, none, gzip }
 
     /** Constructs instance of {@link FeedClient} from builder configuration */
@@ -1,6 +1,7 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package ai.vespa.feed.client;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -23,10 +24,18 @@ public class OperationStats {
     private final long maxLatencyMillis;
     private final long bytesSent;
     private final long bytesReceived;
+    private final List<ConnectionStats> connections;
 
     public OperationStats(double duration, long requests, Map<Integer, Long> responsesByCode, long exceptions,
                           long inflight, long targetInFlight, long averageLatencyMillis, long minLatencyMillis,
                           long maxLatencyMillis, long bytesSent, long bytesReceived) {
+        this(duration, requests, responsesByCode, exceptions, inflight, targetInFlight, averageLatencyMillis,
+             minLatencyMillis, maxLatencyMillis, bytesSent, bytesReceived, List.of());
+    }
+
+    public OperationStats(double duration, long requests, Map<Integer, Long> responsesByCode, long exceptions,
+                          long inflight, long targetInFlight, long averageLatencyMillis, long minLatencyMillis,
+                          long maxLatencyMillis, long bytesSent, long bytesReceived, List<ConnectionStats> connections) {
         this.duration = duration;
         this.requests = requests;
         this.responsesByCode = responsesByCode;
@@ -38,10 +47,11 @@ public class OperationStats {
         this.maxLatencyMillis = maxLatencyMillis;
         this.bytesSent = bytesSent;
         this.bytesReceived = bytesReceived;
+        this.connections = List.copyOf(connections);
     }
 
     /** Returns the difference between this and the initial.
-     *  Min and max latency, inflight and targetInflight are not modified.
+     *  Min and max latency, inflight, targetInflight and connections are not modified.
      */
     public OperationStats since(OperationStats initial) {
         return new OperationStats(duration - initial.duration,
@@ -58,7 +68,8 @@ public class OperationStats {
                                   minLatencyMillis,
                                   maxLatencyMillis,
                                   bytesSent - initial.bytesSent,
-                                  bytesReceived - initial.bytesReceived);
+                                  bytesReceived - initial.bytesReceived,
+                                  connections);
     }
 
     /** Number of HTTP requests attempted. */
@@ -116,17 +127,22 @@ public class OperationStats {
         return bytesReceived;
     }
 
+    /** Statistics for each HTTP connection currently used, if known; for connections which are replaced, counts start over. */
+    public List<ConnectionStats> connections() {
+        return connections;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         OperationStats that = (OperationStats) o;
-        return requests == that.requests && inflight == that.inflight && exceptions == that.exceptions && averageLatencyMillis == that.averageLatencyMillis && minLatencyMillis == that.minLatencyMillis && maxLatencyMillis == that.maxLatencyMillis && bytesSent == that.bytesSent && bytesReceived == that.bytesReceived && responsesByCode.equals(that.responsesByCode);
+        return requests == that.requests && inflight == that.inflight && exceptions == that.exceptions && averageLatencyMillis == that.averageLatencyMillis && minLatencyMillis == that.minLatencyMillis && maxLatencyMillis == that.maxLatencyMillis && bytesSent == that.bytesSent && bytesReceived == that.bytesReceived && responsesByCode.equals(that.responsesByCode) && connections.equals(that.connections);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(requests, responsesByCode, inflight, exceptions, averageLatencyMillis, minLatencyMillis, maxLatencyMillis, bytesSent, bytesReceived);
+        return Objects.hash(requests, responsesByCode, inflight, exceptions, averageLatencyMillis, minLatencyMillis, maxLatencyMillis, bytesSent, bytesReceived, connections);
     }
 
     @Override
@@ -145,7 +161,76 @@ public class OperationStats {
                ", maxLatencyMillis=" + maxLatencyMillis +
                ", bytesSent=" + bytesSent +
                ", bytesReceived=" + bytesReceived +
+               ", connections=" + connections +
                '}';
     }
 
+    /** Statistics for a single HTTP connection to an endpoint of a Vespa cluster. */
+    public static class ConnectionStats {
+
+        private final String endpoint;
+        private final long requests;
+        private final long responses;
+        private final long inflight;
+        private final long averageLatencyMillis;
+
+        public ConnectionStats(String endpoint, long requests, long responses, long inflight, long averageLatencyMillis) {
+            this.endpoint = endpoint;
+            this.requests = requests;
+            this.responses = responses;
+            this.inflight = inflight;
+            this.averageLatencyMillis = averageLatencyMillis;
+        }
+
+        /** The endpoint this connection is to. */
+        public String endpoint() {
+            return endpoint;
+        }
+
+        /** Number of HTTP requests sent over this connection. */
+        public long requests() {
+            return requests;
+        }
+
+        /** Number of HTTP responses received over this connection. */
+        public long responses() {
+            return responses;
+        }
+
+        /** Number of requests sent over this connection which haven't yielded a response or exception yet. */
+        public long inflight() {
+            return inflight;
+        }
+
+        /** Average request-response latency over this connection, or -1. */
+        public long averageLatencyMillis() {
+            return averageLatencyMillis;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            ConnectionStats that = (ConnectionStats) o;
+            return requests == that.requests && responses == that.responses && inflight == that.inflight && averageLatencyMillis == that.averageLatencyMillis && endpoint.equals(that.endpoint);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(endpoint, requests, responses, inflight, averageLatencyMillis);
+        }
+
+        @Override
+        public String toString() {
+            return "ConnectionStats{" +
+                   "endpoint=" + endpoint +
+                   ", requests=" + requests +
+                   ", responses=" + responses +
+                   ", inflight=" + inflight +
+                   ", averageLatencyMillis=" + averageLatencyMillis +
+                   '}';
+        }
+
+    }
+
 }
@@ -229,6 +229,20 @@ public class CliClient {
                 generator.writeNumberField(Integer.toString(entry.getKey()), entry.getValue());
             generator.writeEndObject();
 
+            if ( ! stats.connections().isEmpty()) {
+                generator.writeArrayFieldStart("http.connections");
+                for (OperationStats.ConnectionStats connection : stats.connections()) {
+                    generator.writeStartObject();
+                    generator.writeStringField("endpoint", connection.endpoint());
+                    generator.writeNumberField("request.count", connection.requests());
+                    generator.writeNumberField("response.count", connection.responses());
+                    generator.writeNumberField("inflight.count", connection.inflight());
+                    writeFloatField(generator, "response.latency.millis.avg", connection.averageLatencyMillis(), 3);
+                    generator.writeEndObject();
+                }
+                generator.writeEndArray();
+            }
+
             generator.writeEndObject();
         }
     }
@@ -1,15 +1,22 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package ai.vespa.feed.client.impl;
 
+import ai.vespa.feed.client.OperationStats;
+import ai.vespa.feed.client.OperationStats.ConnectionStats;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * @author jonmv
@@ -29,4 +36,37 @@ class CliClientTest {
                      new String(buffer, 0, offset, StandardCharsets.UTF_8));
     }
 
+    @Test
+    void testBenchmarkResultWithConnections() throws IOException {
+        OperationStats stats = new OperationStats(2, 3, Map.of(200, 2L), 1, 0, 4, 5, 1, 9, 100, 200,
+                                                  List.of(new ConnectionStats("https://a:4443/", 2, 2, 0, 4),
+                                                          new ConnectionStats("https://a:4443/", 1, 0, 1, 0)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CliClient.printBenchmarkResult(2_000_000_000L, 2, 1, stats, out);
+        String result = out.toString(StandardCharsets.UTF_8).replace(System.lineSeparator(), "\n");
+        assertTrue(result.endsWith("  \"http.connections\" : [ {\n" +
+                                   "    \"endpoint\" : \"https://a:4443/\",\n" +
+                                   "    \"request.count\" : 2,\n" +
+                                   "    \"response.count\" : 2,\n" +
+                                   "    \"inflight.count\" : 0,\n" +
+                                   "    \"response.latency.millis.avg\" : 4.000\n" +
+                                   "  }, {\n" +
+                                   "    \"endpoint\" : \"https://a:4443/\",\n" +
+                                   "    \"request.count\" : 1,\n" +
+                                   "    \"response.count\" : 0,\n" +
+                                   "    \"inflight.count\" : 1,\n" +
+                                   "    \"response.latency.millis.avg\" : 0.000\n" +
+                                   "  } ]\n" +
+                                   "}"),
+                   result);
+    }
+
+    @Test
+    void testBenchmarkResultWithoutConnections() throws IOException {
+        OperationStats stats = new OperationStats(2, 3, Map.of(200, 2L), 1, 0, 4, 5, 1, 9, 100, 200);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CliClient.printBenchmarkResult(2_000_000_000L, 2, 1, stats, out);
+        assertFalse(out.toString(StandardCharsets.UTF_8).contains("http.connections"), out.toString(StandardCharsets.UTF_8));
+    }
+
 }
@@ -3,9 +3,11 @@ package ai.vespa.feed.client.impl;
 
 import ai.vespa.feed.client.HttpResponse;
 import ai.vespa.feed.client.OperationStats;
+import ai.vespa.feed.client.OperationStats.ConnectionStats;
 
 import java.time.Instant;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
@@ -100,7 +102,12 @@ public class BenchmarkingCluster implements Cluster {
                                   this.responses == 0 ? -1 : totalLatencyMillis / this.responses,
                                   this.responses == 0 ? -1 : minLatencyMillis,
                                   this.responses == 0 ? -1 : maxLatencyMillis,
-                                  bytesSent, bytesReceived);
+                                  bytesSent, bytesReceived, delegate.connectionStats());
+    }
+
+    @Override
+    public List<ConnectionStats> connectionStats() {
+        return delegate.connectionStats();
     }
 
     @Override
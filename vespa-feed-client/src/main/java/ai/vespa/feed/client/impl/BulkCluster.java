@@ -0,0 +1,205 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.feed.client.impl;
+
+import ai.vespa.feed.client.HttpResponse;
+import ai.vespa.feed.client.OperationStats;
+import ai.vespa.feed.client.OperationStats.ConnectionStats;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Collects operation requests to the bulk feed endpoint into batches, where each batch is sent as a single
+ * HTTP request with one operation per line, and demultiplexes the response lines into a response per operation.
+ * A batch is sent when it is full, or when its first operation has waited for the given linger time.
+ * Requests to any other path are passed directly on to the delegate cluster.
+ */
+class BulkCluster implements Cluster {
+
+    static final String PATH = "/document/v1/bulk";
+
+    private static final JsonFactory factory = new JsonFactory();
+
+    private final Cluster delegate;
+    private final int maxOperations;
+    private final Duration linger;
+    private final Map<String, Batch> batches = new HashMap<>();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "feed-client-bulk-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    BulkCluster(Cluster delegate, int maxOperations, Duration linger) {
+        this.delegate = requireNonNull(delegate);
+        this.maxOperations = maxOperations;
+        this.linger = requireNonNull(linger);
+    }
+
+    @Override
+    public void dispatch(HttpRequest request, CompletableFuture<HttpResponse> vessel) {
+        if ( ! request.path().startsWith(PATH)) {
+            delegate.dispatch(request, vessel);
+            return;
+        }
+
+        Batch full = null;
+        synchronized (batches) {
+            Batch batch = batches.computeIfAbsent(request.path(), __ -> new Batch(request));
+            batch.add(request, vessel);
+            if (batch.size() == maxOperations) {
+                batches.remove(request.path());
+                full = batch;
+            }
+            else if (batch.size() == 1) {
+                try {
+                    executor.schedule(() -> flush(batch), linger.toNanos(), TimeUnit.NANOSECONDS);
+                }
+                catch (RejectedExecutionException e) { // Closed; send what we have right away.
+                    batches.remove(request.path());
+                    full = batch;
+                }
+            }
+        }
+        if (full != null) full.send();
+    }
+
+    private void flush(Batch batch) {
+        synchronized (batches) {
+            if ( ! batches.remove(batch.path, batch)) return;
+        }
+        batch.send();
+    }
+
+    @Override
+    public OperationStats stats() {
+        return delegate.stats();
+    }
+
+    @Override
+    public List<ConnectionStats> connectionStats() {
+        return delegate.connectionStats();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        List<Batch> remaining;
+        synchronized (batches) {
+            remaining = new ArrayList<>(batches.values());
+            batches.clear();
+        }
+        remaining.forEach(Batch::send);
+        delegate.close();
+    }
+
+    private class Batch {
+
+        private final String path;
+        private final HttpRequest first;
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private final List<CompletableFuture<HttpResponse>> vessels = new ArrayList<>();
+
+        Batch(HttpRequest first) {
+            this.path = first.path();
+            this.first = first;
+        }
+
+        void add(HttpRequest request, CompletableFuture<HttpResponse> vessel) {
+            if ( ! vessels.isEmpty()) body.write('\n');
+            body.writeBytes(request.body());
+            vessels.add(vessel);
+        }
+
+        int size() {
+            return vessels.size();
+        }
+
+        void send() {
+            CompletableFuture<HttpResponse> batchVessel = new CompletableFuture<>();
+            batchVessel.whenComplete((response, thrown) -> {
+                if (thrown != null)
+                    vessels.forEach(vessel -> vessel.completeExceptionally(thrown));
+                else if (response.code() != 200)
+                    vessels.forEach(vessel -> vessel.complete(response));
+                else
+                    complete(response.body());
+            });
+            delegate.dispatch(new HttpRequest("POST", path, first.headers(), body.toByteArray(), first.timeout()),
+                              batchVessel);
+        }
+
+        /** Completes each operation with its line of the response, and fails those which are missing, so they are retried. */
+        private void complete(byte[] lines) {
+            try {
+                int start = 0;
+                for (int end = 0; end <= lines.length; end++) {
+                    if (end < lines.length && lines[end] != '\n') continue;
+                    if (end > start) {
+                        byte[] line = Arrays.copyOfRange(lines, start, end);
+                        Result result = parse(line);
+                        if (0 <= result.index && result.index < vessels.size())
+                            vessels.get(result.index).complete(HttpResponse.of(result.status, line));
+                    }
+                    start = end + 1;
+                }
+            }
+            catch (IOException | RuntimeException e) {
+                vessels.forEach(vessel -> vessel.completeExceptionally(e));
+            }
+            IOException missing = new IOException("no result for operation in response to bulk request");
+            vessels.forEach(vessel -> vessel.completeExceptionally(missing));
+        }
+
+    }
+
+    private static class Result {
+        final int index;
+        final int status;
+        Result(int index, int status) {
+            this.index = index;
+            this.status = status;
+        }
+    }
+
+    private static Result parse(byte[] line) throws IOException {
+        int index = -1;
+        int status = 0;
+        try (JsonParser parser = factory.createParser(line)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT)
+                throw new IOException("expected object in bulk response, got: " + new String(line, UTF_8));
+
+            String name;
+            while ((name = parser.nextFieldName()) != null) {
+                parser.nextToken();
+                switch (name) {
+                    case "index": index = parser.getIntValue(); break;
+                    case "status": status = parser.getIntValue(); break;
+                    default: parser.skipChildren(); break;
+                }
+            }
+        }
+        if (index < 0 || status == 0)
+            throw new IOException("missing index or status in bulk response line: " + new String(line, UTF_8));
+
+        return new Result(index, status);
+    }
+
+}
@@ -3,8 +3,10 @@ package ai.vespa.feed.client.impl;
 
 import ai.vespa.feed.client.HttpResponse;
 import ai.vespa.feed.client.OperationStats;
+import ai.vespa.feed.client.OperationStats.ConnectionStats;
 
 import java.io.Closeable;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -22,4 +24,7 @@ interface Cluster extends Closeable {
 
     default OperationStats stats() { throw new UnsupportedOperationException("Benchmarking has been disabled"); }
 
+    /** Statistics for each connection currently used by this, if known. */
+    default List<ConnectionStats> connectionStats() { return List.of(); }
+
 }
@@ -0,0 +1,292 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.feed.client.impl;
+
+import ai.vespa.feed.client.OperationStats.ConnectionStats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static java.util.Comparator.comparingDouble;
+
+/**
+ * Keeps track of the connections to each endpoint of a cluster, and of their latencies and throughput, and
+ * <ul>
+ *     <li>routes each new request to the connection with the least expected latency,</li>
+ *     <li>scales the number of connections to each endpoint up while this increases its throughput, and down when fewer do as well, and</li>
+ *     <li>replaces connections which are much slower than their peers, as these are likely to have ended up on cold or
+ *         overloaded containers, when the endpoint is a load balancer in front of many of these.</li>
+ * </ul>
+ * Each {@link Connection} is a distinct key for the HTTP client, which must keep a separate physical connection for each,
+ * and which is told to close it when it is replaced, or no longer needed, and has no more requests in flight.
+ */
+class ConnectionBalancer {
+
+    /** Weight of each new latency sample, in the moving average latency of a connection. */
+    static final double LATENCY_DECAY = 0.05;
+    /** Relative change in throughput of an endpoint which is considered significant. */
+    static final double THROUGHPUT_TOLERANCE = 0.05;
+    /** Factor of change in the average number of requests in flight per connection which is considered a change in demand. */
+    static final double INFLIGHT_FACTOR = 1.5;
+    /** Connections with a latency this many times the average of their peers are replaced. */
+    static final double SLOW_FACTOR = 2;
+    /** Least number of responses in a period, to the endpoint or connection, for that period to be used for scaling or rebalancing. */
+    static final int MIN_RESPONSES = 100;
+    /** Number of periods with stable throughput before an attempt is made to scale down, or up, when at the least number of connections. */
+    static final int PROBE_PERIODS = 6;
+
+    private final List<Endpoint> endpoints = new ArrayList<>();
+    private final int minConnections;
+    private final int maxConnections;
+    private final Consumer<Connection> closer;
+
+    /**
+     * @param endpoints the endpoint URIs to balance requests over
+     * @param minConnections the number of connections to each endpoint to start with, and keep at least
+     * @param maxConnections the greatest number of connections to each endpoint
+     * @param closer closes the physical connection for a connection which is no longer used
+     */
+    ConnectionBalancer(List<String> endpoints, int minConnections, int maxConnections, Consumer<Connection> closer) {
+        if (minConnections < 1 || maxConnections < minConnections)
+            throw new IllegalArgumentException("Must have 1 <= minConnections <= maxConnections, but got " + minConnections + " and " + maxConnections);
+
+        this.minConnections = minConnections;
+        this.maxConnections = maxConnections;
+        this.closer = closer;
+        for (String uri : endpoints) {
+            Endpoint endpoint = new Endpoint(uri, minConnections);
+            for (int i = 0; i < minConnections; i++) endpoint.open();
+            this.endpoints.add(endpoint);
+        }
+    }
+
+    /** Returns the connection with the least expected latency for a new request, which is then counted as in flight on it. */
+    Connection acquire() {
+        while (true) {
+            Connection best = null;
+            double bestScore = Double.MAX_VALUE;
+            for (Endpoint endpoint : endpoints)
+                for (Connection connection : endpoint.connections) {
+                    double score = connection.expectedLatency();
+                    if (score < bestScore) {
+                        best = connection;
+                        bestScore = score;
+                    }
+                }
+
+            int inflight = best.inflight.incrementAndGet();
+            if ( ! best.retired) {
+                best.requests.incrementAndGet();
+                best.endpoint.periodRequests.incrementAndGet();
+                best.endpoint.periodInflight.addAndGet(inflight);
+                return best;
+            }
+            best.release(); // Retired while we chose it, so try again.
+        }
+    }
+
+    /** Registers completion of a request acquired on the given connection, which yielded a response if successful. */
+    void completed(Connection connection, long latencyNanos, boolean successful) {
+        if (successful) {
+            connection.responses.incrementAndGet();
+            connection.periodResponses.incrementAndGet();
+            connection.totalLatencyNanos.addAndGet(latencyNanos);
+            connection.endpoint.periodResponses.incrementAndGet();
+        }
+        // Failures, including overload responses, which are typically fast, make the connection look slower instead.
+        double latency = connection.latencyNanos;
+        double sample = successful ? latencyNanos : SLOW_FACTOR * Math.max(latency, latencyNanos);
+        connection.latencyNanos = latency + LATENCY_DECAY * (sample - latency); // Racy, but that's OK for a moving average.
+        connection.release();
+    }
+
+    /** Scales and rebalances the connections to each endpoint, based on their responses since the last call to this, elapsedNanos ago. */
+    void adjust(long elapsedNanos) {
+        for (Endpoint endpoint : endpoints)
+            endpoint.adjust(elapsedNanos);
+    }
+
+    /** Returns the current connections to each endpoint. */
+    List<Connection> connections() {
+        List<Connection> connections = new ArrayList<>();
+        for (Endpoint endpoint : endpoints)
+            connections.addAll(endpoint.connections);
+        return connections;
+    }
+
+    /** Returns statistics for the current connections to each endpoint. */
+    List<ConnectionStats> stats() {
+        List<ConnectionStats> stats = new ArrayList<>();
+        for (Connection connection : connections()) {
+            long responses = connection.responses.get();
+            stats.add(new ConnectionStats(connection.endpoint.uri,
+                                          connection.requests.get(),
+                                          responses,
+                                          connection.inflight.get(),
+                                          responses == 0 ? -1 : connection.totalLatencyNanos.get() / responses / 1_000_000));
+        }
+        return stats;
+    }
+
+    private class Endpoint {
+
+        final String uri;
+        final List<Connection> connections = new CopyOnWriteArrayList<>();
+        final AtomicLong periodResponses = new AtomicLong();
+        final AtomicLong periodRequests = new AtomicLong();
+        final AtomicLong periodInflight = new AtomicLong(); // Sum of requests in flight on the chosen connection, for each request.
+        int target;
+        int step = 1; // The last change to the number of connections; none of the initial ones are known to be needed.
+        int futileStep = 0; // A change known not to increase throughput, until demand changes.
+        int stablePeriods = 0;
+        double throughput = 0; // The throughput the last change is compared against.
+        double inflight = 0; // The average number in flight per connection, when a request was sent, at that throughput.
+
+        Endpoint(String uri, int target) {
+            this.uri = uri;
+            this.target = target;
+        }
+
+        void open() {
+            double latency = 0;
+            for (Connection connection : connections) latency += connection.latencyNanos;
+            connections.add(new Connection(this, connections.isEmpty() ? 0 : latency / connections.size()));
+        }
+
+        void retire(Connection connection) {
+            connections.remove(connection);
+            connection.retired = true;
+            connection.inflight.incrementAndGet(); // Make sure close is called exactly once, by us or the last completion.
+            connection.release();
+        }
+
+        /**
+         * Hill-climbs towards the least number of connections which gives the greatest throughput: an added connection
+         * is followed by another while throughput increases, kept if throughput stays the same, and reverted if it
+         * decreases; a removed connection is reverted if throughput decreases. After some periods of stable throughput,
+         * removal of a connection is attempted, or addition, when at the minimum, unless that is known not to help.
+         * The number of connections thus settles while demand is stable. A change in demand is seen as a change in either
+         * throughput, or in the number of requests in flight per connection, and more connections are tried when these
+         * are busier. A single connection which is much slower than the others is replaced per period.
+         */
+        void adjust(long elapsedNanos) {
+            long responses = periodResponses.getAndSet(0);
+            long requests = periodRequests.getAndSet(0);
+            long inflightSum = periodInflight.getAndSet(0);
+            if (responses >= MIN_RESPONSES) {
+                double current = responses * 1e9 / elapsedNanos;
+                double currentInflight = inflightSum / (double) Math.max(1, requests);
+                boolean higher = current > throughput * (1 + THROUGHPUT_TOLERANCE);
+                boolean lower = current < throughput * (1 - THROUGHPUT_TOLERANCE);
+                boolean busier = currentInflight > inflight * INFLIGHT_FACTOR;
+                boolean idler = currentInflight * INFLIGHT_FACTOR < inflight;
+                int change = 0;
+                boolean revert = false;
+                if (step > 0) {
+                    if (higher) change = 1;
+                    else {
+                        futileStep = 1;
+                        if (lower) { change = -1; revert = true; }
+                    }
+                }
+                else if (step < 0) {
+                    if (lower) { futileStep = -1; change = 1; revert = true; }
+                    else futileStep = 1; // The removed connection was not needed, so more would not help either.
+                }
+                else if (higher || lower || busier || idler) { // Demand changed, so what was learnt no longer applies.
+                    futileStep = 0;
+                    stablePeriods = 0;
+                    if (higher || busier) change = 1;
+                }
+                else if (++stablePeriods >= PROBE_PERIODS) {
+                    stablePeriods = 0;
+                    int probe = target > minConnections ? -1 : 1;
+                    if (probe != futileStep) change = probe;
+                }
+
+                int next = Math.max(minConnections, Math.min(maxConnections, target + change));
+                step = revert ? 0 : next - target;
+                target = next;
+                if ( ! revert) { // A reverted change is compared against what was before it.
+                    throughput = current;
+                    inflight = currentInflight;
+                }
+
+                replaceSlowest();
+            }
+            for (Connection connection : connections) connection.periodResponses.set(0);
+            while (connections.size() < target) open();
+            while (connections.size() > target) retire(connections.stream().max(comparingDouble(c -> c.latencyNanos)).get());
+        }
+
+        void replaceSlowest() {
+            if (connections.size() < 2) return;
+            Connection slowest = null;
+            double totalLatency = 0;
+            int count = 0;
+            for (Connection connection : connections) {
+                if (connection.periodResponses.get() < MIN_RESPONSES) continue;
+                totalLatency += connection.latencyNanos;
+                count++;
+                if (slowest == null || connection.latencyNanos > slowest.latencyNanos) slowest = connection;
+            }
+            if (count < 2) return;
+            double othersLatency = (totalLatency - slowest.latencyNanos) / (count - 1);
+            if (slowest.latencyNanos > SLOW_FACTOR * othersLatency) {
+                retire(slowest);
+                open();
+            }
+        }
+
+    }
+
+    /** A logical connection to an endpoint, which is used as a key for a physical connection by the HTTP client. */
+    class Connection {
+
+        private final Endpoint endpoint;
+        private final AtomicInteger inflight = new AtomicInteger();
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong responses = new AtomicLong();
+        private final AtomicLong periodResponses = new AtomicLong();
+        private final AtomicLong totalLatencyNanos = new AtomicLong();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile double latencyNanos;
+        private volatile boolean retired = false;
+
+        private Connection(Endpoint endpoint, double latencyNanos) {
+            this.endpoint = endpoint;
+            this.latencyNanos = latencyNanos;
+        }
+
+        /** The endpoint URI this is a connection to. */
+        String endpoint() { return endpoint.uri; }
+
+        /** Moving average latency of this connection. */
+        double latencyNanos() { return latencyNanos; }
+
+        int inflight() { return inflight.get(); }
+
+        boolean retired() { return retired; }
+
+        /** Latency of a new request on this connection, assuming requests in flight on it are served one by one. */
+        private double expectedLatency() {
+            return (latencyNanos + 1) * (inflight.get() + 1);
+        }
+
+        private void release() {
+            if (inflight.decrementAndGet() == 0 && retired && closed.compareAndSet(false, true))
+                closer.accept(this);
+        }
+
+        @Override
+        public String toString() {
+            return "connection to " + endpoint.uri + " with " + inflight + " requests in flight and latency " + (long) latencyNanos + "ns";
+        }
+
+    }
+
+}
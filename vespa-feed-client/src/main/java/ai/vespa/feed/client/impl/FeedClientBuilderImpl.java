@@ -55,6 +55,7 @@ public class FeedClientBuilderImpl implements FeedClientBuilder {
     boolean dryrun = false;
     boolean speedTest = false;
     Compression compression = auto;
+    int operationsPerRequest = 1;
     URI proxy;
     Duration connectionTtl = Duration.ZERO;
 
@@ -252,6 +253,13 @@ public class FeedClientBuilderImpl implements FeedClientBuilder {
         return this;
     }
 
+    @Override
+    public FeedClientBuilderImpl setOperationsPerRequest(int max) {
+        if (max < 1) throw new IllegalArgumentException("Max operations per request must be at least 1, but was " + max);
+        this.operationsPerRequest = max;
+        return this;
+    }
+
     /** Constructs instance of {@link ai.vespa.feed.client.FeedClient} from builder configuration */
     @Override
     public FeedClient build() {
@@ -15,6 +15,7 @@ import com.fasterxml.jackson.core.JsonFactoryBuilder;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.StreamReadConstraints;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
@@ -45,6 +46,9 @@ import static java.util.Objects.requireNonNull;
  */
 class HttpFeedClient implements FeedClient {
 
+    /** How long the first operation of a bulk request may wait for more operations to join it. */
+    static final Duration bulkLinger = Duration.ofMillis(2);
+
     private static final JsonFactory jsonParserFactory = new JsonFactoryBuilder()
             .streamReadConstraints(StreamReadConstraints.builder().maxStringLength(Integer.MAX_VALUE).build())
             .build();
@@ -53,19 +57,23 @@ class HttpFeedClient implements FeedClient {
     private final RequestStrategy requestStrategy;
     private final AtomicBoolean closed = new AtomicBoolean();
     private final boolean speedTest;
+    private final boolean bulk;
 
     HttpFeedClient(FeedClientBuilderImpl builder) throws IOException {
         this(builder, builder.dryrun ? new DryrunCluster() : new JettyCluster(builder));
     }
 
     HttpFeedClient(FeedClientBuilderImpl builder, Cluster cluster) {
-        this(builder, cluster, new HttpRequestStrategy(builder, cluster));
+        this(builder, cluster, new HttpRequestStrategy(builder, builder.operationsPerRequest > 1
+                                                                ? new BulkCluster(cluster, builder.operationsPerRequest, bulkLinger)
+                                                                : cluster));
     }
 
     HttpFeedClient(FeedClientBuilderImpl builder, Cluster cluster, RequestStrategy requestStrategy) {
         this.requestHeaders = new HashMap<>(builder.requestHeaders);
         this.requestStrategy = requestStrategy;
         this.speedTest = builder.speedTest;
+        this.bulk = builder.operationsPerRequest > 1;
         verifyConnection(builder, cluster);
     }
 
@@ -107,11 +115,16 @@ class HttpFeedClient implements FeedClient {
         if (closed.get())
             throw new IllegalStateException("Client is closed");
 
-        HttpRequest request = new HttpRequest(method,
-                                              getPath(documentId) + getQuery(params, speedTest),
-                                              requestHeaders,
-                                              operationJson == null ? null : operationJson.getBytes(UTF_8), // TODO: make it bytes all the way?
-                                              params.timeout().orElse(null));
+        HttpRequest request = bulk ? new HttpRequest(method,
+                                                     BulkCluster.PATH + getBulkQuery(params, speedTest),
+                                                     requestHeaders,
+                                                     toJsonLine(method, documentId, operationJson, params),
+                                                     params.timeout().orElse(null))
+                                   : new HttpRequest(method,
+                                                     getPath(documentId) + getQuery(params, speedTest),
+                                                     requestHeaders,
+                                                     operationJson == null ? null : operationJson.getBytes(UTF_8), // TODO: make it bytes all the way?
+                                                     params.timeout().orElse(null));
 
         CompletableFuture<Result> promise = new CompletableFuture<>();
         requestStrategy.enqueue(documentId, request)
@@ -152,10 +165,25 @@ class HttpFeedClient implements FeedClient {
                 // Old server ignores ?dryRun=true, but getting this particular error message means everything else is OK.
                 if (response.code() == 400 && "Could not read document, no document?".equals(message)) {
                     if (builder.speedTest) throw new FeedException("server does not support speed test; upgrade to a newer version");
+                    if (bulk) throw new FeedException("server does not support bulk feed; upgrade to a newer version");
                     return;
                 }
                 throw new FeedException("server responded non-OK to handshake: " + message);
             }
+            if (bulk) {
+                HttpRequest bulkRequest = new HttpRequest("POST",
+                                                          BulkCluster.PATH + getBulkQuery(empty(), true),
+                                                          requestHeaders,
+                                                          new byte[0],
+                                                          Duration.ofSeconds(15));
+                CompletableFuture<HttpResponse> bulkFuture = new CompletableFuture<>();
+                cluster.dispatch(bulkRequest, bulkFuture);
+                HttpResponse bulkResponse = bulkFuture.get(20, TimeUnit.SECONDS);
+                if (bulkResponse.code() == 404)
+                    throw new FeedException("server does not support bulk feed; upgrade to a newer version");
+                if (bulkResponse.code() != 200)
+                    throw new FeedException("server responded non-OK to bulk handshake: " + bulkResponse);
+            }
         }
         catch (ExecutionException e) {
             Duration duration = Duration.between(start, Instant.now());
@@ -303,6 +331,58 @@ class HttpFeedClient implements FeedClient {
         }
     }
 
+    /** Returns the query for a bulk request, where the condition and create parameters of each operation are instead in its JSON. */
+    static String getBulkQuery(OperationParameters params, boolean speedTest) {
+        StringJoiner query = new StringJoiner("&", "?", "").setEmptyValue("");
+        params.timeout().ifPresent(timeout -> query.add("timeout=" + timeout.toMillis() + "ms"));
+        params.route().ifPresent(route -> query.add("route=" + encode(route)));
+        params.tracelevel().ifPresent(tracelevel -> query.add("tracelevel=" + tracelevel));
+        if (speedTest) query.add("dryRun=true");
+        return query.toString();
+    }
+
+    /**
+     * Returns the operation as a single line of JSON in the feed format, like
+     * {@code {"put":"id:ns:type::user","condition":"...","create":true,"fields":{...}}},
+     * where the fields of the operation JSON follow the operation type, document ID, and parameters.
+     */
+    static byte[] toJsonLine(String method, DocumentId documentId, String operationJson, OperationParameters params) {
+        StringBuilder line = new StringBuilder(64 + (operationJson == null ? 0 : operationJson.length()));
+        line.append("{\"");
+        switch (method) {
+            case "POST": line.append("put"); break;
+            case "PUT": line.append("update"); break;
+            case "DELETE": line.append("remove"); break;
+            default: throw new IllegalArgumentException("Unexpected HTTP method: " + method);
+        }
+        line.append("\":\"");
+        JsonStringEncoder.getInstance().quoteAsString(documentId.toString(), line);
+        line.append('"');
+        params.testAndSetCondition().ifPresent(condition -> {
+            line.append(",\"condition\":\"");
+            JsonStringEncoder.getInstance().quoteAsString(condition, line);
+            line.append('"');
+        });
+        if (params.createIfNonExistent()) line.append(",\"create\":true");
+        if (operationJson != null) {
+            int start = 0, end = operationJson.length();
+            while (start < end && Character.isWhitespace(operationJson.charAt(start))) start++;
+            if (start == end || operationJson.charAt(start) != '{')
+                throw new IllegalArgumentException("Expected operation JSON to be an object, but got: " + operationJson);
+
+            start++;
+            while (start < end && Character.isWhitespace(operationJson.charAt(start))) start++;
+            if (start < end && operationJson.charAt(start) != '}') line.append(',');
+            // Line breaks can only occur as whitespace outside strings in valid JSON, so these are safe to replace.
+            for (int i = start; i < end; i++) {
+                char c = operationJson.charAt(i);
+                line.append(c == '\n' || c == '\r' ? ' ' : c);
+            }
+        }
+        else line.append('}');
+        return line.toString().getBytes(UTF_8);
+    }
+
     static String getQuery(OperationParameters params, boolean speedTest) {
         StringJoiner query = new StringJoiner("&", "?", "").setEmptyValue("");
         if (params.createIfNonExistent()) query.add("create=true");
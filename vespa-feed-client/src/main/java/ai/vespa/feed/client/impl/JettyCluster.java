@@ -4,7 +4,10 @@ package ai.vespa.feed.client.impl;
 
 import ai.vespa.feed.client.FeedClientBuilder.Compression;
 import ai.vespa.feed.client.HttpResponse;
+import ai.vespa.feed.client.OperationStats.ConnectionStats;
+import ai.vespa.feed.client.impl.ConnectionBalancer.Connection;
 import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.HttpDestination;
 import org.eclipse.jetty.client.HttpProxy;
 import org.eclipse.jetty.client.MultiplexConnectionPool;
 import org.eclipse.jetty.client.Origin;
@@ -45,14 +48,19 @@ import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Supplier;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.zip.GZIPOutputStream;
 
 import static ai.vespa.feed.client.FeedClientBuilder.Compression.auto;
 import static ai.vespa.feed.client.FeedClientBuilder.Compression.gzip;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.logging.Level.FINE;
 import static org.eclipse.jetty.http.MimeTypes.Type.APPLICATION_JSON;
 
 /**
@@ -62,33 +70,53 @@ import static org.eclipse.jetty.http.MimeTypes.Type.APPLICATION_JSON;
  */
 class JettyCluster implements Cluster {
 
+    private static final Logger log = Logger.getLogger(JettyCluster.class.getName());
+
     // Socket timeout must be longer than the longest feasible response timeout
     private static final Duration IDLE_TIMEOUT = Duration.ofMinutes(15);
+    // Interval between each scaling and rebalancing of the connections to each endpoint
+    private static final Duration ADJUSTMENT_PERIOD = Duration.ofSeconds(10);
+    // Connections to each endpoint may be scaled up to this multiple of the configured number of connections per endpoint
+    private static final int MAX_CONNECTIONS_FACTOR = 4;
 
     private final HttpClient client;
-    private final List<Endpoint> endpoints;
+    private final ConnectionBalancer balancer;
     private final Compression compression;
+    private final Map<Connection, HttpDestination> destinations = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService adjuster = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "feed-client-connection-adjuster");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private long lastAdjustmentNanos = System.nanoTime();
 
     JettyCluster(FeedClientBuilderImpl b) throws IOException {
         this.client = createHttpClient(b);
-        this.endpoints = b.endpoints.stream().map(Endpoint::new).collect(Collectors.toList());
+        this.balancer = new ConnectionBalancer(b.endpoints.stream().map(JettyCluster::endpointUri).collect(Collectors.toList()),
+                                               b.connectionsPerEndpoint,
+                                               MAX_CONNECTIONS_FACTOR * b.connectionsPerEndpoint,
+                                               this::scheduleClose);
         this.compression = b.compression;
+        adjuster.scheduleWithFixedDelay(this::adjustConnections, ADJUSTMENT_PERIOD.toMillis(), ADJUSTMENT_PERIOD.toMillis(), MILLISECONDS);
     }
 
     @Override
     public void dispatch(HttpRequest req, CompletableFuture<HttpResponse> vessel) {
         client.getExecutor().execute(() -> {
-            Endpoint endpoint = findLeastBusyEndpoint(endpoints);
+            Connection connection = balancer.acquire();
             try {
-                endpoint.inflight.incrementAndGet();
                 long reqTimeoutMillis = req.timeout() != null
                         ? req.timeout().toMillis() * 11 / 10 + 1000 : IDLE_TIMEOUT.toMillis();
-                Request jettyReq = client.newRequest(URI.create(endpoint.uri + req.path()))
+                Request jettyReq = client.newRequest(URI.create(connection.endpoint() + req.path()))
+                        .tag(connection)
                         .version(HttpVersion.HTTP_2)
                         .method(HttpMethod.fromString(req.method()))
                         .headers(hs -> req.headers().forEach((k, v) -> hs.add(k, v.get())))
                         .idleTimeout(IDLE_TIMEOUT.toMillis(), MILLISECONDS)
                         .timeout(reqTimeoutMillis, MILLISECONDS);
+                // Jetty evicts idle destinations, and then makes a new one for the next request to the same connection
+                HttpDestination destination = (HttpDestination) client.resolveDestination(jettyReq);
+                if (destinations.get(connection) != destination) destinations.put(connection, destination);
                 if (req.body() != null) {
                     boolean shouldCompress = compression == gzip || compression == auto && req.body().length > 512;
                     byte[] bytes;
@@ -104,28 +132,71 @@ class JettyCluster implements Cluster {
                     }
                     jettyReq.body(new BytesRequestContent(APPLICATION_JSON.asString(), bytes));
                 }
+                long startNanos = System.nanoTime();
                 jettyReq.send(new BufferingResponseListener() {
                     @Override
                     public void onComplete(Result result) {
-                        endpoint.inflight.decrementAndGet();
+                        balancer.completed(connection, System.nanoTime() - startNanos,
+                                           ! result.isFailed() && isSuccessful(result.getResponse().getStatus()));
                         if (result.isFailed()) vessel.completeExceptionally(result.getFailure());
                         else vessel.complete(new JettyResponse(result.getResponse(), getContent()));
                     }
                 });
             } catch (Exception e) {
-                endpoint.inflight.decrementAndGet();
+                balancer.completed(connection, 0, false);
                 vessel.completeExceptionally(e);
             }
         });
     }
 
+    @Override
+    public List<ConnectionStats> connectionStats() {
+        return balancer.stats();
+    }
+
     @Override
     public void close() {
+        adjuster.shutdownNow();
         try {
             client.stop();
         } catch (Exception e) { throw new RuntimeException(e); }
     }
 
+    // Overload and server errors are typically fast, and must not attract more requests to the connection which gets them
+    private static boolean isSuccessful(int status) {
+        return status != 429 && status < 500;
+    }
+
+    private void adjustConnections() {
+        try {
+            long now = System.nanoTime();
+            balancer.adjust(now - lastAdjustmentNanos);
+            lastAdjustmentNanos = now;
+        }
+        catch (RuntimeException e) {
+            log.log(FINE, "Failed adjusting connections", e);
+        }
+    }
+
+    private void scheduleClose(Connection connection) {
+        try {
+            adjuster.execute(() -> closeConnection(connection));
+        }
+        catch (RejectedExecutionException ignored) { } // Closed, along with the client.
+    }
+
+    // Closes the physical connection of a connection which was retired by the balancer, and has no more requests in flight
+    private void closeConnection(Connection connection) {
+        HttpDestination destination = destinations.remove(connection);
+        if (destination == null) return; // Jetty never opened this one.
+        try {
+            destination.close();
+        }
+        catch (RuntimeException e) {
+            log.log(FINE, "Failed closing " + connection, e);
+        }
+    }
+
     private static HttpClient createHttpClient(FeedClientBuilderImpl b) throws IOException {
         SslContextFactory.Client clientSslCtxFactory = new SslContextFactory.Client();
         clientSslCtxFactory.setSslContext(b.constructSslContext());
@@ -152,20 +223,21 @@ class JettyCluster implements Cluster {
         ClientConnectionFactory.Info h1 = HttpClientConnectionFactory.HTTP11;
         ClientConnectionFactory.Info http2 = new ClientConnectionFactoryOverHTTP2.HTTP2(h2Client);
         HttpClientTransportDynamic transport = new HttpClientTransportDynamic(connector, http2, h1);
-        int connectionsPerEndpoint = b.connectionsPerEndpoint;
+        // Each destination is a single logical connection of the balancer, as requests are tagged with these;
+        // a second physical connection is opened only if the server's limit on concurrent streams is reached,
+        // or to replace an expired connection.
         transport.setConnectionPoolFactory(dest -> {
             MultiplexConnectionPool pool = new MultiplexConnectionPool(
-                    dest, Pool.StrategyType.RANDOM, connectionsPerEndpoint, false, dest, Integer.MAX_VALUE);
-            pool.preCreateConnections(connectionsPerEndpoint);
+                    dest, Pool.StrategyType.FIRST, 2, false, dest, Integer.MAX_VALUE);
+            pool.preCreateConnections(1);
             if (secureProxy) pool.setMaxDuration(Duration.ofMinutes(1).toMillis());
-            else {
-                pool.setMaximizeConnections(true);
-                pool.setMaxDuration(b.connectionTtl.toMillis());
-            }
+            else pool.setMaxDuration(b.connectionTtl.toMillis());
             return pool;
         });
         HttpClient httpClient = new HttpClient(transport);
         httpClient.setMaxRequestsQueuedPerDestination(Integer.MAX_VALUE);
+        // Removes the destinations of connections closed by the balancer
+        httpClient.setDestinationIdleTimeout(Duration.ofMinutes(1).toMillis());
         httpClient.setFollowRedirects(false);
         httpClient.setUserAgentField(
                 new HttpField(HttpHeader.USER_AGENT, String.format("vespa-feed-client/%s (Jetty:%s)", Vespa.VERSION, Jetty.VERSION)));
@@ -216,20 +288,6 @@ class JettyCluster implements Cluster {
         }
     }
 
-    private static Endpoint findLeastBusyEndpoint(List<Endpoint> endpoints) {
-        Endpoint leastBusy = endpoints.get(0);
-        int minInflight = leastBusy.inflight.get();
-        for (int i = 1; i < endpoints.size(); i++) {
-            Endpoint endpoint = endpoints.get(i);
-            int inflight = endpoint.inflight.get();
-            if (inflight < minInflight) {
-                leastBusy = endpoint;
-                minInflight = inflight;
-            }
-        }
-        return leastBusy;
-    }
-
     private static int portOf(URI u) {
         return u.getPort() == -1 ? u.getScheme().equals("http") ? 80 : 443 : u.getPort();
     }
@@ -249,12 +307,6 @@ class JettyCluster implements Cluster {
         @Override public String contentType() { return response.getHeaders().get(HttpHeader.CONTENT_TYPE); }
     }
 
-    private static class Endpoint {
-        final AtomicInteger inflight = new AtomicInteger();
-        final String uri;
-        Endpoint(URI uri) { this.uri = endpointUri(uri); }
-    }
-
     private static class Ipv4PreferringResolver extends AbstractLifeCycle implements SocketAddressResolver {
 
         final HttpClient client;
@@ -0,0 +1,90 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.feed.client.impl;
+
+import ai.vespa.feed.client.HttpResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkClusterTest {
+
+    @Test
+    void testBatching() throws ExecutionException, InterruptedException {
+        List<HttpRequest> requests = new ArrayList<>();
+        List<CompletableFuture<HttpResponse>> vessels = new ArrayList<>();
+        Cluster delegate = (request, vessel) -> {
+            requests.add(request);
+            vessels.add(vessel);
+        };
+        BulkCluster cluster = new BulkCluster(delegate, 3, Duration.ofHours(1));
+
+        // Requests to other paths are passed through.
+        CompletableFuture<HttpResponse> other = new CompletableFuture<>();
+        cluster.dispatch(request("/document/v1/ns/type/docid/0", "{}"), other);
+        assertEquals("/document/v1/ns/type/docid/0", requests.get(0).path());
+
+        // Bulk requests are batched by path, and sent when the batch is full.
+        List<CompletableFuture<HttpResponse>> operations = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            operations.add(new CompletableFuture<>());
+            cluster.dispatch(request(BulkCluster.PATH + (i == 1 ? "?route=other" : ""), "{\"put\":\"id:ns:type::" + i + "\"}"),
+                             operations.get(i));
+        }
+        assertEquals(2, requests.size());
+        assertEquals("POST", requests.get(1).method());
+        assertEquals(BulkCluster.PATH, requests.get(1).path());
+        assertEquals("{\"put\":\"id:ns:type::0\"}\n{\"put\":\"id:ns:type::2\"}\n{\"put\":\"id:ns:type::3\"}",
+                     new String(requests.get(1).body(), UTF_8));
+
+        // Response lines are demultiplexed by index, and missing ones fail.
+        vessels.get(1).complete(HttpResponse.of(200, ("{\"index\":2,\"id\":\"id:ns:type::3\",\"status\":429,\"message\":\"busy\"}\n" +
+                                                      "{\"index\":0,\"id\":\"id:ns:type::0\",\"status\":200}\n").getBytes(UTF_8)));
+        assertEquals(200, operations.get(0).get().code());
+        assertEquals("{\"index\":0,\"id\":\"id:ns:type::0\",\"status\":200}", new String(operations.get(0).get().body(), UTF_8));
+        assertEquals(429, operations.get(3).get().code());
+        assertInstanceOf(IOException.class, assertThrows(ExecutionException.class, () -> operations.get(2).get()).getCause());
+
+        // Remaining batches are sent on close, and a failed bulk request is a failure for all its operations.
+        assertFalse(operations.get(1).isDone());
+        cluster.close();
+        assertEquals(3, requests.size());
+        assertEquals(BulkCluster.PATH + "?route=other", requests.get(2).path());
+        HttpResponse overload = HttpResponse.of(429, null);
+        vessels.get(2).complete(overload);
+        assertSame(overload, operations.get(1).get());
+        assertFalse(other.isDone());
+    }
+
+    @Test
+    void testLinger() throws ExecutionException, InterruptedException {
+        CompletableFuture<HttpRequest> sent = new CompletableFuture<>();
+        BulkCluster cluster = new BulkCluster((request, vessel) -> {
+            vessel.completeExceptionally(new IOException("failed"));
+            sent.complete(request);
+        }, 100, Duration.ofMillis(1));
+        CompletableFuture<HttpResponse> operation = new CompletableFuture<>();
+        cluster.dispatch(request(BulkCluster.PATH, "{\"remove\":\"id:ns:type::0\"}"), operation);
+        assertEquals("{\"remove\":\"id:ns:type::0\"}", new String(sent.get().body(), UTF_8));
+        assertTrue(operation.isCompletedExceptionally());
+        cluster.close();
+    }
+
+    private static HttpRequest request(String path, String body) {
+        return new HttpRequest("POST", path, Map.of(), body.getBytes(UTF_8), null);
+    }
+
+}
@@ -0,0 +1,104 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.feed.client.impl;
+
+import ai.vespa.feed.client.DocumentId;
+import ai.vespa.feed.client.FeedClient;
+import ai.vespa.feed.client.HttpResponse;
+import ai.vespa.feed.client.OperationParameters;
+import ai.vespa.feed.client.Result;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Benchmark of feeding small documents through the per-document and the bulk feed modes of the client,
+ * against a simulated server with a fixed round-trip time and a fixed cost per HTTP request, which are the
+ * overheads the bulk mode amortises. Reports throughput, HTTP requests, and bytes sent per operation.
+ */
+public class BulkFeedBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        for (int round = 0; round < 2; round++) { // first round is warmup
+            boolean print = round > 0;
+            for (int operationsPerRequest : new int[] { 1, 16, 64 })
+                benchmark(operations, operationsPerRequest, print);
+        }
+    }
+
+    private static void benchmark(int operations, int operationsPerRequest, boolean print) throws Exception {
+        SimulatedCluster cluster = new SimulatedCluster();
+        FeedClientBuilderImpl builder = new FeedClientBuilderImpl(List.of(URI.create("https://dummy:123")));
+        builder.setOperationsPerRequest(operationsPerRequest);
+        FeedClient client = new HttpFeedClient(builder, cluster);
+        long requestsBefore = cluster.requests.get();
+        long startNanos = System.nanoTime();
+        List<CompletableFuture<Result>> results = new ArrayList<>(operations);
+        for (int i = 0; i < operations; i++)
+            results.add(client.put(DocumentId.of("music", "music", "document-" + i),
+                                   "{\"fields\":{\"title\":\"The title of document number " + i + "\",\"year\":" + (1950 + i % 70) + "}}",
+                                   OperationParameters.empty()));
+        for (CompletableFuture<Result> result : results)
+            result.join();
+        double seconds = (System.nanoTime() - startNanos) * 1e-9;
+        long requests = cluster.requests.get() - requestsBefore;
+        if (print)
+            System.out.printf("%3d operations per request: %10.0f ops/s %8.3f requests/op %8.1f bytes sent/op%n",
+                              operationsPerRequest, operations / seconds, (double) requests / operations,
+                              (double) client.stats().bytesSent() / operations);
+        client.close();
+    }
+
+    /** Responds to each request after a round-trip time, and serves requests one at a time with a fixed cost for each. */
+    private static class SimulatedCluster implements Cluster {
+
+        private static final long roundTripNanos = 1_000_000;
+        private static final long requestCostNanos = 50_000;
+
+        private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        private final AtomicLong requests = new AtomicLong();
+        private long nextFreeNanos = 0;
+
+        @Override
+        public void dispatch(HttpRequest request, CompletableFuture<HttpResponse> vessel) {
+            requests.incrementAndGet();
+            long delayNanos;
+            synchronized (this) {
+                long now = System.nanoTime();
+                nextFreeNanos = Math.max(nextFreeNanos, now) + requestCostNanos;
+                delayNanos = nextFreeNanos - now + roundTripNanos;
+            }
+            executor.schedule(() -> vessel.complete(respond(request)), delayNanos, TimeUnit.NANOSECONDS);
+        }
+
+        private static HttpResponse respond(HttpRequest request) {
+            if ( ! request.path().startsWith(BulkCluster.PATH))
+                return HttpResponse.of(200, "{}".getBytes(UTF_8));
+
+            StringBuilder lines = new StringBuilder();
+            byte[] body = request.body();
+            int index = 0;
+            for (int i = 0; i < body.length; i++)
+                if (body[i] == '\n')
+                    lines.append("{\"index\":").append(index++).append(",\"status\":200}\n");
+            if (body.length > 0)
+                lines.append("{\"index\":").append(index).append(",\"status\":200}\n");
+            return HttpResponse.of(200, lines.toString().getBytes(UTF_8));
+        }
+
+        @Override
+        public void close() {
+            executor.shutdown();
+        }
+
+    }
+
+}
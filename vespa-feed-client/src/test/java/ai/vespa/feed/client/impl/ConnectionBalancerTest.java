@@ -0,0 +1,150 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package ai.vespa.feed.client.impl;
+
+import ai.vespa.feed.client.OperationStats.ConnectionStats;
+import ai.vespa.feed.client.impl.ConnectionBalancer.Connection;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConnectionBalancerTest {
+
+    private static final long MILLIS = 1_000_000;
+
+    @Test
+    void requestsAreRoutedByExpectedLatency() {
+        ConnectionBalancer balancer = new ConnectionBalancer(List.of("fast", "slow"), 1, 1, __ -> { });
+        // Until latencies are known, requests are spread by number in flight.
+        List<Connection> initial = List.of(balancer.acquire(), balancer.acquire());
+        assertEquals(List.of("fast", "slow"), initial.stream().map(Connection::endpoint).collect(toList()));
+        initial.forEach(connection -> balancer.completed(connection, latency(connection), true));
+
+        List<Connection> acquired = List.of();
+        for (int i = 0; i < 1000; i++)
+            acquired = round(balancer, 10, ConnectionBalancerTest::latency);
+
+        // With one tenth of the latency, the fast connection can take nine requests before the slow one gets one.
+        assertEquals(9, acquired.stream().filter(connection -> connection.endpoint().equals("fast")).count());
+        assertEquals(1, acquired.stream().filter(connection -> connection.endpoint().equals("slow")).count());
+
+        List<ConnectionStats> stats = balancer.stats();
+        assertEquals(List.of("fast", "slow"), stats.stream().map(ConnectionStats::endpoint).collect(toList()));
+        assertEquals(10_002, stats.stream().mapToLong(ConnectionStats::requests).sum());
+        assertEquals(10_002, stats.stream().mapToLong(ConnectionStats::responses).sum());
+        assertEquals(1, stats.get(0).averageLatencyMillis());
+        assertEquals(10, stats.get(1).averageLatencyMillis());
+        assertEquals(0, stats.get(0).inflight());
+    }
+
+    @Test
+    void failuresMakeConnectionsLookSlower() {
+        ConnectionBalancer balancer = new ConnectionBalancer(List.of("failing", "fine"), 1, 1, __ -> { });
+        for (int i = 0; i < 100; i++)
+            for (Connection connection : List.of(balancer.acquire(), balancer.acquire()))
+                balancer.completed(connection, connection.endpoint().equals("fine") ? 5 * MILLIS : MILLIS, connection.endpoint().equals("fine"));
+        List<Connection> connections = balancer.connections();
+        assertTrue(connections.get(0).latencyNanos() > connections.get(1).latencyNanos());
+        assertEquals("fine", balancer.acquire().endpoint());
+        assertEquals(0, balancer.stats().get(0).responses());
+    }
+
+    @Test
+    void slowConnectionIsReplacedAndClosedWhenDrained() {
+        List<Connection> closed = new ArrayList<>();
+        ConnectionBalancer balancer = new ConnectionBalancer(List.of("lb"), 3, 3, closed::add);
+        Connection slow = balancer.connections().get(0);
+        ToLongFunction<Connection> latency = connection -> connection == slow ? 50 * MILLIS : MILLIS;
+        for (int i = 0; i < 200; i++)
+            round(balancer, 100, latency);
+
+        List<Connection> inflight = new ArrayList<>();
+        for (int i = 0; i < 200; i++) inflight.add(balancer.acquire());
+        assertTrue(slow.inflight() > 0);
+
+        balancer.adjust(1_000_000_000L);
+        assertEquals(3, balancer.connections().size());
+        assertFalse(balancer.connections().contains(slow));
+        assertTrue(slow.retired());
+        assertEquals(List.of(), closed);
+        for (int i = 0; i < 100; i++) inflight.add(balancer.acquire());
+        assertFalse(inflight.subList(200, 300).contains(slow));
+
+        inflight.forEach(connection -> balancer.completed(connection, latency.applyAsLong(connection), true));
+        assertEquals(List.of(slow), closed);
+
+        // The replacement starts out with the average latency of the others.
+        Connection replacement = balancer.connections().get(2);
+        assertEquals(balancer.connections().get(0).latencyNanos(), replacement.latencyNanos(), 0.2 * MILLIS);
+    }
+
+    @Test
+    void connectionsAreScaledByThroughputAndSettle() {
+        List<Connection> closed = new ArrayList<>();
+        ConnectionBalancer balancer = new ConnectionBalancer(List.of("lb"), 1, 4, closed::add);
+
+        // Throughput increases with the number of connections, up to three of them. Connections are added until throughput
+        // stops increasing, and the superfluous fourth one is removed after a while. Removing the third hurts throughput,
+        // so this is reverted, and the number of connections then stays put.
+        List<Integer> sizes = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            int responses = 200 * Math.min(3, balancer.connections().size());
+            for (int j = 0; j < responses; j++) round(balancer, 1, __ -> MILLIS);
+            balancer.adjust(1_000_000_000L);
+            sizes.add(balancer.connections().size());
+        }
+        assertEquals(List.of(2, 3, 4, 4, 4, 4, 4, 4, 4, 3, 3, 3, 3, 3, 3, 3, 2, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3, 3), sizes);
+        assertEquals(2, closed.size());
+
+        // Throughput drops with demand, and the connections are then scaled down, one at a time, while this does not hurt.
+        sizes.clear();
+        for (int i = 0; i < 24; i++) {
+            for (int j = 0; j < 200; j++) round(balancer, 1, __ -> MILLIS);
+            balancer.adjust(1_000_000_000L);
+            sizes.add(balancer.connections().size());
+        }
+        assertEquals(List.of(3, 3, 3, 3, 3, 3, 2, 2, 2, 2, 2, 2, 2, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1), sizes);
+        assertEquals(4, closed.size());
+        assertTrue(closed.stream().allMatch(Connection::retired));
+
+        // Demand increases, which shows as more requests in flight on the single connection, so connections are added again.
+        sizes.clear();
+        for (int i = 0; i < 24; i++) {
+            int responses = 200 * Math.min(3, balancer.connections().size());
+            for (int j = 0; j < responses / 3; j++) round(balancer, 3, __ -> MILLIS);
+            balancer.adjust(1_000_000_000L);
+            sizes.add(balancer.connections().size());
+        }
+        assertEquals(List.of(2, 3, 4, 4, 4, 4, 4, 4, 4, 3, 3, 3, 3, 3, 3, 3, 2, 3, 3, 3, 3, 3, 3, 3), sizes);
+
+        // Periods with too little traffic are not used for scaling.
+        for (int i = 0; i < 10; i++) balancer.adjust(1_000_000_000L);
+        assertEquals(3, balancer.connections().size());
+    }
+
+    @Test
+    void invalidLimitsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new ConnectionBalancer(List.of("lb"), 0, 1, __ -> { }));
+        assertThrows(IllegalArgumentException.class, () -> new ConnectionBalancer(List.of("lb"), 2, 1, __ -> { }));
+    }
+
+    /** Acquires the given number of connections, and then completes a request on each, returning the acquired connections. */
+    private static List<Connection> round(ConnectionBalancer balancer, int requests, ToLongFunction<Connection> latency) {
+        List<Connection> acquired = new ArrayList<>();
+        for (int i = 0; i < requests; i++) acquired.add(balancer.acquire());
+        acquired.forEach(connection -> balancer.completed(connection, latency.applyAsLong(connection), true));
+        return acquired;
+    }
+
+    private static long latency(Connection connection) {
+        return connection.endpoint().equals("fast") ? MILLIS : 10 * MILLIS;
+    }
+
+}
@@ -254,4 +254,58 @@ class HttpFeedClientTest {
                            null);
     }
 
+    @Test
+    void testBulkHandshake() {
+        AtomicReference<HttpResponse> bulkResponse = new AtomicReference<>(HttpResponse.of(404, null));
+        Cluster cluster = (request, vessel) -> {
+            if (request.path().startsWith("/document/v1/bulk")) {
+                assertEquals("/document/v1/bulk?dryRun=true", request.path());
+                vessel.complete(bulkResponse.get());
+            }
+            else
+                vessel.complete(HttpResponse.of(200, null));
+        };
+
+        // Server without the bulk endpoint.
+        assertEquals("server does not support bulk feed; upgrade to a newer version",
+                     assertThrows(FeedException.class,
+                                  () -> new HttpFeedClient(new FeedClientBuilderImpl(List.of(URI.create("https://dummy:123"))).setOperationsPerRequest(8),
+                                                           cluster,
+                                                           null))
+                             .getMessage());
+
+        // New server.
+        bulkResponse.set(HttpResponse.of(200, new byte[0]));
+        new HttpFeedClient(new FeedClientBuilderImpl(List.of(URI.create("https://dummy:123"))).setOperationsPerRequest(8),
+                           cluster,
+                           null);
+    }
+
+    @Test
+    void testJsonLines() {
+        DocumentId id = DocumentId.of("ns", "type", "a \"quoted\" id");
+        assertEquals("{\"put\":\"id:ns:type::a \\\"quoted\\\" id\",\"fields\": {   \"title\": \"Relax\" }}",
+                     new String(HttpFeedClient.toJsonLine("POST", id, "{\n  \"fields\": {\n  \"title\": \"Relax\"\n}}", OperationParameters.empty()), UTF_8));
+        assertEquals("{\"update\":\"id:ns:type::a \\\"quoted\\\" id\",\"condition\":\"type.title==\\\"Relax\\\"\",\"create\":true,\"fields\":{}}",
+                     new String(HttpFeedClient.toJsonLine("PUT", id, "{\"fields\":{}}", OperationParameters.empty()
+                                                                                                       .testAndSetCondition("type.title==\"Relax\"")
+                                                                                                       .createIfNonExistent(true)), UTF_8));
+        assertEquals("{\"put\":\"id:ns:type::a \\\"quoted\\\" id\"}",
+                     new String(HttpFeedClient.toJsonLine("POST", id, " { }", OperationParameters.empty()), UTF_8));
+        assertEquals("{\"remove\":\"id:ns:type::a \\\"quoted\\\" id\"}",
+                     new String(HttpFeedClient.toJsonLine("DELETE", id, null, OperationParameters.empty()), UTF_8));
+        assertEquals("Expected operation JSON to be an object, but got: []",
+                     assertThrows(IllegalArgumentException.class,
+                                  () -> HttpFeedClient.toJsonLine("POST", id, "[]", OperationParameters.empty()))
+                             .getMessage());
+        assertEquals("?timeout=1000ms&route=default&tracelevel=3&dryRun=true",
+                     HttpFeedClient.getBulkQuery(OperationParameters.empty()
+                                                                    .createIfNonExistent(true)
+                                                                    .testAndSetCondition("false")
+                                                                    .timeout(Duration.ofSeconds(1))
+                                                                    .route("default")
+                                                                    .tracelevel(3),
+                                                 true));
+    }
+
 }
@@ -7,6 +7,7 @@ import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.StreamReadConstraints;
 import com.yahoo.cloud.config.ClusterListConfig;
 import com.yahoo.component.annotation.Inject;
+import com.yahoo.compress.ZstdOutputStream;
 import com.yahoo.concurrent.DaemonThreadFactory;
 import com.yahoo.concurrent.SystemTimer;
 import com.yahoo.container.core.HandlerMetricContextUtil;
@@ -14,6 +15,7 @@ import com.yahoo.container.core.documentapi.VespaDocumentAccess;
 import com.yahoo.container.jdisc.ContentChannelOutputStream;
 import com.yahoo.document.Document;
 import com.yahoo.document.DocumentId;
+import com.yahoo.document.DocumentOperation;
 import com.yahoo.document.DocumentPut;
 import com.yahoo.document.DocumentRemove;
 import com.yahoo.document.DocumentTypeManager;
@@ -71,20 +73,24 @@ import com.yahoo.metrics.simple.MetricReceiver;
 import com.yahoo.restapi.Path;
 import com.yahoo.search.query.ParameterParser;
 import com.yahoo.text.Text;
+import com.yahoo.text.Utf8;
 import com.yahoo.vespa.config.content.AllClustersBucketSpacesConfig;
 import com.yahoo.vespa.http.server.Headers;
 import com.yahoo.vespa.http.server.MetricNames;
 import com.yahoo.yolean.Exceptions;
 import com.yahoo.yolean.Exceptions.RunnableThrowingIOException;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
@@ -95,13 +101,19 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Phaser;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
@@ -137,6 +149,7 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
 
     private static final Duration defaultTimeout = Duration.ofSeconds(180); // Match document API default timeout.
     private static final Duration handlerTimeout = Duration.ofMillis(100); // Extra time to allow for handler, JDisc and jetty to complete.
+    private static final Duration streamFlushInterval = Duration.ofMillis(100); // Max time documents of a streamed visit are held back.
 
     private static final Logger log = Logger.getLogger(DocumentV1ApiHandler.class.getName());
     private static final Parser<Integer> integerParser = Integer::parseInt;
@@ -156,6 +169,9 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
         @Override public void close(CompletionHandler handler) { handler.completed(); }
     };
 
+    /** The number of queues document operations are spread over, each with independent, ordered dispatch */
+    private static final int operationQueues = 16;
+
     private static final JsonFactory jsonFactory = new JsonFactoryBuilder()
             .streamReadConstraints(StreamReadConstraints.builder().maxStringLength(Integer.MAX_VALUE).build())
             .build();
@@ -189,15 +205,17 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
     private final DocumentOperationParser parser;
     private final long maxThrottled;
     private final long maxThrottledAgeNS;
+    private final int maxBulkLineBytes;
     private final DocumentAccess access;
     private final AsyncSession asyncSession;
     private final Map<String, StorageCluster> clusters;
-    private final Deque<Operation> operations;
+    private final List<OperationQueue> queues;
     private final Deque<BooleanSupplier> visitOperations = new ConcurrentLinkedDeque<>();
     private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicInteger nextWakeUp = new AtomicInteger();
     private final AtomicLong outstanding = new AtomicLong();
     private final Map<VisitorControlHandler, VisitorSession> visits = new ConcurrentHashMap<>();
-    private final ScheduledExecutorService dispatcher = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("document-api-handler-"));
+    private final ScheduledExecutorService dispatcher;
     private final ScheduledExecutorService visitDispatcher = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("document-api-handler-visit-"));
     private final Map<String, Map<Method, Handler>> handlers = defineApi();
 
@@ -223,13 +241,16 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
         this.metrics = new DocumentApiMetrics(metricReceiver, "documentV1");
         this.maxThrottled = executorConfig.maxThrottled();
         this.maxThrottledAgeNS = (long) (executorConfig.maxThrottledAge() * 1_000_000_000.0);
+        this.maxBulkLineBytes = executorConfig.maxBulkLineBytes();
         this.access = access;
         this.asyncSession = access.createAsyncSession(new AsyncParameters());
         this.clusters = parseClusters(clusterListConfig, bucketSpacesConfig);
-        this.operations = new ConcurrentLinkedDeque<>();
+        this.queues = Stream.generate(OperationQueue::new).limit(operationQueues).toList();
+        this.dispatcher = Executors.newScheduledThreadPool(Math.min(operationQueues, Runtime.getRuntime().availableProcessors()),
+                                                           new DaemonThreadFactory("document-api-handler-"));
         long resendDelayMS = SystemTimer.adjustTimeoutByDetectedHz(Duration.ofMillis(executorConfig.resendDelayMillis())).toMillis();
 
-        // TODO: Here it would be better to have dedicated threads with different wait depending on blocked or empty.
+        // Throttled operations are woken when an outstanding operation completes; this is just a safety net.
         this.dispatcher.scheduleWithFixedDelay(this::dispatchEnqueued, resendDelayMS, resendDelayMS, MILLISECONDS);
         this.visitDispatcher.scheduleWithFixedDelay(this::dispatchVisitEnqueued, resendDelayMS, resendDelayMS, MILLISECONDS);
     }
@@ -265,10 +286,10 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
             notFound(request, handlers.keySet(), responseHandler);
         }
         catch (IllegalArgumentException e) {
-            badRequest(request, e, responseHandler);
+            badRequest(request, e, errorHandler(request, responseHandler));
         }
         catch (RuntimeException e) {
-            serverError(request, e, responseHandler);
+            serverError(request, e, errorHandler(request, responseHandler));
         }
         return ignoredContent;
     }
@@ -276,7 +297,7 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
     @Override
     public void handleTimeout(Request request, ResponseHandler responseHandler) {
         HttpRequest httpRequest = (HttpRequest) request;
-        timeout(httpRequest, "Timeout after " + (getProperty(httpRequest, TIMEOUT, timeoutMillisParser).orElse(defaultTimeout.toMillis())) + "ms", responseHandler);
+        timeout(httpRequest, "Timeout after " + (getProperty(httpRequest, TIMEOUT, timeoutMillisParser).orElse(defaultTimeout.toMillis())) + "ms", errorHandler(httpRequest, responseHandler));
     }
 
     @Override
@@ -291,16 +312,16 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
         // Shut down both dispatchers, so only we empty the queues of outstanding operations, and can be sure they're empty.
         dispatcher.shutdown();
         visitDispatcher.shutdown();
-        while ( ! (operations.isEmpty() && visitOperations.isEmpty()) && clock.instant().isBefore(doom)) {
+        while ( ! (enqueued.get() == 0 && visitOperations.isEmpty()) && clock.instant().isBefore(doom)) {
             dispatchEnqueued();
             dispatchVisitEnqueued();
         }
 
-        if ( ! operations.isEmpty())
-            log.log(WARNING, "Failed to empty request queue before shutdown timeout — " + operations.size() + " requests left");
+        if (enqueued.get() != 0)
+            log.log(WARNING, "Failed to empty request queue before shutdown timeout — " + enqueued.get() + " requests left");
 
         if ( ! visitOperations.isEmpty())
-            log.log(WARNING, "Failed to empty visitor operations queue before shutdown timeout — " + operations.size() + " operations left");
+            log.log(WARNING, "Failed to empty visitor operations queue before shutdown timeout — " + visitOperations.size() + " operations left");
 
         try {
             while (outstanding.get() > 0 && clock.instant().isBefore(doom))
@@ -336,6 +357,9 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
                             POST, this::postDocuments,
                             DELETE, this::deleteDocuments));
 
+        handlers.put("/document/v1/bulk",
+                     Map.of(POST, this::postBulk));
+
         handlers.put("/document/v1/{namespace}/{documentType}/docid/",
                      Map.of(GET, this::getDocuments,
                             POST, this::postDocuments,
@@ -377,7 +401,7 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
 
     private ContentChannel getDocuments(HttpRequest request, DocumentPath path, ResponseHandler handler) {
         disallow(request, DRY_RUN);
-        enqueueAndDispatch(request, handler, () -> {
+        enqueueAndDispatch(request, request, handler, () -> {
             boolean streamed = getProperty(request, STREAM, booleanParser).orElse(false);
             VisitorParameters parameters = parseGetParameters(request, path, streamed);
             return () -> {
@@ -390,7 +414,7 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
 
     private ContentChannel postDocuments(HttpRequest request, DocumentPath path, ResponseHandler handler) {
         disallow(request, DRY_RUN);
-        enqueueAndDispatch(request, handler, () -> {
+        enqueueAndDispatch(request, request, handler, () -> {
             StorageCluster destination = resolveCluster(Optional.of(requireProperty(request, DESTINATION_CLUSTER)), clusters);
             VisitorParameters parameters = parseParameters(request, path);
             parameters.setRemoteDataHandler("[Content:cluster=" + destination.name() + "]"); // Bypass indexing.
@@ -406,7 +430,7 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
     private ContentChannel putDocuments(HttpRequest request, DocumentPath path, ResponseHandler handler) {
         disallow(request, DRY_RUN);
         return new ForwardingContentChannel(in -> {
-            enqueueAndDispatch(request, handler, () -> {
+            enqueueAndDispatch(request, request, handler, () -> {
                 StorageCluster cluster = resolveCluster(Optional.of(requireProperty(request, CLUSTER)), clusters);
                 VisitorParameters parameters = parseParameters(request, path);
                 parameters.setFieldSet(DocIdOnly.NAME);
@@ -424,7 +448,7 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
 
     private ContentChannel deleteDocuments(HttpRequest request, DocumentPath path, ResponseHandler handler) {
         disallow(request, DRY_RUN);
-        enqueueAndDispatch(request, handler, () -> {
+        enqueueAndDispatch(request, request, handler, () -> {
             VisitorParameters parameters = parseParameters(request, path);
             parameters.setFieldSet(DocIdOnly.NAME);
             TestAndSetCondition condition = new TestAndSetCondition(requireProperty(request, SELECTION));
@@ -440,12 +464,12 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
     private ContentChannel getDocument(HttpRequest request, DocumentPath path, ResponseHandler rawHandler) {
         ResponseHandler handler = new MeasuringResponseHandler(request, rawHandler, com.yahoo.documentapi.metrics.DocumentOperationType.GET, clock.instant());
         disallow(request, DRY_RUN);
-        enqueueAndDispatch(request, handler, () -> {
+        enqueueAndDispatch(path.id(), request, handler, () -> {
             DocumentOperationParameters rawParameters = parametersFromRequest(request, CLUSTER, FIELD_SET);
             if (rawParameters.fieldSet().isEmpty())
                 rawParameters = rawParameters.withFieldSet(path.documentType().orElseThrow() + ":[document]");
             DocumentOperationParameters parameters = rawParameters.withResponseHandler(response -> {
-                outstanding.decrementAndGet();
+                operationCompleted();
                 handle(path, request, handler, response, (document, jsonResponse) -> {
                     if (document != null) {
                         jsonResponse.writeSingleDocument(document);
@@ -469,14 +493,14 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
         }
 
         return new ForwardingContentChannel(in -> {
-            enqueueAndDispatch(request, handler, () -> {
+            enqueueAndDispatch(path.id(), request, handler, () -> {
                 ParsedDocumentOperation parsed = parser.parsePut(in, path.id().toString());
                 DocumentPut put = (DocumentPut)parsed.operation();
                 getProperty(request, CONDITION).map(TestAndSetCondition::new).ifPresent(put::setCondition);
                 getProperty(request, CREATE, booleanParser).ifPresent(put::setCreateIfNonExistent);
                 DocumentOperationParameters parameters = parametersFromRequest(request, ROUTE)
                         .withResponseHandler(response -> {
-                            outstanding.decrementAndGet();
+                            operationCompleted();
                             updatePutMetrics(response.outcome(), latencyOf(request), put.getCreateIfNonExistent());
                             handleFeedOperation(path, parsed.fullyApplied(), handler, response);
                         });
@@ -494,14 +518,14 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
         }
 
         return new ForwardingContentChannel(in -> {
-            enqueueAndDispatch(request, handler, () -> {
+            enqueueAndDispatch(path.id(), request, handler, () -> {
                 ParsedDocumentOperation parsed = parser.parseUpdate(in, path.id().toString());
                 DocumentUpdate update = (DocumentUpdate)parsed.operation();
                 getProperty(request, CONDITION).map(TestAndSetCondition::new).ifPresent(update::setCondition);
                 getProperty(request, CREATE, booleanParser).ifPresent(update::setCreateIfNonExistent);
                 DocumentOperationParameters parameters = parametersFromRequest(request, ROUTE)
                         .withResponseHandler(response -> {
-                            outstanding.decrementAndGet();
+                            operationCompleted();
                             updateUpdateMetrics(response.outcome(), latencyOf(request), update.getCreateIfNonExistent());
                             handleFeedOperation(path, parsed.fullyApplied(), handler, response);
                         });
@@ -518,12 +542,12 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
             return ignoredContent;
         }
 
-        enqueueAndDispatch(request, handler, () -> {
+        enqueueAndDispatch(path.id(), request, handler, () -> {
             DocumentRemove remove = new DocumentRemove(path.id());
             getProperty(request, CONDITION).map(TestAndSetCondition::new).ifPresent(remove::setCondition);
             DocumentOperationParameters parameters = parametersFromRequest(request, ROUTE)
                     .withResponseHandler(response -> {
-                        outstanding.decrementAndGet();
+                        operationCompleted();
                         updateRemoveMetrics(response.outcome(), latencyOf(request));
                         handleFeedOperation(path, true, handler, response);
                     });
@@ -532,6 +556,63 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
         return ignoredContent;
     }
 
+    /**
+     * Feeds a body of document operations as JSON lines, with each operation parsed and enqueued as soon as its line
+     * is received, and responds with the result of each operation, as a JSON line, as soon as it completes.
+     * Lines are parsed by the dispatcher threads, not by the thread which reads the request content.
+     */
+    private ContentChannel postBulk(HttpRequest request, DocumentPath path, ResponseHandler handler) {
+        boolean dryRun = getProperty(request, DRY_RUN, booleanParser).orElse(false);
+        BulkResponse response = new BulkResponse(handler);
+        return new JsonLinesContentChannel(line -> feedBulkOperation(request, line, response, dryRun),
+                                           response::inputDone,
+                                           task -> {
+                                               try {
+                                                   dispatcher.execute(task);
+                                               }
+                                               catch (RejectedExecutionException e) {
+                                                   task.run(); // Shutting down, so just parse in this thread.
+                                               }
+                                           },
+                                           maxBulkLineBytes);
+    }
+
+    private void feedBulkOperation(HttpRequest request, byte[] line, BulkResponse response, boolean dryRun) {
+        long startNanos = System.nanoTime();
+        int index = response.operationStarted();
+        ParsedDocumentOperation parsed;
+        try {
+            parsed = parser.parseOperation(line);
+        }
+        catch (IllegalArgumentException e) {
+            response.write(index, null, Response.Status.BAD_REQUEST, Exceptions.toMessageString(e), null);
+            return;
+        }
+        DocumentOperation operation = parsed.operation();
+        DocumentId id = operation.getId();
+        if (dryRun) {
+            response.write(index, id, Response.Status.OK, null, null);
+            return;
+        }
+
+        enqueueAndDispatch(id, request, response.errorHandlerFor(index, id), () -> {
+            DocumentOperationParameters parameters = parametersFromRequest(request, ROUTE)
+                    .withResponseHandler(result -> {
+                        operationCompleted();
+                        updateMetrics(operation, result.outcome(), (System.nanoTime() - startNanos) / 1e+9d);
+                        response.write(index, id, result);
+                    });
+            return () -> dispatchOperation(() -> send(operation, parameters));
+        });
+    }
+
+    private Result send(DocumentOperation operation, DocumentOperationParameters parameters) {
+        if (operation instanceof DocumentPut put) return asyncSession.put(put, parameters);
+        if (operation instanceof DocumentUpdate update) return asyncSession.update(update, parameters);
+        if (operation instanceof DocumentRemove remove) return asyncSession.remove(remove, parameters);
+        throw new IllegalArgumentException("Unexpected document operation '" + operation + "'");
+    }
+
     private DocumentOperationParameters parametersFromRequest(HttpRequest request, String... names) {
         DocumentOperationParameters parameters = getProperty(request, TRACELEVEL, integerParser).map(parameters()::withTraceLevel)
                                                                                                 .orElse(parameters());
@@ -551,28 +632,25 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
         return parameters;
     }
 
-    /** Dispatches enqueued requests until one is blocked. */
+    /** Dispatches enqueued requests in each queue until one is blocked. */
     void dispatchEnqueued() {
-        try {
-            while (dispatchFirst());
-        }
-        catch (Exception e) {
-            log.log(WARNING, "Uncaught exception in /document/v1 dispatch thread", e);
-        }
+        for (OperationQueue queue : queues)
+            queue.dispatch();
     }
 
-    /** Attempts to dispatch the first enqueued operations, and returns whether this was successful. */
-    private boolean dispatchFirst() {
-        Operation operation = operations.poll();
-        if (operation == null)
-            return false;
+    /**
+     * Called when a dispatched operation completes, which frees throttling capacity for one enqueued operation.
+     * Queues are woken in round-robin order, so the freed capacity goes to each of them in turn.
+     */
+    private void operationCompleted() {
+        outstanding.decrementAndGet();
+        if (enqueued.get() == 0)
+            return;
 
-        if (operation.dispatch()) {
-            enqueued.decrementAndGet();
-            return true;
-        }
-        operations.push(operation);
-        return false;
+        int first = nextWakeUp.getAndIncrement();
+        for (int i = 0; i < queues.size(); i++)
+            if (queues.get(Math.floorMod(first + i, queues.size())).wakeUp())
+                return;
     }
 
     /** Dispatches enqueued requests until one is blocked. */
@@ -598,18 +676,17 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
         return false;
     }
 
-    private long qAgeNS(HttpRequest request) {
-        Operation oldest = operations.peek();
-        return (oldest != null)
-                ? (request.relativeCreatedAtNanoTime() - oldest.request.relativeCreatedAtNanoTime())
-                : 0;
-    }
-
     /**
      * Enqueues the given request and operation, or responds with "overload" if the queue is full,
-     * and then attempts to dispatch an enqueued operation from the head of the queue.
+     * and then attempts to dispatch enqueued operations from the head of the queue for the given ordering key.
+     * Operations with equal ordering keys are dispatched in the order they are enqueued.
      */
-    private void enqueueAndDispatch(HttpRequest request, ResponseHandler handler, Supplier<BooleanSupplier> operationParser) {
+    private void enqueueAndDispatch(Object orderingKey, HttpRequest request, ResponseHandler handler, Supplier<BooleanSupplier> operationParser) {
+        enqueueAndDispatch(orderingKey, request, errorHandler(request, handler), operationParser);
+    }
+
+    private void enqueueAndDispatch(Object orderingKey, HttpRequest request, ErrorHandler handler, Supplier<BooleanSupplier> operationParser) {
+        OperationQueue queue = queues.get(Math.floorMod(orderingKey.hashCode(), queues.size()));
         long numQueued = enqueued.incrementAndGet();
         if (numQueued > maxThrottled) {
             enqueued.decrementAndGet();
@@ -618,7 +695,7 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
             return;
         }
         if (numQueued > 1) {
-            long ageNS = qAgeNS(request);
+            long ageNS = queue.ageNanos(request);
             if (ageNS > maxThrottledAgeNS) {
                 enqueued.decrementAndGet();
                 overload(request, "Rejecting execution due to overload: "
@@ -626,37 +703,136 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
                 return;
             }
         }
-        operations.offer(new Operation(request, handler, operationParser));
-        dispatchFirst();
+        setMetric(MetricNames.PENDING, numQueued);
+        queue.operations.offer(new Operation(request, handler, operationParser));
+        queue.dispatch();
+    }
+
+    /**
+     * A queue of operations which are dispatched in order, by at most one thread at a time.
+     * Operations are spread over several of these, so dispatch to the document API is not limited to a single thread.
+     */
+    private class OperationQueue {
+
+        private final Deque<Operation> operations = new ConcurrentLinkedDeque<>();
+        private final AtomicInteger requests = new AtomicInteger();
+        private final AtomicBoolean dispatching = new AtomicBoolean();
+        private final AtomicBoolean wakeUpScheduled = new AtomicBoolean();
+
+        /**
+         * Attempts to dispatch enqueued operations until one is blocked. If another thread is already dispatching,
+         * that thread instead makes the attempt on our behalf, when it is done with its current one.
+         */
+        void dispatch() {
+            try {
+                requests.incrementAndGet();
+                // Re-check after releasing, as another thread may have requested dispatch while we were holding it.
+                while (requests.get() > 0 && dispatching.compareAndSet(false, true)) {
+                    try {
+                        for (int pending = requests.getAndSet(0); pending > 0 && ! dispatchAll(); pending--);
+                    }
+                    finally {
+                        dispatching.set(false);
+                    }
+                }
+            }
+            catch (Exception e) {
+                log.log(WARNING, "Uncaught exception in /document/v1 dispatch", e);
+            }
+        }
+
+        /** Dispatches operations until the queue is empty, returning true, or one is blocked, returning false. */
+        private boolean dispatchAll() {
+            for (Operation operation; (operation = operations.peek()) != null; ) {
+                if ( ! operation.dispatch())
+                    return false;
+
+                operations.poll();
+                setMetric(MetricNames.PENDING, enqueued.decrementAndGet());
+                setMetric(MetricNames.DISPATCH_LATENCY, (System.nanoTime() - operation.enqueuedNanos) * 1e-6);
+            }
+            return true;
+        }
+
+        /**
+         * Schedules dispatch of this in the dispatcher, if there is anything to dispatch, and this isn't already scheduled.
+         * Returns whether this has operations to dispatch, i.e., whether dispatch is now scheduled.
+         */
+        boolean wakeUp() {
+            if (operations.isEmpty())
+                return false;
+
+            if ( ! wakeUpScheduled.compareAndSet(false, true))
+                return true;
+
+            try {
+                dispatcher.execute(() -> {
+                    wakeUpScheduled.set(false);
+                    dispatch();
+                });
+            }
+            catch (RejectedExecutionException e) {
+                wakeUpScheduled.set(false); // Shutting down, and the remaining operations are dispatched by destroy().
+            }
+            return true;
+        }
+
+        long ageNanos(HttpRequest request) {
+            Operation oldest = operations.peek();
+            return (oldest != null)
+                    ? (request.relativeCreatedAtNanoTime() - oldest.request.relativeCreatedAtNanoTime())
+                    : 0;
+        }
+
     }
 
 
     // ------------------------------------------------ Responses ------------------------------------------------
 
-    /** Class for writing and returning JSON responses to document operations in a thread safe manner. */
+    /**
+     * Class for writing and returning JSON responses to document operations in a thread safe manner.
+     * Visited documents may instead be written as JSON lines, followed by a line with the remaining fields,
+     * and the response may be compressed with zstd.
+     */
     private static class JsonResponse implements AutoCloseable {
 
         private static final ByteBuffer emptyBuffer = ByteBuffer.wrap(new byte[0]);
         private static final int FLUSH_SIZE = 128;
+        private static final int FLUSH_BYTES = 1 << 20;
+        private static final int COMPRESSION_BUFFER_SIZE = 1 << 17;
 
         private final BufferedContentChannel buffer = new BufferedContentChannel();
-        private final OutputStream out = new ContentChannelOutputStream(buffer);
+        private final OutputStream out;
+        private final ByteArrayOutputStream summary; // Holds the JSON object when documents are written as lines before it.
         private final JsonGenerator json;
         private final ResponseHandler handler;
         private final HttpRequest request;
+        private final boolean lines;
+        private final boolean compressed;
         private final Queue<CompletionHandler> acks = new ConcurrentLinkedQueue<>();
         private final Queue<ByteArrayOutputStream> docs = new ConcurrentLinkedQueue<>();
         private final AtomicLong documentsWritten = new AtomicLong();
         private final AtomicLong documentsFlushed = new AtomicLong();
         private final AtomicLong documentsAcked = new AtomicLong();
+        private final AtomicLong bytesQueued = new AtomicLong();
         private boolean documentsDone = false;
         private boolean first = true;
         private ContentChannel channel;
 
         private JsonResponse(ResponseHandler handler, HttpRequest request) throws IOException {
+            this(handler, request, false, false);
+        }
+
+        private JsonResponse(ResponseHandler handler, HttpRequest request, boolean lines, boolean compressed) throws IOException {
             this.handler = handler;
             this.request = request;
-            json = jsonFactory.createGenerator(out);
+            this.lines = lines;
+            this.compressed = compressed;
+            OutputStream channelOut = new ContentChannelOutputStream(buffer);
+            out = compressed ? new ZstdOutputStream(channelOut, COMPRESSION_BUFFER_SIZE) : channelOut;
+            summary = lines ? new ByteArrayOutputStream() : null;
+            json = jsonFactory.createGenerator(lines ? summary : out);
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET); // We close "out" ourselves.
             json.writeStartObject();
         }
 
@@ -682,6 +858,16 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
             return response;
         }
 
+        /** Creates a new JsonResponse for visited documents, in the format and encoding accepted by the client, with path field written. */
+        static JsonResponse createForDocuments(HttpRequest request, ResponseHandler handler) throws IOException {
+            JsonResponse response = new JsonResponse(handler,
+                                                     request,
+                                                     accepts(request, "Accept", "application/x-ndjson") || accepts(request, "Accept", "application/jsonl"),
+                                                     accepts(request, "Accept-Encoding", "zstd"));
+            response.writePathId(request.getUri().getRawPath());
+            return response;
+        }
+
         synchronized void commit(int status) throws IOException {
             commit(status, true);
         }
@@ -689,7 +875,9 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
         /** Commits a response with the given status code and some default headers, and writes whatever content is buffered. */
         synchronized void commit(int status, boolean fullyApplied) throws IOException {
             Response response = new Response(status);
-            response.headers().add("Content-Type", List.of("application/json; charset=UTF-8"));
+            response.headers().add("Content-Type", List.of(lines ? "application/x-ndjson; charset=UTF-8" : "application/json; charset=UTF-8"));
+            if (compressed)
+                response.headers().add("Content-Encoding", "zstd");
             if (! fullyApplied)
                 response.headers().add(Headers.IGNORED_FIELDS, "true");
             try {
@@ -718,7 +906,11 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
                     commit(Response.Status.INTERNAL_SERVER_ERROR);
                 }
                 json.close(); // Also closes object and array scopes.
-                out.close();  // Simply flushes the output stream.
+                if (lines) {
+                    summary.write('\n');
+                    summary.writeTo(out);
+                }
+                out.close();  // Flushes the output stream, and the last compressed frame.
             }
             finally {
                 if (channel != null)
@@ -743,23 +935,7 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
         }
 
         synchronized void writeTrace(Trace trace) throws IOException {
-            if (trace != null && ! trace.getRoot().isEmpty()) {
-                writeTrace(trace.getRoot());
-            }
-        }
-
-        private void writeTrace(TraceNode node) throws IOException {
-            if (node.hasNote())
-                json.writeStringField("message", node.getNote());
-            if ( ! node.isLeaf()) {
-                json.writeArrayFieldStart(node.isStrict() ? "trace" : "fork");
-                for (int i = 0; i < node.getNumChildren(); i++) {
-                    json.writeStartObject();
-                    writeTrace(node.getChild(i));
-                    json.writeEndObject();
-                }
-                json.writeEndArray();
-            }
+            DocumentV1ApiHandler.writeTrace(json, trace);
         }
 
         private boolean tensorShortForm() {
@@ -781,7 +957,8 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
         }
 
         synchronized void writeDocumentsArrayStart() throws IOException {
-            json.writeArrayFieldStart("documents");
+            if ( ! lines)
+                json.writeArrayFieldStart("documents");
         }
 
         private interface DocumentWriter {
@@ -817,12 +994,14 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
             // Serialise document and add to queue, not necessarily in the order dictated by "written" above,
             // i.e., the first 128 documents in the queue are not necessarily the ones ack'ed early.
             ByteArrayOutputStream myOut = new ByteArrayOutputStream(1);
-            myOut.write(','); // Prepend rather than append, to avoid double memory copying.
+            if ( ! lines) myOut.write(','); // Prepend rather than append, to avoid double memory copying.
             documentWriter.write(myOut);
+            if (lines) myOut.write('\n');
             docs.add(myOut);
 
-            // Flush the first FLUSH_SIZE documents in the queue to the network layer if chunk is filled.
-            if (documentsWritten.incrementAndGet() % FLUSH_SIZE == 0) {
+            // Flush the queued documents to the network layer if a chunk is filled, or they hold too much memory.
+            long bytes = bytesQueued.addAndGet(myOut.size());
+            if (documentsWritten.incrementAndGet() % FLUSH_SIZE == 0 || bytes >= FLUSH_BYTES) {
                 flushDocuments();
             }
         }
@@ -838,28 +1017,33 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
             documentsAcked.decrementAndGet(); // We overshoot by one above, so decrement again when done.
         }
 
+        /** Writes all queued documents to the network layer, and acks more documents once these are written. */
         synchronized void flushDocuments() throws IOException {
-            for (int i = 0; i < FLUSH_SIZE; i++) {
-                ByteArrayOutputStream doc = docs.poll();
-                if (doc == null)
-                    break;
+            if (documentsDone || docs.isEmpty())
+                return;
 
-                if ( ! documentsDone) {
-                    if (first) { // First chunk, remove leading comma from first document, and flush "json" to "buffer".
-                        json.flush();
-                        buffer.write(ByteBuffer.wrap(doc.toByteArray(), 1, doc.size() - 1), null);
-                        first = false;
-                    }
-                    else {
-                        buffer.write(ByteBuffer.wrap(doc.toByteArray()), null);
-                    }
+            long flushed = 0;
+            for (ByteArrayOutputStream doc; (doc = docs.poll()) != null; flushed++) {
+                bytesQueued.addAndGet(-doc.size());
+                int offset = 0;
+                if (first && ! lines) { // First document, remove its leading comma, and flush "json" to "out" before it.
+                    json.flush();
+                    offset = 1;
                 }
+                first = false;
+                if (compressed)
+                    out.write(doc.toByteArray(), offset, doc.size() - offset);
+                else
+                    buffer.write(ByteBuffer.wrap(doc.toByteArray(), offset, doc.size() - offset), null);
             }
+            if (compressed)
+                out.flush(); // Writes the documents as a complete frame.
 
             // Ensure new, eligible acks are done, after flushing these documents.
+            long documents = flushed;
             buffer.write(emptyBuffer, new CompletionHandler() {
                 @Override public void completed() {
-                    documentsFlushed.addAndGet(FLUSH_SIZE);
+                    documentsFlushed.addAndGet(documents);
                     ackDocuments();
                 }
                 @Override public void failed(Throwable t) {
@@ -873,7 +1057,8 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
         synchronized void writeArrayEnd() throws IOException {
             flushDocuments();
             documentsDone = true;
-            json.writeEndArray();
+            if ( ! lines)
+                json.writeEndArray();
         }
 
         synchronized void writeContinuation(String token) throws IOException {
@@ -882,6 +1067,97 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
 
     }
 
+    private static void writeTrace(JsonGenerator json, Trace trace) throws IOException {
+        if (trace != null && ! trace.getRoot().isEmpty()) {
+            writeTrace(json, trace.getRoot());
+        }
+    }
+
+    private static void writeTrace(JsonGenerator json, TraceNode node) throws IOException {
+        if (node.hasNote())
+            json.writeStringField("message", node.getNote());
+        if ( ! node.isLeaf()) {
+            json.writeArrayFieldStart(node.isStrict() ? "trace" : "fork");
+            for (int i = 0; i < node.getNumChildren(); i++) {
+                json.writeStartObject();
+                writeTrace(json, node.getChild(i));
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+        }
+    }
+
+    /**
+     * Writes the results of the operations of a bulk request as JSON lines, in the order they complete.
+     * Each line has the index of the operation in the request, its document ID, if known, and the HTTP status code
+     * and message the operation would get as a single request. The response is closed when the request content
+     * is done, and all its operations have completed.
+     */
+    private static class BulkResponse {
+
+        private final ContentChannel channel;
+        private final AtomicInteger operations = new AtomicInteger();
+        private final AtomicInteger pending = new AtomicInteger(1); // The request content is pending until done.
+
+        BulkResponse(ResponseHandler handler) {
+            Response response = new Response(Response.Status.OK);
+            response.headers().add("Content-Type", List.of("application/x-ndjson; charset=UTF-8"));
+            this.channel = handler.handleResponse(response);
+        }
+
+        /** Returns the index of a new operation, whose result must be written before this is closed. */
+        int operationStarted() {
+            pending.incrementAndGet();
+            return operations.getAndIncrement();
+        }
+
+        void inputDone() {
+            completed();
+        }
+
+        private void completed() {
+            if (pending.decrementAndGet() == 0)
+                channel.close(logException);
+        }
+
+        void write(int index, DocumentId id, com.yahoo.documentapi.Response response) {
+            if (response.isSuccess())
+                write(index, id, Response.Status.OK, null, response.getTrace());
+            else
+                write(index, id, failureStatusOf(response), response.getTextMessage(), response.getTrace());
+        }
+
+        void write(int index, DocumentId id, int status, String message, Trace trace) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+            try (JsonGenerator json = jsonFactory.createGenerator(line)) {
+                json.writeStartObject();
+                json.writeNumberField("index", index);
+                if (id != null) json.writeStringField("id", id.toString());
+                json.writeNumberField("status", status);
+                if (message != null) json.writeStringField("message", message);
+                writeTrace(json, trace);
+                json.writeEndObject();
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            line.write('\n');
+            synchronized (this) {
+                channel.write(ByteBuffer.wrap(line.toByteArray()), logException);
+            }
+            completed();
+        }
+
+        /**
+         * Returns a handler for errors for the operation with the given index, which is used when the operation
+         * fails before it is sent, e.g., due to overload; each error is written as a line in this.
+         */
+        ErrorHandler errorHandlerFor(int index, DocumentId id) {
+            return (status, message) -> write(index, id, status, message, null);
+        }
+
+    }
+
     private static void options(Collection<Method> methods, ResponseHandler handler) {
         loggingException(() -> {
             Response response = new Response(Response.Status.NO_CONTENT);
@@ -890,11 +1166,11 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
         });
     }
 
-    private static void badRequest(HttpRequest request, IllegalArgumentException e, ResponseHandler handler) {
+    private static void badRequest(HttpRequest request, IllegalArgumentException e, ErrorHandler handler) {
         loggingException(() -> {
             String message = Exceptions.toMessageString(e);
             log.log(FINE, () -> "Bad request for " + request.getMethod() + " at " + request.getUri().getRawPath() + ": " + message);
-            JsonResponse.create(request, message, handler).respond(Response.Status.BAD_REQUEST);
+            handler.respond(Response.Status.BAD_REQUEST, message);
         });
     }
 
@@ -918,27 +1194,38 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
         });
     }
 
-    private static void overload(HttpRequest request, String message, ResponseHandler handler) {
+    private static void overload(HttpRequest request, String message, ErrorHandler handler) {
         loggingException(() -> {
             log.log(FINE, () -> "Overload handling request " + request.getMethod() + " " + request.getUri().getRawPath() + ": " + message);
-            JsonResponse.create(request, message, handler).respond(Response.Status.TOO_MANY_REQUESTS);
+            handler.respond(Response.Status.TOO_MANY_REQUESTS, message);
         });
     }
 
-    private static void serverError(HttpRequest request, Throwable t, ResponseHandler handler) {
+    private static void serverError(HttpRequest request, Throwable t, ErrorHandler handler) {
         loggingException(() -> {
             log.log(WARNING, "Uncaught exception handling request " + request.getMethod() + " " + request.getUri().getRawPath(), t);
-            JsonResponse.create(request, Exceptions.toMessageString(t), handler).respond(Response.Status.INTERNAL_SERVER_ERROR);
+            handler.respond(Response.Status.INTERNAL_SERVER_ERROR, Exceptions.toMessageString(t));
         });
     }
 
-    private static void timeout(HttpRequest request, String message, ResponseHandler handler) {
+    private static void timeout(HttpRequest request, String message, ErrorHandler handler) {
         loggingException(() -> {
             log.log(FINE, () -> "Timeout handling request " + request.getMethod() + " " + request.getUri().getRawPath() + ": " + message);
-            JsonResponse.create(request, message, handler).respond(Response.Status.GATEWAY_TIMEOUT);
+            handler.respond(Response.Status.GATEWAY_TIMEOUT, message);
         });
     }
 
+    /** Responds to a request, or an operation of a bulk request, which failed with the given status and message. */
+    @FunctionalInterface
+    private interface ErrorHandler {
+        void respond(int status, String message) throws IOException;
+    }
+
+    /** Returns an error handler which responds to the given request with a JSON response with the error message. */
+    private static ErrorHandler errorHandler(HttpRequest request, ResponseHandler handler) {
+        return (status, message) -> JsonResponse.create(request, message, handler).respond(status);
+    }
+
     private static void loggingException(RunnableThrowingIOException runnable) {
         try {
             runnable.run();
@@ -953,12 +1240,13 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
     private static class Operation {
 
         private final Lock lock = new ReentrantLock();
+        private final long enqueuedNanos = System.nanoTime();
         private final HttpRequest request;
-        private final ResponseHandler handler;
+        private final ErrorHandler handler;
         private BooleanSupplier operation; // The operation to attempt until it returns success.
         private Supplier<BooleanSupplier> parser; // The unparsed operation—getting this will parse it.
 
-        Operation(HttpRequest request, ResponseHandler handler, Supplier<BooleanSupplier> parser) {
+        Operation(HttpRequest request, ErrorHandler handler, Supplier<BooleanSupplier> parser) {
             this.request = request;
             this.handler = handler;
             this.parser = parser;
@@ -1061,6 +1349,124 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
         }
     }
 
+    /**
+     * Splits content into lines, and passes each non-blank line on as soon as it is complete.
+     * Lines are passed on by the given executor, one at a time and in the order they were received, and each write
+     * or close completes when everything it completed has been passed on. Content with a line longer than the given
+     * max length fails, and the rest of it is ignored.
+     */
+    static class JsonLinesContentChannel implements ContentChannel {
+
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        private final Consumer<byte[]> lines;
+        private final Runnable done;
+        private final Executor executor;
+        private final int maxLineBytes;
+        private CompletableFuture<Void> passedOn = CompletableFuture.completedFuture(null);
+        private boolean failed = false;
+        private boolean closed = false;
+
+        JsonLinesContentChannel(Consumer<byte[]> lines, Runnable done, Executor executor, int maxLineBytes) {
+            this.lines = lines;
+            this.done = done;
+            this.executor = executor;
+            this.maxLineBytes = maxLineBytes;
+        }
+
+        @Override
+        public synchronized void write(ByteBuffer buf, CompletionHandler handler) {
+            if (failed) {
+                buf.position(buf.limit());
+                completed(handler);
+                return;
+            }
+            try {
+                List<byte[]> complete = new ArrayList<>();
+                int start = buf.position();
+                for (int i = start; i < buf.limit(); i++) {
+                    if (buf.get(i) == '\n') {
+                        append(buf, start, i);
+                        takeLine().ifPresent(complete::add);
+                        start = i + 1;
+                    }
+                }
+                append(buf, start, buf.limit());
+                buf.position(buf.limit());
+                passOn(() -> complete.forEach(lines), handler);
+            }
+            catch (IllegalArgumentException e) {
+                failed = true;
+                line.reset();
+                passOn(() -> { throw e; }, handler);
+            }
+        }
+
+        @Override
+        public synchronized void close(CompletionHandler handler) {
+            Optional<byte[]> last = failed ? Optional.empty() : takeLine();
+            passOn(() -> {
+                last.ifPresent(lines);
+                finish();
+            }, handler);
+        }
+
+        @Override
+        public synchronized void onError(Throwable error) {
+            log.log(FINE, error, () -> "ContentChannel.onError(): " + error.getMessage());
+            failed = true;
+            line.reset();
+            passOn(this::finish, null);
+        }
+
+        /** Runs the given task after all previous ones, and then completes the given handler, which may be null. */
+        private void passOn(Runnable task, CompletionHandler handler) {
+            passedOn = passedOn.thenRunAsync(task, executor)
+                               .handle((__, error) -> {
+                                   if (error == null) completed(handler);
+                                   else failed(handler, error instanceof CompletionException ? error.getCause() : error);
+                                   return null;
+                               });
+        }
+
+        private void append(ByteBuffer buf, int from, int to) {
+            if (line.size() + (to - from) > maxLineBytes)
+                throw new IllegalArgumentException("Line exceeds max length of " + maxLineBytes + " bytes");
+            if (buf.hasArray())
+                line.write(buf.array(), buf.arrayOffset() + from, to - from);
+            else
+                for (int i = from; i < to; i++)
+                    line.write(buf.get(i));
+        }
+
+        /** Returns the content of the current line, unless it's blank, and starts a new line. */
+        private Optional<byte[]> takeLine() {
+            byte[] data = line.toByteArray();
+            line.reset();
+            for (byte b : data)
+                if ( ! Character.isWhitespace(b))
+                    return Optional.of(data);
+
+            return Optional.empty();
+        }
+
+        private void finish() {
+            synchronized (this) {
+                if (closed) return;
+                closed = true;
+            }
+            done.run();
+        }
+
+        private static void completed(CompletionHandler handler) {
+            if (handler != null) handler.completed();
+        }
+
+        private static void failed(CompletionHandler handler, Throwable error) {
+            if (handler != null) handler.failed(error);
+        }
+
+    }
+
     class DocumentOperationParser {
 
         private final DocumentTypeManager manager;
@@ -1077,6 +1483,23 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
             return parse(inputStream, docId, DocumentOperationType.UPDATE);
         }
 
+        /** Parses a single document operation in the feed format, i.e., with its type and document ID in the JSON. */
+        ParsedDocumentOperation parseOperation(byte[] json) {
+            try {
+                JsonReader reader = new JsonReader(manager, new ByteArrayInputStream(json), jsonFactory);
+                ParsedDocumentOperation operation = reader.readOperation()
+                        .orElseThrow(() -> new IllegalArgumentException("No document operation in '" + Utf8.toString(json) + "'"));
+                // Reading to the end also lets the parser release its buffers for reuse.
+                if (reader.readOperation().isPresent())
+                    throw new IllegalArgumentException("Expected a single document operation per line");
+
+                return operation;
+            } catch (IllegalArgumentException e) {
+                incrementMetricParseError();
+                throw e;
+            }
+        }
+
         private ParsedDocumentOperation parse(InputStream inputStream, String docId, DocumentOperationType operation) {
             try {
                 return new JsonReader(manager, inputStream, jsonFactory).readSingleDocumentStreaming(operation, docId);
@@ -1103,20 +1526,7 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
                 callback.onSuccess((response instanceof DocumentResponse) ? ((DocumentResponse) response).getDocument() : null, jsonResponse);
             else {
                 jsonResponse.writeMessage(response.getTextMessage());
-                switch (response.outcome()) {
-                    case NOT_FOUND -> jsonResponse.commit(Response.Status.NOT_FOUND);
-                    case CONDITION_FAILED -> jsonResponse.commit(Response.Status.PRECONDITION_FAILED);
-                    case INSUFFICIENT_STORAGE -> jsonResponse.commit(Response.Status.INSUFFICIENT_STORAGE);
-                    case TIMEOUT -> jsonResponse.commit(Response.Status.GATEWAY_TIMEOUT);
-                    case ERROR -> {
-                        log.log(FINE, () -> "Exception performing document operation: " + response.getTextMessage());
-                        jsonResponse.commit(Status.INTERNAL_SERVER_ERROR);
-                    }
-                    default -> {
-                        log.log(WARNING, "Unexpected document API operation outcome '" + response.outcome() + "' " + response.getTextMessage());
-                        jsonResponse.commit(Status.INTERNAL_SERVER_ERROR);
-                    }
-                }
+                jsonResponse.commit(failureStatusOf(response));
             }
         }
         catch (Exception e) {
@@ -1124,6 +1534,24 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
         }
     }
 
+    /** Returns the HTTP status code corresponding to the given, unsuccessful, document operation response. */
+    private static int failureStatusOf(com.yahoo.documentapi.Response response) {
+        return switch (response.outcome()) {
+            case NOT_FOUND -> Response.Status.NOT_FOUND;
+            case CONDITION_FAILED -> Response.Status.PRECONDITION_FAILED;
+            case INSUFFICIENT_STORAGE -> Response.Status.INSUFFICIENT_STORAGE;
+            case TIMEOUT -> Response.Status.GATEWAY_TIMEOUT;
+            case ERROR -> {
+                log.log(FINE, () -> "Exception performing document operation: " + response.getTextMessage());
+                yield Status.INTERNAL_SERVER_ERROR;
+            }
+            default -> {
+                log.log(WARNING, "Unexpected document API operation outcome '" + response.outcome() + "' " + response.getTextMessage());
+                yield Status.INTERNAL_SERVER_ERROR;
+            }
+        };
+    }
+
     private static void handleFeedOperation(DocumentPath path,
                                             boolean fullyApplied,
                                             ResponseHandler handler,
@@ -1133,6 +1561,12 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
 
     private static double latencyOf(HttpRequest r) { return (System.nanoTime() - r.relativeCreatedAtNanoTime()) / 1e+9d; }
 
+    private void updateMetrics(DocumentOperation operation, Outcome outcome, double latency) {
+        if (operation instanceof DocumentPut put) updatePutMetrics(outcome, latency, put.getCreateIfNonExistent());
+        else if (operation instanceof DocumentUpdate update) updateUpdateMetrics(outcome, latency, update.getCreateIfNonExistent());
+        else updateRemoveMetrics(outcome, latency);
+    }
+
     private void updatePutMetrics(Outcome outcome, double latency, boolean create) {
         if (create && outcome == Outcome.NOT_FOUND) outcome = Outcome.SUCCESS; // >_<
         incrementMetricNumOperations(); incrementMetricNumPuts(); sampleLatency(latency);
@@ -1281,6 +1715,11 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
     }
 
     private interface VisitCallback {
+        /** Called to create the response to render to. */
+        default JsonResponse createResponse(HttpRequest request, ResponseHandler handler) throws IOException {
+            return JsonResponse.create(request, handler);
+        }
+
         /** Called at the start of response rendering. */
         default void onStart(JsonResponse response, boolean fullyApplied) throws IOException { }
 
@@ -1316,7 +1755,7 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
             @Override public void onDocument(JsonResponse response, Document document, DocumentId removeId, Runnable ack, Consumer<String> onError) {
                 DocumentOperationParameters operationParameters = parameters().withRoute(route)
                         .withResponseHandler(operationResponse -> {
-                            outstanding.decrementAndGet();
+                            operationCompleted();
                             switch (operationResponse.outcome()) {
                                 case SUCCESS:
                                 case NOT_FOUND:
@@ -1351,6 +1790,9 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
 
     private void visitAndWrite(HttpRequest request, VisitorParameters parameters, ResponseHandler handler, boolean streamed) {
         visit(request, parameters, streamed, true, handler, new VisitCallback() {
+            @Override public JsonResponse createResponse(HttpRequest request, ResponseHandler handler) throws IOException {
+                return JsonResponse.createForDocuments(request, handler);
+            }
             @Override public void onStart(JsonResponse response, boolean fullyApplied) throws IOException {
                 if (streamed)
                     response.commit(Response.Status.OK, fullyApplied);
@@ -1393,12 +1835,17 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
     @SuppressWarnings("fallthrough")
     private void visit(HttpRequest request, VisitorParameters parameters, boolean streaming, boolean fullyApplied, ResponseHandler handler, VisitCallback callback) {
         try {
-            JsonResponse response = JsonResponse.create(request, handler);
+            JsonResponse response = callback.createResponse(request, handler);
             Phaser phaser = new Phaser(2); // Synchronize this thread (dispatch) with the visitor callback thread.
             AtomicReference<String> error = new AtomicReference<>(); // Set if error occurs during processing of visited documents.
             callback.onStart(response, fullyApplied);
             VisitorControlHandler controller = new VisitorControlHandler() {
                 final ScheduledFuture<?> abort = streaming ? visitDispatcher.schedule(this::abort, visitTimeout(request), MILLISECONDS) : null;
+                final ScheduledFuture<?> flush = streaming ? visitDispatcher.scheduleWithFixedDelay(() -> loggingException(response::flushDocuments),
+                                                                                                    streamFlushInterval.toMillis(),
+                                                                                                    streamFlushInterval.toMillis(),
+                                                                                                    MILLISECONDS)
+                                                           : null;
                 final AtomicReference<VisitorSession> session = new AtomicReference<>();
                 @Override public void setSession(VisitorControlSession session) { // Workaround for broken session API ಠ_ಠ
                     super.setSession(session);
@@ -1442,6 +1889,7 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
                         }
                     });
                     if (abort != null) abort.cancel(false); // Avoid keeping scheduled future alive if this completes in any other fashion.
+                    if (flush != null) flush.cancel(false);
                     visitDispatcher.execute(() -> {
                         phaser.arriveAndAwaitAdvance(); // We may get here while dispatching thread is still putting us in the map.
                         visits.remove(this).destroy();
@@ -1472,7 +1920,7 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
             phaser.arriveAndDeregister();
         }
         catch (ParseException e) {
-            badRequest(request, new IllegalArgumentException(e), handler);
+            badRequest(request, new IllegalArgumentException(e), errorHandler(request, handler));
         }
         catch (IOException e) {
             log.log(FINE, "Failed writing response", e);
@@ -1487,6 +1935,21 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
         return createdAtMillis + requestTimeoutMillis;
     }
 
+    /** Returns whether the given header of the request lists the given value, e.g., a media type or an encoding, with non-zero weight. */
+    private static boolean accepts(HttpRequest request, String header, String value) {
+        List<String> headers = request.headers().get(header);
+        if (headers == null)
+            return false;
+
+        for (String list : headers)
+            for (String element : list.split(",")) {
+                String[] parts = element.split(";");
+                if (parts[0].trim().equalsIgnoreCase(value))
+                    return Stream.of(parts).skip(1).map(String::trim).noneMatch(parameter -> parameter.matches("q=0(\\.0*)?"));
+            }
+        return false;
+    }
+
     private static String requireProperty(HttpRequest request, String name) {
         return getProperty(request, name)
                 .orElseThrow(() -> new IllegalArgumentException("Must specify '" + name + "' at '" + request.getUri().getRawPath() + "'"));
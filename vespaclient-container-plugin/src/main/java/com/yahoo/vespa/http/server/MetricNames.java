@@ -23,6 +23,7 @@ public final class MetricNames {
     public static final String PARSE_ERROR = ContainerMetrics.HTTPAPI_PARSE_ERROR.baseName();
     public static final String SUCCEEDED = ContainerMetrics.HTTPAPI_SUCCEEDED.baseName();
     public static final String PENDING = ContainerMetrics.HTTPAPI_PENDING.baseName();
+    public static final String DISPATCH_LATENCY = ContainerMetrics.HTTPAPI_DISPATCH_LATENCY.baseName();
     public static final String FAILED_UNKNOWN = ContainerMetrics.HTTPAPI_FAILED_UNKNOWN.baseName();
     public static final String FAILED_TIMEOUT = ContainerMetrics.HTTPAPI_FAILED_TIMEOUT.baseName();
     public static final String FAILED_INSUFFICIENT_STORAGE = ContainerMetrics.HTTPAPI_FAILED_INSUFFICIENT_STORAGE.baseName();
@@ -2,6 +2,7 @@
 package com.yahoo.document.restapi.resource;
 
 import com.yahoo.cloud.config.ClusterListConfig;
+import com.yahoo.compress.ZstdCompressor;
 import com.yahoo.container.jdisc.RequestHandlerTestDriver;
 import com.yahoo.document.BucketId;
 import com.yahoo.document.Document;
@@ -44,6 +45,11 @@ import com.yahoo.documentapi.VisitorResponse;
 import com.yahoo.documentapi.VisitorSession;
 import com.yahoo.documentapi.messagebus.protocol.PutDocumentMessage;
 import com.yahoo.documentapi.messagebus.protocol.RemoveDocumentMessage;
+import com.yahoo.jdisc.Request;
+import com.yahoo.jdisc.handler.CompletionHandler;
+import com.yahoo.jdisc.handler.ContentChannel;
+import com.yahoo.jdisc.handler.ReadableContentChannel;
+import com.yahoo.jdisc.http.HttpRequest;
 import com.yahoo.jdisc.test.MockMetric;
 import com.yahoo.messagebus.StaticThrottlePolicy;
 import com.yahoo.messagebus.Trace;
@@ -64,8 +70,13 @@ import org.junit.Test;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
 import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -78,6 +89,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
@@ -91,6 +103,7 @@ import static com.yahoo.jdisc.http.HttpRequest.Method.PUT;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -218,6 +231,216 @@ public class DocumentV1ApiTest {
         driver.close();
     }
 
+    @Test
+    public void testThrottledOperationIsDispatchedWhenOutstandingOperationCompletes() {
+        RequestHandlerTestDriver driver = new RequestHandlerTestDriver(handler);
+        AtomicReference<DocumentOperationParameters> outstanding = new AtomicReference<>();
+        access.session.expect((id, parameters) -> {
+            outstanding.set(parameters);
+            return new Result();
+        });
+        var response1 = driver.sendRequest("http://localhost/document/v1/space/music/number/1/one", POST, "{\"fields\": {}}");
+        assertNotNull(outstanding.get());
+
+        access.session.expect((id, parameters) -> new Result(Result.ResultType.TRANSIENT_ERROR, Result.toError(Result.ResultType.TRANSIENT_ERROR)));
+        var response2 = driver.sendRequest("http://localhost/document/v1/space/music/number/1/two", POST, "{\"fields\": {}}");
+        assertEquals(1, metric.metrics().get("httpapi_pending").get(Map.of()), 0);
+
+        // Completion of the outstanding operation frees capacity, and wakes up dispatch of the throttled one, without resending.
+        access.session.expect((id, parameters) -> {
+            parameters.responseHandler().get().handleResponse(new DocumentResponse(0, null));
+            return new Result();
+        });
+        outstanding.get().responseHandler().get().handleResponse(new DocumentResponse(0, null));
+        assertSameJson("{" +
+                       "  \"pathId\": \"/document/v1/space/music/number/1/one\"," +
+                       "  \"id\": \"id:space:music:n=1:one\"" +
+                       "}", response1.readAll());
+        assertSameJson("{" +
+                       "  \"pathId\": \"/document/v1/space/music/number/1/two\"," +
+                       "  \"id\": \"id:space:music:n=1:two\"" +
+                       "}", response2.readAll());
+        assertEquals(200, response2.getStatus());
+        assertTrue(metric.metrics().containsKey("httpapi_dispatch_latency"));
+        assertEquals(0, metric.metrics().get("httpapi_pending").get(Map.of()), 0);
+        driver.close();
+    }
+
+    @Test
+    public void testBulk() {
+        RequestHandlerTestDriver driver = new RequestHandlerTestDriver(handler);
+        List<Object> operations = new ArrayList<>();
+        access.session.expect((operation, parameters) -> {
+            operations.add(operation);
+            if (operation instanceof DocumentUpdate)
+                parameters.responseHandler().get().handleResponse(new Response(0, "condition not met", Response.Outcome.CONDITION_FAILED));
+            else
+                parameters.responseHandler().get().handleResponse(new Response(0, null, Response.Outcome.SUCCESS));
+            return new Result();
+        });
+        var response = driver.sendRequest("http://localhost/document/v1/bulk?route=content", POST,
+                                          """
+                                          {"put": "id:space:music::one", "fields": {"artist": "Tom Waits"}}
+                                          {"update": "id:space:music::two", "condition": "false", "fields": {"artist": {"assign": "Tom"}}}
+
+                                          {"remove": "id:space:music::three"}
+                                          {"put": "id:space:music::four", "fields": {"artist": }}
+                                          {"put": "id:space:music::five", "create": true, "fields": {}}
+                                          {"remove": "id:space:music::six"} {"remove": "id:space:music::seven"}""");
+        String[] lines = response.readAll().split("\n");
+        assertEquals(200, response.getStatus());
+        assertEquals("application/x-ndjson; charset=UTF-8", response.getResponse().headers().getFirst("Content-Type"));
+        assertEquals(6, lines.length);
+        assertSameJson("{\"index\":0,\"id\":\"id:space:music::one\",\"status\":200}", lines[0]);
+        assertSameJson("{\"index\":1,\"id\":\"id:space:music::two\",\"status\":412,\"message\":\"condition not met\"}", lines[1]);
+        assertSameJson("{\"index\":2,\"id\":\"id:space:music::three\",\"status\":200}", lines[2]);
+        assertTrue(lines[3], lines[3].startsWith("{\"index\":3,\"status\":400,\"message\":"));
+        assertSameJson("{\"index\":4,\"id\":\"id:space:music::five\",\"status\":200}", lines[4]);
+        assertSameJson("{\"index\":5,\"status\":400,\"message\":\"Expected a single document operation per line\"}", lines[5]);
+
+        assertEquals(4, operations.size());
+        DocumentPut put = (DocumentPut) operations.get(0);
+        assertEquals(doc1.getFieldValue("artist"), put.getDocument().getFieldValue("artist"));
+        assertEquals("false", ((DocumentUpdate) operations.get(1)).getCondition().getSelection());
+        assertEquals(new DocumentId("id:space:music::three"), ((DocumentRemove) operations.get(2)).getId());
+        assertTrue(((DocumentPut) operations.get(3)).getCreateIfNonExistent());
+        assertEquals(3, metric.metrics().get("httpapi_succeeded").get(Map.of()), 0);
+        assertEquals(1, metric.metrics().get("httpapi_condition_not_met").get(Map.of()), 0);
+        assertEquals(2, metric.metrics().get("httpapi_parse_error").get(Map.of()), 0);
+
+        // Operations which are rejected due to overload get a line with the corresponding status.
+        access.session.expect((id, parameters) -> new Result(Result.ResultType.TRANSIENT_ERROR, Result.toError(Result.ResultType.TRANSIENT_ERROR)));
+        response = driver.sendRequest("http://localhost/document/v1/bulk", POST,
+                                      """
+                                      {"remove": "id:space:music::one"}
+                                      {"remove": "id:space:music::two"}
+                                      {"remove": "id:space:music::three"}
+                                      """);
+        assertSameJson("{\"index\":2,\"id\":\"id:space:music::three\",\"status\":429," +
+                       "\"message\":\"Rejecting execution due to overload: 2 requests already enqueued\"}",
+                       response.read());
+        access.session.expect((operation, parameters) -> {
+            parameters.responseHandler().get().handleResponse(new Response(0, null, Response.Outcome.SUCCESS));
+            return new Result();
+        });
+        handler.dispatchEnqueued();
+        assertEquals(Set.of("{\"index\":0,\"id\":\"id:space:music::one\",\"status\":200}",
+                            "{\"index\":1,\"id\":\"id:space:music::two\",\"status\":200}"),
+                     Set.of(response.readAll().split("\n")));
+        driver.close();
+    }
+
+    @Test
+    public void testJsonLinesContentChannel() {
+        CompletionHandler noop = new CompletionHandler() {
+            @Override public void completed() { }
+            @Override public void failed(Throwable t) { throw new AssertionError(t); }
+        };
+        List<String> lines = new ArrayList<>();
+        AtomicBoolean done = new AtomicBoolean();
+        Deque<Runnable> tasks = new ArrayDeque<>();
+        var channel = new DocumentV1ApiHandler.JsonLinesContentChannel(line -> lines.add(new String(line, UTF_8)),
+                                                                       () -> done.set(true), tasks::add, 16);
+        channel.write(ByteBuffer.wrap("{\"a\": 1}\n{\"b\"".getBytes(UTF_8)), noop);
+        assertEquals(List.of(), lines); // Lines are passed on by the executor.
+        tasks.remove().run();
+        assertEquals(List.of("{\"a\": 1}"), lines);
+        channel.write(ByteBuffer.allocateDirect(16).put(": 2}\n \r\n{".getBytes(UTF_8)).flip(), null);
+        tasks.remove().run();
+        assertEquals(List.of("{\"a\": 1}", "{\"b\": 2}"), lines);
+        assertFalse(done.get());
+        channel.write(ByteBuffer.wrap("}".getBytes(UTF_8)), noop);
+        channel.close(null);
+        tasks.remove().run();
+        assertFalse(done.get());
+        tasks.remove().run();
+        assertEquals(List.of("{\"a\": 1}", "{\"b\": 2}", "{}"), lines);
+        assertTrue(done.get());
+        assertTrue(tasks.isEmpty());
+
+        // A line longer than the max fails the content, and the rest of it is ignored.
+        lines.clear();
+        done.set(false);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        channel = new DocumentV1ApiHandler.JsonLinesContentChannel(line -> lines.add(new String(line, UTF_8)),
+                                                                   () -> done.set(true), Runnable::run, 16);
+        channel.write(ByteBuffer.wrap("{\"a\": 1}\n{\"b\": \"0123456".getBytes(UTF_8)), noop);
+        channel.write(ByteBuffer.wrap("789\"}\n{}\n".getBytes(UTF_8)), new CompletionHandler() {
+            @Override public void completed() { throw new AssertionError("should fail"); }
+            @Override public void failed(Throwable t) { failure.set(t); }
+        });
+        assertEquals("Line exceeds max length of 16 bytes", failure.get().getMessage());
+        channel.write(ByteBuffer.wrap("{}\n".getBytes(UTF_8)), noop);
+        channel.close(noop);
+        assertEquals(List.of("{\"a\": 1}"), lines);
+        assertTrue(done.get());
+    }
+
+    @Test
+    public void testStreamedVisitAsCompressedJsonLines() {
+        RequestHandlerTestDriver driver = new RequestHandlerTestDriver(handler);
+        List<AckToken> tokens = List.of(new AckToken(null), new AckToken(null), new AckToken(null));
+        access.expect(tokens);
+        access.expect(parameters -> {
+            assertTrue(parameters.visitRemoves());
+            parameters.getLocalDataHandler().onMessage(new PutDocumentMessage(new DocumentPut(doc1)), tokens.get(0));
+            parameters.getLocalDataHandler().onMessage(new RemoveDocumentMessage(new DocumentId("id:space:music::three")), tokens.get(1));
+            parameters.getLocalDataHandler().onMessage(new PutDocumentMessage(new DocumentPut(doc2)), tokens.get(2));
+            VisitorStatistics statistics = new VisitorStatistics();
+            statistics.setDocumentsVisited(3);
+            parameters.getControlHandler().onVisitorStatistics(statistics);
+            parameters.getControlHandler().onDone(VisitorControlHandler.CompletionCode.SUCCESS, "success");
+        });
+        Request request = HttpRequest.newServerRequest(driver.jDiscDriver(),
+                                                       URI.create("http://localhost/document/v1/space/music/docid?stream=true&includeRemoves=true"),
+                                                       HttpRequest.Method.GET);
+        request.headers().add("Accept", "application/x-ndjson");
+        request.headers().add("Accept-Encoding", "gzip, zstd;q=0.9");
+        ReadableContentChannel content = new ReadableContentChannel();
+        AtomicReference<com.yahoo.jdisc.Response> response = new AtomicReference<>();
+        ContentChannel requestContent = request.connect(rawResponse -> { response.set(rawResponse); return content; });
+        requestContent.close(null);
+        request.release();
+
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        for (ByteBuffer buffer; (buffer = content.read()) != null; ) {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            compressed.writeBytes(bytes);
+        }
+        assertEquals(200, response.get().getStatus());
+        assertEquals("application/x-ndjson; charset=UTF-8", response.get().headers().getFirst("Content-Type"));
+        assertEquals("zstd", response.get().headers().getFirst("Content-Encoding"));
+
+        byte[] decompressed = new byte[1 << 16];
+        int length = new ZstdCompressor().decompress(compressed.toByteArray(), 0, compressed.size(), decompressed, 0, decompressed.length);
+        String[] lines = new String(decompressed, 0, length, UTF_8).split("\n");
+        assertEquals(4, lines.length);
+        assertSameJson("""
+                       {
+                         "id": "id:space:music::one",
+                         "fields": {
+                           "artist": "Tom Waits",
+                           "embedding": { "type": "tensor(x[3])", "values": [1.0,2.0,3.0] }
+                         }
+                       }""", lines[0]);
+        assertSameJson("{ \"remove\": \"id:space:music::three\" }", lines[1]);
+        assertSameJson("""
+                       {
+                         "id": "id:space:music:n=1:two",
+                         "fields": {
+                           "artist": "Asa-Chan & Jun-Ray",
+                           "embedding": { "type": "tensor(x[3])", "values": [4.0,5.0,6.0] }
+                         }
+                       }""", lines[2]);
+        assertSameJson("""
+                       {
+                         "pathId": "/document/v1/space/music/docid",
+                         "documentCount": 3
+                       }""", lines[3]);
+        driver.close();
+    }
+
     @Test
     public void testOverLoadByAge() {
         RequestHandlerTestDriver driver = new RequestHandlerTestDriver(handler);
@@ -253,6 +476,7 @@ public class DocumentV1ApiTest {
                          "pathId": "/document/v1/not-found",
                          "message": "Nothing at '/document/v1/not-found'. Available paths are:
                        /document/v1/
+                       /document/v1/bulk
                        /document/v1/{namespace}/{documentType}/docid/
                        /document/v1/{namespace}/{documentType}/group/{group}/
                        /document/v1/{namespace}/{documentType}/number/{number}/
@@ -5,6 +5,7 @@ import com.yahoo.document.FixedBucketSpaces;
 import com.yahoo.document.fieldset.DocIdOnly;
 import com.yahoo.document.fieldset.DocumentOnly;
 import com.yahoo.document.select.parser.ParseException;
+import com.yahoo.documentapi.ParallelVisitorSession;
 import com.yahoo.documentapi.ProgressToken;
 import com.yahoo.documentapi.VisitorControlHandler;
 import com.yahoo.documentapi.VisitorParameters;
@@ -381,6 +382,15 @@ public class VdsVisit {
                 .type(Number.class)
                 .build());
 
+        options.addOption(Option.builder()
+                .longOpt("parallel")
+                .desc("Visit this number of slices of the document corpus concurrently, with one visitor session each, " +
+                      "and process the documents they return concurrently. The progress of all slices is tracked in " +
+                      "one progress file, from which the visit may be resumed with any number of parallel slices.")
+                .hasArg(true)
+                .type(Number.class)
+                .build());
+
         options.addOption(Option.builder()
                 .longOpt("nullrender")
                 .desc("Process documents, but do not render any output. Overrides all other output options. " +
@@ -409,6 +419,7 @@ public class VdsVisit {
         private boolean nullRender = false;
         private int slices = 1;
         private int sliceId = 0;
+        private int parallelism = 1;
 
         public VisitorParameters getVisitorParameters() {
             return visitorParameters;
@@ -540,6 +551,14 @@ public class VdsVisit {
             this.sliceId = sliceId;
         }
 
+        public int parallelism() {
+            return parallelism;
+        }
+
+        public void setParallelism(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
     }
 
     private static int optionAsInt(CommandLine cmdLine, String optName) throws org.apache.commons.cli.ParseException {
@@ -686,6 +705,12 @@ public class VdsVisit {
                 allParams.setSlices(optionAsInt(line, "slices"));
                 allParams.setSliceId(optionAsInt(line, "sliceid"));
             }
+            if (line.hasOption("parallel")) {
+                allParams.setParallelism(optionAsInt(line, "parallel"));
+                if (allParams.parallelism() < 1) {
+                    throw new IllegalArgumentException("--parallel must be greater than 0");
+                }
+            }
 
             boolean jsonOutput = line.hasOption("jsonoutput");
             boolean jsonl      = line.hasOption("jsonl");
@@ -810,6 +835,9 @@ public class VdsVisit {
         if (params.getSlices() > 1) {
             out.format("Visiting slice %d out of %s slices\n", params.getSliceId(), params.getSlices());
         }
+        if (vdsParams.parallelism() > 1) {
+            out.format("Visiting %d slices in parallel\n", vdsParams.parallelism());
+        }
     }
 
     private void onDocumentSelectionException(Exception e) {
@@ -887,7 +915,9 @@ public class VdsVisit {
         }
 
         try {
-            session = sessionAccessor.createVisitorSession(visitorParameters);
+            session = params.parallelism() > 1
+                      ? new ParallelVisitorSession(visitorParameters, params.parallelism(), sessionAccessor::createVisitorSession)
+                      : sessionAccessor.createVisitorSession(visitorParameters);
             while (true) {
                 try {
                     if (session.waitUntilDone(params.getFullTimeout())) break;
@@ -149,7 +149,8 @@ public class VdsVisitTestCase {
                 "--bucketspace", "outerspace",
                 "--shorttensors",
                 "--slices", "16",
-                "--sliceid", "5"
+                "--sliceid", "5",
+                "--parallel", "4"
         };
         VdsVisit.ArgumentParser parser = createMockArgumentParser();
         VdsVisit.VdsVisitParameters allParams = parser.parse(args);
@@ -188,6 +189,7 @@ public class VdsVisitTestCase {
 
         assertEquals(16, params.getSlices());
         assertEquals(5, params.getSliceId());
+        assertEquals(4, allParams.parallelism());
 
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
         PrintStream printStream = new PrintStream(outputStream);
@@ -211,7 +213,8 @@ public class VdsVisitTestCase {
                 "  asdf = rargh",
                 "Visitor priority NORMAL_1",
                 "Skip visiting super buckets with fatal errors.",
-                "Visiting slice 5 out of 16 slices"),
+                "Visiting slice 5 out of 16 slices",
+                "Visiting 4 slices in parallel"),
                 outputStream.toString(StandardCharsets.UTF_8));
     }
 
@@ -222,6 +225,7 @@ public class VdsVisitTestCase {
         var allParams = createMockArgumentParser().parse(emptyArgList());
         assertEquals(1, allParams.slices()); // 1 slice; the entire cluster
         assertEquals(0, allParams.sliceId());
+        assertEquals(1, allParams.parallelism());
     }
 
     // TODO Vespa 9: change default from long to short
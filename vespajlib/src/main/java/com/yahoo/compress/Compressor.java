@@ -9,7 +9,9 @@ import net.jpountz.lz4.LZ4SafeDecompressor;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
 
 /**
  * Compressor which can compress and decompress in various formats.
@@ -26,6 +28,18 @@ public class Compressor {
 
     private static final LZ4Factory factory = LZ4Factory.fastestInstance();
 
+    /** The number of zstd compressors kept for reuse, shared by all threads */
+    static final int MAX_RETAINED_ZSTD_COMPRESSORS = 8;
+
+    /**
+     * Zstd decompression tables are expensive to create compared to decompressing small payloads, so compressors are
+     * reused. This is bounded, so at most MAX_RETAINED_ZSTD_COMPRESSORS are retained no matter how many threads compress.
+     */
+    private static final Queue<ZstdCompressor> zstdCompressors = new ArrayBlockingQueue<>(MAX_RETAINED_ZSTD_COMPRESSORS);
+
+    /** Returns the number of zstd compressors currently kept for reuse */
+    static int retainedZstdCompressors() { return zstdCompressors.size(); }
+
     /** Creates a compressor with default settings. */
     public Compressor() {
         this(CompressionType.LZ4);
@@ -100,8 +114,9 @@ public class Compressor {
                 if (len < compressMinSizeBytes) {
                     return compact(CompressionType.INCOMPRESSIBLE, data, offset, len);
                 }
-                ZstdCompressor zstdCompressor = new ZstdCompressor();
+                ZstdCompressor zstdCompressor = acquireZstdCompressor();
                 byte[] compressed = zstdCompressor.compress(data, offset, len);
+                zstdCompressors.offer(zstdCompressor);
                 return new Compression(CompressionType.ZSTD, len, compressed);
             default:
                 throw new IllegalArgumentException(requestedCompression + " is not supported");
@@ -114,6 +129,10 @@ public class Compressor {
         }
         return new Compression(type, len, data);
     }
+    private static ZstdCompressor acquireZstdCompressor() {
+        ZstdCompressor zstdCompressor = zstdCompressors.poll();
+        return zstdCompressor != null ? zstdCompressor : new ZstdCompressor();
+    }
     private LZ4Compressor getCompressor() {
         return level < 7 ? factory.fastCompressor() : factory.highCompressor();
     }
@@ -151,8 +170,9 @@ public class Compressor {
                 return uncompressedLZ4Data;
             case ZSTD:
                 int compressedLength = expectedCompressedSize.orElseThrow(() -> new IllegalArgumentException("Zstd decompressor requires input size"));
-                ZstdCompressor zstdCompressor = new ZstdCompressor();
+                ZstdCompressor zstdCompressor = acquireZstdCompressor();
                 byte[] decompressedData = zstdCompressor.decompress(compressedData, compressedDataOffset, compressedLength);
+                zstdCompressors.offer(zstdCompressor);
                 expectedCompressedSize.ifPresent(expectedSize -> {
                     if (compressedData.length != expectedSize) {
                         throw new IllegalStateException("Compressed size mismatch. Expected " + expectedSize + ". Got " + decompressedData.length);
@@ -1,6 +1,7 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.compress;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 /**
@@ -41,6 +42,33 @@ public class ZstdCompressor {
         return decompressor.decompress(input, inputOffset, inputLength, output, outputOffset, maxOutputLength);
     }
 
+    /**
+     * Compresses the remaining bytes of the input buffer into a single frame in the output buffer.
+     * Heap and direct buffers are both read and written in place, without intermediate copies.
+     * The position of the input is moved to its limit, and the position of the output is moved past the frame.
+     *
+     * @throws IllegalArgumentException if the output buffer has less remaining space than
+     *                                  {@link #getMaxCompressedLength(int)} of the input
+     */
+    public void compress(ByteBuffer input, ByteBuffer output) {
+        int maxCompressedLength = getMaxCompressedLength(input.remaining());
+        if (output.remaining() < maxCompressedLength)
+            throw new IllegalArgumentException("Output buffer must have at least " + maxCompressedLength +
+                                               " bytes remaining, but has " + output.remaining());
+        compressor.compress(input, output);
+        input.position(input.limit());
+    }
+
+    /**
+     * Decompresses the remaining frames of the input buffer into the output buffer.
+     * Heap and direct buffers are both read and written in place, without intermediate copies.
+     * The position of the input is moved to its limit, and the position of the output is moved past the decompressed data.
+     */
+    public void decompress(ByteBuffer input, ByteBuffer output) {
+        decompressor.decompress(input, output);
+        input.position(input.limit());
+    }
+
     private static final io.airlift.compress.Compressor threadUnsafe = new io.airlift.compress.zstd.ZstdCompressor();
 
     public static int getMaxCompressedLength(int uncompressedLength) {
@@ -4,6 +4,7 @@ package com.yahoo.io;
 import com.yahoo.text.Utf8;
 
 import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.CharBuffer;
@@ -385,6 +386,12 @@ public class GrowableByteBuffer implements Comparable<GrowableByteBuffer> {
     /** Reads a string from the buffer as a 1_4 encoded length in bytes followed by the utf8 bytes */
     public String getUtf8String() {
         int stringLength = getInt1_4Bytes();
+        if (hasArray()) { // decode directly from the backing array
+            if (stringLength > remaining()) throw new BufferUnderflowException();
+            String value = Utf8.toString(array(), arrayOffset() + position(), stringLength);
+            position(position() + stringLength);
+            return value;
+        }
         byte[] stringBytes = new byte[stringLength];
         get(stringBytes);
         return Utf8.toString(stringBytes);
@@ -3,12 +3,31 @@ package com.yahoo.slime;
 
 import com.yahoo.compress.Compressor;
 
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+
 /**
  * Class for serializing Slime data into binary format, or deserializing
  * the binary format into a Slime object.
  */
 public class BinaryFormat {
 
+    /** The largest output buffer kept for reuse between calls to {@link #encode(Slime)} */
+    static final int MAX_RETAINED_OUTPUT_SIZE = 1 << 18;
+
+    /** The number of output buffers kept for reuse, shared by all threads */
+    static final int MAX_RETAINED_OUTPUTS = 8;
+
+    /**
+     * Output buffers reused by encode, such that the buffer does not need to grow for each call.
+     * This is bounded, so at most MAX_RETAINED_OUTPUTS * MAX_RETAINED_OUTPUT_SIZE bytes are retained
+     * no matter how many threads encode.
+     */
+    private static final Queue<BufferedOutput> outputs = new ArrayBlockingQueue<>(MAX_RETAINED_OUTPUTS);
+
+    /** Returns the number of output buffers currently kept for reuse */
+    static int retainedOutputs() { return outputs.size(); }
+
     static long encode_zigzag(long x) {
         return ((x << 1) ^ (x >> 63)); // note ASR
     }
@@ -43,7 +62,13 @@ public class BinaryFormat {
      * @return a new byte array with just the encoded slime.
      **/
     public static byte[] encode(Slime slime) {
-        return new BinaryEncoder().encode(slime).toArray();
+        BufferedOutput output = outputs.poll();
+        if (output == null)
+            output = new BufferedOutput();
+        byte[] encoded = new BinaryEncoder(output).encode(slime).toArray();
+        if (output.capacity() <= MAX_RETAINED_OUTPUT_SIZE)
+            outputs.offer(output);
+        return encoded;
     }
 
     /**
@@ -37,6 +37,8 @@ final class BufferedOutput {
 
     int position() { return pos; }
 
+    int capacity() { return capacity; }
+
     void put(byte b) {
         reserve(1);
         buf[pos++] = b;
@@ -47,10 +49,13 @@ final class BufferedOutput {
     }
 
     void put(byte[] bytes) {
-        reserve(bytes.length);
-        for (byte b : bytes) {
-            buf[pos++] = b;
-        }
+        put(bytes, 0, bytes.length);
+    }
+
+    void put(byte[] bytes, int offset, int length) {
+        reserve(length);
+        System.arraycopy(bytes, offset, buf, pos, length);
+        pos += length;
     }
 
     byte[] toArray() {
@@ -111,13 +111,19 @@ public final class JsonFormat implements SlimeFormat {
 
         private void encodeDOUBLE(double value) throws IOException {
             if (Double.isFinite(value)) {
-                out.write(String.valueOf(value));
+                out.write(value);
             } else {
                 out.write(NULL);
             }
         }
 
         private void encodeSTRING(byte[] value) throws IOException {
+            if ( ! needsEscaping(value)) {
+                out.append((byte)'"');
+                out.append(value);
+                out.append((byte)'"');
+                return;
+            }
 
             byte [] data = new byte[value.length * 6 + 2];
             int len = 2;
@@ -148,6 +154,13 @@ public final class JsonFormat implements SlimeFormat {
             out.append(data, 0, len);
         }
 
+        private static boolean needsEscaping(byte[] value) {
+            for (byte c : value) {
+                if ((c <= 0x1f && c >= 0) || c == '"' || c == '\\') return true;
+            }
+            return false;
+        }
+
         private void encodeDATA(byte[] value) throws IOException {
             int len = value.length * 2 + 4;
             byte [] data = new byte[len];
@@ -0,0 +1,108 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor;
+
+import java.nio.ByteBuffer;
+
+/**
+ * An indexed tensor implementation which reads its values directly from a buffer holding the cells
+ * in the serialized form of the value type of the tensor, in the <i>standard value order</i>.
+ * Cells are never decoded up front, which makes this suitable for tensors which are mostly passed through,
+ * and the cells can be written again by copying the buffer content.
+ */
+public final class IndexedBufferTensor extends IndexedTensor {
+
+    private final ByteBuffer cells;
+
+    private IndexedBufferTensor(TensorType type, DimensionSizes dimensionSizes, ByteBuffer cells) {
+        super(type, dimensionSizes);
+        this.cells = cells;
+    }
+
+    @Override
+    public long size() { return dimensionSizes().totalSize(); }
+
+    @Override
+    public int sizeAsInt() { return (int)size(); }
+
+    @Override
+    public double get(long valueIndex) {
+        if (type().valueType() == TensorType.Value.DOUBLE)
+            return cells.getDouble(checkIndex(valueIndex) * Double.BYTES);
+        return getFloat(valueIndex);
+    }
+
+    @Override
+    public float getFloat(long valueIndex) {
+        int index = checkIndex(valueIndex);
+        return switch (type().valueType()) {
+            case DOUBLE -> (float)cells.getDouble(index * Double.BYTES);
+            case FLOAT -> cells.getFloat(index * Float.BYTES);
+            case BFLOAT16 -> Float.intBitsToFloat(cells.getShort(index * Short.BYTES) << 16);
+            case INT8 -> cells.get(index);
+        };
+    }
+
+    private int checkIndex(long valueIndex) {
+        if (valueIndex < 0 || valueIndex >= size())
+            throw new IndexOutOfBoundsException("Index " + valueIndex + " is out of bounds for " + this.type() +
+                                                " with " + size() + " cells");
+        return (int)valueIndex;
+    }
+
+    /**
+     * Returns a read-only view of the serialized cells of this, positioned at the start of the cells,
+     * having the byte order used when serializing them.
+     */
+    public ByteBuffer cellBuffer() {
+        return cells.duplicate().order(cells.order());
+    }
+
+    @Override
+    public IndexedTensor withType(TensorType type) {
+        throwOnIncompatibleType(type);
+        return new IndexedBufferTensor(type, dimensionSizes(), cells);
+    }
+
+    /** Returns the same hash code as the corresponding tensor holding its values in an array */
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0; i < size(); i++) {
+            if (type().valueType() == TensorType.Value.DOUBLE)
+                hash = 31 * hash + Double.hashCode(get(i));
+            else
+                hash = 31 * hash + Float.hashCode(getFloat(i));
+        }
+        return hash;
+    }
+
+    /**
+     * Creates a tensor which reads its cells from the given buffer.
+     * This <b>does not copy</b> the buffer content - it must not be further mutated by the caller.
+     *
+     * @param type the type of the tensor, whose value type decides the serialized form of the cells
+     * @param sizes the sizes of the dimensions of the tensor
+     * @param cells the serialized cells, starting at the current position, in the byte order of this buffer
+     * @throws IllegalArgumentException if the buffer does not contain the number of cells given by the sizes
+     */
+    public static IndexedBufferTensor of(TensorType type, DimensionSizes sizes, ByteBuffer cells) {
+        Builder.validate(type, sizes);
+        long byteSize = sizes.totalSize() * cellByteSize(type.valueType());
+        if (byteSize > cells.remaining())
+            throw new IllegalArgumentException("Expected " + byteSize + " bytes of cells of " + type +
+                                               " but got " + cells.remaining());
+        ByteBuffer view = cells.slice(cells.position(), (int)byteSize).asReadOnlyBuffer().order(cells.order());
+        return new IndexedBufferTensor(type, sizes, view);
+    }
+
+    /** Returns the number of bytes used to serialize a single cell of the given value type */
+    public static int cellByteSize(TensorType.Value valueType) {
+        return switch (valueType) {
+            case DOUBLE -> Double.BYTES;
+            case FLOAT -> Float.BYTES;
+            case BFLOAT16 -> Short.BYTES;
+            case INT8 -> Byte.BYTES;
+        };
+    }
+
+}
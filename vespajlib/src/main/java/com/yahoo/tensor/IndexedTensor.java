@@ -388,7 +388,7 @@ public abstract class IndexedTensor implements Tensor {
             }
         }
 
-        private static void validate(TensorType type, DimensionSizes sizes) {
+        static void validate(TensorType type, DimensionSizes sizes) {
             // validate
             if (sizes.dimensions() != type.dimensions().size())
                 throw new IllegalArgumentException(sizes.dimensions() +
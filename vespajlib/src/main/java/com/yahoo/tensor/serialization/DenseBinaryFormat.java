@@ -3,10 +3,12 @@ package com.yahoo.tensor.serialization;
 
 import com.yahoo.io.GrowableByteBuffer;
 import com.yahoo.tensor.DimensionSizes;
+import com.yahoo.tensor.IndexedBufferTensor;
 import com.yahoo.tensor.IndexedTensor;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 
+import java.nio.ByteBuffer;
 import java.util.Optional;
 
 /**
@@ -47,6 +49,10 @@ public class DenseBinaryFormat implements BinaryFormat {
     }
 
     private void encodeCells(GrowableByteBuffer buffer, IndexedTensor tensor) {
+        if (tensor instanceof IndexedBufferTensor bufferTensor && canCopyCells(bufferTensor, buffer)) {
+            buffer.put(bufferTensor.cellBuffer());
+            return;
+        }
         switch (serializationValueType) {
             case DOUBLE: encodeDoubleCells(tensor, buffer); break;
             case FLOAT: encodeFloatCells(tensor, buffer); break;
@@ -55,6 +61,11 @@ public class DenseBinaryFormat implements BinaryFormat {
         }
     }
 
+    /** Returns whether the cells of the given tensor are already serialized the way this would serialize them */
+    private boolean canCopyCells(IndexedBufferTensor tensor, GrowableByteBuffer buffer) {
+        return tensor.type().valueType() == serializationValueType && tensor.cellBuffer().order() == buffer.order();
+    }
+
     private void encodeDoubleCells(IndexedTensor tensor, GrowableByteBuffer buffer) {
         for (int i = 0; i < tensor.sizeAsInt(); i++)
             buffer.putDouble(tensor.get(i));
@@ -77,6 +88,18 @@ public class DenseBinaryFormat implements BinaryFormat {
 
     @Override
     public Tensor decode(Optional<TensorType> optionalType, GrowableByteBuffer buffer) {
+        return decode(optionalType, buffer, false);
+    }
+
+    /**
+     * Deserialize the given binary data into a tensor which reads its cells directly from the given buffer
+     * rather than decoding them. The buffer content must not be modified while the returned tensor is in use.
+     */
+    Tensor decodeLazily(Optional<TensorType> optionalType, GrowableByteBuffer buffer) {
+        return decode(optionalType, buffer, true);
+    }
+
+    private Tensor decode(Optional<TensorType> optionalType, GrowableByteBuffer buffer, boolean lazily) {
         TensorType type;
         DimensionSizes sizes;
         if (optionalType.isPresent()) {
@@ -95,6 +118,8 @@ public class DenseBinaryFormat implements BinaryFormat {
             type = decodeType(buffer);
             sizes = sizesFromType(type);
         }
+        if (lazily)
+            return decodeCellsLazily(type, sizes, buffer);
         Tensor.Builder builder = Tensor.Builder.of(type, sizes);
         decodeCells(sizes, buffer, (IndexedTensor.BoundBuilder)builder);
         return builder.build();
@@ -116,6 +141,13 @@ public class DenseBinaryFormat implements BinaryFormat {
         return builder.build();
     }
 
+    private Tensor decodeCellsLazily(TensorType type, DimensionSizes sizes, GrowableByteBuffer buffer) {
+        ByteBuffer cells = buffer.getByteBuffer();
+        IndexedBufferTensor tensor = IndexedBufferTensor.of(type, sizes, cells);
+        buffer.position(buffer.position() + (int)sizes.totalSize() * IndexedBufferTensor.cellByteSize(serializationValueType));
+        return tensor;
+    }
+
     private void decodeCells(DimensionSizes sizes, GrowableByteBuffer buffer, IndexedTensor.BoundBuilder builder) {
         switch (serializationValueType) {
             case DOUBLE: decodeDoubleCells(sizes, builder, buffer); break;
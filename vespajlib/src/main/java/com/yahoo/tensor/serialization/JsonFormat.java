@@ -3,7 +3,6 @@ package com.yahoo.tensor.serialization;
 
 import com.yahoo.lang.MutableInteger;
 import com.yahoo.slime.ArrayTraverser;
-import com.yahoo.slime.Cursor;
 import com.yahoo.slime.Inspector;
 import com.yahoo.slime.JsonDecoder;
 import com.yahoo.slime.ObjectTraverser;
@@ -16,7 +15,14 @@ import com.yahoo.tensor.MixedTensor;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorAddress;
 import com.yahoo.tensor.TensorType;
+import com.yahoo.text.Utf8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.Iterator;
+import java.util.function.LongToDoubleFunction;
 
 /**
  * Writes tensors on the JSON format used in Vespa tensor document fields:
@@ -36,41 +42,57 @@ public class JsonFormat {
      * @param directValues whether to encode values directly, or wrapped in am object containing "type" and "cells"
      */
     public static byte[] encode(Tensor tensor, boolean shortForm, boolean directValues) {
-        Slime slime = new Slime();
-        Cursor root = null;
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            encode(tensor, shortForm, directValues, out);
+            return out.toByteArray();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Serializes the given tensor value into JSON format, writing it directly to the given stream
+     * without creating any intermediate representation of the JSON structure.
+     *
+     * @param tensor the tensor to serialize
+     * @param shortForm whether to encode in a short type-dependent format
+     * @param directValues whether to encode values directly, or wrapped in am object containing "type" and "cells"
+     * @param out the stream to write to. This is flushed but not closed.
+     */
+    public static void encode(Tensor tensor, boolean shortForm, boolean directValues, OutputStream out) throws IOException {
+        JsonWriter writer = new JsonWriter(out);
         if ( ! directValues) {
-            root = slime.setObject();
-            root.setString("type", tensor.type().toString());
-        }
-
-        if (shortForm) {
-            if (tensor instanceof IndexedTensor denseTensor) {
-                // Encode as nested lists if indexed tensor
-                Cursor parent = root == null ? slime.setArray() : root.setArray("values");
-                encodeValues(denseTensor, parent, new long[denseTensor.dimensionSizes().dimensions()], 0);
-            } else if (tensor instanceof MappedTensor && tensor.type().dimensions().size() == 1) {
-                // Short form for a single mapped dimension
-                Cursor parent = root == null ? slime.setObject() : root.setObject("cells");
-                encodeSingleDimensionCells((MappedTensor) tensor, parent);
-            } else if (tensor instanceof MixedTensor && tensor.type().hasMappedDimensions()) {
-                // Short form for a mixed tensor
-                boolean singleMapped = tensor.type().dimensions().stream().filter(TensorType.Dimension::isMapped).count() == 1;
-                Cursor parent = root == null ? ( singleMapped ? slime.setObject() : slime.setArray() )
-                                             : ( singleMapped ? root.setObject("blocks") : root.setArray("blocks"));
-                encodeBlocks((MixedTensor) tensor, parent);
-            } else {
-                // default to standard cell address output
-                Cursor parent = root == null ? slime.setArray() : root.setArray("cells");
-                encodeCells(tensor, parent);
-            }
+            writer.startObject();
+            writer.field("type");
+            writer.string(tensor.type().toString());
+        }
 
-            return com.yahoo.slime.JsonFormat.toJsonBytes(slime);
+        if (shortForm && tensor instanceof IndexedTensor denseTensor) {
+            // Encode as nested lists if indexed tensor
+            if ( ! directValues) writer.field("values");
+            encodeValues(denseTensor.dimensionSizes(), denseTensor::get, tensor.type().valueType(), writer);
+        }
+        else if (shortForm && tensor instanceof MappedTensor && tensor.type().dimensions().size() == 1) {
+            // Short form for a single mapped dimension
+            if ( ! directValues) writer.field("cells");
+            encodeSingleDimensionCells((MappedTensor) tensor, writer);
+        }
+        else if (shortForm && tensor instanceof MixedTensor && tensor.type().hasMappedDimensions()) {
+            // Short form for a mixed tensor
+            if ( ! directValues) writer.field("blocks");
+            encodeBlocks((MixedTensor) tensor, writer);
         }
         else {
-            Cursor parent = root == null ? slime.setArray() : root.setArray("cells");
-            encodeCells(tensor, parent);
+            // default to standard cell address output
+            if ( ! directValues) writer.field("cells");
+            encodeCells(tensor, writer);
         }
-        return com.yahoo.slime.JsonFormat.toJsonBytes(slime);
+
+        if ( ! directValues)
+            writer.endObject();
+        writer.flush();
     }
 
     /** Serializes the given tensor value into JSON format, in long format, wrapped in an object containing "cells" only. */
@@ -98,42 +120,66 @@ public class JsonFormat {
         return encode(tensor, true, false);
     }
 
-    private static void encodeCells(Tensor tensor, Cursor cellsArray) {
+    private static void encodeCells(Tensor tensor, JsonWriter writer) throws IOException {
+        writer.startArray();
         for (Iterator<Tensor.Cell> i = tensor.cellIterator(); i.hasNext(); ) {
             Tensor.Cell cell = i.next();
-            Cursor cellObject = cellsArray.addObject();
-            encodeAddress(tensor.type(), cell.getKey(), cellObject.setObject("address"));
-            setValue("value", cell.getValue(), tensor.type().valueType(), cellObject);
+            writer.startObject();
+            writer.field("address");
+            encodeAddress(tensor.type(), cell.getKey(), writer);
+            writer.field("value");
+            writeValue(cell.getValue(), tensor.type().valueType(), writer);
+            writer.endObject();
         }
+        writer.endArray();
     }
 
-    private static void encodeSingleDimensionCells(MappedTensor tensor, Cursor cells) {
+    private static void encodeSingleDimensionCells(MappedTensor tensor, JsonWriter writer) throws IOException {
         if (tensor.type().dimensions().size() > 1)
             throw new IllegalStateException("JSON encode of mapped tensor can only contain a single dimension");
-        tensor.cells().forEach((k,v) -> setValue(k.label(0), v, tensor.type().valueType(), cells));
+        writer.startObject();
+        for (var cell : tensor.cells().entrySet()) {
+            writer.field(cell.getKey().label(0));
+            writeValue(cell.getValue(), tensor.type().valueType(), writer);
+        }
+        writer.endObject();
     }
 
-    private static void encodeAddress(TensorType type, TensorAddress address, Cursor addressObject) {
-        for (int i = 0; i < address.size(); i++)
-            addressObject.setString(type.dimensions().get(i).name(), address.label(i));
+    private static void encodeAddress(TensorType type, TensorAddress address, JsonWriter writer) throws IOException {
+        writer.startObject();
+        for (int i = 0; i < address.size(); i++) {
+            writer.field(type.dimensions().get(i).name());
+            writer.string(address.label(i));
+        }
+        writer.endObject();
     }
 
-    private static void encodeValues(IndexedTensor tensor, Cursor cursor, long[] indexes, int dimension) {
-        DimensionSizes sizes = tensor.dimensionSizes();
-        if (indexes.length == 0) {
-            addValue(tensor.get(0), tensor.type().valueType(), cursor);
-        } else {
-            for (indexes[dimension] = 0; indexes[dimension] < sizes.size(dimension); ++indexes[dimension]) {
-                if (dimension < (sizes.dimensions() - 1)) {
-                    encodeValues(tensor, cursor.addArray(), indexes, dimension + 1);
-                } else {
-                    addValue(tensor.get(indexes), tensor.type().valueType(), cursor);
-                }
-            }
+    /** Encodes the given values, in the standard value order, as nested arrays with the given sizes */
+    private static void encodeValues(DimensionSizes sizes, LongToDoubleFunction values, TensorType.Value valueType,
+                                     JsonWriter writer) throws IOException {
+        if (sizes.dimensions() == 0) {
+            writer.startArray();
+            writeValue(values.applyAsDouble(0), valueType, writer);
+            writer.endArray();
+        }
+        else {
+            encodeValues(sizes, 0, new long[1], values, valueType, writer);
         }
     }
 
-    private static void encodeBlocks(MixedTensor tensor, Cursor cursor) {
+    private static void encodeValues(DimensionSizes sizes, int dimension, long[] nextIndex, LongToDoubleFunction values,
+                                     TensorType.Value valueType, JsonWriter writer) throws IOException {
+        writer.startArray();
+        for (long i = 0; i < sizes.size(dimension); i++) {
+            if (dimension < sizes.dimensions() - 1)
+                encodeValues(sizes, dimension + 1, nextIndex, values, valueType, writer);
+            else
+                writeValue(values.applyAsDouble(nextIndex[0]++), valueType, writer);
+        }
+        writer.endArray();
+    }
+
+    private static void encodeBlocks(MixedTensor tensor, JsonWriter writer) throws IOException {
         var mappedDimensions = tensor.type().dimensions().stream().filter(TensorType.Dimension::isMapped)
                 .map(d -> TensorType.Dimension.mapped(d.name())).toList();
         if (mappedDimensions.isEmpty()) {
@@ -142,32 +188,37 @@ public class JsonFormat {
 
         // Create tensor type for mapped dimensions subtype
         TensorType mappedSubType = new TensorType.Builder(mappedDimensions).build();
-        TensorType denseSubType = tensor.type().indexedSubtype();
+        DimensionSizes denseSizes = DimensionSizes.of(tensor.type().indexedSubtype());
+        TensorType.Value valueType = tensor.type().valueType();
+        if (mappedDimensions.size() == 1)
+            writer.startObject();
+        else
+            writer.startArray();
         for (var subspace : tensor.getInternalDenseSubspaces()) {
-            IndexedTensor denseSubspace = IndexedTensor.Builder.of(denseSubType, subspace.cells).build();
+            double[] cells = subspace.cells;
             if (mappedDimensions.size() == 1) {
-                encodeValues(denseSubspace, cursor.setArray(subspace.sparseAddress.label(0)), new long[denseSubspace.dimensionSizes().dimensions()], 0);
+                writer.field(subspace.sparseAddress.label(0));
+                encodeValues(denseSizes, i -> cells[(int)i], valueType, writer);
             } else {
-                Cursor block = cursor.addObject();
-                encodeAddress(mappedSubType, subspace.sparseAddress, block.setObject("address"));
-                encodeValues(denseSubspace, block.setArray("values"), new long[denseSubspace.dimensionSizes().dimensions()], 0);
+                writer.startObject();
+                writer.field("address");
+                encodeAddress(mappedSubType, subspace.sparseAddress, writer);
+                writer.field("values");
+                encodeValues(denseSizes, i -> cells[(int)i], valueType, writer);
+                writer.endObject();
             }
-
         }
-    }
-
-    private static void addValue(double value, TensorType.Value valueType, Cursor cursor) {
-        if (valueType == TensorType.Value.INT8)
-            cursor.addLong((long)value);
+        if (mappedDimensions.size() == 1)
+            writer.endObject();
         else
-            cursor.addDouble(value);
+            writer.endArray();
     }
 
-    private static void setValue(String field, double value, TensorType.Value valueType, Cursor cursor) {
+    private static void writeValue(double value, TensorType.Value valueType, JsonWriter writer) throws IOException {
         if (valueType == TensorType.Value.INT8)
-            cursor.setLong(field, (long)value);
+            writer.value((long)value);
         else
-            cursor.setDouble(field, value);
+            writer.value(value);
     }
 
     /** Deserializes the given tensor from JSON format */
@@ -448,4 +499,114 @@ public class JsonFormat {
         return Double.parseDouble(input);
     }
 
+    /**
+     * Writes compact JSON directly to a stream through a small buffer, producing the same output as
+     * {@link com.yahoo.slime.JsonFormat} would for the corresponding Slime structure.
+     */
+    private static final class JsonWriter {
+
+        private static final byte[] HEX = Utf8.toBytes("0123456789ABCDEF");
+
+        private final OutputStream out;
+        private final byte[] buffer = new byte[8192];
+        private int position = 0;
+
+        /** Whether the next value or field written is the first in the current array or object */
+        private boolean first = true;
+
+        JsonWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        void startObject() throws IOException { open((byte)'{'); }
+        void endObject() throws IOException { close((byte)'}'); }
+        void startArray() throws IOException { open((byte)'['); }
+        void endArray() throws IOException { close((byte)']'); }
+
+        void field(String name) throws IOException {
+            separate();
+            writeString(name);
+            write((byte)':');
+            first = true; // the field value must not be preceded by a separator
+        }
+
+        void string(String value) throws IOException {
+            separate();
+            writeString(value);
+        }
+
+        void value(long value) throws IOException {
+            separate();
+            writeAscii(Long.toString(value));
+        }
+
+        void value(double value) throws IOException {
+            separate();
+            writeAscii(Double.isFinite(value) ? String.valueOf(value) : "null");
+        }
+
+        void flush() throws IOException {
+            out.write(buffer, 0, position);
+            position = 0;
+            out.flush();
+        }
+
+        private void open(byte opener) throws IOException {
+            separate();
+            write(opener);
+            first = true;
+        }
+
+        private void close(byte closer) throws IOException {
+            write(closer);
+            first = false;
+        }
+
+        private void separate() throws IOException {
+            if ( ! first)
+                write((byte)',');
+            first = false;
+        }
+
+        private void write(byte b) throws IOException {
+            if (position == buffer.length) {
+                out.write(buffer, 0, position);
+                position = 0;
+            }
+            buffer[position++] = b;
+        }
+
+        private void writeAscii(String value) throws IOException {
+            for (int i = 0; i < value.length(); i++)
+                write((byte)value.charAt(i));
+        }
+
+        private void writeString(String value) throws IOException {
+            write((byte)'"');
+            for (byte c : Utf8.toBytes(value)) {
+                switch (c) {
+                    case '"' -> { write((byte)'\\'); write((byte)'"'); }
+                    case '\\' -> { write((byte)'\\'); write((byte)'\\'); }
+                    case '\b' -> { write((byte)'\\'); write((byte)'b'); }
+                    case '\f' -> { write((byte)'\\'); write((byte)'f'); }
+                    case '\n' -> { write((byte)'\\'); write((byte)'n'); }
+                    case '\r' -> { write((byte)'\\'); write((byte)'r'); }
+                    case '\t' -> { write((byte)'\\'); write((byte)'t'); }
+                    default -> {
+                        if (c > 0x1f || c < 0) {
+                            write(c);
+                        }
+                        else { // requires escaping according to RFC 4627
+                            writeAscii("\\u00");
+                            write(HEX[(c >> 4) & 0xf]);
+                            write(HEX[c & 0xf]);
+                        }
+                    }
+                }
+            }
+            write((byte)'"');
+        }
+
+    }
+
 }
@@ -54,6 +54,24 @@ public class TypedBinaryFormat {
         return decoder.decode(type, buffer);
     }
 
+    /**
+     * Decode some data to a tensor without decoding the cells up front if the tensor is dense, such that
+     * the tensor can be passed on and serialized again cheaply. Other tensors are decoded as by
+     * {@link #decode}.
+     *
+     * @param type the type to decode and validate to, or empty to use the type given in the data
+     * @param buffer the buffer containing the data. This is <b>not copied</b>: Its content must not be
+     *               modified while the returned tensor is in use
+     * @return the resulting tensor
+     * @throws IllegalArgumentException if the tensor data was invalid
+     */
+    public static Tensor decodeLazily(Optional<TensorType> type, GrowableByteBuffer buffer) {
+        BinaryFormat decoder = getFormatDecoder(buffer);
+        if (decoder instanceof DenseBinaryFormat denseDecoder)
+            return denseDecoder.decodeLazily(type, buffer);
+        return decoder.decode(type, buffer);
+    }
+
     private static BinaryFormat getFormatEncoder(GrowableByteBuffer buffer, Tensor tensor) {
         boolean hasMappedDimensions = tensor.type().hasMappedDimensions();
         boolean hasIndexedDimensions = tensor.type().hasIndexedDimensions();
@@ -48,7 +48,7 @@ public final class Utf8 {
      * @return String decoded from UTF-8
      */
     public static String toString(byte[] data, int offset, int length) {
-        return toString(ByteBuffer.wrap(data, offset, length));
+        return new String(data, offset, length, UTF_8);
     }
 
     /**
@@ -61,6 +61,11 @@ public final class Utf8 {
      * @return a decoded String
      */
     public static String toString(ByteBuffer data) {
+        if (data.hasArray()) { // decode directly from the backing array, skipping the intermediate CharBuffer
+            String s = new String(data.array(), data.arrayOffset() + data.position(), data.remaining(), UTF_8);
+            data.position(data.limit());
+            return s;
+        }
         CharBuffer c = UTF_8.decode(data);
         return c.toString();
     }
@@ -138,11 +143,8 @@ public final class Utf8 {
      * @return substring encoded as UTF-8
      */
     public static byte[] toBytes(String str, int offset, int length) {
-        CharBuffer c = CharBuffer.wrap(str, offset, offset + length);
-        ByteBuffer b = UTF_8.encode(c);
-        byte[] result = new byte[b.remaining()];
-        b.get(result);
-        return result;
+        if (offset == 0 && length == str.length()) return str.getBytes(UTF_8);
+        return str.substring(offset, offset + length).getBytes(UTF_8);
     }
 
     /**
@@ -161,13 +163,51 @@ public final class Utf8 {
      * @return the number of bytes written to the array.
      */
     public static int toBytes(String str, int srcOffset, int srcLen, byte[] dst, int dstOffset) {
-        CharBuffer c = CharBuffer.wrap(str, srcOffset, srcOffset + srcLen);
-        ByteBuffer b = UTF_8.encode(c);
+        int end = encode(str, srcOffset, srcOffset + srcLen, dst, dstOffset, dst.length);
+        if (end >= 0) return end - dstOffset;
+
+        // Close to the end of the array: Encode separately to find out whether it fits
+        ByteBuffer b = UTF_8.encode(CharBuffer.wrap(str, srcOffset, srcOffset + srcLen));
         int encoded = b.remaining();
         b.get(dst, dstOffset, encoded);
         return encoded;
     }
 
+    /**
+     * Encodes chars directly into an array, with malformed surrogates replaced by '?' like the standard encoder.
+     *
+     * @return the index after the last byte written, or -1 if the encoded chars might not fit before dstEnd
+     */
+    private static int encode(String str, int from, int end, byte[] dst, int pos, int dstEnd) {
+        int i = from;
+        for (int asciiEnd = Math.min(end, from + dstEnd - pos); i < asciiEnd; i++) { // ASCII prefix
+            char c = str.charAt(i);
+            if (c >= 0x80) break;
+            dst[pos++] = (byte) c;
+        }
+        for (; i < end; i++) {
+            if (dstEnd - pos < 4) return -1;
+            char c = str.charAt(i);
+            if (c < 0x80) {
+                dst[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                dst[pos++] = (byte) (0xc0 | (c >> 6));
+                dst[pos++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(str.charAt(i + 1))) {
+                    pos = encode(Character.toCodePoint(c, str.charAt(++i)), dst, pos);
+                } else {
+                    dst[pos++] = (byte) '?';
+                }
+            } else {
+                dst[pos++] = (byte) (0xe0 | (c >> 12));
+                dst[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                dst[pos++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        return pos;
+    }
+
     /**
      * Encode a string directly into a ByteBuffer instance.
      *
@@ -197,10 +237,26 @@ public final class Utf8 {
      * @param encoder the character encoder to use
      */
     public static void toBytes(String src, int srcOffset, int srcLen, ByteBuffer dst, CharsetEncoder encoder) {
+        if (dst.hasArray() && dst.remaining() >= srcLen && hasStandardReplacement(encoder)) {
+            int start = dst.arrayOffset() + dst.position();
+            int end = encode(src, srcOffset, srcOffset + srcLen, dst.array(), start, dst.arrayOffset() + dst.limit());
+            if (end >= 0) {
+                dst.position(dst.position() + end - start);
+                return;
+            }
+        }
         CharBuffer c = CharBuffer.wrap(src, srcOffset, srcOffset + srcLen);
         encoder.encode(c, dst, true);
     }
 
+    /** Returns whether the given encoder replaces malformed input as {@link #toBytes(String, int, int, byte[], int)} */
+    private static boolean hasStandardReplacement(CharsetEncoder encoder) {
+        if (encoder.charset() != UTF_8) return false;
+        if (encoder.malformedInputAction() != CodingErrorAction.REPLACE) return false;
+        byte[] replacement = encoder.replacement();
+        return replacement.length == 1 && replacement[0] == '?';
+    }
+
     /**
      * Create a new UTF-8 encoder.
      *
@@ -0,0 +1,91 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.compress;
+
+import com.yahoo.test.Microbenchmark;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.Random;
+
+/**
+ * Microbenchmark of compression of small payloads shaped like the ones sent in dispatch and config responses,
+ * reporting compression ratio, time and heap allocation per payload.
+ */
+public class CompressorBenchmark {
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        Random random = new Random(42);
+        benchmark("search request", searchRequest(random), iterations);
+        benchmark("docsum", docsum(random), iterations);
+        benchmark("config response", configResponse(random), iterations);
+    }
+
+    private static void benchmark(String name, byte[] payload, int iterations) {
+        Compressor compressor = new Compressor(CompressionType.LZ4, 5, 0.95, 256);
+        for (CompressionType type : new CompressionType[] { CompressionType.LZ4, CompressionType.ZSTD }) {
+            Compressor.Compression compression = compressor.compress(type, payload);
+            int compressedSize = compression.data().length;
+            for (int i = 0; i < iterations; i++) { // warmup
+                compressor.compress(type, payload);
+                compressor.decompress(compression.type(), compression.data(), 0, payload.length, Optional.of(compressedSize));
+            }
+            System.out.printf("%-16s %-12s %6d -> %6d bytes (%.2f)%n", name, compression.type(), payload.length, compressedSize,
+                              (double) compressedSize / payload.length);
+            report("compress", iterations, () -> compressor.compress(type, payload));
+            report("decompress", iterations,
+                   () -> compressor.decompress(compression.type(), compression.data(), 0, payload.length, Optional.of(compressedSize)));
+        }
+        ZstdCompressor zstd = new ZstdCompressor();
+        ByteBuffer input = ByteBuffer.allocateDirect(payload.length).put(payload).flip();
+        ByteBuffer compressed = ByteBuffer.allocateDirect(ZstdCompressor.getMaxCompressedLength(payload.length));
+        ByteBuffer output = ByteBuffer.allocateDirect(payload.length);
+        report("zstd direct buffer roundtrip", iterations, () -> {
+            input.clear();
+            compressed.clear();
+            zstd.compress(input, compressed);
+            compressed.flip();
+            output.clear();
+            zstd.decompress(compressed, output);
+        });
+    }
+
+    private static void report(String operation, int iterations, Microbenchmark.Operation<RuntimeException> op) {
+        System.out.printf("    %-28s %s%n", operation, Microbenchmark.measure(iterations, op));
+    }
+
+    private static byte[] searchRequest(Random random) {
+        StringBuilder b = new StringBuilder();
+        b.append("rank_profile:default;hits:10;offset:0;timeout:500;trace_level:0;");
+        b.append("query_tree:AND(title:\"the quick brown fox\",body:\"jumps over\",year:>").append(1950 + random.nextInt(70)).append(");");
+        b.append("feature_overrides:query(embedding)=[");
+        for (int i = 0; i < 32; i++)
+            b.append(random.nextInt(100)).append(i < 31 ? "," : "];");
+        b.append("session:").append(Long.toHexString(random.nextLong())).append(';');
+        return b.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] docsum(Random random) {
+        StringBuilder b = new StringBuilder("{\"docsums\":[");
+        for (int i = 0; i < 10; i++) {
+            b.append("{\"documentid\":\"id:namespace:music::document-").append(random.nextInt(100000)).append("\",");
+            b.append("\"title\":\"The title of document number ").append(i).append("\",");
+            b.append("\"body\":\"Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor.\",");
+            b.append("\"year\":").append(1950 + random.nextInt(70)).append(",\"relevance\":").append(random.nextDouble()).append('}');
+            b.append(i < 9 ? "," : "]}");
+        }
+        return b.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] configResponse(Random random) {
+        StringBuilder b = new StringBuilder("{\"routingtable\":[");
+        for (int i = 0; i < 60; i++) {
+            b.append("{\"hostname\":\"host").append(random.nextInt(1000)).append(".example.com\",\"port\":").append(19100 + i);
+            b.append(",\"cluster\":\"music\",\"group\":").append(i % 4).append(",\"distribution-key\":").append(i).append('}');
+            b.append(i < 59 ? "," : "]}");
+        }
+        return b.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+}
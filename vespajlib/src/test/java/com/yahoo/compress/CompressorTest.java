@@ -3,10 +3,14 @@ package com.yahoo.compress;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * @author bjorncs
@@ -24,4 +28,37 @@ class CompressorTest {
         assertArrayEquals(inputData, decompressedData);
     }
 
+    @Test
+    void compresses_and_decompresses_inputs_of_varying_size_using_zstd() {
+        Compressor compressor = new Compressor(CompressionType.ZSTD);
+        for (int size : new int[] { 4000, 10, 100000, 300 }) {
+            byte[] inputData = "The quick brown fox jumps over the lazy dog".repeat(size / 43 + 1).substring(0, size).getBytes();
+            Compressor.Compression compression = compressor.compress(inputData);
+            assertEquals(CompressionType.ZSTD, compression.type());
+            byte[] compressedData = compression.data();
+            assertArrayEquals(inputData, compressor.decompress(CompressionType.ZSTD, compressedData, 0, size, Optional.of(compressedData.length)));
+        }
+    }
+
+    @Test
+    void retained_zstd_compressors_are_bounded() throws InterruptedException {
+        byte[] inputData = "The quick brown fox jumps over the lazy dog".repeat(100).getBytes();
+        Compressor compressor = new Compressor(CompressionType.ZSTD);
+        AtomicInteger roundtrips = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4 * Compressor.MAX_RETAINED_ZSTD_COMPRESSORS; i++)
+            threads.add(new Thread(() -> {
+                for (int j = 0; j < 100; j++) {
+                    byte[] compressedData = compressor.compress(inputData).data();
+                    assertArrayEquals(inputData, compressor.decompress(CompressionType.ZSTD, compressedData, 0, inputData.length, Optional.of(compressedData.length)));
+                    roundtrips.incrementAndGet();
+                }
+            }));
+        for (Thread thread : threads) thread.start();
+        for (Thread thread : threads) thread.join();
+
+        assertEquals(threads.size() * 100, roundtrips.get());
+        assertTrue(Compressor.retainedZstdCompressors() <= Compressor.MAX_RETAINED_ZSTD_COMPRESSORS);
+    }
+
 }
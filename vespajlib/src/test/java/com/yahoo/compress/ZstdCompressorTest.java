@@ -3,7 +3,12 @@ package com.yahoo.compress;
 
 import org.junit.jupiter.api.Test;
 
+import java.nio.ByteBuffer;
+
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -34,4 +39,40 @@ class ZstdCompressorTest {
                 () -> "Compressed size is " + compressedData.length + " while uncompressed size is " + inputData.length);
     }
 
+    @Test
+    void compresses_and_decompresses_byte_buffers() {
+        byte[] inputData = "The quick brown fox jumps over the lazy dog".repeat(10).getBytes();
+        ZstdCompressor compressor = new ZstdCompressor();
+        for (boolean direct : new boolean[] { false, true }) {
+            ByteBuffer input = allocate(inputData.length + 3, direct);
+            input.position(3);
+            input.put(inputData).flip().position(3);
+            ByteBuffer compressed = allocate(ZstdCompressor.getMaxCompressedLength(inputData.length) + 2, direct);
+            compressed.position(2);
+            compressor.compress(input, compressed);
+            assertFalse(input.hasRemaining());
+            compressed.flip().position(2);
+            assertTrue(compressed.remaining() < inputData.length);
+
+            ByteBuffer output = allocate(inputData.length, direct);
+            compressor.decompress(compressed, output);
+            assertFalse(compressed.hasRemaining());
+            assertEquals(inputData.length, output.position());
+            byte[] decompressedData = new byte[inputData.length];
+            output.flip().get(decompressedData);
+            assertArrayEquals(inputData, decompressedData);
+        }
+    }
+
+    @Test
+    void requires_room_for_worst_case_compression() {
+        ByteBuffer input = ByteBuffer.wrap(new byte[1000]);
+        ByteBuffer output = ByteBuffer.allocate(100);
+        assertThrows(IllegalArgumentException.class, () -> new ZstdCompressor().compress(input, output));
+    }
+
+    private static ByteBuffer allocate(int size, boolean direct) {
+        return direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+    }
+
 }
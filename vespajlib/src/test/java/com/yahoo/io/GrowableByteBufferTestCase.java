@@ -766,6 +766,22 @@ public class GrowableByteBufferTestCase {
         assertEquals(grow, g.getGrowFactor(), delta);
     }
 
+    @Test
+    public void testUtf8Strings() {
+        String[] strings = { "", "ascii", "bl\u00e5b\u00e6r", "\u5370\u57df\ud800\udc00", "long ".repeat(100) };
+        GrowableByteBuffer g = new GrowableByteBuffer(4);
+        for (String s : strings)
+            g.putUtf8String(s);
+        g.flip();
+        for (String s : strings)
+            assertEquals(s, g.getUtf8String());
+        assertFalse(g.hasRemaining());
+
+        g = GrowableByteBuffer.wrap(new byte[] { 0, 3, 'a', 'b', 'c', 'd' }, 1, 5);
+        assertEquals("abc", g.getUtf8String());
+        assertEquals('d', g.get());
+    }
+
     @Test
     public void testByteBufferMethods() {
         GrowableByteBuffer g = fullBuffer();
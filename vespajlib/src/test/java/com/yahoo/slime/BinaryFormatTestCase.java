@@ -5,6 +5,10 @@ import com.yahoo.compress.CompressionType;
 import com.yahoo.compress.Compressor;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import static com.yahoo.slime.BinaryFormat.decode_double;
 import static com.yahoo.slime.BinaryFormat.decode_meta;
 import static com.yahoo.slime.BinaryFormat.decode_type;
@@ -564,4 +568,44 @@ public class BinaryFormatTestCase {
         assertArrayEquals(expd, c.field("f").asData());
         assertFalse(c.entry(5).valid()); // not ARRAY
     }
+
+    @Test
+    public void testEncodingReusesOutputBetweenCalls() {
+        Slime large = new Slime();
+        large.setData(new byte[BinaryFormat.MAX_RETAINED_OUTPUT_SIZE / 2]);
+        Slime small = new Slime();
+        small.setObject().setString("a", "b");
+
+        byte[] encodedSmall = BinaryFormat.encode(small);
+        byte[] encodedLarge = BinaryFormat.encode(large);
+        assertArrayEquals(encodedSmall, BinaryFormat.encode(small));
+        assertArrayEquals(encodedLarge, BinaryFormat.encode(large));
+        assertEquals("b", BinaryFormat.decode(BinaryFormat.encode(small)).get().field("a").asString());
+
+        large.setData(new byte[BinaryFormat.MAX_RETAINED_OUTPUT_SIZE * 2]);
+        assertEquals(BinaryFormat.MAX_RETAINED_OUTPUT_SIZE * 2, BinaryFormat.decode(BinaryFormat.encode(large)).get().asData().length);
+        assertArrayEquals(encodedSmall, BinaryFormat.encode(small));
+    }
+
+    @Test
+    public void testRetainedOutputsAreBounded() throws InterruptedException {
+        Slime slime = new Slime();
+        slime.setData(new byte[1000]);
+        byte[] expected = BinaryFormat.encode(slime);
+        List<Thread> threads = new ArrayList<>();
+        List<byte[]> encoded = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 4 * BinaryFormat.MAX_RETAINED_OUTPUTS; i++)
+            threads.add(new Thread(() -> {
+                for (int j = 0; j < 100; j++)
+                    encoded.add(BinaryFormat.encode(slime));
+            }));
+        for (Thread thread : threads) thread.start();
+        for (Thread thread : threads) thread.join();
+
+        assertEquals(threads.size() * 100, encoded.size());
+        for (byte[] bytes : encoded)
+            assertArrayEquals(expected, bytes);
+        assertTrue(BinaryFormat.retainedOutputs() <= BinaryFormat.MAX_RETAINED_OUTPUTS);
+    }
+
 }
@@ -0,0 +1,65 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.slime;
+
+import com.yahoo.test.Microbenchmark;
+import com.yahoo.test.Microbenchmark.Operation;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+/**
+ * Microbenchmark of binary and JSON encoding and decoding of docsum-shaped Slime payloads,
+ * comparing the Slime value tree with the index based BinaryView, and reporting time and heap
+ * allocation per payload.
+ */
+public class DocsumSlimeBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        Slime slime = createDocsums(100, new Random(42));
+        byte[] binary = BinaryFormat.encode(slime);
+        JsonFormat json = new JsonFormat(true);
+        for (int i = 0; i < iterations; i++) { // warmup
+            BinaryFormat.encode(slime);
+            json.encode(OutputStream.nullOutputStream(), BinaryFormat.decode(binary));
+            json.encode(OutputStream.nullOutputStream(), BinaryView.inspect(binary));
+        }
+        System.out.println("Payload of " + binary.length + " bytes");
+        report("binary encode", iterations, () -> BinaryFormat.encode(slime));
+        report("decode to Slime", iterations, () -> BinaryFormat.decode(binary));
+        report("decode to BinaryView", iterations, () -> BinaryView.inspect(binary));
+        report("Slime to JSON", iterations, () -> json.encode(OutputStream.nullOutputStream(), slime));
+        report("binary -> Slime -> JSON", iterations,
+               () -> json.encode(OutputStream.nullOutputStream(), BinaryFormat.decode(binary)));
+        report("binary -> BinaryView -> JSON", iterations,
+               () -> json.encode(OutputStream.nullOutputStream(), BinaryView.inspect(binary)));
+    }
+
+    private static void report(String operation, int iterations, Operation<IOException> op) throws IOException {
+        System.out.printf("%-30s %s%n", operation, Microbenchmark.measure(iterations, op));
+    }
+
+    /** Creates a payload shaped like a docsum reply from the content nodes */
+    static Slime createDocsums(int count, Random random) {
+        Slime slime = new Slime();
+        Cursor docsums = slime.setObject().setArray("docsums");
+        for (int i = 0; i < count; i++) {
+            Cursor docsum = docsums.addObject().setObject("docsum");
+            docsum.setString("documentid", "id:namespace:music::document-" + i);
+            docsum.setString("title", "The title of document number " + i);
+            docsum.setString("body", "Lorem ipsum dolor sit amet, consectetur adipiscing elit. ".repeat(8));
+            docsum.setLong("year", 1950 + random.nextInt(70));
+            docsum.setDouble("popularity", random.nextDouble());
+            docsum.setBool("available", random.nextBoolean());
+            Cursor tags = docsum.setArray("tags");
+            for (int t = 0; t < 5; t++)
+                tags.addString("tag" + random.nextInt(100));
+            byte[] embedding = new byte[384];
+            random.nextBytes(embedding);
+            docsum.setData("embedding", embedding);
+        }
+        return slime;
+    }
+
+}
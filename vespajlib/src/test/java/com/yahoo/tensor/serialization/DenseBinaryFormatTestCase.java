@@ -2,6 +2,7 @@
 package com.yahoo.tensor.serialization;
 
 import com.yahoo.io.GrowableByteBuffer;
+import com.yahoo.tensor.IndexedBufferTensor;
 import com.yahoo.tensor.Tensor;
 import com.yahoo.tensor.TensorType;
 import org.junit.Test;
@@ -108,6 +109,36 @@ public class DenseBinaryFormatTestCase {
         assertSerialization("tensor<int8>(x[2],y[2]):[2, 3, 4, 5]");
     }
 
+    @Test
+    public void testLazyDeserialization() {
+        assertLazySerialization("tensor(x[],y[]):{{x:0,y:0}:2.0, {x:0,y:1}:3.0, {x:1,y:0}:4.0, {x:1,y:1}:5.0}");
+        assertLazySerialization("tensor<float>(x[2],y[2]):[2.0, 3.0, 4.0, 5.0]");
+        assertLazySerialization("tensor<bfloat16>(x[2],y[2]):[2.0, 3.0, 4.0, 5.0]");
+        assertLazySerialization("tensor<int8>(x[2],y[2]):[2, 3, 4, 5]");
+        assertLazySerialization("tensor(x{}):{{x:a}:1.0}");
+    }
+
+    @Test
+    public void testLazyDeserializationDoesNotConsumeFollowingData() {
+        Tensor tensor = Tensor.from("tensor<float>(x[3]):[1.0, 2.0, 3.0]");
+        GrowableByteBuffer buffer = new GrowableByteBuffer();
+        TypedBinaryFormat.encode(tensor, buffer);
+        buffer.putInt(42);
+        buffer.flip();
+        assertEquals(tensor, TypedBinaryFormat.decodeLazily(Optional.empty(), buffer));
+        assertEquals(42, buffer.getInt());
+    }
+
+    private void assertLazySerialization(String tensorString) {
+        Tensor tensor = Tensor.from(tensorString);
+        byte[] encodedTensor = TypedBinaryFormat.encode(tensor);
+        Tensor decodedTensor = TypedBinaryFormat.decodeLazily(Optional.of(tensor.type()), GrowableByteBuffer.wrap(encodedTensor));
+        assertEquals(tensor.type().hasIndexedDimensions(), decodedTensor instanceof IndexedBufferTensor);
+        assertEquals(tensor, decodedTensor);
+        assertEquals(tensor.hashCode(), decodedTensor.hashCode());
+        assertEquals(Arrays.toString(encodedTensor), Arrays.toString(TypedBinaryFormat.encode(decodedTensor)));
+    }
+
     private void assertSerialization(String tensorString) {
         assertSerialization(Tensor.from(tensorString));
     }
@@ -0,0 +1,78 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.tensor.serialization;
+
+import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorAddress;
+import com.yahoo.tensor.TensorType;
+import com.yahoo.test.Microbenchmark;
+import com.yahoo.test.Microbenchmark.Operation;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+/**
+ * Microbenchmark of JSON encoding and decoding of tensors of various shapes,
+ * reporting time and heap allocation per tensor.
+ *
+ * Run with: java -cp target/classes:target/test-classes:... com.yahoo.tensor.serialization.JsonFormatBenchmark
+ */
+public class JsonFormatBenchmark {
+
+    private static final Random random = new Random(42);
+
+    public static void main(String[] args) throws IOException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        benchmark("dense float x[4096]", dense("tensor<float>(x[4096])"), iterations);
+        benchmark("dense double x[64],y[64]", dense("tensor(x[64],y[64])"), iterations);
+        benchmark("mapped 1000 cells", mapped(1000), iterations);
+        benchmark("mixed 32 blocks of 128", mixed(32, 128), iterations);
+    }
+
+    private static void benchmark(String name, Tensor tensor, int iterations) throws IOException {
+        byte[] json = JsonFormat.encode(tensor, true, false);
+        for (int i = 0; i < iterations; i++) { // warmup
+            JsonFormat.encode(tensor, true, false);
+            JsonFormat.encode(tensor, true, false, OutputStream.nullOutputStream());
+            JsonFormat.decode(tensor.type(), json);
+        }
+        report(name, "encode to byte[]", iterations, () -> JsonFormat.encode(tensor, true, false));
+        report(name, "encode to stream", iterations, () -> JsonFormat.encode(tensor, true, false, OutputStream.nullOutputStream()));
+        report(name, "decode", iterations, () -> JsonFormat.decode(tensor.type(), json));
+    }
+
+    private static void report(String name, String operation, int iterations, Operation<IOException> op) throws IOException {
+        System.out.printf("%-26s %-18s %s%n", name, operation, Microbenchmark.measure(iterations, op));
+    }
+
+    private static Tensor dense(String typeSpec) {
+        TensorType type = TensorType.fromSpec(typeSpec);
+        Tensor.Builder builder = Tensor.Builder.of(type);
+        if (type.rank() == 1) {
+            for (long i = 0; i < type.dimensions().get(0).size().get(); i++)
+                builder.cell(random.nextFloat(), i);
+        }
+        else {
+            for (long i = 0; i < type.dimensions().get(0).size().get(); i++)
+                for (long j = 0; j < type.dimensions().get(1).size().get(); j++)
+                    builder.cell(random.nextDouble(), i, j);
+        }
+        return builder.build();
+    }
+
+    private static Tensor mapped(int cells) {
+        Tensor.Builder builder = Tensor.Builder.of(TensorType.fromSpec("tensor(key{})"));
+        for (int i = 0; i < cells; i++)
+            builder.cell(TensorAddress.ofLabels("label" + i), random.nextDouble());
+        return builder.build();
+    }
+
+    private static Tensor mixed(int blocks, int blockSize) {
+        Tensor.Builder builder = Tensor.Builder.of(TensorType.fromSpec("tensor<float>(key{},x[" + blockSize + "])"));
+        for (int i = 0; i < blocks; i++)
+            for (int j = 0; j < blockSize; j++)
+                builder.cell(TensorAddress.ofLabels("label" + i, String.valueOf(j)), random.nextFloat());
+        return builder.build();
+    }
+
+}
@@ -2,11 +2,14 @@
 package com.yahoo.tensor.serialization;
 
 import com.yahoo.tensor.Tensor;
+import com.yahoo.tensor.TensorAddress;
 import com.yahoo.tensor.TensorType;
 import com.yahoo.text.JSON;
 import org.junit.Test;
 import org.junit.jupiter.api.Assertions;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 
 import static org.junit.Assert.assertEquals;
@@ -669,6 +672,23 @@ public class JsonFormatTestCase {
                               "{\"type\":\"tensor<float>(x[1])\",\"values\":[0.3333333432674408]}");
     }
 
+    @Test
+    public void testEncodeToStream() throws IOException {
+        Tensor tensor = Tensor.Builder.of("tensor(x{})").cell(TensorAddress.ofLabels("a\"b\n\u0001æ"), 1.0)
+                                                      .cell(TensorAddress.ofLabels("c"), Double.NaN)
+                                                      .build();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonFormat.encode(tensor, true, true, out);
+        assertEquals("{\"a\\\"b\\n\\u0001æ\":1.0,\"c\":null}", out.toString(StandardCharsets.UTF_8));
+
+        out = new ByteArrayOutputStream();
+        JsonFormat.encode(tensor, false, false, out);
+        assertEquals("{\"type\":\"tensor(x{})\",\"cells\":[" +
+                     "{\"address\":{\"x\":\"a\\\"b\\n\\u0001æ\"},\"value\":1.0}," +
+                     "{\"address\":{\"x\":\"c\"},\"value\":null}]}",
+                     out.toString(StandardCharsets.UTF_8));
+    }
+
     @Test
     public void testSpecialNumberStrings() {
         assertEquals(Double.POSITIVE_INFINITY, JsonFormat.decodeNumberString("Infinity"), 0.0);
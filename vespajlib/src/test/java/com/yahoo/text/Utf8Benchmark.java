@@ -0,0 +1,65 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.text;
+
+import com.yahoo.io.GrowableByteBuffer;
+import com.yahoo.test.Microbenchmark;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.util.function.Supplier;
+
+/**
+ * Microbenchmark of UTF-8 transcoding of ASCII, Latin-1 and CJK text,
+ * reporting time and heap allocation per string.
+ */
+public class Utf8Benchmark {
+
+    private static final String ascii = "The quick brown fox jumps over the lazy dog. ".repeat(6);
+    private static final String latin1 = "Blåbærsyltetøy på smørbrød, s'il vous plaît. ".repeat(6);
+    private static final String cjk = "日本語のテキストと中文文本以及한국어 텍스트。".repeat(6);
+
+    private static Object sink;
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        for (int round = 0; round < 2; round++) { // first round is warmup
+            boolean print = round > 0;
+            benchmark("ascii", ascii, iterations, print);
+            benchmark("latin-1", latin1, iterations, print);
+            benchmark("cjk", cjk, iterations, print);
+        }
+    }
+
+    private static void benchmark(String name, String text, int iterations, boolean print) {
+        byte[] utf8 = Utf8.toBytes(text);
+        byte[] padded = new byte[utf8.length + 16];
+        System.arraycopy(utf8, 0, padded, 8, utf8.length);
+        byte[] target = new byte[utf8.length + 16];
+        ByteBuffer targetBuffer = ByteBuffer.allocate(utf8.length + 16);
+        CharsetEncoder encoder = Utf8.getNewEncoder();
+        GrowableByteBuffer growable = new GrowableByteBuffer();
+        run(name, "toString(byte[], offset, length)", iterations, print, () -> Utf8.toString(padded, 8, utf8.length));
+        run(name, "toString(ByteBuffer)", iterations, print, () -> Utf8.toString(ByteBuffer.wrap(utf8)));
+        run(name, "toBytes(String, offset, length)", iterations, print, () -> Utf8.toBytes(text, 0, text.length()));
+        run(name, "toBytes(String, ..., byte[], ...)", iterations, print,
+            () -> Utf8.toBytes(text, 0, text.length(), target, 0));
+        run(name, "toBytes(String, ..., ByteBuffer)", iterations, print, () -> {
+            targetBuffer.clear();
+            Utf8.toBytes(text, 0, text.length(), targetBuffer, encoder);
+            return targetBuffer;
+        });
+        run(name, "GrowableByteBuffer put/get", iterations, print, () -> {
+            growable.clear();
+            growable.putUtf8String(text);
+            growable.flip();
+            return growable.getUtf8String();
+        });
+    }
+
+    private static void run(String name, String operation, int iterations, boolean print, Supplier<Object> op) {
+        Microbenchmark.Cost cost = Microbenchmark.measure(iterations, () -> sink = op.get());
+        if (print)
+            System.out.printf("%-8s %-36s %s%n", name, operation, cost);
+    }
+
+}
@@ -496,6 +496,44 @@ public class Utf8TestCase {
         assertArrayEquals(stringAsUtf8, handEncoded);
     }
 
+    @Test
+    public void testTranscodingMatchesStandardCodec() {
+        String[] strings = { "", "plain ascii", TEST_STRING, "bl\u00e5b\u00e6r", "\ud800\udc00 pair", "lone \ud800 high",
+                             "lone \udc00 low", "trailing high \ud800", "\u0000\u007f\u0080\u07ff\u0800\uffff" };
+        CharsetEncoder encoder = Utf8.getNewEncoder();
+        for (String s : strings) {
+            for (int offset = 0; offset <= Math.min(2, s.length()); offset++) {
+                int length = s.length() - offset;
+                byte[] expected = s.substring(offset).getBytes(StandardCharsets.UTF_8);
+                assertArrayEquals(s, expected, Utf8.toBytes(s, offset, length));
+
+                byte[] array = new byte[expected.length + 5];
+                assertEquals(s, expected.length, Utf8.toBytes(s, offset, length, array, 3));
+                assertArrayEquals(s, expected, Arrays.copyOfRange(array, 3, 3 + expected.length));
+                byte[] exactArray = new byte[expected.length];
+                assertEquals(s, expected.length, Utf8.toBytes(s, offset, length, exactArray, 0));
+                assertArrayEquals(s, expected, exactArray);
+
+                ByteBuffer buffer = ByteBuffer.allocate(expected.length + 5);
+                buffer.position(2);
+                Utf8.toBytes(s, offset, length, buffer, encoder);
+                assertEquals(s, 2 + expected.length, buffer.position());
+                assertArrayEquals(s, expected, Arrays.copyOfRange(buffer.array(), 2, 2 + expected.length));
+                ByteBuffer exactBuffer = ByteBuffer.allocate(expected.length);
+                Utf8.toBytes(s, offset, length, exactBuffer, encoder);
+                assertArrayEquals(s, expected, exactBuffer.array());
+
+                String decoded = new String(expected, StandardCharsets.UTF_8);
+                assertEquals(decoded, Utf8.toString(array, 3, expected.length));
+                ByteBuffer slice = ByteBuffer.wrap(buffer.array(), 1, expected.length + 1).slice();
+                slice.position(1);
+                assertEquals(decoded, Utf8.toString(slice));
+                assertEquals(slice.limit(), slice.position());
+                assertEquals(decoded, Utf8.toString(ByteBuffer.allocateDirect(expected.length).put(expected).flip()));
+            }
+        }
+    }
+
     @Test
     @Ignore
     public void benchmarkDecoding() {